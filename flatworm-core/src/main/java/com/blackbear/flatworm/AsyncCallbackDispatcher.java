@@ -0,0 +1,235 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.errors.ErrorBudgetExceededException;
+
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hands records over to the {@link FileParser}'s callbacks on an {@link Executor} rather than on the parsing thread. Ordering is provided
+ * by serial lanes - a single lane for {@link CallbackOrdering#GLOBAL} and a lane per record name for {@link
+ * CallbackOrdering#PER_RECORD_NAME} - each of which processes its records one at a time on the {@link Executor}. The number of records
+ * dispatched but not yet processed is bounded - the parsing thread waits once the bound is reached, so slow callbacks throttle the
+ * reading of the input rather than records piling up in memory.
+ *
+ * Should the {@link Executor} reject a task then it is run on the dispatching thread instead. Should the {@link FileParser}'s error budget
+ * be exceeded by a callback, the {@link ErrorBudgetExceededException} is held and rethrown on the parsing thread by the next call to
+ * {@link #dispatch} or {@link #await()}.
+ *
+ * @author Alan Henson
+ */
+@Slf4j
+class AsyncCallbackDispatcher {
+
+    private final FileParser fileParser;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final CallbackOrdering ordering;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final Lane globalLane = new Lane();
+    private final ConcurrentMap<String, Lane> recordNameLanes = new ConcurrentHashMap<>();
+    private final AtomicReference<ErrorBudgetExceededException> budgetExceeded = new AtomicReference<>();
+
+    /**
+     * Create an {@code AsyncCallbackDispatcher}.
+     *
+     * @param fileParser  The {@link FileParser} whose callbacks are to be invoked.
+     * @param executor    The {@link Executor} to invoke the callbacks on - {@code null} to use virtual threads when running on a JVM that
+     *                    supports them and the {@link ForkJoinPool#commonPool()} otherwise.
+     * @param ordering    The {@link CallbackOrdering}.
+     * @param maxInFlight The maximum number of records that can be dispatched but not yet processed.
+     */
+    AsyncCallbackDispatcher(FileParser fileParser, Executor executor, CallbackOrdering ordering, int maxInFlight) {
+        this.fileParser = fileParser;
+        this.ordering = ordering;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        ExecutorService virtualThreads = executor == null ? newVirtualThreadExecutor() : null;
+        this.ownsExecutor = virtualThreads != null;
+        if (virtualThreads != null) {
+            this.executor = virtualThreads;
+        } else {
+            this.executor = executor != null ? executor : ForkJoinPool.commonPool();
+        }
+    }
+
+    /**
+     * Dispatch a record - this waits for room should the maximum number of records already be in flight.
+     *
+     * @param recordName The name of the record.
+     * @param record     The {@link MatchedRecord}.
+     * @throws ErrorBudgetExceededException should a callback have exceeded the error budget.
+     */
+    void dispatch(String recordName, MatchedRecord record) {
+        ErrorBudgetExceededException exceeded = budgetExceeded.get();
+        if (exceeded != null) {
+            throw exceeded;
+        }
+
+        acquire(1);
+        Runnable task = () -> {
+            try {
+                fileParser.invokeCallbacks(recordName, record);
+            } catch (Exception e) {
+                try {
+                    fileParser.doExceptionCallback(e, e.getMessage(), record.getDataLine());
+                } catch (ErrorBudgetExceededException budgetException) {
+                    // Thrown on the parsing thread instead - throwing here would only end the lane.
+                    budgetExceeded.compareAndSet(null, budgetException);
+                }
+            } finally {
+                inFlight.release();
+            }
+        };
+
+        switch (ordering) {
+            case GLOBAL:
+                globalLane.submit(task);
+                break;
+            case PER_RECORD_NAME:
+                recordNameLanes.computeIfAbsent(recordName, name -> new Lane()).submit(task);
+                break;
+            default:
+                execute(task);
+                break;
+        }
+    }
+
+    /**
+     * Wait for all the records dispatched so far to be processed.
+     *
+     * @throws ErrorBudgetExceededException should a callback have exceeded the error budget - it is only thrown once.
+     */
+    void await() {
+        acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+        ErrorBudgetExceededException exceeded = budgetExceeded.getAndSet(null);
+        if (exceeded != null) {
+            throw exceeded;
+        }
+    }
+
+    /**
+     * Wait for all the records dispatched so far to be processed and release the {@link Executor} if it was created for this dispatcher.
+     */
+    void close() {
+        await();
+        if (ownsExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    /**
+     * Acquire permits for records in flight. Records may be dispatched from {@link ForkJoinPool} workers (e.g. when reading in parallel)
+     * while the callbacks run on the same pool, so waiting is done through {@link ForkJoinPool#managedBlock} - allowing the pool to
+     * compensate for the blocked worker rather than risk every worker waiting on callbacks that can then never run.
+     */
+    private void acquire(int permits) {
+        if (!inFlight.tryAcquire(permits)) {
+            boolean interrupted = false;
+            ForkJoinPool.ManagedBlocker blocker = new ForkJoinPool.ManagedBlocker() {
+                @Override
+                public boolean block() throws InterruptedException {
+                    inFlight.acquire(permits);
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return inFlight.tryAcquire(permits);
+                }
+            };
+            try {
+                ForkJoinPool.managedBlock(blocker);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                inFlight.acquireUninterruptibly(permits);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("Callback task rejected by the executor - running it on the dispatching thread.", e);
+            task.run();
+        }
+    }
+
+    /**
+     * Use {@code Executors.newVirtualThreadPerTaskExecutor()} when running on a JVM that provides it (Java 21+).
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        ExecutorService executorService = null;
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            executorService = (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Virtual threads are not available - callbacks will be invoked on the ForkJoinPool.commonPool().");
+        }
+        return executorService;
+    }
+
+    /**
+     * Runs the tasks submitted to it one at a time and in order on the {@link Executor} - a task is only scheduled when the lane goes from
+     * idle to busy and the lane then drains everything submitted to it.
+     */
+    private final class Lane implements Runnable {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        void submit(Runnable task) {
+            tasks.add(task);
+            if (pending.getAndIncrement() == 0) {
+                execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                try {
+                    tasks.poll().run();
+                } catch (RuntimeException e) {
+                    // The lane must keep draining - otherwise the tasks queued behind this one would never run.
+                    log.error("Callback task failed.", e);
+                }
+            } while (pending.decrementAndGet() != 0);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * A {@link BufferedReader} that reads lines directly from a {@link ByteSource}, starting at an arbitrary byte offset, and that keeps track
+ * of the byte offset at which each line starts. Lines are terminated by {@code \n}, {@code \r} or {@code \r\n} just as they are with
+ * {@link BufferedReader}. {@link #readLine()} is the primary means of reading - {@link #read()} and {@link #read(char[], int, int)} are
+ * served from the decoded line (and its original terminator), so the line offsets always refer to the whole line that was last decoded.
+ * Marking isn't supported.
+ *
+ * Should the {@link ByteSource} provide direct access to its bytes (see {@link ByteSource#view(long)}), such as a {@link MappedByteSource}
+ * does, lines are read straight from that view rather than first being copied into a buffer.
+ *
+ * The encoding must be one in which the line terminators are single bytes that can't appear within any other character (i.e. ASCII,
+ * ISO-8859-x, UTF-8, etc.) - see {@link #supportsCharset(Charset)}.
+ *
+ * @author Alan Henson
+ */
+public class ByteRangeLineReader extends BufferedReader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final ByteSource source;
+    private final Charset charset;
+    private final int bufferSize;
+    private final ByteScanner scanner = ByteScanner.getInstance();
+
+    private ByteBuffer buffer;
+    private ByteBuffer heapBuffer;
+
+    private long bufferStart;
+    private long position;
+    private byte[] lineBytes;
+
+    // The line decoded for read() along with its terminator and how much of the two has been read.
+    private String pendingLine;
+    private String pendingTerminator;
+    private int pendingIndex;
+
+    @Getter
+    private long lastLineStart;
+
+    public ByteRangeLineReader(ByteSource source, long start, Charset charset) {
+        this(source, start, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ByteRangeLineReader(ByteSource source, long start, Charset charset, int bufferSize) {
+        super(new StringReader(""), 1);
+        this.source = source;
+        this.charset = charset;
+        this.bufferSize = bufferSize;
+        this.buffer = ByteBuffer.allocate(0);
+        this.bufferStart = start;
+        this.position = start;
+        this.lastLineStart = -1;
+        this.lineBytes = new byte[256];
+    }
+
+    /**
+     * Determine if the given {@link Charset} encodes the line terminators as the single bytes {@code 0x0A} and {@code 0x0D}, which is what
+     * is required to be able to find line boundaries without decoding.
+     *
+     * @param charset The {@link Charset} to evaluate.
+     * @return {@code true} if the {@code charset} is supported and {@code false} if not.
+     */
+    public static boolean supportsCharset(Charset charset) {
+        return Arrays.equals(new byte[]{'\n'}, "\n".getBytes(charset)) && Arrays.equals(new byte[]{'\r'}, "\r".getBytes(charset));
+    }
+
+    /**
+     * Get the byte offset at which the next call to {@link #readLine()} will start.
+     *
+     * @return the byte offset.
+     */
+    public long getNextLineStart() {
+        return position;
+    }
+
+    /**
+     * Read the next line - the byte offset at which the line started is then available via {@link #getLastLineStart()}. Should part of a
+     * line have been read via {@link #read()} then the remainder of that line is returned.
+     *
+     * @return the line read, minus its terminator, or {@code null} if the end of the source has been reached.
+     * @throws IOException should reading from the {@link ByteSource} fail.
+     */
+    @Override
+    public String readLine() throws IOException {
+        String line = null;
+        if (pendingLine != null && pendingIndex <= pendingLine.length()
+                && pendingIndex < pendingLine.length() + pendingTerminator.length()) {
+            line = pendingLine.substring(pendingIndex);
+        }
+        pendingLine = null;
+        return line != null ? line : decodeLine();
+    }
+
+    /**
+     * Move past the lines that start before the given offset without decoding them.
+     *
+     * @param offset The byte offset - typically the start of a line.
+     * @return the number of lines moved past.
+     * @throws IOException should reading from the {@link ByteSource} fail.
+     */
+    long skipLines(long offset) throws IOException {
+        pendingLine = null;
+        long count = 0;
+        while (position < offset && peekByte() >= 0) {
+            count++;
+            boolean terminated = false;
+            while (!terminated && peekByte() >= 0) {
+                int from = (int) (position - bufferStart);
+                int limit = buffer.limit();
+                int end = scanner.indexOfEither(buffer, from, limit, (byte) '\n', (byte) '\r');
+                if (end < 0) {
+                    position += limit - from;
+                } else {
+                    position += end - from + 1;
+                    terminated = true;
+                    if (buffer.get(end) == '\r' && peekByte() == '\n') {
+                        position++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillPending()) {
+            return -1;
+        }
+        int lineLength = pendingLine.length();
+        int index = pendingIndex++;
+        return index < lineLength ? pendingLine.charAt(index) : pendingTerminator.charAt(index - lineLength);
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || length > chars.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+
+        int count = 0;
+        while (count < length && fillPending()) {
+            int lineLength = pendingLine.length();
+            if (pendingIndex < lineLength) {
+                int toCopy = Math.min(length - count, lineLength - pendingIndex);
+                pendingLine.getChars(pendingIndex, pendingIndex + toCopy, chars, offset + count);
+                pendingIndex += toCopy;
+                count += toCopy;
+            } else {
+                chars[offset + count++] = pendingTerminator.charAt(pendingIndex++ - lineLength);
+            }
+        }
+        return count > 0 ? count : -1;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        if (count < 0) {
+            throw new IllegalArgumentException("skip value is negative");
+        }
+        long skipped = 0;
+        while (skipped < count && fillPending()) {
+            int available = pendingLine.length() + pendingTerminator.length() - pendingIndex;
+            int toSkip = (int) Math.min(available, count - skipped);
+            pendingIndex += toSkip;
+            skipped += toSkip;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return (pendingLine != null && pendingIndex < pendingLine.length() + pendingTerminator.length()) || peekByte() >= 0;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The ByteSource is owned by whoever created this reader.
+    }
+
+    /**
+     * Make sure there is a decoded line with characters left to read.
+     *
+     * @return {@code true} if there are characters to read and {@code false} if the end of the source has been reached.
+     * @throws IOException should reading from the {@link ByteSource} fail.
+     */
+    private boolean fillPending() throws IOException {
+        if (pendingLine == null || pendingIndex >= pendingLine.length() + pendingTerminator.length()) {
+            pendingLine = decodeLine();
+            pendingIndex = 0;
+        }
+        return pendingLine != null;
+    }
+
+    /**
+     * Decode the next line, capturing its terminator in {@code pendingTerminator}.
+     *
+     * @return the line, minus its terminator, or {@code null} if the end of the source has been reached.
+     * @throws IOException should reading from the {@link ByteSource} fail.
+     */
+    private String decodeLine() throws IOException {
+        if (peekByte() < 0) {
+            return null;
+        }
+
+        lastLineStart = position;
+        int length = 0;
+        int terminator = -1;
+        while (terminator < 0 && peekByte() >= 0) {
+            // Scan the rest of the buffer in one go - a line only spans buffers when it crosses the end of one.
+            int offset = (int) (position - bufferStart);
+            int limit = buffer.limit();
+            int end = scanner.indexOfEither(buffer, offset, limit, (byte) '\n', (byte) '\r');
+            if (end < 0) {
+                end = limit;
+            } else {
+                terminator = buffer.get(end);
+            }
+
+            int count = end - offset;
+            if (length + count > lineBytes.length) {
+                lineBytes = Arrays.copyOf(lineBytes, Math.max(lineBytes.length * 2, length + count));
+            }
+            // The buffer is either our own heap buffer or a view created for this reader, so its position is ours to move.
+            buffer.position(offset);
+            buffer.get(lineBytes, length, count);
+            length += count;
+            position += count;
+        }
+
+        pendingTerminator = "";
+        if (terminator >= 0) {
+            position++;
+            pendingTerminator = terminator == '\n' ? "\n" : "\r";
+            if (terminator == '\r' && peekByte() == '\n') {
+                position++;
+                pendingTerminator = "\r\n";
+            }
+        }
+
+        return new String(lineBytes, 0, length, charset);
+    }
+
+    private int peekByte() throws IOException {
+        long offset = position - bufferStart;
+        if (offset >= buffer.limit()) {
+            fill();
+            offset = 0;
+            if (buffer.limit() == 0) {
+                return -1;
+            }
+        }
+        return buffer.get((int) offset) & 0xFF;
+    }
+
+    private void fill() throws IOException {
+        bufferStart = position;
+        ByteBuffer view = source.view(position);
+        if (view != null) {
+            buffer = view;
+        } else {
+            if (heapBuffer == null) {
+                heapBuffer = ByteBuffer.allocate(bufferSize);
+            }
+            buffer = heapBuffer;
+            buffer.clear();
+            int read = 0;
+            while (buffer.hasRemaining() && read >= 0) {
+                read = source.read(buffer, position + buffer.position());
+            }
+            buffer.flip();
+        }
+    }
+}
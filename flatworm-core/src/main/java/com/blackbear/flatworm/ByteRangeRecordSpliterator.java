@@ -0,0 +1,145 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link Spliterator} over the records that start within a byte range of a {@link ByteSource}. Splitting halves the range and moves the
+ * split point forward to a line that is known to start a record (see {@link RecordBoundaryDetector}), so multi-line records are never
+ * divided - the last record of a range may extend beyond it. Each range is parsed through its own {@link ParseContext}, which is given the
+ * range's {@link LineOffset} so that rejected records carry their line number within the source.
+ *
+ * Size estimates are in records once some have been parsed and are otherwise the number of bytes remaining, which is an upper bound.
+ * Errors are passed to the {@link FileParser}'s {@link com.blackbear.flatworm.callbacks.ExceptionCallback}s, just as they are by
+ * {@link FileParser#read()}, and parsing continues with the next record - other than for an {@link IOException} reading the {@link
+ * ByteSource}, which ends the range.
+ *
+ * @author Alan Henson
+ */
+@Slf4j
+final class ByteRangeRecordSpliterator implements Spliterator<MatchedRecord> {
+
+    private final FileParser fileParser;
+    private final FileFormat fileFormat;
+    private final ByteSource source;
+    private final Charset charset;
+    private final RecordBoundaryDetector detector;
+    private final long minimumSplitSize;
+    private final long limit;
+
+    private long start;
+    private LineOffset lineOffset;
+    private long recordStart;
+    private long recordsRead;
+    private boolean finished;
+    private ParseContext parseContext;
+    private ByteRangeLineReader reader;
+
+    ByteRangeRecordSpliterator(FileParser fileParser, FileFormat fileFormat, ByteSource source, Charset charset, long start, long limit,
+                               long minimumSplitSize) {
+        this(fileParser, fileFormat, source, charset, new RecordBoundaryDetector(fileFormat), start,
+                LineOffset.start(source, charset).next(start), limit, minimumSplitSize);
+    }
+
+    private ByteRangeRecordSpliterator(FileParser fileParser, FileFormat fileFormat, ByteSource source, Charset charset,
+                                       RecordBoundaryDetector detector, long start, LineOffset lineOffset, long limit,
+                                       long minimumSplitSize) {
+        this.fileParser = fileParser;
+        this.fileFormat = fileFormat;
+        this.source = source;
+        this.charset = charset;
+        this.detector = detector;
+        this.start = start;
+        this.lineOffset = lineOffset;
+        this.recordStart = start;
+        this.limit = limit;
+        this.minimumSplitSize = minimumSplitSize;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super MatchedRecord> action) {
+        if (reader == null) {
+            parseContext = fileParser.newParseContext();
+            parseContext.setLineOffset(lineOffset);
+            reader = new ByteRangeLineReader(source, start, charset);
+        }
+
+        MatchedRecord record = null;
+        while (record == null && !finished && recordStart < limit) {
+            try {
+                record = parseContext.nextRecord(reader);
+            } catch (IOException e) {
+                // The source is broken rather than the record - the reader's buffer can't be trusted any further.
+                fileParser.doExceptionCallback(e, e.getMessage(), parseContext.getCurrentParsedLine());
+                finished = true;
+            } catch (Exception e) {
+                fileParser.doParseExceptionCallback(e, parseContext.getCurrentParsedLine(), fileParser.toRejectedRecord(parseContext, e));
+                if (parseContext.hasUnparsedLine() && reader.getLastLineStart() == recordStart) {
+                    // Nothing was consumed - move on rather than failing on the same line again.
+                    parseContext.discardUnparsedLine();
+                }
+            }
+            recordStart = parseContext.hasUnparsedLine() ? reader.getLastLineStart() : reader.getNextLineStart();
+        }
+
+        if (record != null) {
+            recordsRead++;
+            action.accept(record);
+        }
+        return record != null;
+    }
+
+    @Override
+    public Spliterator<MatchedRecord> trySplit() {
+        Spliterator<MatchedRecord> prefix = null;
+        if (reader == null && limit - start >= 2 * minimumSplitSize) {
+            long split = -1;
+            try {
+                split = detector.findRecordStart(source, charset, start + (limit - start) / 2, limit);
+            } catch (Exception e) {
+                log.debug("Unable to find a record boundary in [{}, {}) - the range won't be split.", start, limit, e);
+            }
+
+            if (split > start && split < limit) {
+                prefix = new ByteRangeRecordSpliterator(fileParser, fileFormat, source, charset, detector, start, lineOffset, split,
+                        minimumSplitSize);
+                start = split;
+                lineOffset = lineOffset.next(split);
+                recordStart = split;
+            }
+        }
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        long remaining = finished ? 0 : Math.max(0, limit - recordStart);
+        long consumed = recordStart - start;
+        return recordsRead > 0 && consumed > 0 ? remaining * recordsRead / consumed : remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import java.nio.ByteBuffer;
+import java.util.ServiceLoader;
+
+/**
+ * Finds single-byte markers (line terminators, delimiters, quote characters) within a {@link ByteBuffer} several bytes at a time rather
+ * than testing each byte in turn. The default implementation, {@link SwarByteScanner}, compares eight bytes at a time using {@code long}
+ * arithmetic. Implementations making use of wider registers (e.g. one built on {@code jdk.incubator.vector} for newer JVMs) can be
+ * supplied through {@link ServiceLoader} - the first one that reports itself as available at runtime is used in place of the default.
+ *
+ * All methods use absolute indexes and leave the position and limit of the buffer untouched.
+ *
+ * @author Alan Henson
+ */
+public interface ByteScanner {
+
+    /**
+     * Find the first occurrence of a byte.
+     *
+     * @param buffer The buffer to search.
+     * @param from   The index to start searching at (inclusive).
+     * @param to     The index to stop searching at (exclusive).
+     * @param target The byte to find.
+     * @return the index of the first occurrence or {@code -1} if there is none.
+     */
+    int indexOf(ByteBuffer buffer, int from, int to, byte target);
+
+    /**
+     * Find the first occurrence of either of two bytes.
+     *
+     * @param buffer The buffer to search.
+     * @param from   The index to start searching at (inclusive).
+     * @param to     The index to stop searching at (exclusive).
+     * @param first  One of the bytes to find.
+     * @param second The other byte to find.
+     * @return the index of the first occurrence of either byte or {@code -1} if there is none.
+     */
+    int indexOfEither(ByteBuffer buffer, int from, int to, byte first, byte second);
+
+    /**
+     * Determine if this {@code ByteScanner} can be used in the running JVM - e.g. that the APIs it relies upon are present.
+     *
+     * @return {@code true} if it can be used and {@code false} if not.
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Get the {@code ByteScanner} to use - the first available one registered through {@link ServiceLoader} or else a
+     * {@link SwarByteScanner}. The choice is made once.
+     *
+     * @return the {@code ByteScanner}.
+     */
+    static ByteScanner getInstance() {
+        return SwarByteScanner.Holder.INSTANCE;
+    }
+}
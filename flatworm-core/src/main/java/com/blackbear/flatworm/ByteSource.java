@@ -0,0 +1,107 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Random access to the bytes of the data being parsed. This is what allows the input to be split into byte ranges that can be parsed
+ * independently of one another.
+ *
+ * @author Alan Henson
+ */
+public interface ByteSource {
+
+    /**
+     * Read bytes from the source into the given {@link ByteBuffer} starting at the given position.
+     *
+     * @param destination The buffer to fill - at most {@code destination.remaining()} bytes will be read.
+     * @param position    The offset within the source at which to start reading.
+     * @return the number of bytes read or {@code -1} if {@code position} is at or beyond the end of the source.
+     * @throws IOException should reading from the underlying source fail.
+     */
+    int read(ByteBuffer destination, long position) throws IOException;
+
+    /**
+     * Get the number of bytes available from the source.
+     *
+     * @return the size of the source in bytes.
+     * @throws IOException should the size of the underlying source not be obtainable.
+     */
+    long size() throws IOException;
+
+    /**
+     * Get direct access to the bytes starting at the given position without copying them, if the source supports it. Index {@code 0} of
+     * the returned buffer corresponds to {@code position} and the buffer may end before the end of the source, in which case this method
+     * is simply called again for the position following it.
+     *
+     * @param position The offset within the source.
+     * @return a read-only view of the bytes starting at {@code position} or {@code null} if the source can't provide one, in which case
+     * {@link #read(ByteBuffer, long)} must be used.
+     * @throws IOException should accessing the underlying source fail.
+     */
+    default ByteBuffer view(long position) throws IOException {
+        return null;
+    }
+
+    /**
+     * Create a {@code ByteSource} backed by a {@link FileChannel}. Positional reads are used so the channel can be shared between threads.
+     *
+     * @param channel The {@link FileChannel} to read from.
+     * @return a {@code ByteSource} backed by the given {@code channel}.
+     */
+    static ByteSource of(FileChannel channel) {
+        return new ByteSource() {
+            @Override
+            public int read(ByteBuffer destination, long position) throws IOException {
+                return channel.read(destination, position);
+            }
+
+            @Override
+            public long size() throws IOException {
+                return channel.size();
+            }
+        };
+    }
+
+    /**
+     * Create a {@code ByteSource} backed by a byte array.
+     *
+     * @param bytes The bytes to read from.
+     * @return a {@code ByteSource} backed by the given {@code bytes}.
+     */
+    static ByteSource of(byte[] bytes) {
+        return new ByteSource() {
+            @Override
+            public int read(ByteBuffer destination, long position) {
+                int count = -1;
+                if (position < bytes.length) {
+                    count = (int) Math.min(destination.remaining(), bytes.length - position);
+                    destination.put(bytes, (int) position, count);
+                }
+                return count;
+            }
+
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+        };
+    }
+}
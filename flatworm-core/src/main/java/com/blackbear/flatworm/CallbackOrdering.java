@@ -0,0 +1,41 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+/**
+ * Determines the order in which records are handed to the registered callbacks when they are dispatched asynchronously - see {@link
+ * FileParser#enableAsyncCallbacks(java.util.concurrent.Executor, CallbackOrdering, int)}.
+ *
+ * @author Alan Henson
+ */
+public enum CallbackOrdering {
+    /**
+     * Records are processed one at a time, in the order in which they were dispatched.
+     */
+    GLOBAL,
+
+    /**
+     * Records with the same record name are processed one at a time, in the order in which they were dispatched. Records with different
+     * names are processed concurrently - callbacks registered for more than one record name must be thread-safe.
+     */
+    PER_RECORD_NAME,
+
+    /**
+     * Records are processed concurrently and in no particular order - callbacks must be thread-safe.
+     */
+    UNORDERED
+}
@@ -0,0 +1,142 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+/**
+ * A {@link CharSequence} window over a range of another {@link CharSequence} (typically the line being parsed), which allows a field to
+ * be handed to converters without first copying it into a {@link String}. Trimming and justification move the bounds of the window rather
+ * than creating new strings. A {@link String} is only created, once, when {@link #toString()} is called.
+ *
+ * Instances are reused from field to field - a {@code CharSlice} is therefore only valid for the duration of the call it was passed to and
+ * {@link #toString()} must be used to retain its value.
+ *
+ * @author Alan Henson
+ */
+public final class CharSlice implements CharSequence {
+
+    private CharSequence source;
+    private int start;
+    private int end;
+    private String string;
+
+    public CharSlice() {
+        this("", 0, 0);
+    }
+
+    public CharSlice(CharSequence source, int start, int end) {
+        set(source, start, end);
+    }
+
+    /**
+     * Point this {@code CharSlice} at a new range.
+     *
+     * @param source The {@link CharSequence} to take the characters from.
+     * @param start  The index of the first character (inclusive).
+     * @param end    The index of the last character (exclusive).
+     * @return this {@code CharSlice}.
+     */
+    public CharSlice set(CharSequence source, int start, int end) {
+        if (start < 0 || end < start || end > source.length()) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + source.length());
+        }
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.string = null;
+        return this;
+    }
+
+    /**
+     * Remove leading and trailing whitespace using the same rules as {@link String#trim()}.
+     *
+     * @return this {@code CharSlice}.
+     */
+    public CharSlice trim() {
+        int newStart = start;
+        int newEnd = end;
+        while (newStart < newEnd && source.charAt(newStart) <= ' ') {
+            newStart++;
+        }
+        while (newStart < newEnd && source.charAt(newEnd - 1) <= ' ') {
+            newEnd--;
+        }
+        return narrow(newStart, newEnd);
+    }
+
+    /**
+     * Remove any of the {@code padCharacters} from the end and/or the start of the slice, matching the behavior of {@link
+     * Util#justify(String, String, java.util.Map, int)} when removing padding.
+     *
+     * @param padCharacters The characters considered to be padding.
+     * @param fromEnd       Whether or not to remove padding from the end (left justified values).
+     * @param fromStart     Whether or not to remove padding from the start (right justified values).
+     * @return this {@code CharSlice}.
+     */
+    public CharSlice strip(String padCharacters, boolean fromEnd, boolean fromStart) {
+        int newStart = start;
+        int newEnd = end;
+        if (fromEnd) {
+            while (newEnd > newStart && padCharacters.indexOf(source.charAt(newEnd - 1)) != -1) {
+                newEnd--;
+            }
+        }
+        if (fromStart) {
+            while (newStart < newEnd && padCharacters.indexOf(source.charAt(newStart)) != -1) {
+                newStart++;
+            }
+        }
+        return narrow(newStart, newEnd);
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+        }
+        return source.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end < start || end > length()) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        }
+        return new CharSlice(source, this.start + start, this.start + end);
+    }
+
+    @Override
+    public String toString() {
+        if (string == null) {
+            string = source.subSequence(start, end).toString();
+        }
+        return string;
+    }
+
+    private CharSlice narrow(int newStart, int newEnd) {
+        if (newStart != start || newEnd != end) {
+            start = newStart;
+            end = newEnd;
+            string = null;
+        }
+        return this;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+/**
+ * Determines how a {@link FileParser} reads a data file.
+ *
+ * @author Alan Henson
+ */
+public enum DataInputMode {
+    /**
+     * The data file is read through a {@link java.io.BufferedReader} wrapping a {@link java.io.FileInputStream}.
+     */
+    STREAM,
+
+    /**
+     * The data file is memory-mapped in windows via a {@link MappedByteSource} and lines are read directly from the mapped memory. This
+     * requires an encoding in which line terminators are single bytes (ASCII, ISO-8859-x, UTF-8, etc.) - {@link #STREAM} is used for any
+     * other encoding and for data provided as content rather than as a file.
+     */
+    MEMORY_MAPPED
+}
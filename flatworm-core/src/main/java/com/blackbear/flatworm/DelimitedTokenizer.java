@@ -0,0 +1,255 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.config.LineToken;
+import com.blackbear.flatworm.config.LineTokenIdentity;
+
+import java.util.Arrays;
+
+/**
+ * Reusable tokenizer for delimited lines. A single pass over the line records the bounds of each token into a preallocated {@code int}
+ * array rather than creating a {@link String} per token, and tokens are handed out as {@link CharSlice} views over the line. The pass
+ * jumps from one delimiter or quote character to the next (using {@link String#indexOf(int, int)} for {@link String} lines) rather than
+ * branching on every character.
+ *
+ * Quoting follows RFC 4180: delimiters between quote characters are part of the token, a doubled quote character within a quoted section
+ * is an escaped quote character and all other quote characters are removed. Only a token whose value isn't a contiguous run of the line
+ * (e.g. one containing an escaped quote character in its middle) is copied, into a scratch buffer that is shared by all tokens of the line.
+ *
+ * Tokens can be skipped (e.g. identity tokens) without shifting the others - the remaining tokens are addressed through an index mask.
+ *
+ * Instances are not thread-safe and the slices returned are only valid until the next line is tokenized.
+ *
+ * @author Alan Henson
+ */
+public final class DelimitedTokenizer {
+
+    private static final int DEFAULT_CAPACITY = 32;
+
+    // Layout of each token's entry in the bounds array.
+    private static final int RAW_START = 0;
+    private static final int RAW_END = 1;
+    private static final int VALUE_START = 2;
+    private static final int VALUE_END = 3;
+    private static final int IN_SCRATCH = 4;
+    private static final int STRIDE = 5;
+
+    private final StringBuilder scratch = new StringBuilder();
+    private final LineToken lineToken = new LineToken();
+    private final CharSlice lineTokenValue = new CharSlice();
+
+    private CharSequence line = "";
+    private int[] bounds;
+    private int[] visible;
+    private int tokenCount;
+    private int visibleCount;
+
+    // The value of the token being tokenized - a run of the line or, once not contiguous, a section of the scratch buffer.
+    private int runStart;
+    private int runEnd;
+    private int scratchStart;
+
+    public DelimitedTokenizer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a {@code DelimitedTokenizer} sized for the given number of tokens - more room is made as needed.
+     *
+     * @param initialCapacity The number of tokens to preallocate room for.
+     */
+    public DelimitedTokenizer(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        bounds = new int[capacity * STRIDE];
+        visible = new int[capacity];
+    }
+
+    /**
+     * Split the given line into tokens, replacing the tokens of the previously tokenized line.
+     *
+     * @param line      The line to tokenize.
+     * @param delimiter The character that separates the tokens.
+     * @param quote     The quote character - delimiters between quote characters are considered part of the token.
+     * @return the number of tokens found, which is always at least one.
+     */
+    public int tokenize(CharSequence line, char delimiter, char quote) {
+        this.line = line;
+        scratch.setLength(0);
+        tokenCount = 0;
+
+        int length = line.length();
+        int tokenStart = 0;
+        int nextDelimiter = -1;
+        int nextQuote = -1;
+        boolean inQuote = false;
+        startValue(0);
+
+        int i = 0;
+        while (i <= length) {
+            // Jump straight to the next character that matters rather than testing each one - the positions found are kept until passed.
+            if (nextDelimiter < i) {
+                nextDelimiter = find(line, delimiter, i, length);
+            }
+            if (nextQuote < i) {
+                nextQuote = find(line, quote, i, length);
+            }
+            int next = inQuote ? nextQuote : Math.min(nextDelimiter, nextQuote);
+            appendValue(i, next);
+            i = next;
+
+            if (i == length || (!inQuote && line.charAt(i) == delimiter)) {
+                if (scratchStart < 0) {
+                    addToken(tokenStart, i, runStart, runEnd, false);
+                } else {
+                    addToken(tokenStart, i, scratchStart, scratch.length(), true);
+                }
+                tokenStart = i + 1;
+                startValue(tokenStart);
+                i++;
+            } else if (inQuote && i + 1 < length && line.charAt(i + 1) == quote) {
+                // A doubled quote within a quoted section is a quote character - the second one is skipped.
+                appendValue(i, i + 1);
+                i += 2;
+            } else {
+                inQuote = !inQuote;
+                i++;
+            }
+        }
+
+        visibleCount = tokenCount;
+        for (int t = 0; t < tokenCount; t++) {
+            visible[t] = t;
+        }
+        return tokenCount;
+    }
+
+    /**
+     * Skip all the tokens that match the given {@link LineTokenIdentity} - the remaining tokens are renumbered without being moved.
+     *
+     * @param identity The {@link LineTokenIdentity} to evaluate each token against.
+     * @return the number of tokens that remain.
+     */
+    public int skipMatching(LineTokenIdentity identity) {
+        int retained = 0;
+        for (int i = 0; i < visibleCount; i++) {
+            if (!identity.matchesIdentity(getLineToken(i))) {
+                visible[retained++] = visible[i];
+            }
+        }
+        visibleCount = retained;
+        return visibleCount;
+    }
+
+    /**
+     * Get the number of tokens that haven't been skipped.
+     *
+     * @return the number of tokens.
+     */
+    public int getTokenCount() {
+        return visibleCount;
+    }
+
+    /**
+     * Point the given {@link CharSlice} at the value of a token - i.e. with the quoting removed.
+     *
+     * @param index The index of the token, not counting skipped tokens.
+     * @param slice The {@link CharSlice} to update.
+     * @return the updated {@link CharSlice}.
+     */
+    public CharSlice getToken(int index, CharSlice slice) {
+        int offset = offset(index);
+        CharSequence source = bounds[offset + IN_SCRATCH] != 0 ? scratch : line;
+        return slice.set(source, bounds[offset + VALUE_START], bounds[offset + VALUE_END]);
+    }
+
+    /**
+     * Get a {@link LineToken} view of a token. The same {@link LineToken} instance is returned by every call.
+     *
+     * @param index The index of the token, not counting skipped tokens.
+     * @return the {@link LineToken}.
+     */
+    public LineToken getLineToken(int index) {
+        int offset = offset(index);
+        getToken(index, lineTokenValue);
+        return lineToken.set(lineTokenValue, bounds[offset + RAW_END] - bounds[offset + RAW_START], bounds[offset + RAW_START]);
+    }
+
+    private void startValue(int position) {
+        runStart = position;
+        runEnd = position;
+        scratchStart = -1;
+    }
+
+    /**
+     * Add the characters of the line between {@code from} and {@code to} to the value of the current token. The value stays a view of the
+     * line for as long as the characters added are contiguous and is otherwise copied into the scratch buffer.
+     */
+    private void appendValue(int from, int to) {
+        if (from < to) {
+            if (scratchStart >= 0) {
+                scratch.append(line, from, to);
+            } else if (runStart == runEnd) {
+                runStart = from;
+                runEnd = to;
+            } else if (runEnd == from) {
+                runEnd = to;
+            } else {
+                scratchStart = scratch.length();
+                scratch.append(line, runStart, runEnd).append(line, from, to);
+            }
+        }
+    }
+
+    private static int find(CharSequence line, char target, int from, int length) {
+        int index;
+        if (line instanceof String) {
+            // String.indexOf is an intrinsic on newer JVMs, where it is vectorized.
+            index = ((String) line).indexOf(target, from);
+            if (index < 0) {
+                index = length;
+            }
+        } else {
+            index = from;
+            while (index < length && line.charAt(index) != target) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= visibleCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + visibleCount);
+        }
+        return visible[index] * STRIDE;
+    }
+
+    private void addToken(int rawStart, int rawEnd, int valueStart, int valueEnd, boolean inScratch) {
+        if (tokenCount == visible.length) {
+            visible = Arrays.copyOf(visible, tokenCount * 2);
+            bounds = Arrays.copyOf(bounds, tokenCount * 2 * STRIDE);
+        }
+        int offset = tokenCount * STRIDE;
+        bounds[offset + RAW_START] = rawStart;
+        bounds[offset + RAW_END] = rawEnd;
+        bounds[offset + VALUE_START] = valueStart;
+        bounds[offset + VALUE_END] = valueEnd;
+        bounds[offset + IN_SCRATCH] = inScratch ? 1 : 0;
+        tokenCount++;
+    }
+}
@@ -93,6 +93,32 @@ public class FileCreator {
         loadConfigurationFile(config);
     }
 
+    /**
+     * Constructor for FileCreator that uses an already loaded {@link FileFormat}, which can be shared with other {@link FileCreator} and
+     * {@link FileParser} instances.
+     *
+     * @param fileFormat The loaded configuration.
+     * @param file       Full path to output file.
+     */
+    public FileCreator(FileFormat fileFormat, String file) {
+        this.file = file;
+        this.outputStream = null;
+        this.ff = fileFormat;
+    }
+
+    /**
+     * Constructor for FileCreator that uses an already loaded {@link FileFormat}, which can be shared with other {@link FileCreator} and
+     * {@link FileParser} instances.
+     *
+     * @param fileFormat The loaded configuration.
+     * @param stream     The stream to write to.
+     */
+    public FileCreator(FileFormat fileFormat, OutputStream stream) {
+        this.file = null;
+        this.outputStream = stream;
+        this.ff = fileFormat;
+    }
+
     private void loadConfigurationFile(InputStream configStream) throws FlatwormConfigurationException {
         ConfigurationReader parser = new DefaultConfigurationReaderImpl();
         try {
@@ -225,9 +251,11 @@ public class FileCreator {
                             }
 
                             // Convert to String for output
-                            Object value = PropertyUtils.getProperty(bean, property);
+                            PropertyAccessor accessor = PropertyAccessor.forProperty(bean.getClass(), property);
+                            Object value = accessor != null && accessor.isReadable()
+                                    ? accessor.get(bean)
+                                    : PropertyUtils.getProperty(bean, property);
                             val = convHelper.convert(type, value, convOptions, beanRef);
-                            PropertyUtils.setProperty(bean, property, value);
                         } // end beanRef != null
                         // Handle any conversions that need to occur
                         if (val == null) {
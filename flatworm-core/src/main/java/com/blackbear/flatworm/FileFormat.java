@@ -16,14 +16,25 @@
 
 package com.blackbear.flatworm;
 
+import com.blackbear.flatworm.config.BeanBO;
+import com.blackbear.flatworm.config.CardinalityBO;
 import com.blackbear.flatworm.config.ConverterBO;
+import com.blackbear.flatworm.config.IdentityClassifier;
+import com.blackbear.flatworm.config.LineBO;
+import com.blackbear.flatworm.config.LineDispatcher;
+import com.blackbear.flatworm.config.LineElement;
 import com.blackbear.flatworm.config.RecordBO;
+import com.blackbear.flatworm.config.RecordDefinitionBO;
+import com.blackbear.flatworm.config.RecordElementBO;
+import com.blackbear.flatworm.config.SegmentElementBO;
 import com.blackbear.flatworm.converters.ConversionHelper;
+import com.blackbear.flatworm.converters.FieldConversion;
 import com.blackbear.flatworm.errors.FlatwormParserException;
 
+import org.apache.commons.lang.StringUtils;
+
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -37,6 +48,10 @@ import lombok.extern.slf4j.Slf4j;
  * The <code>FileFormat</code> is the point of entry into the Flatworm parser. It is generated from the XML Flatworm description, and can
  * then be used to read a line or lines from a file, determine if there is a matching record definition for the line(s), and return a
  * <code>HashMap</code> with the beans created by parsing the input.
+ *
+ * Once loaded, a {@code FileFormat} only holds configuration and may be shared by any number of threads - each stream of data should then
+ * be parsed through its own {@link ParseContext} (see {@link #newParseContext()}). The {@code nextRecord} methods on {@code FileFormat}
+ * itself use a single, shared {@link ParseContext} and are retained for single-threaded use.
  */
 @Slf4j
 public class FileFormat {
@@ -47,12 +62,14 @@ public class FileFormat {
     private Map<String, RecordBO> records;
     private List<RecordBO> recordOrder;
 
-    @Getter
-    private int lineNumber;
+    // Compiled lazily from recordOrder the first time a line is classified - reset whenever a record is added.
+    private volatile IdentityClassifier<RecordBO> recordClassifier;
 
-    // JBL - Used when parsing fails, gives access to bad line
-    @Getter
-    private String currentParsedLine = "";
+    // The ParseContext that is currently parsing on a given thread - used to report the parse state to scriptlets and identities.
+    private final ThreadLocal<ParseContext> activeParseContext;
+
+    // Used by the nextRecord methods on this class.
+    private volatile ParseContext defaultParseContext;
 
     @Getter
     @Setter
@@ -62,12 +79,6 @@ public class FileFormat {
     @Setter
     private boolean ignoreUnmappedRecords;
 
-    @Getter
-    private MatchedRecord lastRecordRead;
-    
-    @Getter
-    private RecordBO lastParsingRecord;
-
     @Getter
     @Setter
     private boolean enforceLineLengths;
@@ -75,8 +86,7 @@ public class FileFormat {
     public FileFormat() {
         records = new HashMap<>();
         recordOrder = new ArrayList<>();
-        currentParsedLine = "";
-        lineNumber = 0;
+        activeParseContext = new ThreadLocal<>();
         enforceLineLengths = true;
 
         // JBL
@@ -89,24 +99,197 @@ public class FileFormat {
 
     public void addRecord(RecordBO r) {
         r.setParentFileFormat(this);
+        r.setIndex(recordOrder.size());
         records.put(r.getName(), r);
         recordOrder.add(r);
+        recordClassifier = null;
     }
 
     public RecordBO getRecord(String name) {
         return records.get(name);
     }
 
+    /**
+     * Create a new {@link ParseContext} with which to parse a stream of data using this configuration.
+     *
+     * @return a new {@link ParseContext} instance.
+     */
+    public ParseContext newParseContext() {
+        return new ParseContext(this);
+    }
+
+    /**
+     * Get the line number of the {@link ParseContext} currently parsing on the calling thread (or of the shared {@link ParseContext} used
+     * by the {@code nextRecord} methods of this class if there isn't one).
+     *
+     * @return the line number.
+     */
+    public int getLineNumber() {
+        return getCurrentParseContext().getLineNumber();
+    }
+
+    /**
+     * Get the line being parsed by the {@link ParseContext} currently parsing on the calling thread (or by the shared {@link ParseContext}
+     * used by the {@code nextRecord} methods of this class if there isn't one).
+     *
+     * @return the line being parsed - this is useful when parsing fails.
+     */
+    public String getCurrentParsedLine() {
+        return getCurrentParseContext().getCurrentParsedLine();
+    }
+
+    /**
+     * Get the last record read by the {@link ParseContext} currently parsing on the calling thread (or by the shared {@link ParseContext}
+     * used by the {@code nextRecord} methods of this class if there isn't one).
+     *
+     * @return the last {@link MatchedRecord} read.
+     */
+    public MatchedRecord getLastRecordRead() {
+        return getCurrentParseContext().getLastRecordRead();
+    }
+
+    /**
+     * Get the {@link RecordBO} last used by the {@link ParseContext} currently parsing on the calling thread (or by the shared {@link
+     * ParseContext} used by the {@code nextRecord} methods of this class if there isn't one).
+     *
+     * @return the last {@link RecordBO} used for parsing.
+     */
+    public RecordBO getLastParsingRecord() {
+        return getCurrentParseContext().getLastParsingRecord();
+    }
+
+    /**
+     * Make the given {@link ParseContext} the one reported on the calling thread.
+     *
+     * @param parseContext The {@link ParseContext} to activate - {@code null} to deactivate the current one.
+     * @return the previously active {@link ParseContext} so that it can be restored.
+     */
+    ParseContext activateParseContext(ParseContext parseContext) {
+        ParseContext previous = activeParseContext.get();
+        if (parseContext != null) {
+            activeParseContext.set(parseContext);
+        } else {
+            activeParseContext.remove();
+        }
+        return previous;
+    }
+
+    private ParseContext getCurrentParseContext() {
+        ParseContext parseContext = activeParseContext.get();
+        return parseContext != null ? parseContext : getDefaultParseContext();
+    }
+
+    private ParseContext getDefaultParseContext() {
+        ParseContext parseContext = defaultParseContext;
+        if (parseContext == null) {
+            synchronized (this) {
+                parseContext = defaultParseContext;
+                if (parseContext == null) {
+                    parseContext = newParseContext();
+                    defaultParseContext = parseContext;
+                }
+            }
+        }
+        return parseContext;
+    }
+
+    /**
+     * Find the first {@link RecordBO} (in the order the records were configured) that matches the given line. Field and length identities
+     * are resolved through a compiled {@link IdentityClassifier} so that the cost doesn't grow with the number of records - only script
+     * identities are evaluated one by one.
+     *
+     * @param firstLine The line to classify.
+     * @return The matching {@link RecordBO} or {@code null} if there isn't one.
+     * @throws FlatwormParserException should a script identity fail to evaluate.
+     */
     public RecordBO findMatchingRecord(String firstLine) throws FlatwormParserException {
-        RecordBO result = null;
+        return getRecordClassifier().findMatch(firstLine);
+    }
+
+    /**
+     * Get the compiled {@link IdentityClassifier} for the configured records, compiling it if necessary. Should the identities of the
+     * records be modified after the first line has been classified then {@link #compileRecordClassifier()} must be called.
+     *
+     * @return the {@link IdentityClassifier} instance.
+     */
+    public IdentityClassifier<RecordBO> getRecordClassifier() {
+        IdentityClassifier<RecordBO> classifier = recordClassifier;
+        if (classifier == null) {
+            classifier = compileRecordClassifier();
+        }
+        return classifier;
+    }
+
+    /**
+     * (Re)compile the {@link IdentityClassifier} used to match lines to {@link RecordBO} instances.
+     *
+     * @return the newly compiled {@link IdentityClassifier} instance.
+     */
+    public IdentityClassifier<RecordBO> compileRecordClassifier() {
+        IdentityClassifier<RecordBO> classifier = new IdentityClassifier<>(recordOrder, RecordBO::getRecordIdentity,
+                (record, line) -> record.matchesLine(this, line));
+        recordClassifier = classifier;
+        return classifier;
+    }
+
+    /**
+     * Prepare the loaded configuration for parsing so that the work isn't done while parsing the first records - the {@link
+     * IdentityClassifier} and each record's {@link LineDispatcher} are compiled, the bean properties referenced by the records are resolved
+     * to {@link PropertyAccessor}s and each field's converter and conversion options are compiled into a {@link FieldConversion}. This is
+     * invoked by the configuration readers once the configuration has been loaded.
+     */
+    public void compile() {
+        compileRecordClassifier();
         for (RecordBO record : recordOrder) {
-            if (record.matchesLine(this, firstLine)) {
-                result = record;
-                break;
+            RecordDefinitionBO recordDefinition = record.getRecordDefinition();
+            if (recordDefinition != null) {
+                recordDefinition.compileLineDispatcher();
+                for (LineBO line : recordDefinition.getLines()) {
+                    compileLineElements(recordDefinition, line.getLineElements());
+                }
+                for (LineBO line : recordDefinition.getLinesWithIdentities()) {
+                    compileLineElements(recordDefinition, line.getLineElements());
+                }
+            }
+        }
+    }
+
+    private void compileLineElements(RecordDefinitionBO recordDefinition, List<LineElement> lineElements) {
+        for (LineElement lineElement : lineElements) {
+            CardinalityBO cardinality = lineElement.getCardinality();
+            if (lineElement instanceof RecordElementBO && cardinality != null) {
+                resolveBeanProperty(recordDefinition, cardinality.getBeanRef(), cardinality.getPropertyName());
+                compileConversion(recordDefinition, RecordElementBO.class.cast(lineElement));
+            } else if (lineElement instanceof SegmentElementBO) {
+                if (cardinality != null) {
+                    resolveBeanProperty(recordDefinition, cardinality.getParentBeanRef(), cardinality.getPropertyName());
+                }
+                compileLineElements(recordDefinition, SegmentElementBO.class.cast(lineElement).getLineElements());
+            }
+        }
+    }
+
+    private void compileConversion(RecordDefinitionBO recordDefinition, RecordElementBO recordElement) {
+        if (!StringUtils.isBlank(recordElement.getConverterName())) {
+            CardinalityBO cardinality = recordElement.getCardinality();
+            FieldConversion conversion = conversionHelper.compile(recordElement.getConverterName(), recordElement.getConversionOptions(),
+                    cardinality.getBeanRef() + "." + cardinality.getPropertyName());
+
+            // Appended values have to go through the mapping strategy.
+            BeanBO bean = cardinality.getBeanRef() != null ? recordDefinition.getBeanMap().get(cardinality.getBeanRef()) : null;
+            if (conversion != null && bean != null && !recordElement.getConversionOptions().containsKey("append")) {
+                PropertyAccessor accessor = PropertyAccessor.forProperty(bean.getBeanObjectClass(), cardinality.getPropertyName());
+                conversion = conversion.bindProperty(accessor);
             }
+            recordElement.setFieldConversion(conversion);
+        }
+    }
+
+    private void resolveBeanProperty(RecordDefinitionBO recordDefinition, String beanRef, String property) {
+        BeanBO bean = beanRef != null ? recordDefinition.getBeanMap().get(beanRef) : null;
+        if (bean != null && PropertyAccessor.forProperty(bean.getBeanObjectClass(), property) == null) {
+            log.debug("Property {} of bean {} will be accessed through PropertyUtils.", property, beanRef);
         }
-        
-        return result;
     }
 
     /**
@@ -132,7 +315,8 @@ public class FileFormat {
     }
 
     /**
-     * When called with a {@code BufferedReader}, reads sufficient lines to parse a record, and returns the beans created.
+     * When called with a {@code BufferedReader}, reads sufficient lines to parse a record, and returns the beans created. This uses a
+     * {@link ParseContext} that is shared by all callers - use {@link #newParseContext()} when parsing more than one stream.
      *
      * @param in The stream to read from. Note that the reader is not closed by this method so the caller must perform the {@code close()}
      *           operation on the reader.
@@ -141,39 +325,7 @@ public class FileFormat {
      * @throws IOException             Should an I/O issue occur.
      */
     public MatchedRecord nextRecord(BufferedReader in) throws FlatwormParserException, IOException {
-
-        MatchedRecord matchedRecord = null;
-        if (lastParsingRecord == null || lastParsingRecord.isParsedLastReadLine()) {
-            currentParsedLine = in.readLine();
-            lineNumber++;
-        } else if(lastParsingRecord != null) {
-            currentParsedLine = lastParsingRecord.getLastReadLine();
-        }
-
-        if (currentParsedLine != null) {
-            RecordBO record = findMatchingRecord(currentParsedLine);
-            if (record != null) {
-                lastParsingRecord = record;
-                record.setEnforceLineLengths(isEnforceLineLengths());
-                if (record.getBeforeScriptlet() != null) {
-                    record.getBeforeScriptlet().invokeFunction(this, currentParsedLine);
-                }
-
-                Map<String, Object> beans = record.parseRecord(currentParsedLine, in, conversionHelper);
-                matchedRecord = new MatchedRecord(record.getName(), beans, currentParsedLine);
-                lastRecordRead = matchedRecord;
-
-                if (record.getAfterScriptlet() != null) {
-                    record.getAfterScriptlet().invokeFunction(this);
-                }
-            } else if (!ignoreUnmappedRecords) {
-                throw new FlatwormParserException(String.format(
-                        "Configuration not found for line in input file [line: %d] - %s", lineNumber, currentParsedLine
-                ));
-            }
-        }
-
-        return matchedRecord;
+        return getDefaultParseContext().nextRecord(in);
     }
 
     /**
@@ -185,13 +337,7 @@ public class FileFormat {
      * @throws FlatwormParserException should an issue occur while parsing the data content.
      */
     public MatchedRecord nextRecord(String line) throws FlatwormParserException {
-        MatchedRecord matchedRecord;
-        try {
-            matchedRecord = nextRecord(new BufferedReader(new StringReader(line)));
-        } catch (Exception e) {
-            throw new FlatwormParserException(e.getMessage(), e);
-        }
-        return matchedRecord;
+        return getDefaultParseContext().nextRecord(line);
     }
 
     /**
@@ -203,14 +349,6 @@ public class FileFormat {
      * @throws FlatwormParserException should an issue occur while parsing the data content.
      */
     public MatchedRecord nextRecord(List<String> lines) throws FlatwormParserException {
-        MatchedRecord matchedRecord;
-        try {
-            StringBuilder builder = new StringBuilder();
-            lines.forEach(line -> builder.append(line).append(String.format("%n")));
-            matchedRecord = nextRecord(new BufferedReader(new StringReader(builder.toString())));
-        } catch (Exception e) {
-            throw new FlatwormParserException(e.getMessage(), e);
-        }
-        return matchedRecord;
+        return getDefaultParseContext().nextRecord(lines);
     }
 }
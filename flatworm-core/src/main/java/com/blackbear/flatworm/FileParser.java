@@ -20,12 +20,19 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 
+import com.blackbear.flatworm.annotations.Record;
+import com.blackbear.flatworm.callbacks.BatchRecordCallback;
 import com.blackbear.flatworm.callbacks.ExceptionCallback;
 import com.blackbear.flatworm.callbacks.RecordCallback;
 import com.blackbear.flatworm.config.ConfigurationReader;
 import com.blackbear.flatworm.config.RecordBO;
 import com.blackbear.flatworm.config.impl.DefaultConfigurationReaderImpl;
+import com.blackbear.flatworm.errors.ErrorBudgetExceededException;
 import com.blackbear.flatworm.errors.FlatwormConfigurationException;
+import com.blackbear.flatworm.errors.ParseErrorChannel;
+import com.blackbear.flatworm.errors.QuarantineWriter;
+import com.blackbear.flatworm.errors.RejectedRecord;
+import com.blackbear.flatworm.flow.RecordPublisher;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -37,10 +44,26 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -48,18 +71,96 @@ import lombok.extern.slf4j.Slf4j;
  * main() of the examples. This way, the client knows less about the internal workings of FlatWorm.
  */
 @Slf4j
-public class FileParser implements Closeable {
+public class FileParser implements Closeable, Iterable<MatchedRecord> {
+
+    /**
+     * The default number of bytes each chunk covers when reading in parallel.
+     */
+    public static final long DEFAULT_PARALLEL_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * The default for {@link #getMinimumSplitSize()}.
+     */
+    public static final long DEFAULT_MINIMUM_SPLIT_SIZE = 1024 * 1024;
+
     private ListMultimap<String, RecordCallback> recordCallbacks = ArrayListMultimap.create();
 
     private List<ExceptionCallback> exceptionCallbacks = new ArrayList<>();
 
+    /**
+     * Counts the errors passed to the {@link ExceptionCallback}s, logs a sample of them and aborts the parse once its error budget is
+     * exceeded.
+     */
+    @Getter
+    @Setter
+    private ParseErrorChannel errorChannel = new ParseErrorChannel();
+
+    /**
+     * Should a {@link QuarantineWriter} be set, every record that fails to parse is written to it - with all of its raw lines - before the
+     * error is passed to the {@link ExceptionCallback}s. The {@link QuarantineWriter} isn't closed by this parser.
+     */
+    @Getter
+    @Setter
+    private QuarantineWriter quarantineWriter;
+
+    private ListMultimap<String, RecordBatcher> batchCallbacks = ArrayListMultimap.create();
+
+    // Copy of the values of batchCallbacks so that checking for expired batches doesn't need to walk the multimap for every record.
+    private volatile RecordBatcher[] batchers = new RecordBatcher[0];
+
+    private List<RecordHandler<?>> handlers = new ArrayList<>();
+
+    /**
+     * The registered {@link RecordHandler}s indexed by {@link RecordBO#getIndex()} - compiled once the configuration is known.
+     */
+    private volatile RecordHandler<?>[][] handlerTable = new RecordHandler<?>[0][];
+
     protected File configFile;
     protected File dataInputFile;
 
     protected String dataInputContent;
     protected String configContent;
     protected FileFormat fileFormat;
+    protected ParseContext parseContext;
     protected BufferedReader bufIn;
+    protected MappedByteSource mappedSource;
+
+    /**
+     * How the data file is read - must be set before calling {@link #open()}.
+     */
+    @Getter
+    @Setter
+    private DataInputMode dataInputMode = DataInputMode.STREAM;
+
+    /**
+     * The number of bytes mapped at a time when using {@link DataInputMode#MEMORY_MAPPED}.
+     */
+    @Getter
+    @Setter
+    private int mappedWindowSize = MappedByteSource.DEFAULT_WINDOW_SIZE;
+
+    /**
+     * The smallest number of bytes that the {@link Spliterator} returned by {@link #spliterator()} will split off into its own range.
+     */
+    @Getter
+    @Setter
+    private long minimumSplitSize = DEFAULT_MINIMUM_SPLIT_SIZE;
+
+    /**
+     * Whether or not {@link #read()} recycles the bean instances between records rather than creating new ones for each record (see {@link
+     * com.blackbear.flatworm.config.BeanPool}). By enabling this, the caller promises not to retain the beans (or the {@link
+     * MatchedRecord}) beyond the callback they were handed to. Beans are only recycled while the callbacks are invoked synchronously and
+     * no {@link BatchRecordCallback}s are registered - as otherwise records are processed after the next one has been read - and never by
+     * {@link #readParallel(ParallelDeliveryMode)}, {@link #stream()} or {@link #publisher()}.
+     */
+    @Getter
+    @Setter
+    private boolean reuseBeans;
+
+    private volatile AsyncCallbackDispatcher callbackDispatcher;
+
+    // Channels opened for spliterators - closed along with this FileParser.
+    private final List<Closeable> spliteratorResources = new ArrayList<>();
 
     protected FileParser() {
     }
@@ -108,6 +209,30 @@ public class FileParser implements Closeable {
         this.dataInputFile = dataInputFile;
     }
 
+    /**
+     * Constructor for FileParser that uses an already loaded {@link FileFormat}. As the {@link FileFormat} only holds configuration, it can
+     * be shared by any number of {@link FileParser} instances, including those reading on different threads.
+     *
+     * @param fileFormat    The loaded configuration.
+     * @param dataInputFile The data file to parse using the provided configuration.
+     */
+    public FileParser(FileFormat fileFormat, File dataInputFile) {
+        this.fileFormat = fileFormat;
+        this.dataInputFile = dataInputFile;
+    }
+
+    /**
+     * Constructor for FileParser that uses an already loaded {@link FileFormat}. As the {@link FileFormat} only holds configuration, it can
+     * be shared by any number of {@link FileParser} instances, including those reading on different threads.
+     *
+     * @param fileFormat       The loaded configuration.
+     * @param dataInputContent The content to parse using the provided configuration.
+     */
+    public FileParser(FileFormat fileFormat, String dataInputContent) {
+        this.fileFormat = fileFormat;
+        this.dataInputContent = dataInputContent;
+    }
+
     /**
      * Provide a callback object that doesn't require reflection to be invoked. The {@code MatchedRecord} will be passed back to the
      * callback. Add a callback for each record converterName specified in the configuration file.
@@ -134,6 +259,218 @@ public class FileParser implements Closeable {
         return recordCallbacks.get(recordName).remove(callback);
     }
 
+    /**
+     * Register a {@link BatchRecordCallback} that receives the records for the given record name in batches of up to {@code batchSize}
+     * records. Partial batches are handed over at the end of {@link #read()} and {@link #readParallel(ParallelDeliveryMode)}, or when
+     * {@link #flushBatchRecordCallbacks()} is called.
+     *
+     * @param recordName The name of the record.
+     * @param callback   The {@link BatchRecordCallback} instance to register.
+     * @param batchSize  The number of records in a full batch.
+     */
+    public void registerBatchRecordCallback(String recordName, BatchRecordCallback callback, int batchSize) {
+        registerBatchRecordCallback(recordName, callback, batchSize, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Register a {@link BatchRecordCallback} that receives the records for the given record name in batches of up to {@code batchSize}
+     * records. A partial batch is also handed over once its oldest record has waited for {@code maxDelay}, at the end of {@link #read()}
+     * and {@link #readParallel(ParallelDeliveryMode)}, or when {@link #flushBatchRecordCallbacks()} is called. There is no timer - the
+     * delay is only checked as records are dispatched, so should the input stall a partial batch waits for the next record. Should the
+     * callback fail, the {@link ExceptionCallback}s are notified once for the batch.
+     *
+     * @param recordName The name of the record.
+     * @param callback   The {@link BatchRecordCallback} instance to register.
+     * @param batchSize  The number of records in a full batch.
+     * @param maxDelay   The longest a record should wait to be handed over, or {@code 0} for no limit.
+     * @param unit       The {@link TimeUnit} of {@code maxDelay}.
+     */
+    public synchronized void registerBatchRecordCallback(String recordName, BatchRecordCallback callback, int batchSize, long maxDelay,
+                                                         TimeUnit unit) {
+        Preconditions.checkArgument(batchSize > 0, "The batchSize must be greater than zero.");
+        Preconditions.checkArgument(maxDelay >= 0, "The maxDelay must not be negative.");
+        if (batchCallbacks.get(recordName).stream().noneMatch(batcher -> batcher.getCallback() == callback)) {
+            batchCallbacks.put(recordName, new RecordBatcher(this, recordName, callback, batchSize, unit.toNanos(maxDelay)));
+            batchers = batchCallbacks.values().toArray(new RecordBatcher[0]);
+        }
+    }
+
+    /**
+     * Remove a {@link BatchRecordCallback} that has been registered - any records it has batched are handed over first.
+     *
+     * @param recordName The name of the {@link RecordBO} for which the {@link BatchRecordCallback} was registered.
+     * @param callback   The {@link BatchRecordCallback} instance to remove.
+     * @return {@code true} if the {@link BatchRecordCallback} instance was found and removed and {@code false} if it was not found.
+     */
+    public synchronized boolean removeBatchRecordCallback(String recordName, BatchRecordCallback callback) {
+        boolean removed = false;
+        Iterator<RecordBatcher> iterator = batchCallbacks.get(recordName).iterator();
+        while (iterator.hasNext()) {
+            RecordBatcher batcher = iterator.next();
+            if (batcher.getCallback() == callback) {
+                batcher.flush();
+                iterator.remove();
+                removed = true;
+            }
+        }
+        batchers = batchCallbacks.values().toArray(new RecordBatcher[0]);
+        return removed;
+    }
+
+    /**
+     * Register a handler that is given the bean of type {@code beanType} from each record with the given name. Unlike a {@link
+     * RecordCallback}, the bean is resolved once against the configuration rather than being looked up by name for each record, so the
+     * handler doesn't need to know the bean names or cast the beans. If the record defines more than one bean of the type, exactly one of
+     * them must have {@code beanType} as its class. No {@link MatchedRecord} is built for the handler - one is only built should a {@link
+     * RecordCallback} or {@link BatchRecordCallback} also be registered for the record or the callbacks be asynchronous.
+     *
+     * @param recordName The name of the record.
+     * @param beanType   The type of the bean to hand to the handler.
+     * @param handler    The handler.
+     * @param <T>        The type of the bean.
+     * @throws IllegalArgumentException should the configuration already be loaded and the record not have a bean of the type (or the bean
+     *                                  be ambiguous).
+     */
+    public synchronized <T> void registerHandler(String recordName, Class<T> beanType, Consumer<? super T> handler) {
+        Preconditions.checkNotNull(recordName, "The recordName must be provided.");
+        Preconditions.checkNotNull(beanType, "The beanType must be provided.");
+        Preconditions.checkNotNull(handler, "The handler must be provided.");
+        if (handlers.stream().noneMatch(existing -> existing.getRecordName().equals(recordName) && existing.getHandler() == handler)) {
+            handlers.add(new RecordHandler<>(recordName, beanType, handler));
+            if (fileFormat != null) {
+                try {
+                    compileHandlers();
+                } catch (FlatwormConfigurationException e) {
+                    handlers.remove(handlers.size() - 1);
+                    throw new IllegalArgumentException(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Register a handler for beans of a class that was configured through the {@link Record} annotation - the name of the record is taken
+     * from the annotation.
+     *
+     * @param beanType The {@link Record} annotated type of the bean to hand to the handler.
+     * @param handler  The handler.
+     * @param <T>      The type of the bean.
+     * @throws IllegalArgumentException should {@code beanType} not carry the {@link Record} annotation, or should the configuration already
+     *                                  be loaded and not have a record of that name with a bean of the type.
+     * @see #registerHandler(String, Class, Consumer)
+     */
+    public <T> void registerHandler(Class<T> beanType, Consumer<? super T> handler) {
+        Preconditions.checkNotNull(beanType, "The beanType must be provided.");
+        Record annotation = beanType.getAnnotation(Record.class);
+        Preconditions.checkArgument(annotation != null, "%s is not annotated with %s.", beanType.getName(), Record.class.getName());
+        registerHandler(annotation.name(), beanType, handler);
+    }
+
+    /**
+     * Remove a handler that has been registered.
+     *
+     * @param recordName The name of the {@link RecordBO} for which the handler was registered.
+     * @param handler    The handler instance to remove.
+     * @return {@code true} if the handler was found and removed and {@code false} if it was not found.
+     */
+    public synchronized boolean removeHandler(String recordName, Consumer<?> handler) {
+        boolean removed = handlers.removeIf(existing -> existing.getRecordName().equals(recordName) && existing.getHandler() == handler);
+        if (removed && fileFormat != null) {
+            try {
+                compileHandlers();
+            } catch (FlatwormConfigurationException e) {
+                // The remaining handlers were all resolved when they were registered.
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Resolve the registered handlers against the {@link FileFormat} and index them by {@link RecordBO#getIndex()}.
+     *
+     * @throws FlatwormConfigurationException should a handler refer to a record that doesn't exist or that doesn't have a bean of the
+     *                                        handler's type.
+     */
+    private synchronized void compileHandlers() throws FlatwormConfigurationException {
+        List<List<RecordHandler<?>>> table = new ArrayList<>();
+        for (RecordHandler<?> handler : handlers) {
+            RecordBO record = fileFormat.getRecord(handler.getRecordName());
+            if (record == null || record.getIndex() < 0) {
+                throw new FlatwormConfigurationException(String.format("No record named %s is configured for the registered handler.",
+                        handler.getRecordName()));
+            }
+            handler.resolve(record);
+            while (table.size() <= record.getIndex()) {
+                table.add(new ArrayList<>());
+            }
+            table.get(record.getIndex()).add(handler);
+        }
+
+        RecordHandler<?>[][] compiled = new RecordHandler<?>[table.size()][];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = table.get(i).toArray(new RecordHandler<?>[0]);
+        }
+        handlerTable = compiled;
+    }
+
+    private void awaitCallbacks() {
+        AsyncCallbackDispatcher dispatcher = callbackDispatcher;
+        if (dispatcher != null) {
+            dispatcher.await();
+        }
+    }
+
+    /**
+     * Hand the records batched so far over to the registered {@link BatchRecordCallback}s.
+     */
+    public void flushBatchRecordCallbacks() {
+        for (RecordBatcher batcher : batchers) {
+            batcher.flush();
+        }
+    }
+
+    /**
+     * Invoke the {@link RecordCallback}s and {@link BatchRecordCallback}s on threads that support virtual threads when the JVM does (Java
+     * 21+) and the {@link ForkJoinPool#commonPool()} otherwise.
+     *
+     * @param ordering    The order in which records are handed to the callbacks.
+     * @param maxInFlight The maximum number of records that have been parsed but not yet processed by the callbacks.
+     * @see #enableAsyncCallbacks(Executor, CallbackOrdering, int)
+     */
+    public void enableAsyncCallbacks(CallbackOrdering ordering, int maxInFlight) {
+        enableAsyncCallbacks(null, ordering, maxInFlight);
+    }
+
+    /**
+     * Invoke the {@link RecordCallback}s and {@link BatchRecordCallback}s on the given {@link Executor} rather than on the thread parsing
+     * the input, so that slow callbacks don't hold up parsing. Once {@code maxInFlight} records are waiting to be processed, parsing waits
+     * for the callbacks to catch up. {@link #read()} and {@link #readParallel(ParallelDeliveryMode)} return once all records have been
+     * processed. Exceptions thrown by the callbacks are passed to the {@link ExceptionCallback}s on the {@link Executor}'s threads.
+     *
+     * @param executor    The {@link Executor} on which to invoke the callbacks - {@code null} for the default described in {@link
+     *                    #enableAsyncCallbacks(CallbackOrdering, int)}.
+     * @param ordering    The order in which records are handed to the callbacks.
+     * @param maxInFlight The maximum number of records that have been parsed but not yet processed by the callbacks.
+     */
+    public synchronized void enableAsyncCallbacks(Executor executor, CallbackOrdering ordering, int maxInFlight) {
+        Preconditions.checkNotNull(ordering, "The ordering must be provided.");
+        Preconditions.checkArgument(maxInFlight > 0, "The maxInFlight must be greater than zero.");
+        disableAsyncCallbacks();
+        callbackDispatcher = new AsyncCallbackDispatcher(this, executor, ordering, maxInFlight);
+    }
+
+    /**
+     * Go back to invoking the callbacks on the thread parsing the input - this waits for any records in flight to be processed.
+     */
+    public synchronized void disableAsyncCallbacks() {
+        AsyncCallbackDispatcher dispatcher = callbackDispatcher;
+        callbackDispatcher = null;
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+    }
+
     /**
      * Set a callback for exceptions that doesn't require reflection to be invoked. The exception (rather than just the exception
      * converterName) will be passed to the callback, along with the input line that caused the exception. Should only be invoked once as
@@ -160,19 +497,30 @@ public class FileParser implements Closeable {
 
     /**
      * Parse the specified config information and then parse the file based upon the config information provided. Either the config file or
-     * the config content will be parsed and either the data file or the data content will be parsed depending upon which constructor was
-     * used.
+     * the config content will be parsed (unless a loaded {@link FileFormat} was provided) and either the data file or the data content will
+     * be parsed depending upon which constructor was used.
      *
      * @throws FlatwormConfigurationException should parsing the config file have any issues.
      * @throws IOException                    should the {@link InputStream} fail to properly open.
      */
     public void open() throws FlatwormConfigurationException, IOException {
-        Preconditions.checkState((configFile != null || dataInputFile != null)
+        Preconditions.checkState((configFile != null || dataInputFile != null || fileFormat != null)
                         || (!StringUtils.isBlank(configContent) || !StringUtils.isBlank(dataInputContent)),
-                "Either the config file or config content must be provided and either the input file or input content must be provided.");
+                "Either the config file, config content or file format must be provided and either the input file or input content must "
+                        + "be provided.");
 
         loadConfiguration();
 
+        if (dataInputFile != null && dataInputMode == DataInputMode.MEMORY_MAPPED) {
+            Charset charset = Charset.forName(fileFormat.getEncoding());
+            if (ByteRangeLineReader.supportsCharset(charset)) {
+                mappedSource = new MappedByteSource(FileChannel.open(dataInputFile.toPath(), StandardOpenOption.READ), mappedWindowSize);
+                bufIn = new ByteRangeLineReader(mappedSource, 0, charset);
+                return;
+            }
+            log.warn("Memory-mapped input is not supported for encoding {} - reading the data file as a stream instead.", charset);
+        }
+
         InputStream in;
         String encoding;
         if (dataInputFile != null) {
@@ -186,17 +534,32 @@ public class FileParser implements Closeable {
     }
 
     /**
-     * Load the configuration file content.
+     * Load the configuration file content - nothing is loaded if a {@link FileFormat} was provided. A new {@link ParseContext} is created
+     * for reading the data either way.
      *
      * @throws FlatwormConfigurationException should parsing the content cause any issues.
      */
     protected void loadConfiguration() throws FlatwormConfigurationException {
+        if (fileFormat == null) {
+            fileFormat = createFileFormat();
+        }
+        parseContext = fileFormat.newParseContext();
+        compileHandlers();
+    }
+
+    /**
+     * Create a new {@link FileFormat} instance from the configuration file content.
+     *
+     * @return the newly created {@link FileFormat} instance.
+     * @throws FlatwormConfigurationException should parsing the content cause any issues.
+     */
+    protected FileFormat createFileFormat() throws FlatwormConfigurationException {
         try {
             ConfigurationReader parser = new DefaultConfigurationReaderImpl();
             if (configFile != null) {
-                fileFormat = parser.loadConfigurationFile(configFile);
+                return parser.loadConfigurationFile(configFile);
             } else {
-                fileFormat = parser.loadConfigurationFile(new ByteArrayInputStream(configContent.getBytes(StandardCharsets.UTF_8)));
+                return parser.loadConfigurationFile(new ByteArrayInputStream(configContent.getBytes(StandardCharsets.UTF_8)));
             }
         } catch (Exception ex) {
             throw new FlatwormConfigurationException(ex.getMessage(), ex);
@@ -210,61 +573,346 @@ public class FileParser implements Closeable {
      */
     @Override
     public void close() throws IOException {
+        awaitCallbacks();
         if (bufIn != null) {
             bufIn.close();
         }
+        if (mappedSource != null) {
+            mappedSource.close();
+            mappedSource = null;
+        }
+        for (Closeable resource : spliteratorResources) {
+            resource.close();
+        }
+        spliteratorResources.clear();
     }
 
     /**
      * Read the entire input file. This method will call your handler methods, if defined, to handle Records it parses. <br> <br>
      * <b>NOTE:</b> All exceptions are consumed and passed to the exception handler method you defined (The offending line is provided just
-     * in case you want to do something with it.
+     * in case you want to do something with it. The exception to this is should the {@link #getErrorChannel()}'s error budget be exceeded,
+     * in which case the read is aborted with an {@link ErrorBudgetExceededException}. Records that fail to parse are also written to the
+     * {@link #getQuarantineWriter()}, if one is set.
      */
     public void read() {
         Preconditions.checkState(bufIn != null && fileFormat != null, "You must first call open() before calling read().");
+        if (parseContext == null) {
+            parseContext = fileFormat.newParseContext();
+        }
+        parseContext.setReuseBeans(reuseBeans && callbackDispatcher == null && batchers.length == 0);
+        parseContext.setCaptureRecordLines(quarantineWriter != null);
 
-        MatchedRecord results = null;
+        RecordBO results;
         boolean exception;
-        do {
-            exception = true;
+        try {
+            do {
+                exception = true;
+                results = null;
 
-            // Attempt to parse the next line
-            try {
-                results = fileFormat.nextRecord(bufIn);
-                exception = false;
-            } catch (Exception ex) {
-                doExceptionCallback(ex, ex.getMessage(), fileFormat.getCurrentParsedLine());
+                // Attempt to parse the next line
+                try {
+                    results = parseContext.parseNextRecord(bufIn);
+                    exception = false;
+                } catch (Exception ex) {
+                    doParseExceptionCallback(ex, parseContext.getCurrentParsedLine(), toRejectedRecord(parseContext, ex));
+                    parseContext.discardUnconsumedLine();
+                }
+
+                if (null != results) {
+                    doCallback(results, parseContext.getLastParsedBeans(), parseContext.getLastParsedDataLine());
+                }
+                checkErrorBudget(null);
             }
+            while ((null != results) || exception);
+        } finally {
+            awaitCallbacks();
+            flushBatchRecordCallbacks();
+        }
+    }
+
+    /**
+     * Read the entire input in parallel using the {@link ForkJoinPool#commonPool()} and the {@link #DEFAULT_PARALLEL_CHUNK_SIZE}.
+     *
+     * @param deliveryMode Determines whether records are delivered in order or as soon as they are available.
+     * @see #readParallel(ForkJoinPool, long, ParallelDeliveryMode)
+     */
+    public void readParallel(ParallelDeliveryMode deliveryMode) {
+        readParallel(ForkJoinPool.commonPool(), DEFAULT_PARALLEL_CHUNK_SIZE, deliveryMode);
+    }
+
+    /**
+     * Read the entire input in parallel. The input is split into byte ranges of roughly {@code chunkSize} bytes, each of which is moved
+     * forward to a line that is known to start a record (based upon the record and line identities) and then parsed on the {@code pool}.
+     * Multi-line records are never split between ranges. As with {@link #read()}, all exceptions are passed to the registered {@link
+     * ExceptionCallback}s.
+     *
+     * Parallel reading is only possible when a data file or data content was provided and the encoding represents line terminators as
+     * single bytes (ASCII, ISO-8859-x, UTF-8, etc.) - otherwise the input is read sequentially via {@link #read()}. Note that each range is
+     * parsed with its own {@link ParseContext}, so identities and scriptlets that rely upon {@link FileFormat#getLineNumber()} or upon
+     * state carried over from previous records are not supported.
+     *
+     * @param pool         The {@link ForkJoinPool} on which to parse the byte ranges.
+     * @param chunkSize    The approximate number of bytes in each range.
+     * @param deliveryMode Determines whether records are delivered in order or as soon as they are available.
+     */
+    public void readParallel(ForkJoinPool pool, long chunkSize, ParallelDeliveryMode deliveryMode) {
+        Preconditions.checkState(fileFormat != null, "You must first call open() before calling readParallel().");
+        Preconditions.checkArgument(chunkSize > 0, "The chunkSize must be greater than zero.");
 
-            if (null != results) {
-                String recordName = results.getRecordName();
-                doCallback(recordName, results);
+        Charset charset = dataInputFile != null ? Charset.forName(fileFormat.getEncoding()) : StandardCharsets.UTF_8;
+        if ((dataInputFile == null && dataInputContent == null) || !ByteRangeLineReader.supportsCharset(charset)) {
+            log.warn("Parallel reading is not supported for this input - reading sequentially instead.");
+            read();
+            return;
+        }
+
+        try {
+            if (mappedSource != null) {
+                new ParallelFileReader(this, fileFormat, mappedSource, charset, pool, chunkSize, deliveryMode).read();
+            } else if (dataInputFile != null) {
+                try (FileChannel channel = FileChannel.open(dataInputFile.toPath(), StandardOpenOption.READ)) {
+                    new ParallelFileReader(this, fileFormat, ByteSource.of(channel), charset, pool, chunkSize, deliveryMode).read();
+                }
+            } else {
+                ByteSource source = ByteSource.of(dataInputContent.getBytes(charset));
+                new ParallelFileReader(this, fileFormat, source, charset, pool, chunkSize, deliveryMode).read();
             }
+        } catch (Exception ex) {
+            doExceptionCallback(ex, ex.getMessage(), null);
+        } finally {
+            awaitCallbacks();
+            flushBatchRecordCallbacks();
         }
-        while ((null != results) || exception);
     }
 
     /**
-     * Execute all {@link RecordCallback}s for the given record name if any are registered. Exceptions are dumped to the logger vs. causing
-     * a disruption and are also sent to the {@code doExceptionCallback} method.
+     * Get an {@link Iterator} that parses the records lazily as it is advanced - nothing beyond the last record requested is read. The
+     * registered {@link RecordCallback}s aren't invoked, but as with {@link #read()} all exceptions are passed to the registered {@link
+     * ExceptionCallback}s and parsing continues with the next record.
+     *
+     * @return an {@link Iterator} over the parsed records.
+     * @see #spliterator()
+     */
+    @Override
+    public Iterator<MatchedRecord> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * Get a {@link Stream} that parses the records lazily - short-circuiting operations such as {@link Stream#findFirst()} and {@link
+     * Stream#limit(long)} stop the input from being read any further. Errors are handled as described for {@link #iterator()}.
+     *
+     * @return a sequential {@link Stream} over the parsed records, which can be made parallel via {@link Stream#parallel()}.
+     * @see #spliterator()
+     */
+    public Stream<MatchedRecord> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Get a {@link RecordPublisher} for the records using the {@link ForkJoinPool#commonPool()} and the {@link
+     * RecordPublisher#DEFAULT_READ_AHEAD}.
+     *
+     * @return a {@link RecordPublisher} for the records.
+     * @see #publisher(Executor, int)
+     */
+    public RecordPublisher publisher() {
+        return publisher(ForkJoinPool.commonPool(), RecordPublisher.DEFAULT_READ_AHEAD);
+    }
+
+    /**
+     * Get a {@link RecordPublisher} for the records - records are only read as the subscriber requests them (plus up to {@code readAhead}
+     * records in advance), so a slow subscriber throttles the reading of the input. The registered {@link RecordCallback}s aren't invoked
+     * and errors are handled as described for {@link #iterator()}.
+     *
+     * @param executor  The {@link Executor} on which the records are read and delivered.
+     * @param readAhead The maximum number of records to read ahead of demand.
+     * @return a {@link RecordPublisher} for the records.
+     */
+    public RecordPublisher publisher(Executor executor, int readAhead) {
+        return new RecordPublisher(this, executor, readAhead);
+    }
+
+    /**
+     * Get a {@link Spliterator} that parses the records lazily. When a data file or data content was provided and the encoding represents
+     * line terminators as single bytes (see {@link #readParallel(ForkJoinPool, long, ParallelDeliveryMode)}), the {@link Spliterator}
+     * splits the input into byte ranges on record boundaries - each range being parsed with its own {@link ParseContext} - and ranges are
+     * never split below the {@link #getMinimumSplitSize()}. Otherwise the records are read from the input opened by {@link #open()} and
+     * splitting hands off batches of records that have already been parsed.
+     *
+     * @return a {@link Spliterator} over the parsed records.
+     */
+    @Override
+    public Spliterator<MatchedRecord> spliterator() {
+        Preconditions.checkState(bufIn != null && fileFormat != null, "You must first call open() before calling spliterator().");
+        if (parseContext == null) {
+            parseContext = fileFormat.newParseContext();
+        }
+        parseContext.setReuseBeans(false);
+        parseContext.setCaptureRecordLines(quarantineWriter != null);
+
+        Spliterator<MatchedRecord> spliterator;
+        Charset charset = dataInputFile != null ? Charset.forName(fileFormat.getEncoding()) : StandardCharsets.UTF_8;
+        try {
+            if ((dataInputFile == null && dataInputContent == null) || !ByteRangeLineReader.supportsCharset(charset)) {
+                spliterator = new ReaderRecordSpliterator(this, parseContext, bufIn);
+            } else {
+                ByteSource source;
+                if (mappedSource != null) {
+                    source = mappedSource;
+                } else if (dataInputFile != null) {
+                    FileChannel channel = FileChannel.open(dataInputFile.toPath(), StandardOpenOption.READ);
+                    spliteratorResources.add(channel);
+                    source = ByteSource.of(channel);
+                } else {
+                    source = ByteSource.of(dataInputContent.getBytes(charset));
+                }
+                spliterator = new ByteRangeRecordSpliterator(this, fileFormat, source, charset, 0, source.size(), minimumSplitSize);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return spliterator;
+    }
+
+    /**
+     * Hand a record to the registered callbacks - either directly or, if enabled, through the asynchronous dispatcher (see {@link
+     * #enableAsyncCallbacks(Executor, CallbackOrdering, int)}). When invoked directly, the handlers are given their beans by slot and a
+     * {@link MatchedRecord} is only built should a {@link RecordCallback} or {@link BatchRecordCallback} be registered for the record.
+     *
+     * @param record   The {@link RecordBO} that was parsed.
+     * @param beans    The beans created by parsing the record.
+     * @param dataLine The first line of the record.
+     */
+    void doCallback(RecordBO record, Map<String, Object> beans, String dataLine) {
+        String recordName = record.getName();
+        AsyncCallbackDispatcher dispatcher = callbackDispatcher;
+        if (dispatcher != null) {
+            dispatcher.dispatch(recordName, new MatchedRecord(record, beans, dataLine));
+        } else {
+            invokeHandlers(record.getIndex(), recordName, beans);
+            MatchedRecord matchedRecord = recordCallbacks.containsKey(recordName) || hasBatcher(recordName)
+                    ? new MatchedRecord(record, beans, dataLine)
+                    : null;
+            invokeRecordCallbacks(recordName, matchedRecord);
+        }
+    }
+
+    /**
+     * Execute all handlers and {@link RecordCallback}s registered for the given record name. Exceptions don't cause a disruption - they are
+     * sent to the {@code doExceptionCallback} method, which reports them through the {@link #getErrorChannel()}.
      *
      * @param recordName The name of the {@link RecordBO} - this comes from the configuration file.
      * @param record     The {@link MatchedRecord} instance that was loaded.
      */
-    private void doCallback(String recordName, MatchedRecord record) {
+    void invokeCallbacks(String recordName, MatchedRecord record) {
+        invokeHandlers(record.getRecordIndex(), recordName, record.getBeans());
+        invokeRecordCallbacks(recordName, record);
+    }
+
+    private boolean hasBatcher(String recordName) {
+        for (RecordBatcher batcher : batchers) {
+            if (batcher.getRecordName().equals(recordName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Execute the typed handlers registered for the record.
+     *
+     * @param recordIndex The index of the {@link RecordBO} within the {@link FileFormat}.
+     * @param recordName  The name of the {@link RecordBO}.
+     * @param beans       The beans created by parsing the record.
+     */
+    private void invokeHandlers(int recordIndex, String recordName, Map<String, Object> beans) {
+        RecordHandler<?>[][] currentHandlers = handlerTable;
+        if (recordIndex >= 0 && recordIndex < currentHandlers.length) {
+            for (RecordHandler<?> handler : currentHandlers[recordIndex]) {
+                try {
+                    handler.handle(beans);
+                } catch (Exception e) {
+                    String errMsg = String.format("Failed to invoke handler %s for RecordBO %s: %s",
+                            handler.getHandler().getClass().getName(), recordName, e.getMessage());
+                    doExceptionCallback(e, errMsg, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Execute the {@link RecordCallback}s registered for the record and add it to its {@link BatchRecordCallback}'s batch - any other
+     * batch that has expired is flushed.
+     *
+     * @param recordName The name of the {@link RecordBO}.
+     * @param record     The {@link MatchedRecord} - {@code null} should no {@link RecordCallback} or {@link BatchRecordCallback} be
+     *                   registered for the record.
+     */
+    private void invokeRecordCallbacks(String recordName, MatchedRecord record) {
         // first check for an old style callback
-        if (recordCallbacks.containsKey(recordName)) {
+        if (record != null) {
             for (RecordCallback recordCallback : recordCallbacks.get(recordName)) {
                 try {
                     recordCallback.processRecord(record);
                 } catch (Exception e) {
                     String errMsg = String.format("Failed to invoke callback %s for RecordBO %s: %s",
                             recordCallback.getClass().getName(), recordName, e.getMessage());
-                    log.error(errMsg, e);
                     doExceptionCallback(e, errMsg, null);
                 }
             }
         }
+
+        RecordBatcher[] currentBatchers = batchers;
+        if (currentBatchers.length > 0) {
+            long now = System.nanoTime();
+            for (RecordBatcher batcher : currentBatchers) {
+                if (batcher.getRecordName().equals(recordName)) {
+                    // A batcher registered since the record was parsed only receives the records that follow.
+                    if (record != null) {
+                        batcher.add(record, now);
+                    }
+                } else {
+                    batcher.flushIfExpired(now);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a {@link ParseContext} for parsing a range of the input.
+     *
+     * @return the {@link ParseContext}.
+     */
+    ParseContext newParseContext() {
+        ParseContext rangeParseContext = fileFormat.newParseContext();
+        rangeParseContext.setCaptureRecordLines(quarantineWriter != null);
+        return rangeParseContext;
+    }
+
+    /**
+     * Describe the record that {@code parseContext} failed to parse - only done when there is a {@link QuarantineWriter} to write it to.
+     *
+     * @param parseContext The {@link ParseContext} that failed to parse the record.
+     * @param ex           The Exception that occurred.
+     * @return the {@link RejectedRecord} or {@code null} if there is no {@link QuarantineWriter}.
+     */
+    RejectedRecord toRejectedRecord(ParseContext parseContext, Exception ex) {
+        return quarantineWriter != null ? parseContext.toRejectedRecord(ex) : null;
+    }
+
+    /**
+     * Quarantine a record that failed to parse and then execute the {@link ExceptionCallback}s.
+     *
+     * @param ex             The Exception that occurred.
+     * @param lastLine       The line being parsed when the Exception occurred.
+     * @param rejectedRecord The record that failed to parse - {@code null} if it isn't to be quarantined.
+     */
+    void doParseExceptionCallback(Exception ex, String lastLine, RejectedRecord rejectedRecord) {
+        if (rejectedRecord != null && quarantineWriter != null) {
+            quarantineWriter.write(rejectedRecord);
+        }
+        doExceptionCallback(ex, ex.getMessage(), lastLine);
     }
 
     /**
@@ -272,7 +920,13 @@ public class FileParser implements Closeable {
      *
      * @param ex The Exception that occurred.
      */
-    private void doExceptionCallback(Exception ex, String message, String lastLine) {
+    void doExceptionCallback(Exception ex, String message, String lastLine) {
+        if (ex instanceof ErrorBudgetExceededException) {
+            // The parse is already being aborted - don't count it as another error.
+            throw ErrorBudgetExceededException.class.cast(ex);
+        }
+        boolean budgetExceeded = errorChannel.report(ex, lastLine);
+
         // Execute all ExceptionCallbacks.
         exceptionCallbacks.forEach(callback -> {
             try {
@@ -282,5 +936,23 @@ public class FileParser implements Closeable {
                         callback.getClass().getName(), ex.getClass().getName(), message, lastLine));
             }
         });
+
+        if (budgetExceeded) {
+            checkErrorBudget(ex);
+        }
+    }
+
+    /**
+     * Abort the parse should the {@link #getErrorChannel()}'s error budget have been exceeded - errors reported on other threads (e.g. by
+     * asynchronous callbacks) are picked up here.
+     *
+     * @param lastError The error that exceeded the budget, if known.
+     * @throws ErrorBudgetExceededException should the error budget have been exceeded.
+     */
+    private void checkErrorBudget(Exception lastError) {
+        if (errorChannel.isBudgetExceeded()) {
+            throw new ErrorBudgetExceededException(String.format("Parsing aborted - %d errors exceeded the error budget of %d.",
+                    errorChannel.getErrorCount(), errorChannel.getErrorBudget()), errorChannel.getErrorCount(), lastError);
+        }
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The number of lines that precede a byte offset of a {@link ByteSource} - used to give the file line number of a record parsed from a
+ * byte range (see {@link ParallelFileReader} and {@link ByteRangeRecordSpliterator}), whose {@link ParseContext} only counts the lines
+ * from the start of the range. Each {@code LineOffset} is created from the one for an earlier offset, and the count is only worked out -
+ * by counting the lines between the two - when it is first needed, which is when a record is rejected. Counts are remembered, so each
+ * part of the source is counted at most once for all of the offsets created from the same {@link #start(ByteSource, Charset)}.
+ *
+ * @author Alan Henson
+ */
+final class LineOffset {
+
+    private final ByteSource source;
+    private final Charset charset;
+    private final Object lock;
+    private final LineOffset previous;
+    private final long offset;
+
+    // Guarded by the lock - -1 until counted.
+    private long linesBefore;
+
+    private LineOffset(ByteSource source, Charset charset, Object lock, LineOffset previous, long offset, long linesBefore) {
+        this.source = source;
+        this.charset = charset;
+        this.lock = lock;
+        this.previous = previous;
+        this.offset = offset;
+        this.linesBefore = linesBefore;
+    }
+
+    /**
+     * Get the {@code LineOffset} for the start of the source.
+     *
+     * @param source  The {@link ByteSource}.
+     * @param charset The encoding of the source - it must be supported by {@link ByteRangeLineReader}.
+     * @return the {@code LineOffset} for offset {@code 0}.
+     */
+    static LineOffset start(ByteSource source, Charset charset) {
+        return new LineOffset(source, charset, new Object(), null, 0, 0);
+    }
+
+    /**
+     * Get the {@code LineOffset} for a later offset.
+     *
+     * @param nextOffset The byte offset, which must be the start of a line at or after this offset.
+     * @return the {@code LineOffset} for {@code nextOffset}.
+     */
+    LineOffset next(long nextOffset) {
+        return nextOffset == offset ? this : new LineOffset(source, charset, lock, this, nextOffset, -1);
+    }
+
+    /**
+     * Get the number of lines that precede this offset, counting them should they not have been counted yet.
+     *
+     * @return the number of lines.
+     * @throws IOException should reading from the {@link ByteSource} fail.
+     */
+    long getLinesBefore() throws IOException {
+        synchronized (lock) {
+            Deque<LineOffset> uncounted = new ArrayDeque<>();
+            LineOffset counted = this;
+            while (counted.linesBefore < 0) {
+                uncounted.push(counted);
+                counted = counted.previous;
+            }
+
+            long lines = counted.linesBefore;
+            long from = counted.offset;
+            while (!uncounted.isEmpty()) {
+                LineOffset next = uncounted.pop();
+                lines += new ByteRangeLineReader(source, from, charset).skipLines(next.offset);
+                next.linesBefore = lines;
+                from = next.offset;
+            }
+            return lines;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link ByteSource} that memory-maps a {@link FileChannel} one window at a time, which avoids copying the data through an {@link
+ * java.io.InputStream} and {@link java.io.Reader} along with the system call that each buffer refill would otherwise require. As a single
+ * mapping is limited to 2 GB, the file is mapped in windows of {@code windowSize} bytes and remapped as the reading progresses, which
+ * allows files of any size to be read. Windows that are no longer referenced are unmapped once they are garbage collected.
+ *
+ * Instances can be shared across threads.
+ *
+ * @author Alan Henson
+ */
+public class MappedByteSource implements ByteSource, Closeable {
+
+    /**
+     * The default number of bytes mapped at a time.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 128 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final int windowSize;
+    private final long size;
+
+    // The most recently mapped window - readers hold on to the views they are given, so this only saves remapping when seeking.
+    private volatile Window window;
+
+    public MappedByteSource(FileChannel channel) throws IOException {
+        this(channel, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Create a {@code MappedByteSource}. The size of the {@link FileChannel} is captured when created - the file is expected not to change
+     * while it is being read.
+     *
+     * @param channel    The {@link FileChannel} to map - it is closed when this {@code MappedByteSource} is closed.
+     * @param windowSize The number of bytes to map at a time.
+     * @throws IOException should the size of the {@code channel} not be obtainable.
+     */
+    public MappedByteSource(FileChannel channel, int windowSize) throws IOException {
+        Preconditions.checkArgument(windowSize > 0, "The windowSize must be greater than zero.");
+        this.channel = channel;
+        this.windowSize = windowSize;
+        this.size = channel.size();
+    }
+
+    @Override
+    public int read(ByteBuffer destination, long position) throws IOException {
+        int count = -1;
+        if (position < size) {
+            ByteBuffer view = view(position);
+            count = Math.min(destination.remaining(), view.remaining());
+            view.limit(count);
+            destination.put(view);
+        }
+        return count;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Get a view of the mapped bytes from {@code position} through to the end of the window that contains it.
+     *
+     * @param position The offset within the file.
+     * @return a read-only view of the bytes starting at {@code position} - this is empty if {@code position} is at or beyond the end of the
+     * file.
+     * @throws IOException should mapping the window fail.
+     */
+    @Override
+    public ByteBuffer view(long position) throws IOException {
+        if (position >= size) {
+            return ByteBuffer.allocate(0);
+        }
+
+        Window current = window;
+        if (current == null || position < current.start || position >= current.start + current.buffer.capacity()) {
+            long start = position - position % windowSize;
+            current = new Window(start, channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start)));
+            window = current;
+        }
+
+        ByteBuffer view = current.buffer.duplicate();
+        view.position((int) (position - current.start));
+        return view.slice();
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private static final class Window {
+        private final long start;
+        private final ByteBuffer buffer;
+
+        Window(long start, ByteBuffer buffer) {
+            this.start = start;
+            this.buffer = buffer;
+        }
+    }
+}
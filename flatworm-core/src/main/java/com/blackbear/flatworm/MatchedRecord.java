@@ -18,6 +18,10 @@ package com.blackbear.flatworm;
 
 import com.google.common.base.Joiner;
 
+import com.blackbear.flatworm.config.BeanSlot;
+import com.blackbear.flatworm.config.RecordBO;
+import com.blackbear.flatworm.config.RecordBeanMap;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -30,7 +34,7 @@ import lombok.Getter;
  * which stores the name of the record found, and a set of beans generated by parsing of the record.
  */
 public class MatchedRecord {
-    private Map<String, Object> beans = new HashMap<>();
+    private Map<String, Object> beans;
 
     @Getter
     private String recordName;
@@ -38,12 +42,37 @@ public class MatchedRecord {
     @Getter
     private String dataLine;
 
+    // The index of the RecordBO within its FileFormat - used to look up the typed handlers for the record.
+    private int recordIndex = -1;
+
     public MatchedRecord(String name, Map<String, Object> beans, String dataLine) {
         recordName = name;
-        this.beans.putAll(beans);
+        this.beans = new HashMap<>(beans);
         this.dataLine = dataLine;
     }
 
+    /**
+     * Create a {@code MatchedRecord} for a record that was just parsed - the {@code beans} are taken over rather than copied.
+     *
+     * @param record   The {@link RecordBO} that was parsed.
+     * @param beans    The beans created by parsing the record, which must not be modified by the caller afterwards.
+     * @param dataLine The first line of the record.
+     */
+    MatchedRecord(RecordBO record, Map<String, Object> beans, String dataLine) {
+        this.recordName = record.getName();
+        this.beans = beans;
+        this.dataLine = dataLine;
+        this.recordIndex = record.getIndex();
+    }
+
+    int getRecordIndex() {
+        return recordIndex;
+    }
+
+    Map<String, Object> getBeans() {
+        return beans;
+    }
+
     /**
      * Gets a specific bean, or null if not found.
      *
@@ -54,6 +83,18 @@ public class MatchedRecord {
         return beans.get(beanName);
     }
 
+    /**
+     * Gets a specific bean from the beans of a record by its slot, falling back to the bean's name should the beans not have been created
+     * by a parse.
+     *
+     * @param beans The beans of the record.
+     * @param slot  The {@link BeanSlot} of the bean.
+     * @return The bean, or null
+     */
+    static Object getBean(Map<String, Object> beans, BeanSlot slot) {
+        return beans instanceof RecordBeanMap ? ((RecordBeanMap) beans).getBean(slot) : beans.get(slot.getBeanName());
+    }
+
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(super.toString());
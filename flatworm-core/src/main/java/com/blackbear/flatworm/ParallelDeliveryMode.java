@@ -0,0 +1,37 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+/**
+ * Determines how records parsed in parallel by {@link FileParser#readParallel(ParallelDeliveryMode)} are handed to the registered
+ * callbacks.
+ *
+ * @author Alan Henson
+ */
+public enum ParallelDeliveryMode {
+    /**
+     * Records are delivered on the thread that invoked {@code readParallel}, in the same order in which they appear in the input - parsed
+     * chunks are held in a bounded reorder buffer until all preceding chunks have been delivered.
+     */
+    ORDERED,
+
+    /**
+     * Records are delivered on the worker threads as soon as the chunk containing them has been parsed and verified, so records from
+     * different chunks may be delivered concurrently and out of order - callbacks must be thread-safe.
+     */
+    UNORDERED
+}
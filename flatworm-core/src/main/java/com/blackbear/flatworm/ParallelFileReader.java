@@ -0,0 +1,266 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.config.RecordBO;
+import com.blackbear.flatworm.errors.RejectedRecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parses a {@link ByteSource} by splitting it into byte ranges (chunks) that are parsed concurrently on a {@link ForkJoinPool}. Each chunk
+ * is re-synchronized to a line that is known to start a record using a {@link RecordBoundaryDetector}. As a safeguard, each chunk's
+ * starting offset is verified against the offset at which the preceding chunk's last record actually ended - should they differ (i.e. a
+ * record ran over the end of its chunk) then the chunk is re-parsed from the correct offset before anything is delivered.
+ *
+ * The {@link FileFormat} is shared by all chunks - each chunk is parsed through its own {@link ParseContext}, which is given the chunk's
+ * {@link LineOffset} so that rejected records carry their line number within the source.
+ *
+ * @author Alan Henson
+ */
+@Slf4j
+class ParallelFileReader {
+
+    private final FileParser fileParser;
+    private final ByteSource source;
+    private final Charset charset;
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+    private final ParallelDeliveryMode deliveryMode;
+    private final FileFormat fileFormat;
+
+    ParallelFileReader(FileParser fileParser, FileFormat fileFormat, ByteSource source, Charset charset, ForkJoinPool pool,
+                       long chunkSize, ParallelDeliveryMode deliveryMode) {
+        this.fileParser = fileParser;
+        this.source = source;
+        this.charset = charset;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.deliveryMode = deliveryMode;
+        this.fileFormat = fileFormat;
+    }
+
+    /**
+     * Parse the entire {@link ByteSource}, delivering the records and errors to the {@link FileParser}'s callbacks.
+     *
+     * @throws IOException should reading from the {@link ByteSource} fail.
+     */
+    void read() throws IOException {
+        long size = source.size();
+        if (size == 0) {
+            return;
+        }
+
+        long[] chunkStarts = findChunkStarts(size);
+        List<long[]> chunks = new ArrayList<>();
+        List<LineOffset> chunkLineOffsets = new ArrayList<>();
+        LineOffset startLineOffset = LineOffset.start(source, charset);
+        for (int i = 0; i + 1 < chunkStarts.length; i++) {
+            if (chunkStarts[i] < chunkStarts[i + 1]) {
+                startLineOffset = startLineOffset.next(chunkStarts[i]);
+                chunks.add(new long[]{chunkStarts[i], chunkStarts[i + 1]});
+                chunkLineOffsets.add(startLineOffset);
+            }
+        }
+
+        int window = Math.max(2, pool.getParallelism() * 2);
+        Semaphore permits = new Semaphore(window);
+        Deque<ForkJoinTask<ChunkResult>> pending = new ArrayDeque<>();
+        List<ForkJoinTask<?>> deliveries = new ArrayList<>();
+        long expectedStart = 0;
+        LineOffset previousLineOffset = null;
+        int next = 0;
+
+        try {
+            while (next < chunks.size() || !pending.isEmpty()) {
+                // Keep the window full - a permit is only returned once a chunk has been delivered.
+                while (next < chunks.size() && (pending.isEmpty() || permits.availablePermits() > 0)) {
+                    permits.acquire();
+                    long[] chunk = chunks.get(next);
+                    LineOffset chunkLineOffset = chunkLineOffsets.get(next++);
+                    pending.add(pool.submit(() -> parseChunk(chunk[0], chunk[1], chunkLineOffset)));
+                }
+
+                ChunkResult result = pending.poll().join();
+                if (result.start != expectedStart) {
+                    log.debug("Chunk [{}, {}) is being re-parsed from offset {} as the preceding record ran past its start.",
+                            result.start, result.limit, expectedStart);
+                    // The first chunk always starts where expected, so there is a preceding chunk to count the lines from.
+                    LineOffset lineOffset = previousLineOffset.next(expectedStart);
+                    result = expectedStart < result.limit
+                            ? parseChunk(expectedStart, result.limit, lineOffset)
+                            : new ChunkResult(expectedStart, result.limit, expectedStart, lineOffset, new ArrayList<>());
+                }
+                expectedStart = result.end;
+                previousLineOffset = result.lineOffset;
+
+                if (deliveryMode == ParallelDeliveryMode.ORDERED) {
+                    deliver(result);
+                    permits.release();
+                } else {
+                    ChunkResult toDeliver = result;
+                    deliveries.add(pool.submit(() -> {
+                        try {
+                            deliver(toDeliver);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for chunks to be delivered.", e);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pending.forEach(task -> task.cancel(true));
+            deliveries.forEach(ForkJoinTask::quietlyJoin);
+        }
+    }
+
+    /**
+     * Split the source into chunks of roughly {@code chunkSize} bytes and move each split point forward to the start of a record. Should
+     * no record start be found within a chunk then the chunk is merged into the one preceding it.
+     *
+     * @param size The size of the source.
+     * @return The start offsets of each chunk with the size of the source as the last element.
+     */
+    private long[] findChunkStarts(long size) {
+        int chunkCount = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+        RecordBoundaryDetector detector = new RecordBoundaryDetector(fileFormat);
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+        for (int i = 1; i < chunkCount; i++) {
+            long from = i * chunkSize;
+            long bound = Math.min(size, from + chunkSize);
+            tasks.add(pool.submit(() -> {
+                try {
+                    return detector.findRecordStart(source, charset, from, bound);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+
+        long[] starts = new long[chunkCount + 1];
+        starts[chunkCount] = size;
+        for (int i = chunkCount - 1; i > 0; i--) {
+            long start = tasks.get(i - 1).join();
+            starts[i] = start >= 0 ? start : starts[i + 1];
+        }
+        return starts;
+    }
+
+    /**
+     * Parse all records that start within the given range - the last record may extend beyond the {@code limit}.
+     *
+     * @param start      The offset of the first record.
+     * @param limit      The offset at which no more records should be started.
+     * @param lineOffset The {@link LineOffset} of {@code start}.
+     * @return The {@link ChunkResult} containing the parsed records and errors.
+     */
+    private ChunkResult parseChunk(long start, long limit, LineOffset lineOffset) {
+        ParseContext parseContext = fileParser.newParseContext();
+        parseContext.setLineOffset(lineOffset);
+        ByteRangeLineReader reader = new ByteRangeLineReader(source, start, charset);
+        List<ChunkEvent> events = new ArrayList<>();
+
+        long recordStart = start;
+        while (recordStart < limit) {
+            try {
+                RecordBO record = parseContext.parseNextRecord(reader);
+                if (record != null) {
+                    events.add(new ChunkEvent(record, parseContext.getLastParsedBeans(), null, parseContext.getLastParsedDataLine(), null));
+                }
+            } catch (IOException e) {
+                // The source is broken rather than the record - abort the read, read() unwraps this.
+                throw new UncheckedIOException(e);
+            } catch (Exception e) {
+                RejectedRecord rejectedRecord = fileParser.toRejectedRecord(parseContext, e);
+                events.add(new ChunkEvent(null, null, e, parseContext.getCurrentParsedLine(), rejectedRecord));
+                if (parseContext.hasUnparsedLine() && reader.getLastLineStart() == recordStart) {
+                    // Nothing was consumed - move on rather than failing on the same line again.
+                    parseContext.discardUnparsedLine();
+                }
+            }
+            recordStart = parseContext.hasUnparsedLine() ? reader.getLastLineStart() : reader.getNextLineStart();
+        }
+        return new ChunkResult(start, limit, recordStart, lineOffset, events);
+    }
+
+    private void deliver(ChunkResult result) {
+        for (ChunkEvent event : result.events) {
+            if (event.record != null) {
+                fileParser.doCallback(event.record, event.beans, event.line);
+            } else {
+                fileParser.doParseExceptionCallback(event.error, event.line, event.rejectedRecord);
+            }
+        }
+    }
+
+    /**
+     * The outcome of parsing a chunk - the parsed records and errors (in the order encountered) along with the offset at which the
+     * record following the chunk starts.
+     */
+    private static final class ChunkResult {
+        private final long start;
+        private final long limit;
+        private final long end;
+        private final LineOffset lineOffset;
+        private final List<ChunkEvent> events;
+
+        ChunkResult(long start, long limit, long end, LineOffset lineOffset, List<ChunkEvent> events) {
+            this.start = start;
+            this.limit = limit;
+            this.end = end;
+            this.lineOffset = lineOffset;
+            this.events = events;
+        }
+    }
+
+    /**
+     * Either a parsed record or an error, captured so that it can be delivered once the chunk has been verified. The {@code line} is the
+     * first line of the record or the line that was being parsed when the error occurred.
+     */
+    private static final class ChunkEvent {
+        private final RecordBO record;
+        private final Map<String, Object> beans;
+        private final Exception error;
+        private final String line;
+        private final RejectedRecord rejectedRecord;
+
+        ChunkEvent(RecordBO record, Map<String, Object> beans, Exception error, String line, RejectedRecord rejectedRecord) {
+            this.record = record;
+            this.beans = beans;
+            this.error = error;
+            this.line = line;
+            this.rejectedRecord = rejectedRecord;
+        }
+    }
+}
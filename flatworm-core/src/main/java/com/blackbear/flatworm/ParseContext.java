@@ -0,0 +1,441 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.config.BeanPool;
+import com.blackbear.flatworm.config.RecordBO;
+import com.blackbear.flatworm.converters.ConversionHelper;
+import com.blackbear.flatworm.errors.FieldParseException;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+import com.blackbear.flatworm.errors.RejectedRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The per-stream state captured while parsing data with a {@link FileFormat} - the line number, the line currently being parsed and the
+ * line that was read ahead while parsing a multi-line record. A {@link FileFormat} holds only configuration once it has been loaded and
+ * can therefore be shared across threads, with each stream being parsed through its own {@code ParseContext}, which is cheap to create.
+ * A {@code ParseContext} itself must only be used by one thread at a time.
+ *
+ * While a {@code ParseContext} is parsing, {@link FileFormat#getLineNumber()}, {@link FileFormat#getCurrentParsedLine()} and the like
+ * report the values of this {@code ParseContext} to the calling thread, so scriptlets and identities written against the {@link
+ * FileFormat} continue to work.
+ *
+ * @author Alan Henson
+ */
+public class ParseContext {
+
+    @Getter
+    private final FileFormat fileFormat;
+
+    @Getter
+    private int lineNumber;
+
+    @Getter
+    private String currentParsedLine;
+
+    // Built from the last record parsed when it is first asked for.
+    private MatchedRecord lastRecordRead;
+
+    // The last record parsed successfully - the typed handlers are given its beans without a MatchedRecord being built.
+    private RecordBO lastParsedRecord;
+    private Map<String, Object> lastParsedBeans;
+    private String lastParsedDataLine;
+
+    @Getter
+    private RecordBO lastParsingRecord;
+
+    /**
+     * The last line read from the input while parsing a record - this may have been read ahead of the record.
+     */
+    @Getter
+    @Setter
+    private String lastReadLine;
+
+    /**
+     * Whether or not the {@code lastReadLine} was consumed by the record that read it - if not, it starts the next record.
+     */
+    @Getter
+    @Setter
+    private boolean parsedLastReadLine;
+
+    /**
+     * Recycles the beans between records when bean reuse is enabled and is {@code null} otherwise.
+     */
+    @Getter
+    private BeanPool beanPool;
+
+    /**
+     * Whether or not the raw lines of each record are kept so that a record that fails to parse can be quarantined with all of its lines.
+     */
+    @Getter
+    @Setter
+    private boolean captureRecordLines;
+
+    // Where the record currently being parsed came from - used to describe the record should it be rejected.
+    private final List<String> recordLines = new ArrayList<>();
+    private long linesRead;
+    private long recordLineNumber;
+    private long recordByteOffset;
+    private String recordName;
+
+    // The lines that precede the input when it is a range of a larger source - null when the input is read from its start.
+    private LineOffset lineOffset;
+
+    public ParseContext(FileFormat fileFormat) {
+        this.fileFormat = fileFormat;
+        reset();
+    }
+
+    /**
+     * Enable or disable the reuse of bean instances between records (see {@link BeanPool}). When enabled, the beans of a {@link
+     * MatchedRecord} are only valid until the next record is read through this {@code ParseContext}.
+     *
+     * @param reuseBeans {@code true} to recycle the bean instances and {@code false} to create new instances for each record.
+     */
+    public void setReuseBeans(boolean reuseBeans) {
+        if (!reuseBeans) {
+            beanPool = null;
+        } else if (beanPool == null) {
+            beanPool = new BeanPool();
+        }
+    }
+
+    public boolean isReuseBeans() {
+        return beanPool != null;
+    }
+
+    public ConversionHelper getConversionHelper() {
+        return fileFormat.getConversionHelper();
+    }
+
+    public boolean isEnforceLineLengths() {
+        return fileFormat.isEnforceLineLengths();
+    }
+
+    /**
+     * Find the first {@link RecordBO} that matches the given line on behalf of this {@code ParseContext}.
+     *
+     * @param line The line to classify.
+     * @return The matching {@link RecordBO} or {@code null} if there isn't one.
+     * @throws FlatwormParserException should a script identity fail to evaluate.
+     */
+    public RecordBO findMatchingRecord(String line) throws FlatwormParserException {
+        ParseContext previous = fileFormat.activateParseContext(this);
+        try {
+            return fileFormat.findMatchingRecord(line);
+        } finally {
+            fileFormat.activateParseContext(previous);
+        }
+    }
+
+    /**
+     * When called with a {@code BufferedReader}, reads sufficient lines to parse a record, and returns the beans created.
+     *
+     * @param in The stream to read from. Note that the reader is not closed by this method so the caller must perform the {@code close()}
+     *           operation on the reader.
+     * @return The created beans in a MatchedRecord object.
+     * @throws FlatwormParserException should an issue occur while parsing the data content.
+     * @throws IOException             Should an I/O issue occur.
+     */
+    public MatchedRecord nextRecord(BufferedReader in) throws FlatwormParserException, IOException {
+        return parseNextRecord(in) != null ? getLastRecordRead() : null;
+    }
+
+    /**
+     * Parse the next record without building a {@link MatchedRecord} for it - its beans are available through {@link
+     * #getLastParsedBeans()} until the next record is parsed.
+     *
+     * @param in The stream to read from.
+     * @return the {@link RecordBO} that was parsed or {@code null} should there be no more records (or the line not be mapped to one).
+     * @throws FlatwormParserException should an issue occur while parsing the data content.
+     * @throws IOException             Should an I/O issue occur.
+     */
+    RecordBO parseNextRecord(BufferedReader in) throws FlatwormParserException, IOException {
+        ParseContext previous = fileFormat.activateParseContext(this);
+        try {
+            return doNextRecord(in);
+        } finally {
+            fileFormat.activateParseContext(previous);
+        }
+    }
+
+    /**
+     * Get the last record that was parsed successfully.
+     *
+     * @return the {@link MatchedRecord} or {@code null} should no record have been parsed yet.
+     */
+    public MatchedRecord getLastRecordRead() {
+        if (lastRecordRead == null && lastParsedRecord != null) {
+            lastRecordRead = new MatchedRecord(lastParsedRecord, lastParsedBeans, lastParsedDataLine);
+        }
+        return lastRecordRead;
+    }
+
+    /**
+     * Get the beans of the last record that was parsed successfully.
+     *
+     * @return the beans by name.
+     */
+    Map<String, Object> getLastParsedBeans() {
+        return lastParsedBeans;
+    }
+
+    /**
+     * Get the first line of the last record that was parsed successfully.
+     *
+     * @return the line.
+     */
+    String getLastParsedDataLine() {
+        return lastParsedDataLine;
+    }
+
+    /**
+     * Manually provide the next data to be parsed.
+     *
+     * @param line The line of data that should be parsed - this could be multiple lines if the {@code line.separator} is used to separate
+     *             the lines within the {@code line} parameter.
+     * @return The {@link MatchedRecord} for the given data if the data could be parsed.
+     * @throws FlatwormParserException should an issue occur while parsing the data content.
+     */
+    public MatchedRecord nextRecord(String line) throws FlatwormParserException {
+        MatchedRecord matchedRecord;
+        try {
+            matchedRecord = nextRecord(new BufferedReader(new StringReader(line)));
+        } catch (Exception e) {
+            throw new FlatwormParserException(e.getMessage(), e);
+        }
+        return matchedRecord;
+    }
+
+    /**
+     * Manually provide the next data to be parsed.
+     *
+     * @param lines The lines of data that should be parsed - this wll be appended together with the correct system-based {@code
+     *              line.separator}.
+     * @return The {@link MatchedRecord} for the given data if the data could be parsed.
+     * @throws FlatwormParserException should an issue occur while parsing the data content.
+     */
+    public MatchedRecord nextRecord(List<String> lines) throws FlatwormParserException {
+        MatchedRecord matchedRecord;
+        try {
+            StringBuilder builder = new StringBuilder();
+            lines.forEach(line -> builder.append(line).append(String.format("%n")));
+            matchedRecord = nextRecord(new BufferedReader(new StringReader(builder.toString())));
+        } catch (Exception e) {
+            throw new FlatwormParserException(e.getMessage(), e);
+        }
+        return matchedRecord;
+    }
+
+    private RecordBO doNextRecord(BufferedReader in) throws FlatwormParserException, IOException {
+        RecordBO parsedRecord = null;
+        if (hasUnparsedLine()) {
+            currentParsedLine = lastReadLine;
+        } else {
+            currentParsedLine = in.readLine();
+            lineNumber++;
+            if (currentParsedLine != null) {
+                linesRead++;
+            }
+        }
+        startRecord(in);
+
+        if (currentParsedLine != null) {
+            RecordBO record = fileFormat.findMatchingRecord(currentParsedLine);
+            if (record != null) {
+                lastParsingRecord = record;
+                recordName = record.getName();
+                try {
+                    if (record.getBeforeRecordHook() != null) {
+                        record.getBeforeRecordHook().beforeRecord(fileFormat, currentParsedLine);
+                    }
+                } catch (RuntimeException e) {
+                    throw new FlatwormParserException(e.getMessage(), e);
+                }
+                if (record.getBeforeScriptlet() != null) {
+                    record.getBeforeScriptlet().invokeFunction(fileFormat, currentParsedLine);
+                }
+
+                Map<String, Object> beans;
+                try {
+                    beans = record.parseRecord(currentParsedLine, in, this);
+                } catch (FieldParseException e) {
+                    // The converter only knows the value - fill in where the value came from.
+                    e.setRecordName(record.getName());
+                    e.setLineNumber((int) Math.min(Integer.MAX_VALUE, toFileLineNumber(recordLineNumber)));
+                    throw e;
+                }
+                parsedRecord = record;
+                lastParsedRecord = record;
+                lastParsedBeans = beans;
+                lastParsedDataLine = currentParsedLine;
+                lastRecordRead = null;
+
+                try {
+                    if (record.getAfterRecordHook() != null) {
+                        record.getAfterRecordHook().afterRecord(fileFormat);
+                    }
+                } catch (RuntimeException e) {
+                    throw new FlatwormParserException(e.getMessage(), e);
+                }
+                if (record.getAfterScriptlet() != null) {
+                    record.getAfterScriptlet().invokeFunction(fileFormat);
+                }
+            } else if (!fileFormat.isIgnoreUnmappedRecords()) {
+                throw new FlatwormParserException(String.format(
+                        "Configuration not found for line in input file [line: %d] - %s", lineNumber, currentParsedLine
+                ));
+            }
+        }
+
+        return parsedRecord;
+    }
+
+    /**
+     * Read the next line of the record currently being parsed - used instead of {@link BufferedReader#readLine()} by the {@link RecordBO}s
+     * so that the lines of the record can be described should it be rejected.
+     *
+     * @param in The stream to read from.
+     * @return the line read or {@code null} if the end of the stream has been reached.
+     * @throws IOException should an I/O issue occur.
+     */
+    public String readRecordLine(BufferedReader in) throws IOException {
+        String line = in.readLine();
+        if (line != null) {
+            linesRead++;
+            if (captureRecordLines) {
+                recordLines.add(line);
+            }
+        }
+        return line;
+    }
+
+    /**
+     * Describe the record that was being parsed when the given error occurred. The raw lines are only all known when {@link
+     * #isCaptureRecordLines()} is enabled - otherwise only the first line of the record is included. Note that a line read ahead to find
+     * the end of the record is included when it was read before the error occurred.
+     *
+     * @param error The error.
+     * @return the {@link RejectedRecord} or {@code null} if no line was being parsed.
+     */
+    public RejectedRecord toRejectedRecord(Exception error) {
+        RejectedRecord rejectedRecord = null;
+        if (currentParsedLine != null) {
+            List<String> lines = captureRecordLines && !recordLines.isEmpty()
+                    ? new ArrayList<>(recordLines)
+                    : Collections.singletonList(currentParsedLine);
+            rejectedRecord = new RejectedRecord(recordName, toFileLineNumber(recordLineNumber), recordByteOffset, lines, error);
+        }
+        return rejectedRecord;
+    }
+
+    /**
+     * Set where the input starts within its source when it is a byte range of a larger source, so that line numbers are given from the
+     * start of the source rather than from the start of the range.
+     *
+     * @param lineOffset The {@link LineOffset} of the start of the range.
+     */
+    void setLineOffset(LineOffset lineOffset) {
+        this.lineOffset = lineOffset;
+    }
+
+    private long toFileLineNumber(long line) {
+        long fileLine = line;
+        if (lineOffset != null) {
+            try {
+                fileLine += lineOffset.getLinesBefore();
+            } catch (IOException e) {
+                // The source failing is reported by whatever is reading the range - the line number is just unknown.
+                fileLine = -1;
+            }
+        }
+        return fileLine;
+    }
+
+    private void startRecord(BufferedReader in) {
+        recordName = null;
+        recordLineNumber = linesRead;
+        // The first line of the record is always the last line read, whether it was read ahead by the previous record or just now.
+        recordByteOffset = in instanceof ByteRangeLineReader ? ByteRangeLineReader.class.cast(in).getLastLineStart() : -1;
+        if (captureRecordLines) {
+            recordLines.clear();
+            if (currentParsedLine != null) {
+                recordLines.add(currentParsedLine);
+            }
+        }
+    }
+
+    /**
+     * Determine if the last line read while parsing the previous record has yet to be parsed - if so, it will be used as the first line of
+     * the next record rather than reading a new line.
+     *
+     * @return {@code true} if there is a line that has been read but not yet parsed.
+     */
+    boolean hasUnparsedLine() {
+        return lastParsingRecord != null && !parsedLastReadLine;
+    }
+
+    /**
+     * Discard the line that was read but not parsed while parsing the previous record so that parsing continues with the next line - this
+     * is used to move past a line that repeatedly fails to parse.
+     */
+    void discardUnparsedLine() {
+        parsedLastReadLine = true;
+    }
+
+    /**
+     * Called after a record failed to parse - should nothing beyond the first line of the record have been read, that line is discarded.
+     * Otherwise the line would be left unparsed and the next call would parse it again, and fail on it again, indefinitely (e.g. for a
+     * record that only has lines with identities).
+     */
+    void discardUnconsumedLine() {
+        if (hasUnparsedLine() && linesRead == recordLineNumber) {
+            discardUnparsedLine();
+        }
+    }
+
+    /**
+     * Clear the captured state so that this instance can be used to parse a different input from its beginning.
+     */
+    void reset() {
+        lineNumber = 0;
+        currentParsedLine = "";
+        lastRecordRead = null;
+        lastParsedRecord = null;
+        lastParsedBeans = null;
+        lastParsedDataLine = null;
+        lastParsingRecord = null;
+        lastReadLine = null;
+        parsedLastReadLine = true;
+        recordLines.clear();
+        linesRead = 0;
+        recordLineNumber = 0;
+        recordByteOffset = -1;
+        recordName = null;
+        lineOffset = null;
+    }
+}
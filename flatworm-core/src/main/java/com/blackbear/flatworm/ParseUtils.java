@@ -16,6 +16,8 @@
 
 package com.blackbear.flatworm;
 
+import com.google.common.base.Throwables;
+
 import com.blackbear.flatworm.config.CardinalityBO;
 import com.blackbear.flatworm.errors.FlatwormConfigurationException;
 import com.blackbear.flatworm.errors.FlatwormParserException;
@@ -24,11 +26,23 @@ import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.lang.StringUtils;
 
 import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Collection;
 
 public class ParseUtils {
+
+    private static final ClassValue<BeanConstructor> CONSTRUCTORS = new ClassValue<BeanConstructor>() {
+        @Override
+        protected BeanConstructor computeValue(Class<?> type) {
+            return new BeanConstructor(type);
+        }
+    };
+
     /**
      * Create a new instance of the class represented by the {@code beanType} instance.
      *
@@ -37,10 +51,28 @@ public class ParseUtils {
      * @throws FlatwormParserException should creating the new instance fail for any reason.
      */
     public static Object newBeanInstance(Object beanType) throws FlatwormParserException {
+        return newBeanInstance(beanType.getClass());
+    }
+
+    /**
+     * Create a new instance of the given class through its no-argument constructor. The constructor is resolved to a {@link MethodHandle}
+     * once per class and cached, so that repeated instantiation costs about the same as a direct constructor call.
+     *
+     * @param beanClass The class to instantiate.
+     * @return a new instance of the class.
+     * @throws FlatwormParserException should the class not have an accessible no-argument constructor or should the constructor fail.
+     */
+    public static Object newBeanInstance(Class<?> beanClass) throws FlatwormParserException {
+        BeanConstructor constructor = CONSTRUCTORS.get(beanClass);
+        if (constructor.handle == null) {
+            throw new FlatwormParserException("Unable to create new instance of bean '" + beanClass + "'", constructor.failure);
+        }
         try {
-            return beanType.getClass().newInstance();
+            return constructor.handle.invokeExact();
         } catch (Exception e) {
-            throw new FlatwormParserException("Unable to create new instance of bean '" + beanType.getClass() + "'", e);
+            throw new FlatwormParserException("Unable to create new instance of bean '" + beanClass + "'", e);
+        } catch (Throwable e) {
+            throw Throwables.propagate(e);
         }
     }
 
@@ -71,7 +103,12 @@ public class ParseUtils {
      */
     public static void setProperty(Object target, String propertyName, Object toAdd) throws FlatwormParserException {
         try {
-            PropertyUtils.setProperty(target, propertyName, toAdd);
+            PropertyAccessor accessor = PropertyAccessor.forProperty(target.getClass(), propertyName);
+            if (accessor != null && accessor.isWritable()) {
+                accessor.set(target, toAdd);
+            } else {
+                PropertyUtils.setProperty(target, propertyName, toAdd);
+            }
         } catch (Exception e) {
             throw new FlatwormParserException(e.getMessage(), e);
         }
@@ -91,10 +128,10 @@ public class ParseUtils {
         if (cardinality.getCardinalityMode() != CardinalityMode.SINGLE) {
 
             boolean addToCollection = true;
-            PropertyDescriptor propDesc;
+            Class<?> propertyType;
             
             try {
-                propDesc = PropertyUtils.getPropertyDescriptor(target, cardinality.getPropertyName());
+                propertyType = getPropertyType(target, cardinality.getPropertyName());
             }
             catch(Exception e) {
                 // This should only happen via the XML configuration as the annotation configuration uses reflection to 
@@ -108,13 +145,13 @@ public class ParseUtils {
                     || cardinality.getCardinalityMode() == CardinalityMode.RESTRICTED) {
 
                 try {
-                    Object currentValue = PropertyUtils.getProperty(target, cardinality.getPropertyName());
+                    Object currentValue = getProperty(target, cardinality.getPropertyName());
                     int currentSize;
                     
-                    if(Collection.class.isAssignableFrom(propDesc.getPropertyType())) {
+                    if(Collection.class.isAssignableFrom(propertyType)) {
                         currentSize = Collection.class.cast(currentValue).size();
                     }
-                    else if(propDesc.getPropertyType().isArray()) {
+                    else if(propertyType.isArray()) {
                         currentSize = Array.getLength(currentValue);
                     }
                     else {
@@ -122,7 +159,7 @@ public class ParseUtils {
                                 "suggesting that it is an Array or some instance of java.util.Collection. However, the property type " +
                                 "is %s, which is not currently supported.",
                                 target.getClass().getName(), cardinality.getCardinalityMode().name(), 
-                                cardinality.getPropertyName(), propDesc.getPropertyType().getName()));
+                                cardinality.getPropertyName(), propertyType.getName()));
                     }
                     
                     addToCollection = currentSize < cardinality.getMaxCount() || cardinality.getMaxCount() < 0;
@@ -145,7 +182,7 @@ public class ParseUtils {
                 
                 // Need to make sure we have an add method for Arrays.
                 // TODO - add ability to automatically expand an array - for now, use an addMethod or collections.
-                if(StringUtils.isBlank(cardinality.getAddMethod()) && propDesc.getPropertyType().isArray()) {
+                if(StringUtils.isBlank(cardinality.getAddMethod()) && propertyType.isArray()) {
                     throw new FlatwormParserException(String.format("Bean %s with property %s is an Array and therefore an Add Method " +
                             "must be specified in the configuration so that an element can be properly added to the array. " +
                             "Auto-expanding an array is not yet supported.", target.getClass().getName(), cardinality.getPropertyName()));
@@ -200,24 +237,26 @@ public class ParseUtils {
     public static void addValueToCollection(Object target, String collectionPropertyName, Object toAdd) throws FlatwormParserException {
         if (target == null || StringUtils.isBlank(collectionPropertyName) || toAdd == null) return;
         try {
-            PropertyDescriptor propertyDescriptor = PropertyUtils.getPropertyDescriptor(target, collectionPropertyName);
-            if (propertyDescriptor != null) {
-                Object collectionInstance = PropertyUtils.getProperty(target, collectionPropertyName);
-                if (collectionInstance != null) {
+            Class<?> propertyType = getPropertyType(target, collectionPropertyName);
+            if (propertyType != null) {
+                Object collectionInstance = getProperty(target, collectionPropertyName);
+                if (collectionInstance instanceof Collection) {
+                    Collection.class.cast(collectionInstance).add(toAdd);
+                } else if (collectionInstance != null) {
                     // Once compiled, generics lose their converterName reference and it defaults to a simple java.lang.Object.class
                     // so that's the method parameter we'll search by.
-                    Method addMethod = propertyDescriptor.getPropertyType().getMethod("add", Object.class);
+                    Method addMethod = propertyType.getMethod("add", Object.class);
                     if (addMethod != null) {
                         addMethod.invoke(collectionInstance, toAdd);
                     } else {
                         throw new FlatwormParserException(String.format(
                                 "The collection instance %s for property %s in class %s does not have an add method.",
-                                collectionInstance.getClass().getName(), propertyDescriptor.getName(), target.getClass().getName()));
+                                collectionInstance.getClass().getName(), collectionPropertyName, target.getClass().getName()));
                     }
                 } else {
                     throw new FlatwormParserException(String.format(
                             "Unable to invoke the add method on collection %s as it is currently null for instance %s.",
-                            propertyDescriptor.getName(), target.getClass().getName()));
+                            collectionPropertyName, target.getClass().getName()));
                 }
             } else {
                 throw new FlatwormParserException(String.format(
@@ -232,6 +271,39 @@ public class ParseUtils {
         }
     }
 
+    /**
+     * Get the type of a bean property, using a {@link PropertyAccessor} where possible.
+     *
+     * @param target       The bean.
+     * @param propertyName The name of the property.
+     * @return the type of the property or {@code null} if the property doesn't exist.
+     * @throws Exception should introspecting the bean fail.
+     */
+    private static Class<?> getPropertyType(Object target, String propertyName) throws Exception {
+        Class<?> propertyType;
+        PropertyAccessor accessor = PropertyAccessor.forProperty(target.getClass(), propertyName);
+        if (accessor != null) {
+            propertyType = accessor.getPropertyType();
+        } else {
+            PropertyDescriptor propertyDescriptor = PropertyUtils.getPropertyDescriptor(target, propertyName);
+            propertyType = propertyDescriptor != null ? propertyDescriptor.getPropertyType() : null;
+        }
+        return propertyType;
+    }
+
+    /**
+     * Get the value of a bean property, using a {@link PropertyAccessor} where possible.
+     *
+     * @param target       The bean.
+     * @param propertyName The name of the property.
+     * @return the value of the property.
+     * @throws Exception should reading the property fail.
+     */
+    private static Object getProperty(Object target, String propertyName) throws Exception {
+        PropertyAccessor accessor = PropertyAccessor.forProperty(target.getClass(), propertyName);
+        return accessor != null && accessor.isReadable() ? accessor.get(target) : PropertyUtils.getProperty(target, propertyName);
+    }
+
     /**
      * Attempt to determine the {@link CardinalityMode} based upon the {@code fieldType}. {@code Collection} based classes
      * and {@code Arrays} will return {@code CardinalityMode.LOOSE} - everything else will return {@code CardinalityMode.SINGLE}.
@@ -249,4 +321,29 @@ public class ParseUtils {
         
         return mode;
     }
+
+    /**
+     * The no-argument constructor of a bean class - or the reason it couldn't be resolved, which is reported each time instantiation is
+     * attempted.
+     */
+    private static final class BeanConstructor {
+        private final MethodHandle handle;
+        private final Exception failure;
+
+        BeanConstructor(Class<?> beanClass) {
+            MethodHandle resolved = null;
+            Exception resolveFailure = null;
+            try {
+                if (Modifier.isAbstract(beanClass.getModifiers())) {
+                    throw new InstantiationException(beanClass.getName() + " is abstract.");
+                }
+                resolved = MethodHandles.lookup().findConstructor(beanClass, MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Object.class));
+            } catch (Exception e) {
+                resolveFailure = e;
+            }
+            this.handle = resolved;
+            this.failure = resolveFailure;
+        }
+    }
 }
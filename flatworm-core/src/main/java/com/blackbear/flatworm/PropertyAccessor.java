@@ -0,0 +1,420 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Provides direct access to a simple property of a bean class. The getter and setter are resolved once per {@code (beanClass, property)}
+ * and bound to functional interfaces generated through {@link LambdaMetafactory}, so that invoking them costs the same as a direct method
+ * call. Should the class not be visible to Flatworm's class loader (or not be accessible) then plain {@link MethodHandle}s are used
+ * instead. Properties without a setter that are backed by a field of the same name (i.e. fields configured through annotations) are set
+ * through a {@link MethodHandle} bound to the field.
+ *
+ * Only simple property names are supported - nested, indexed and mapped properties (i.e. {@code a.b}, {@code a[0]} or {@code a(b)}) are not
+ * resolved and should be handled through {@code PropertyUtils} instead.
+ *
+ * @author Alan Henson
+ */
+@Slf4j
+public final class PropertyAccessor {
+
+    private static final ClassValue<ConcurrentMap<String, Optional<PropertyAccessor>>> ACCESSORS =
+            new ClassValue<ConcurrentMap<String, Optional<PropertyAccessor>>>() {
+                @Override
+                protected ConcurrentMap<String, Optional<PropertyAccessor>> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    @Getter
+    private final Class<?> beanClass;
+
+    @Getter
+    private final String property;
+
+    @Getter
+    private final Class<?> propertyType;
+
+    private final Function<Object, Object> getter;
+    private final BiConsumer<Object, Object> setter;
+
+    // An ObjIntConsumer, ObjLongConsumer or ObjDoubleConsumer for int, long and double properties respectively.
+    private final Object primitiveSetter;
+
+    private PropertyAccessor(Class<?> beanClass, String property, Class<?> propertyType, Function<Object, Object> getter,
+                             BiConsumer<Object, Object> setter, Object primitiveSetter) {
+        this.beanClass = beanClass;
+        this.property = property;
+        this.propertyType = propertyType;
+        this.getter = getter;
+        this.setter = setter;
+        this.primitiveSetter = primitiveSetter;
+    }
+
+    /**
+     * Get the {@code PropertyAccessor} for the given property, resolving it on first use.
+     *
+     * @param beanClass The class of the bean.
+     * @param property  The name of the property.
+     * @return the {@code PropertyAccessor} or {@code null} if the property couldn't be resolved (it doesn't exist or isn't a simple
+     * property).
+     */
+    public static PropertyAccessor forProperty(Class<?> beanClass, String property) {
+        if (beanClass == null || property == null) {
+            return null;
+        }
+        return ACCESSORS.get(beanClass).computeIfAbsent(property, name -> Optional.ofNullable(resolve(beanClass, name))).orElse(null);
+    }
+
+    public boolean isReadable() {
+        return getter != null;
+    }
+
+    public boolean isWritable() {
+        return setter != null;
+    }
+
+    /**
+     * Read the property's value.
+     *
+     * @param bean The bean to read from.
+     * @return the value of the property.
+     * @throws UnsupportedOperationException should the property not be readable.
+     */
+    public Object get(Object bean) {
+        if (getter == null) {
+            throw new UnsupportedOperationException(String.format("Property %s of %s is not readable.", property, beanClass.getName()));
+        }
+        return getter.apply(bean);
+    }
+
+    /**
+     * Set the property's value.
+     *
+     * @param bean  The bean to update.
+     * @param value The value to set - it must be assignable to the property type as no conversion is performed.
+     * @throws UnsupportedOperationException should the property not be writable.
+     */
+    public void set(Object bean, Object value) {
+        if (setter == null) {
+            throw new UnsupportedOperationException(String.format("Property %s of %s is not writable.", property, beanClass.getName()));
+        }
+        setter.accept(bean, value);
+    }
+
+    /**
+     * Set the value of an {@code int} property without boxing it.
+     *
+     * @param bean  The bean to update.
+     * @param value The value to set.
+     * @throws UnsupportedOperationException should the property not be a writable {@code int} property.
+     */
+    @SuppressWarnings("unchecked")
+    public void setInt(Object bean, int value) {
+        if (!(primitiveSetter instanceof ObjIntConsumer)) {
+            throw notPrimitive(int.class);
+        }
+        ((ObjIntConsumer<Object>) primitiveSetter).accept(bean, value);
+    }
+
+    /**
+     * Set the value of a {@code long} property without boxing it.
+     *
+     * @param bean  The bean to update.
+     * @param value The value to set.
+     * @throws UnsupportedOperationException should the property not be a writable {@code long} property.
+     */
+    @SuppressWarnings("unchecked")
+    public void setLong(Object bean, long value) {
+        if (!(primitiveSetter instanceof ObjLongConsumer)) {
+            throw notPrimitive(long.class);
+        }
+        ((ObjLongConsumer<Object>) primitiveSetter).accept(bean, value);
+    }
+
+    /**
+     * Set the value of a {@code double} property without boxing it.
+     *
+     * @param bean  The bean to update.
+     * @param value The value to set.
+     * @throws UnsupportedOperationException should the property not be a writable {@code double} property.
+     */
+    @SuppressWarnings("unchecked")
+    public void setDouble(Object bean, double value) {
+        if (!(primitiveSetter instanceof ObjDoubleConsumer)) {
+            throw notPrimitive(double.class);
+        }
+        ((ObjDoubleConsumer<Object>) primitiveSetter).accept(bean, value);
+    }
+
+    private UnsupportedOperationException notPrimitive(Class<?> type) {
+        return new UnsupportedOperationException(String.format("Property %s of %s is not a writable %s property.", property,
+                beanClass.getName(), type.getName()));
+    }
+
+    private static PropertyAccessor resolve(Class<?> beanClass, String property) {
+        if (property.isEmpty() || property.indexOf('.') >= 0 || property.indexOf('[') >= 0 || property.indexOf('(') >= 0) {
+            return null;
+        }
+
+        PropertyAccessor accessor = null;
+        try {
+            PropertyDescriptor descriptor = findDescriptor(beanClass, property);
+            Field field = findField(beanClass, property);
+            Method readMethod = descriptor != null ? descriptor.getReadMethod() : null;
+            Method writeMethod = descriptor != null ? descriptor.getWriteMethod() : null;
+
+            Function<Object, Object> getter = null;
+            BiConsumer<Object, Object> setter = null;
+            Object primitiveSetter = null;
+            Class<?> propertyType = null;
+
+            if (descriptor != null && descriptor.getPropertyType() != null) {
+                propertyType = descriptor.getPropertyType();
+                getter = readMethod != null ? bindGetter(beanClass, readMethod) : null;
+                setter = writeMethod != null ? bindSetter(beanClass, writeMethod) : null;
+                primitiveSetter = writeMethod != null ? bindPrimitiveSetter(beanClass, writeMethod, propertyType) : null;
+            }
+
+            if (setter == null && field != null && (propertyType == null || propertyType == field.getType())) {
+                propertyType = field.getType();
+                setter = bindFieldSetter(field);
+                primitiveSetter = bindPrimitiveFieldSetter(field);
+                if (getter == null) {
+                    getter = bindFieldGetter(field);
+                }
+            }
+
+            if (propertyType != null && (getter != null || setter != null)) {
+                accessor = new PropertyAccessor(beanClass, property, propertyType, getter, setter, primitiveSetter);
+            }
+        } catch (Throwable e) {
+            log.debug("Unable to resolve property {} of {} - falling back to PropertyUtils.", property, beanClass.getName(), e);
+        }
+        return accessor;
+    }
+
+    private static PropertyDescriptor findDescriptor(Class<?> beanClass, String property) throws IntrospectionException {
+        BeanInfo beanInfo = Introspector.getBeanInfo(beanClass);
+        for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
+            if (descriptor.getName().equals(property)) {
+                return descriptor;
+            }
+        }
+        return null;
+    }
+
+    private static Field findField(Class<?> beanClass, String property) {
+        for (Class<?> type = beanClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(property);
+                return Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()) ? null : field;
+            } catch (NoSuchFieldException e) {
+                // Keep looking up the hierarchy.
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> bindGetter(Class<?> beanClass, Method method) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        if (canGenerate(beanClass, method)) {
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class), handle, handle.type().wrap());
+            return (Function<Object, Object>) site.getTarget().invokeExact();
+        }
+
+        method.setAccessible(true);
+        MethodHandle handle = lookup.unreflect(method).asType(MethodType.methodType(Object.class, Object.class));
+        return bean -> {
+            try {
+                return handle.invokeExact(bean);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> bindSetter(Class<?> beanClass, Method method) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        if (canGenerate(beanClass, method)) {
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class), handle,
+                    handle.type().wrap().changeReturnType(void.class));
+            return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+        }
+
+        method.setAccessible(true);
+        return bindSetterHandle(lookup.unreflect(method));
+    }
+
+    private static Object bindPrimitiveSetter(Class<?> beanClass, Method method, Class<?> propertyType) throws Throwable {
+        Class<?> functionType = primitiveSetterType(propertyType);
+        if (functionType == null) {
+            return null;
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        if (canGenerate(beanClass, method)) {
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(functionType),
+                    MethodType.methodType(void.class, Object.class, propertyType), handle,
+                    MethodType.methodType(void.class, method.getDeclaringClass(), propertyType));
+            return site.getTarget().invoke();
+        }
+
+        method.setAccessible(true);
+        return bindPrimitiveSetterHandle(lookup.unreflect(method), propertyType);
+    }
+
+    private static Object bindPrimitiveFieldSetter(Field field) throws IllegalAccessException {
+        if (primitiveSetterType(field.getType()) == null) {
+            return null;
+        }
+        field.setAccessible(true);
+        return bindPrimitiveSetterHandle(MethodHandles.lookup().unreflectSetter(field), field.getType());
+    }
+
+    private static Object bindPrimitiveSetterHandle(MethodHandle setterHandle, Class<?> propertyType) {
+        MethodHandle handle = setterHandle.asType(MethodType.methodType(void.class, Object.class, propertyType));
+        Object primitiveSetter;
+        if (propertyType == int.class) {
+            primitiveSetter = (ObjIntConsumer<Object>) (bean, value) -> {
+                try {
+                    handle.invokeExact(bean, value);
+                } catch (Throwable e) {
+                    throw propagate(e);
+                }
+            };
+        } else if (propertyType == long.class) {
+            primitiveSetter = (ObjLongConsumer<Object>) (bean, value) -> {
+                try {
+                    handle.invokeExact(bean, value);
+                } catch (Throwable e) {
+                    throw propagate(e);
+                }
+            };
+        } else {
+            primitiveSetter = (ObjDoubleConsumer<Object>) (bean, value) -> {
+                try {
+                    handle.invokeExact(bean, value);
+                } catch (Throwable e) {
+                    throw propagate(e);
+                }
+            };
+        }
+        return primitiveSetter;
+    }
+
+    private static RuntimeException propagate(Throwable e) {
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return e instanceof RuntimeException ? (RuntimeException) e : new IllegalStateException(e.getMessage(), e);
+    }
+
+    private static Class<?> primitiveSetterType(Class<?> propertyType) {
+        Class<?> functionType = null;
+        if (propertyType == int.class) {
+            functionType = ObjIntConsumer.class;
+        } else if (propertyType == long.class) {
+            functionType = ObjLongConsumer.class;
+        } else if (propertyType == double.class) {
+            functionType = ObjDoubleConsumer.class;
+        }
+        return functionType;
+    }
+
+    private static Function<Object, Object> bindFieldGetter(Field field) throws IllegalAccessException {
+        field.setAccessible(true);
+        MethodHandle handle = MethodHandles.lookup().unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+        return bean -> {
+            try {
+                return handle.invokeExact(bean);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        };
+    }
+
+    private static BiConsumer<Object, Object> bindFieldSetter(Field field) throws IllegalAccessException {
+        field.setAccessible(true);
+        return bindSetterHandle(MethodHandles.lookup().unreflectSetter(field));
+    }
+
+    private static BiConsumer<Object, Object> bindSetterHandle(MethodHandle setterHandle) {
+        MethodHandle handle = setterHandle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (bean, value) -> {
+            try {
+                handle.invokeExact(bean, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        };
+    }
+
+    /**
+     * The generated class is defined alongside this class, so it must be able to see and access the bean class and method.
+     */
+    private static boolean canGenerate(Class<?> beanClass, Method method) {
+        boolean accessible = Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                && Modifier.isPublic(beanClass.getModifiers());
+        if (accessible) {
+            try {
+                accessible = Class.forName(beanClass.getName(), false, PropertyAccessor.class.getClassLoader()) == beanClass
+                        && Class.forName(method.getDeclaringClass().getName(), false, PropertyAccessor.class.getClassLoader())
+                        == method.getDeclaringClass();
+            } catch (ClassNotFoundException e) {
+                accessible = false;
+            }
+        }
+        return accessible;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * {@link Spliterator} over the records read from a {@link BufferedReader} through a {@link ParseContext}. Used when the input can't be
+ * addressed by byte offset (e.g. it is a stream or its encoding doesn't allow line boundaries to be found without decoding) - splitting
+ * then hands off batches of already parsed records, see {@link Spliterators.AbstractSpliterator#trySplit()}.
+ *
+ * Errors are passed to the {@link FileParser}'s {@link com.blackbear.flatworm.callbacks.ExceptionCallback}s, just as they are by
+ * {@link FileParser#read()}, and parsing continues with the next record - other than for an {@link IOException}, which ends the input.
+ *
+ * @author Alan Henson
+ */
+final class ReaderRecordSpliterator extends Spliterators.AbstractSpliterator<MatchedRecord> {
+
+    private final FileParser fileParser;
+    private final ParseContext parseContext;
+    private final BufferedReader in;
+    private boolean finished;
+
+    ReaderRecordSpliterator(FileParser fileParser, ParseContext parseContext, BufferedReader in) {
+        super(Long.MAX_VALUE, ORDERED | NONNULL);
+        this.fileParser = fileParser;
+        this.parseContext = parseContext;
+        this.in = in;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super MatchedRecord> action) {
+        MatchedRecord record = null;
+        while (record == null && !finished) {
+            try {
+                record = parseContext.nextRecord(in);
+                // A null record is also returned for lines that are ignored because they don't match any record.
+                finished = record == null && parseContext.getCurrentParsedLine() == null;
+            } catch (IOException e) {
+                fileParser.doExceptionCallback(e, e.getMessage(), parseContext.getCurrentParsedLine());
+                finished = true;
+            } catch (Exception e) {
+                fileParser.doParseExceptionCallback(e, parseContext.getCurrentParsedLine(), fileParser.toRejectedRecord(parseContext, e));
+                parseContext.discardUnconsumedLine();
+            }
+        }
+
+        if (record != null) {
+            action.accept(record);
+        }
+        return record != null;
+    }
+}
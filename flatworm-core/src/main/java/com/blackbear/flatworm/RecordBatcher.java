@@ -0,0 +1,121 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.callbacks.BatchRecordCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * Accumulates the records for a {@link BatchRecordCallback} and hands them over once the batch is full, once the oldest record in the
+ * batch has waited for the maximum delay or when explicitly flushed (e.g. at the end of the input). There is no timer - the maximum delay
+ * is only checked as records are dispatched, so a partial batch waits for the next record (of any name) or the end of the input should
+ * the input stall. Records may be added from several threads (see {@link ParallelDeliveryMode#UNORDERED}) - the callback is never invoked
+ * concurrently.
+ *
+ * @author Alan Henson
+ */
+class RecordBatcher {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    @Getter
+    private final String recordName;
+    @Getter
+    private final BatchRecordCallback callback;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final FileParser fileParser;
+
+    private List<MatchedRecord> batch;
+    private volatile long deadline = NO_DEADLINE;
+
+    /**
+     * Create a {@code RecordBatcher}.
+     *
+     * @param fileParser    The {@link FileParser} whose exception callbacks are notified should the {@code callback} fail.
+     * @param recordName    The name of the record the {@code callback} was registered for.
+     * @param callback      The {@link BatchRecordCallback} to hand the batches to.
+     * @param batchSize     The number of records in a full batch.
+     * @param maxDelayNanos The longest a record should wait to be handed over, or {@code 0} for no limit.
+     */
+    RecordBatcher(FileParser fileParser, String recordName, BatchRecordCallback callback, int batchSize, long maxDelayNanos) {
+        this.fileParser = fileParser;
+        this.recordName = recordName;
+        this.callback = callback;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelayNanos;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Add a record to the batch, handing the batch over if it is now full or its oldest record has waited for the maximum delay.
+     *
+     * @param record The {@link MatchedRecord} to add.
+     * @param now    The current {@link System#nanoTime()}.
+     */
+    synchronized void add(MatchedRecord record, long now) {
+        if (batch.isEmpty() && maxDelayNanos > 0) {
+            deadline = now + maxDelayNanos;
+        }
+        batch.add(record);
+        if (batch.size() >= batchSize || isExpired(deadline, now)) {
+            flush();
+        }
+    }
+
+    /**
+     * Hand the batch over if its oldest record has waited for the maximum delay.
+     *
+     * @param now The current {@link System#nanoTime()}.
+     */
+    void flushIfExpired(long now) {
+        // The unsynchronized check keeps this cheap enough to be done for every record dispatched.
+        if (isExpired(deadline, now)) {
+            synchronized (this) {
+                if (isExpired(deadline, now)) {
+                    flush();
+                }
+            }
+        }
+    }
+
+    private static boolean isExpired(long deadline, long now) {
+        return deadline != NO_DEADLINE && now - deadline >= 0;
+    }
+
+    /**
+     * Hand over whatever records have been batched - nothing happens if there are none.
+     */
+    synchronized void flush() {
+        deadline = NO_DEADLINE;
+        if (!batch.isEmpty()) {
+            List<MatchedRecord> records = batch;
+            batch = new ArrayList<>(batchSize);
+            try {
+                callback.processRecords(records);
+            } catch (Exception e) {
+                String errMsg = String.format("Failed to invoke batch callback %s for RecordBO %s with %d records: %s",
+                        callback.getClass().getName(), recordName, records.size(), e.getMessage());
+                fileParser.doExceptionCallback(e, errMsg, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.config.LineBO;
+import com.blackbear.flatworm.config.RecordBO;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Finds lines that are guaranteed to start a record when reading from an arbitrary byte offset - this is what allows the input to be
+ * split up and parsed in parallel. The decision is conservative: a line is only considered to start a record if it matches a record with
+ * an identity, it doesn't match the identity of any identity-line (i.e. it can't be a detail line of a multi-line record) and none of the
+ * preceding lines could have started a multi-line record that the line would be a part of. Records without identities that span multiple
+ * lines therefore make it impossible to find a starting point, in which case the input won't be split at all.
+ *
+ * @author Alan Henson
+ */
+class RecordBoundaryDetector {
+
+    private final FileFormat fileFormat;
+    private final boolean everyLineStartsRecord;
+    private final List<RecordBO> multiLineRecords;
+    private final List<LineBO> identityLines;
+    private final int lookBehind;
+
+    RecordBoundaryDetector(FileFormat fileFormat) {
+        this.fileFormat = fileFormat;
+        this.multiLineRecords = new ArrayList<>();
+        this.identityLines = new ArrayList<>();
+
+        boolean singleLineRecordsOnly = true;
+        int maxSequentialLines = 1;
+        for (RecordBO record : fileFormat.getRecordClassifier().getCandidates()) {
+            List<LineBO> lines = record.getRecordDefinition().getLines();
+            List<LineBO> linesWithIdentities = record.getRecordDefinition().getLinesWithIdentities();
+            if (lines.size() > 1) {
+                multiLineRecords.add(record);
+                maxSequentialLines = Math.max(maxSequentialLines, lines.size());
+            }
+            identityLines.addAll(linesWithIdentities);
+            singleLineRecordsOnly &= lines.size() <= 1 && linesWithIdentities.isEmpty();
+        }
+
+        this.everyLineStartsRecord = singleLineRecordsOnly;
+        this.lookBehind = maxSequentialLines - 1;
+    }
+
+    /**
+     * Find the first line at or after the {@code from} offset that is guaranteed to start a record.
+     *
+     * @param source  The {@link ByteSource} to read from.
+     * @param charset The {@link Charset} of the data.
+     * @param from    The offset at which to start looking - this need not be at the start of a line.
+     * @param bound   The offset at which to stop looking.
+     * @return the offset of the line found or {@code -1} if no such line starts before {@code bound}.
+     * @throws IOException             should reading from the {@link ByteSource} fail.
+     * @throws FlatwormParserException should evaluating an identity fail.
+     */
+    long findRecordStart(ByteSource source, Charset charset, long from, long bound) throws IOException, FlatwormParserException {
+        if (from == 0) {
+            return 0;
+        }
+
+        ByteRangeLineReader reader = new ByteRangeLineReader(source, from, charset);
+        if (!isLineStart(source, from)) {
+            // Skip the remainder of the line we landed in.
+            reader.readLine();
+        }
+
+        Deque<String> previousLines = new ArrayDeque<>();
+        int linesToSkip = everyLineStartsRecord ? 0 : lookBehind;
+        long lineStart = reader.getNextLineStart();
+        String line;
+        while (lineStart < bound && (line = reader.readLine()) != null) {
+            if (linesToSkip-- <= 0 && (everyLineStartsRecord || isRecordStart(line, previousLines))) {
+                return lineStart;
+            }
+
+            if (lookBehind > 0) {
+                previousLines.addFirst(line);
+                if (previousLines.size() > lookBehind) {
+                    previousLines.removeLast();
+                }
+            }
+            lineStart = reader.getNextLineStart();
+        }
+        return -1;
+    }
+
+    private boolean isRecordStart(String line, Deque<String> previousLines) throws FlatwormParserException {
+        RecordBO record = fileFormat.findMatchingRecord(line);
+        if (record == null || record.getRecordIdentity() == null) {
+            return false;
+        }
+
+        for (LineBO identityLine : identityLines) {
+            if (identityLine.getLineIdentity().matchesIdentity(identityLine, fileFormat, line)) {
+                return false;
+            }
+        }
+
+        // Make sure that none of the preceding lines could have started a record that this line would still be a part of.
+        int distance = 1;
+        for (String previousLine : previousLines) {
+            for (RecordBO multiLineRecord : multiLineRecords) {
+                if (multiLineRecord.getRecordDefinition().getLines().size() > distance
+                        && multiLineRecord.matchesLine(fileFormat, previousLine)) {
+                    return false;
+                }
+            }
+            distance++;
+        }
+        return true;
+    }
+
+    private static boolean isLineStart(ByteSource source, long offset) throws IOException {
+        ByteBuffer previous = ByteBuffer.allocate(1);
+        return source.read(previous, offset - 1) == 1 && previous.get(0) == '\n';
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.config.BeanBO;
+import com.blackbear.flatworm.config.BeanSlot;
+import com.blackbear.flatworm.config.RecordBO;
+import com.blackbear.flatworm.errors.FlatwormConfigurationException;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import lombok.Getter;
+
+/**
+ * A typed handler registered through {@link FileParser#registerHandler(String, Class, Consumer)}. The bean the handler receives is
+ * resolved, by type, against the record's configuration once - when the configuration is known - to a {@link BeanSlot}, so each record's
+ * bean is taken by index rather than looked up by name.
+ *
+ * @param <T> The type of bean handled.
+ * @author Alan Henson
+ */
+class RecordHandler<T> {
+
+    @Getter
+    private final String recordName;
+    @Getter
+    private final Class<T> beanType;
+    @Getter
+    private final Consumer<? super T> handler;
+
+    private BeanSlot beanSlot;
+
+    RecordHandler(String recordName, Class<T> beanType, Consumer<? super T> handler) {
+        this.recordName = recordName;
+        this.beanType = beanType;
+        this.handler = handler;
+    }
+
+    /**
+     * Resolve the bean to hand over against the record's configuration - a bean whose class is exactly the {@code beanType} is preferred,
+     * otherwise there must be exactly one bean whose class is assignable to it.
+     *
+     * @param record The {@link RecordBO} the handler is registered for.
+     * @throws FlatwormConfigurationException should no bean be of the {@code beanType}, or should more than one bean be of exactly the
+     *                                        {@code beanType} or, without such a bean, more than one bean be assignable to it.
+     */
+    void resolve(RecordBO record) throws FlatwormConfigurationException {
+        String exactMatch = null;
+        int exactMatches = 0;
+        String assignableMatch = null;
+        int assignableMatches = 0;
+        for (BeanBO bean : record.getRecordDefinition().getBeans()) {
+            Class<?> beanClass = bean.getBeanObjectClass();
+            if (beanClass == beanType) {
+                exactMatch = bean.getBeanName();
+                exactMatches++;
+            } else if (beanClass != null && beanType.isAssignableFrom(beanClass)) {
+                assignableMatch = bean.getBeanName();
+                assignableMatches++;
+            }
+        }
+
+        if (exactMatches == 1) {
+            beanSlot = record.getRecordDefinition().getBeanSlot(exactMatch);
+        } else if (exactMatches == 0 && assignableMatches == 1) {
+            beanSlot = record.getRecordDefinition().getBeanSlot(assignableMatch);
+        } else {
+            throw new FlatwormConfigurationException(String.format("Record %s has %s bean of type %s to hand to the registered handler.",
+                    recordName, exactMatches + assignableMatches == 0 ? "no" : "more than one", beanType.getName()));
+        }
+    }
+
+    /**
+     * Hand the bean over to the handler.
+     *
+     * @param beans The beans of the record parsed.
+     */
+    void handle(Map<String, Object> beans) {
+        handler.accept(beanType.cast(MatchedRecord.getBean(beans, beanSlot)));
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+/**
+ * Implemented by beans that know how to return themselves to their freshly constructed state. When bean reuse is enabled (see {@link
+ * FileParser#setReuseBeans(boolean)}), {@link #reset()} is called on a bean before it is handed out again for the next record, instead of
+ * Flatworm clearing the properties named in the configuration. Beans whose state is also changed by scriptlets or add-methods should
+ * implement this.
+ *
+ * @author Alan Henson
+ */
+public interface Resettable {
+
+    /**
+     * Return the bean to the state it was in when it was constructed.
+     */
+    void reset();
+}
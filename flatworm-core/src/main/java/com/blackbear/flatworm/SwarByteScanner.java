@@ -0,0 +1,104 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link ByteScanner} that compares eight bytes at a time by treating them as a {@code long} (SIMD within a register). Each word is
+ * XOR-ed with the target byte repeated eight times, which turns matching bytes into zero bytes, and those are then located with carry-free
+ * arithmetic so that no false positives are produced regardless of the byte order of the buffer.
+ *
+ * @author Alan Henson
+ */
+@Slf4j
+public final class SwarByteScanner implements ByteScanner {
+
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long ONES = 0x0101010101010101L;
+
+    @Override
+    public int indexOf(ByteBuffer buffer, int from, int to, byte target) {
+        return indexOfEither(buffer, from, to, target, target);
+    }
+
+    @Override
+    public int indexOfEither(ByteBuffer buffer, int from, int to, byte first, byte second) {
+        long firstPattern = (first & 0xFFL) * ONES;
+        long secondPattern = (second & 0xFFL) * ONES;
+        boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+
+        int index = -1;
+        int i = from;
+        for (; index < 0 && i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = buffer.getLong(i);
+            long matches = zeroBytes(word ^ firstPattern) | zeroBytes(word ^ secondPattern);
+            if (matches != 0) {
+                int bit = bigEndian ? Long.numberOfLeadingZeros(matches) : Long.numberOfTrailingZeros(matches);
+                index = i + (bit >>> 3);
+            }
+        }
+        for (; index < 0 && i < to; i++) {
+            byte value = buffer.get(i);
+            if (value == first || value == second) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Get a word with the high bit set in each byte of {@code word} that is zero and all other bits clear. Unlike the common
+     * {@code (x - 0x01..) & ~x & 0x80..} form, no borrow crosses between bytes, so the result is exact.
+     */
+    private static long zeroBytes(long word) {
+        return ~(((word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | word | LOW_SEVEN_BITS);
+    }
+
+    /**
+     * Lazily selects the {@link ByteScanner} returned by {@link ByteScanner#getInstance()}.
+     */
+    static final class Holder {
+        static final ByteScanner INSTANCE = select();
+
+        private Holder() {
+        }
+
+        private static ByteScanner select() {
+            ByteScanner selected = null;
+            try {
+                for (ByteScanner candidate : ServiceLoader.load(ByteScanner.class)) {
+                    if (selected == null && candidate.isAvailable()) {
+                        selected = candidate;
+                    }
+                }
+            } catch (ServiceConfigurationError | LinkageError e) {
+                log.debug("Unable to load a ByteScanner implementation - falling back to SWAR scanning.", e);
+            }
+            if (selected == null) {
+                selected = new SwarByteScanner();
+            }
+            log.debug("Using ByteScanner " + selected.getClass().getName());
+            return selected;
+        }
+    }
+}
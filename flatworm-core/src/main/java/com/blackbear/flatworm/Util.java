@@ -20,6 +20,7 @@ import com.google.common.primitives.Ints;
 
 import com.blackbear.flatworm.config.ConversionOptionBO;
 import com.blackbear.flatworm.config.LineToken;
+import com.blackbear.flatworm.converters.FormatterCache;
 import com.blackbear.flatworm.errors.FlatwormConfigurationException;
 
 import org.apache.commons.lang.StringUtils;
@@ -56,7 +57,9 @@ public final class Util {
     /**
      * <code>split</code> divides a string into many strings based on a delimiter The main difference between this split and the one that
      * comes with Java is this one will ignore delimiters that are within quoted fields <p> <b>NOTE:</b> Delimiter will be ignored once
-     * chrQuote is encountered. Consideration will begin once matching chrQuote is encountered </p>
+     * chrQuote is encountered. Consideration will begin once matching chrQuote is encountered. A doubled chrQuote within a quoted field
+     * is an escaped chrQuote (RFC 4180). </p> The parser itself uses a reusable {@link DelimitedTokenizer} - this method is retained for
+     * callers that want the tokens as a list.
      *
      * @param str      The string you want to split
      * @param chrSplit character you want to split the string on
@@ -64,27 +67,14 @@ public final class Util {
      * @return List of {@link LineToken} instances representing what was parsed from the line base upon the delimiter.
      */
     public static List<LineToken> split(String str, char chrSplit, char chrQuote) {
-        List<LineToken> tokens = new ArrayList<>();
-        StringBuilder str1 = new StringBuilder();
-        boolean inQuote = false;
-
-        int colIdx = 0;
-        int tokenLength = 0;
-        for (; colIdx < str.length(); colIdx++) {
-            if (str.charAt(colIdx) == chrSplit && !inQuote) {
-                tokens.add(new LineToken(str1.toString(), tokenLength, colIdx));
-                str1 = new StringBuilder();
-                tokenLength = 0;
-            } else if (str.charAt(colIdx) == chrQuote) {
-                tokenLength++;
-                inQuote = (!inQuote);
-            } else {
-                tokenLength++;
-                str1.append(str.charAt(colIdx));
-            }
+        DelimitedTokenizer tokenizer = new DelimitedTokenizer();
+        int tokenCount = tokenizer.tokenize(str, chrSplit, chrQuote);
+        List<LineToken> tokens = new ArrayList<>(tokenCount);
+        for (int i = 0; i < tokenCount; i++) {
+            LineToken lineToken = tokenizer.getLineToken(i);
+            tokens.add(new LineToken(lineToken.getToken(), lineToken.getFullTokenLength(),
+                    lineToken.getColumnPosition() + lineToken.getFullTokenLength()));
         }
-
-        tokens.add(new LineToken(str1.toString(), tokenLength, colIdx));
         return tokens;
     }
 
@@ -111,7 +101,7 @@ public final class Util {
                 throw new Exception(
                         "You must define a conversion-option with a date format or supply one, I can find neither");
 
-        SimpleDateFormat sdf = new SimpleDateFormat(format);
+        SimpleDateFormat sdf = FormatterCache.getSimpleDateFormat(format);
 
         return sdf.format(date);
     }
@@ -32,5 +32,6 @@ import java.lang.annotation.Target;
 public @interface DataIdentity {
     LengthIdentity lengthIdentity() default @LengthIdentity(minLength = -1, maxLength = -1, enabled = false);
     FieldIdentity fieldIdentity() default @FieldIdentity(startPosition = -1, enabled = false, matchIdentities = {});
+    RegexIdentity regexIdentity() default @RegexIdentity(pattern = "", enabled = false);
     Scriptlet scriptIdentity() default @Scriptlet;
 }
@@ -66,6 +66,17 @@ public @interface Scriptlet {
      */
     String functionName() default "";
 
+    /**
+     * A Java class to use instead of a script - it must have a public no-arg constructor and implement the hook interface matching where
+     * the {@code Scriptlet} is used: {@link com.blackbear.flatworm.hooks.LineIdentityPredicate} for identities, {@link
+     * com.blackbear.flatworm.hooks.BeforeRecordHook}/{@link com.blackbear.flatworm.hooks.AfterRecordHook} for records and {@link
+     * com.blackbear.flatworm.hooks.BeforeLineHook}/{@link com.blackbear.flatworm.hooks.AfterLineHook} for lines. When specified, the
+     * script settings are ignored.
+     *
+     * @return The hook class or {@code void.class} if a script is to be used.
+     */
+    Class<?> javaClass() default void.class;
+
     /**
      * Flag to indicate whether or not this {@code Scriptlet} should be applied - set to {@code false} to have the framework ignore it.
      * Default is {@code false} so that it is not accidentally included.
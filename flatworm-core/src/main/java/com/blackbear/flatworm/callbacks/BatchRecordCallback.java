@@ -0,0 +1,30 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.callbacks;
+
+import com.blackbear.flatworm.MatchedRecord;
+
+import java.util.List;
+
+/**
+ * Receives the records of a given record name in batches rather than one at a time - see {@code
+ * FileParser.registerBatchRecordCallback}. The list passed belongs to the callback and can be retained.
+ */
+@FunctionalInterface
+public interface BatchRecordCallback {
+    void processRecords(List<MatchedRecord> records);
+}
@@ -0,0 +1,328 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config;
+
+import com.blackbear.flatworm.ParseUtils;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compiled form of a {@link RecordDefinitionBO}'s bean configuration - which beans are created, and in which order, before each
+ * {@link LineBO} is parsed and which parent property each line's bean is attached to once the line has been parsed. Each bean is given an
+ * integer slot so that parsing a record doesn't need to walk the lines, look beans up by name or track which beans have been refreshed in
+ * a {@link java.util.Set}.
+ *
+ * @author Alan Henson
+ */
+final class BeanPlan {
+
+    // Always create a new instance.
+    private static final int CREATE = 0;
+
+    // Create a new instance only if the record doesn't have one yet.
+    private static final int CREATE_IF_ABSENT = 1;
+
+    // Create a new instance unless one has already been created in the same pass.
+    private static final int CREATE_UNLESS_REFRESHED = 2;
+
+    private final BeanBO[] beans;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final Map<LineBO, LinePlan> linePlans = new IdentityHashMap<>();
+    private final LinePlan sequentialPlan;
+    private int passCount;
+
+    /**
+     * Compile the plan for the given {@link RecordDefinitionBO}.
+     *
+     * @param definition The {@link RecordDefinitionBO} to compile.
+     */
+    BeanPlan(RecordDefinitionBO definition) {
+        beans = definition.getBeans().toArray(new BeanBO[0]);
+        for (int i = 0; i < beans.length; i++) {
+            slots.put(beans[i].getBeanName(), i);
+        }
+        for (LineBO line : definition.getLines()) {
+            resolveSlots(line.getLineElements());
+        }
+        for (LineBO line : definition.getLinesWithIdentities()) {
+            resolveSlots(line.getLineElements());
+        }
+
+        // All of the sequential lines are readied in a single pass before the first of them is parsed.
+        PlanBuilder sequential = new PlanBuilder();
+        int pass = passCount++;
+        for (LineBO line : definition.getLines()) {
+            compileLine(definition, line, sequential, pass, new ArrayList<>());
+            linePlans.put(line, new PlanBuilder().build(line));
+        }
+        sequentialPlan = sequential.build(null);
+
+        for (LineBO line : definition.getLinesWithIdentities()) {
+            PlanBuilder builder = new PlanBuilder();
+            compileLine(definition, line, builder, passCount++, new ArrayList<>());
+            linePlans.put(line, builder.build(line));
+        }
+    }
+
+    /**
+     * Get the plan for readying the beans of the sequential lines.
+     *
+     * @return the {@link LinePlan} - it doesn't attach any beans.
+     */
+    LinePlan getSequentialPlan() {
+        return sequentialPlan;
+    }
+
+    /**
+     * Get the plan for the given line.
+     *
+     * @param line The {@link LineBO} of the record definition.
+     * @return the {@link LinePlan}, which only readies beans for lines with identities, or {@code null} should the line not be part of
+     * the record definition.
+     */
+    LinePlan getLinePlan(LineBO line) {
+        return linePlans.get(line);
+    }
+
+    /**
+     * Get the slot of the given bean.
+     *
+     * @param beanName The name of the bean.
+     * @return the {@link BeanSlot} or {@code null} should no bean of that name be defined.
+     */
+    BeanSlot getSlot(String beanName) {
+        int slot = slotOf(beanName);
+        return slot >= 0 ? new BeanSlot(this, slot, beans[slot]) : null;
+    }
+
+    /**
+     * Get the name of the bean in the given slot.
+     *
+     * @param slot The slot.
+     * @return the bean name.
+     */
+    String getBeanName(int slot) {
+        return beans[slot].getBeanName();
+    }
+
+    /**
+     * Create the map through which the beans of a record are exposed.
+     *
+     * @return a new, empty {@link RecordBeanMap}.
+     */
+    RecordBeanMap newBeanMap() {
+        return new RecordBeanMap(this, beans.length);
+    }
+
+    /**
+     * Start parsing a record.
+     *
+     * @param beanMap  The {@link RecordBeanMap} from {@link #newBeanMap()} through which the beans of the record are exposed - its slots
+     *                 are filled as the beans are created.
+     * @param beanPool The {@link BeanPool} to take the bean instances from - {@code null} to create new instances.
+     * @return the bean slots for the record.
+     */
+    RecordBeans newRecordBeans(RecordBeanMap beanMap, BeanPool beanPool) {
+        return new RecordBeans(beanMap, beanPool);
+    }
+
+    private void compileLine(RecordDefinitionBO definition, LineBO line, PlanBuilder builder, int pass, List<LineBO> path) {
+        CardinalityBO cardinality = line.getCardinality();
+        path.add(line);
+        if (cardinality != null) {
+            if (!StringUtils.isBlank(cardinality.getParentBeanRef())) {
+                builder.add(CREATE_IF_ABSENT, slotOf(cardinality.getParentBeanRef()), pass);
+            }
+
+            if (!StringUtils.isBlank(cardinality.getBeanRef())) {
+                builder.add(CREATE, slotOf(cardinality.getBeanRef()), pass);
+
+                // Ready the beans of the child lines too, each in a pass of its own.
+                for (LineBO otherLine : definition.getLinesWithIdentities()) {
+                    if (otherLine.getCardinality() != null
+                            && cardinality.getBeanRef().equals(otherLine.getCardinality().getParentBeanRef())
+                            && !path.contains(otherLine)) {
+                        compileLine(definition, otherLine, builder, passCount++, path);
+                    }
+                }
+            }
+        }
+        compileElements(line.getLineElements(), builder, pass);
+        path.remove(path.size() - 1);
+    }
+
+    private void compileElements(List<LineElement> lineElements, PlanBuilder builder, int pass) {
+        for (LineElement lineElement : lineElements) {
+            if (lineElement instanceof RecordElementBO) {
+                CardinalityBO cardinality = RecordElementBO.class.cast(lineElement).getCardinality();
+                if (cardinality != null && !StringUtils.isBlank(cardinality.getBeanRef())) {
+                    builder.add(CREATE_UNLESS_REFRESHED, slotOf(cardinality.getBeanRef()), pass);
+                }
+            } else if (lineElement instanceof SegmentElementBO) {
+                compileElements(SegmentElementBO.class.cast(lineElement).getLineElements(), builder, pass);
+            }
+        }
+    }
+
+    /**
+     * Resolve the bean references of the record and segment elements to their slots so that the beans can be read and written by index
+     * as each field is parsed.
+     *
+     * @param lineElements The elements of a line or segment.
+     */
+    private void resolveSlots(List<LineElement> lineElements) {
+        for (LineElement lineElement : lineElements) {
+            if (lineElement instanceof RecordElementBO) {
+                RecordElementBO recordElement = RecordElementBO.class.cast(lineElement);
+                CardinalityBO cardinality = recordElement.getCardinality();
+                recordElement.beanSlot = cardinality != null ? getSlot(cardinality.getBeanRef()) : null;
+            } else if (lineElement instanceof SegmentElementBO) {
+                SegmentElementBO segmentElement = SegmentElementBO.class.cast(lineElement);
+                CardinalityBO cardinality = segmentElement.getCardinality();
+                segmentElement.beanSlot = cardinality != null ? getSlot(cardinality.getBeanRef()) : null;
+                segmentElement.parentBeanSlot = cardinality != null ? getSlot(cardinality.getParentBeanRef()) : null;
+                resolveSlots(segmentElement.getLineElements());
+            }
+        }
+    }
+
+    int slotOf(String beanRef) {
+        Integer slot = slots.get(beanRef);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * The beans to ready before a line is parsed and where the line's bean is attached afterwards.
+     */
+    final class LinePlan {
+        private final int[] steps;
+        private final int parentSlot;
+        private final int childSlot;
+        private final LineBO propertyLine;
+
+        private LinePlan(int[] steps, LineBO line) {
+            this.steps = steps;
+            this.propertyLine = line != null && line.isPropertyLine() ? line : null;
+            this.parentSlot = propertyLine != null ? slotOf(line.getCardinality().getParentBeanRef()) : -1;
+            this.childSlot = propertyLine != null ? slotOf(line.getCardinality().getBeanRef()) : -1;
+        }
+    }
+
+    /**
+     * Accumulates the steps of a {@link LinePlan} as {@code (action, slot, pass)} triples.
+     */
+    private final class PlanBuilder {
+        private final List<int[]> steps = new ArrayList<>();
+
+        void add(int action, int slot, int pass) {
+            // Beans that aren't defined are never created.
+            if (slot >= 0) {
+                steps.add(new int[]{action, slot, pass});
+            }
+        }
+
+        LinePlan build(LineBO line) {
+            int[] flattened = new int[steps.size() * 3];
+            for (int i = 0; i < steps.size(); i++) {
+                System.arraycopy(steps.get(i), 0, flattened, i * 3, 3);
+            }
+            return new LinePlan(flattened, line);
+        }
+    }
+
+    /**
+     * The bean instances of the record being parsed, indexed by slot.
+     */
+    final class RecordBeans {
+        private final Object[] instances;
+        private final int[] refreshedPass = new int[beans.length];
+        private final RecordBeanMap beanMap;
+        private final BeanPool beanPool;
+        private int passBase;
+
+        private RecordBeans(RecordBeanMap beanMap, BeanPool beanPool) {
+            this.instances = beanMap.instances;
+            this.beanMap = beanMap;
+            this.beanPool = beanPool;
+        }
+
+        /**
+         * Create the beans the plan calls for.
+         *
+         * @param plan The {@link LinePlan} to execute.
+         * @throws FlatwormParserException should creating a bean fail for any reason.
+         */
+        void ready(LinePlan plan) throws FlatwormParserException {
+            int[] steps = plan.steps;
+            for (int i = 0; i < steps.length; i += 3) {
+                int slot = steps[i + 1];
+                // Passes are numbered from one for each execution so that zero never matches.
+                int pass = passBase + steps[i + 2] + 1;
+                boolean create;
+                switch (steps[i]) {
+                    case CREATE_IF_ABSENT:
+                        create = instances[slot] == null;
+                        break;
+                    case CREATE_UNLESS_REFRESHED:
+                        create = refreshedPass[slot] != pass;
+                        break;
+                    default:
+                        create = true;
+                        break;
+                }
+                if (create) {
+                    create(slot);
+                    refreshedPass[slot] = pass;
+                }
+            }
+            passBase += passCount;
+        }
+
+        /**
+         * Attach the bean of a property line to its parent bean.
+         *
+         * @param plan The {@link LinePlan} of the line that was parsed.
+         * @throws FlatwormParserException should invoking the reflective properties fail for any reason.
+         */
+        void attach(LinePlan plan) throws FlatwormParserException {
+            if (plan.propertyLine != null) {
+                CardinalityBO cardinality = plan.propertyLine.getCardinality();
+                Object parentBean = plan.parentSlot >= 0 ? instances[plan.parentSlot] : beanMap.get(cardinality.getParentBeanRef());
+                Object toAdd = plan.childSlot >= 0 ? instances[plan.childSlot] : beanMap.get(cardinality.getBeanRef());
+                ParseUtils.addObjectToProperty(parentBean, toAdd, cardinality);
+            }
+        }
+
+        private void create(int slot) throws FlatwormParserException {
+            BeanBO bean = beans[slot];
+            try {
+                Object instance = beanPool != null ? beanPool.acquire(bean) : ParseUtils.newBeanInstance(bean.getBeanObjectClass());
+                instances[slot] = instance;
+            } catch (Exception e) {
+                throw new FlatwormParserException(String.format("Failed to instantiate new bean %s. Err: %s",
+                        bean.getBeanObjectClass().getName(), e.getMessage()), e);
+            }
+        }
+    }
+}
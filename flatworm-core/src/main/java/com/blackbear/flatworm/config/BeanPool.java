@@ -0,0 +1,205 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config;
+
+import com.google.common.base.Defaults;
+
+import com.blackbear.flatworm.CardinalityMode;
+import com.blackbear.flatworm.ParseUtils;
+import com.blackbear.flatworm.PropertyAccessor;
+import com.blackbear.flatworm.Resettable;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recycles the bean instances created while parsing records so that each record doesn't allocate a fresh set of beans. The instances
+ * handed out for one record are handed out again (after being reset) for the next record of the same type, so they must not be retained
+ * once the record has been processed. A bean is reset by calling {@link Resettable#reset()} if it implements {@link Resettable} and
+ * otherwise by putting back the initial value of each property the configuration writes to and by clearing each collection that the
+ * configuration adds to. A bean class for which that isn't possible (i.e. nested properties, add-methods, arrays or mutable initial values)
+ * is simply instantiated for each record.
+ *
+ * A {@code BeanPool} belongs to a single {@link com.blackbear.flatworm.ParseContext} and must only be used by one thread at a time.
+ *
+ * @author Alan Henson
+ */
+public class BeanPool {
+
+    private final Map<BeanBO, Slot> slots = new IdentityHashMap<>();
+    private int generation;
+
+    /**
+     * Make all of the instances handed out so far available again - called as each record is started.
+     */
+    public void nextRecord() {
+        generation++;
+    }
+
+    /**
+     * Get an instance of the given bean for the current record - a recycled instance if one is available and a new one otherwise.
+     *
+     * @param bean The bean's configuration.
+     * @return an instance of the bean in its initial state.
+     * @throws FlatwormParserException should creating the instance fail.
+     */
+    public Object acquire(BeanBO bean) throws FlatwormParserException {
+        Slot slot = slots.get(bean);
+        if (slot == null) {
+            slot = new Slot(bean);
+            slots.put(bean, slot);
+        }
+        if (slot.generation != generation) {
+            slot.generation = generation;
+            slot.next = 0;
+        }
+
+        Object instance;
+        if (slot.next < slot.instances.size()) {
+            instance = slot.instances.get(slot.next++);
+            slot.reset(instance);
+        } else {
+            instance = ParseUtils.newBeanInstance(bean.getBeanObjectClass());
+            if (slot.resettable || instance instanceof Resettable) {
+                slot.instances.add(instance);
+                slot.next++;
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * The recycled instances of a bean along with how to reset them.
+     */
+    private static final class Slot {
+        private final List<Object> instances = new ArrayList<>();
+        private final List<PropertyReset> propertyResets = new ArrayList<>();
+        private boolean resettable;
+        private int generation = -1;
+        private int next;
+
+        Slot(BeanBO bean) throws FlatwormParserException {
+            RecordDefinitionBO definition = bean.getParentRecordDefinition();
+            resettable = definition != null && bean.getBeanObjectClass() != null;
+            if (resettable) {
+                Object template = ParseUtils.newBeanInstance(bean.getBeanObjectClass());
+                List<LineBO> lines = new ArrayList<>(definition.getLines());
+                lines.addAll(definition.getLinesWithIdentities());
+                for (LineBO line : lines) {
+                    if (line.getCardinality() != null && bean.getBeanName().equals(line.getCardinality().getParentBeanRef())) {
+                        addPropertyReset(template, line.getCardinality());
+                    }
+                    addPropertyResets(bean.getBeanName(), template, line.getLineElements());
+                }
+            }
+        }
+
+        private void addPropertyResets(String beanName, Object template, List<LineElement> lineElements) {
+            for (LineElement lineElement : lineElements) {
+                if (lineElement instanceof RecordElementBO) {
+                    CardinalityBO cardinality = RecordElementBO.class.cast(lineElement).getCardinality();
+                    if (cardinality != null && beanName.equals(cardinality.getBeanRef())) {
+                        addPropertyReset(template, cardinality.getPropertyName(), CardinalityMode.SINGLE, null);
+                    }
+                } else if (lineElement instanceof SegmentElementBO) {
+                    SegmentElementBO segmentElement = SegmentElementBO.class.cast(lineElement);
+                    if (segmentElement.getCardinality() != null && beanName.equals(segmentElement.getCardinality().getParentBeanRef())) {
+                        addPropertyReset(template, segmentElement.getCardinality());
+                    }
+                    addPropertyResets(beanName, template, segmentElement.getLineElements());
+                }
+            }
+        }
+
+        private void addPropertyReset(Object template, CardinalityBO cardinality) {
+            addPropertyReset(template, cardinality.getPropertyName(), cardinality.getCardinalityMode(), cardinality.getAddMethod());
+        }
+
+        private void addPropertyReset(Object template, String propertyName, CardinalityMode mode, String addMethod) {
+            PropertyAccessor accessor = PropertyAccessor.forProperty(template.getClass(), propertyName);
+            if (accessor == null || !StringUtils.isBlank(addMethod)) {
+                resettable = false;
+            } else if (mode == null || mode == CardinalityMode.SINGLE) {
+                Object initialValue = accessor.isReadable() ? accessor.get(template) : Defaults.defaultValue(accessor.getPropertyType());
+                if (accessor.isWritable() && isImmutable(initialValue)) {
+                    propertyResets.add(new PropertyReset(accessor, initialValue, false));
+                } else {
+                    resettable = false;
+                }
+            } else if (accessor.isReadable() && Collection.class.isAssignableFrom(accessor.getPropertyType())) {
+                propertyResets.add(new PropertyReset(accessor, null, true));
+            } else {
+                resettable = false;
+            }
+        }
+
+        /**
+         * Reset an instance that was handed out for a previous record - only instances that can be reset are recycled.
+         *
+         * @param instance The instance to reset.
+         */
+        void reset(Object instance) {
+            if (instance instanceof Resettable) {
+                Resettable.class.cast(instance).reset();
+            } else {
+                for (PropertyReset propertyReset : propertyResets) {
+                    propertyReset.reset(instance);
+                }
+            }
+        }
+
+        private static boolean isImmutable(Object value) {
+            return value == null || value instanceof String || value instanceof Boolean || value instanceof Character
+                    || value instanceof Enum || value instanceof BigDecimal || value instanceof BigInteger
+                    || (value instanceof Number && value.getClass().getPackage() == Integer.class.getPackage());
+        }
+    }
+
+    /**
+     * Puts a single property back to its initial value or clears a collection property.
+     */
+    private static final class PropertyReset {
+        private final PropertyAccessor accessor;
+        private final Object initialValue;
+        private final boolean collection;
+
+        PropertyReset(PropertyAccessor accessor, Object initialValue, boolean collection) {
+            this.accessor = accessor;
+            this.initialValue = initialValue;
+            this.collection = collection;
+        }
+
+        void reset(Object instance) {
+            if (collection) {
+                Object value = accessor.get(instance);
+                if (value != null) {
+                    Collection.class.cast(value).clear();
+                }
+            } else {
+                accessor.set(instance, initialValue);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config;
+
+/**
+ * A handle to a bean's slot within a {@link RecordDefinitionBO} - obtained once through {@link RecordDefinitionBO#getBeanSlot(String)} so
+ * that the bean can be taken from each parsed record's {@link RecordBeanMap} by index rather than by name.
+ *
+ * @author Alan Henson
+ */
+public final class BeanSlot {
+
+    final BeanPlan plan;
+    final int index;
+    final BeanBO bean;
+
+    BeanSlot(BeanPlan plan, int index, BeanBO bean) {
+        this.plan = plan;
+        this.index = index;
+        this.bean = bean;
+    }
+
+    /**
+     * Get the name of the bean.
+     *
+     * @return the bean name.
+     */
+    public String getBeanName() {
+        return bean.getBeanName();
+    }
+}
@@ -19,6 +19,7 @@ package com.blackbear.flatworm.config;
 import com.blackbear.flatworm.FileFormat;
 import com.blackbear.flatworm.config.impl.FieldIdentityImpl;
 import com.blackbear.flatworm.config.impl.LengthIdentityImpl;
+import com.blackbear.flatworm.config.impl.RegexIdentityImpl;
 import com.blackbear.flatworm.config.impl.ScriptIdentityImpl;
 
 import org.apache.commons.lang.StringUtils;
@@ -26,6 +27,8 @@ import org.apache.commons.lang.StringUtils;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Encapsulates most of the validation logic that is run against a flatworm's configuration for parsing a data file.
@@ -127,6 +130,8 @@ public class ConfigurationValidator {
             validateLengthIdentity(LengthIdentityImpl.class.cast(identity), errors);
         } else if (identity instanceof FieldIdentityImpl) {
             validateFieldIdentity(FieldIdentityImpl.class.cast(identity), errors);
+        } else if (identity instanceof RegexIdentityImpl) {
+            validateRegexIdentity(RegexIdentityImpl.class.cast(identity), errors);
 
         } else if (identity instanceof ScriptIdentityImpl) {
             validateScriptIdentity(ScriptIdentityImpl.class.cast(identity), errors);
@@ -171,6 +176,31 @@ public class ConfigurationValidator {
         }
     }
 
+    /**
+     * Validate that the {@code regex-ident} tag was properly populated.
+     *
+     * @param regexIdentity The {@link RegexIdentityImpl} instance containing the values to validate.
+     * @param errors        A non-null {@link List} that will be appended to if errors are found.
+     */
+    public static void validateRegexIdentity(RegexIdentityImpl regexIdentity, List<String> errors) {
+        if (StringUtils.isEmpty(regexIdentity.getPattern())) {
+            errors.add("Must specify the match-pattern element when using regex-ident. " +
+                    "This is the regular expression used to determine if a line of data should be parsed by this RecordBO.");
+        } else {
+            try {
+                Pattern.compile(regexIdentity.getPattern());
+            } catch (PatternSyntaxException e) {
+                errors.add(String.format("The regex-ident pattern %s is invalid: %s", regexIdentity.getPattern(), e.getDescription()));
+            }
+        }
+        if (regexIdentity.getStartPosition() == null || regexIdentity.getStartPosition() < 0) {
+            errors.add("The field-start attribute of regex-ident must not be negative.");
+        }
+        if (regexIdentity.getFieldLength() != null && regexIdentity.getFieldLength() < 0) {
+            errors.add("The field-length attribute of regex-ident must not be negative.");
+        }
+    }
+
     /**
      * Validate that the {@code script-ident} tag was properly populated.
      *
@@ -0,0 +1,285 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config;
+
+import com.blackbear.flatworm.config.impl.FieldIdentityImpl;
+import com.blackbear.flatworm.config.impl.LengthIdentityImpl;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Compiled form of an ordered list of identity-bearing candidates (i.e. {@link RecordBO} or {@link LineBO} instances). Rather than
+ * evaluating each candidate's {@link Identity} in turn, {@link FieldIdentityImpl} candidates are resolved through a hash lookup on the
+ * field region they inspect and {@link LengthIdentityImpl} candidates are resolved through a binary search over length buckets. Anything
+ * else (script identities, custom identities and candidates without an identity) is evaluated in declaration order, but only for those
+ * candidates that precede the best hash or bucket match. The result is always the same as a first-match-wins scan over the candidates.
+ *
+ * @param <T> The candidate type.
+ * @author Alan Henson
+ */
+public class IdentityClassifier<T> {
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final List<T> candidates;
+    private final FieldRegion[] fieldRegions;
+    private final long[] lengthBucketStarts;
+    private final int[] lengthBucketMatches;
+    private final int[] orderedIndexes;
+    private final IdentityMatcher<T> orderedMatcher;
+
+    /**
+     * Compile the given candidates into an {@code IdentityClassifier}.
+     *
+     * @param candidates       The candidates in the order in which they must be evaluated.
+     * @param identityResolver Resolves the {@link Identity} of a candidate - {@code null} may be returned.
+     * @param orderedMatcher   Used to evaluate the candidates that can't be compiled (script identities, custom identities, etc.).
+     */
+    public IdentityClassifier(List<T> candidates, Function<T, Identity> identityResolver, IdentityMatcher<T> orderedMatcher) {
+        this.candidates = Collections.unmodifiableList(new ArrayList<>(candidates));
+        this.orderedMatcher = orderedMatcher;
+
+        Map<FieldRegionKey, FieldRegion> regions = new LinkedHashMap<>();
+        List<long[]> lengthRanges = new ArrayList<>();
+        List<Integer> ordered = new ArrayList<>();
+
+        for (int i = 0; i < this.candidates.size(); i++) {
+            Identity identity = identityResolver.apply(this.candidates.get(i));
+            if (isCompilableFieldIdentity(identity)) {
+                FieldIdentityImpl fieldIdentity = FieldIdentityImpl.class.cast(identity);
+                for (String matchingString : fieldIdentity.getMatchingStrings()) {
+                    int keyLength = Math.min(fieldIdentity.getFieldLength(), matchingString.length());
+                    FieldRegionKey regionKey = new FieldRegionKey(fieldIdentity.getStartPosition(), keyLength,
+                            fieldIdentity.getFieldLength(), fieldIdentity.isIgnoreCase());
+                    FieldRegion region = regions.computeIfAbsent(regionKey, FieldRegion::new);
+
+                    // Candidates are visited in order so the first one registered for a given key always wins.
+                    region.indexes.putIfAbsent(region.toKey(matchingString, 0), i);
+                }
+            } else if (isCompilableLengthIdentity(identity)) {
+                LengthIdentityImpl lengthIdentity = LengthIdentityImpl.class.cast(identity);
+                if (lengthIdentity.getMinLength() <= lengthIdentity.getMaxLength()) {
+                    lengthRanges.add(new long[]{lengthIdentity.getMinLength(), lengthIdentity.getMaxLength() + 1L, i});
+                }
+            } else {
+                ordered.add(i);
+            }
+        }
+
+        fieldRegions = regions.values().toArray(new FieldRegion[regions.size()]);
+
+        // Build the length buckets - each bucket starts at a boundary and holds the lowest candidate index that covers it.
+        TreeSet<Long> boundaries = new TreeSet<>();
+        for (long[] range : lengthRanges) {
+            boundaries.add(range[0]);
+            boundaries.add(range[1]);
+        }
+        lengthBucketStarts = new long[boundaries.size()];
+        lengthBucketMatches = new int[boundaries.size()];
+        int bucket = 0;
+        for (Long boundary : boundaries) {
+            lengthBucketStarts[bucket] = boundary;
+            lengthBucketMatches[bucket] = NO_MATCH;
+            for (long[] range : lengthRanges) {
+                if (range[0] <= boundary && boundary < range[1]) {
+                    lengthBucketMatches[bucket] = Math.min(lengthBucketMatches[bucket], (int) range[2]);
+                }
+            }
+            bucket++;
+        }
+
+        orderedIndexes = new int[ordered.size()];
+        for (int i = 0; i < orderedIndexes.length; i++) {
+            orderedIndexes[i] = ordered.get(i);
+        }
+    }
+
+    /**
+     * Find the first candidate (in declaration order) whose identity matches the given line.
+     *
+     * @param line The line of data to classify.
+     * @return The first matching candidate or {@code null} if none match.
+     * @throws FlatwormParserException should the evaluation of a non-compiled identity fail.
+     */
+    public T findMatch(String line) throws FlatwormParserException {
+        int index = findMatchIndex(line);
+        return index >= 0 ? candidates.get(index) : null;
+    }
+
+    /**
+     * Find the position, within {@link #getCandidates()}, of the first candidate whose identity matches the given line.
+     *
+     * @param line The line of data to classify.
+     * @return The index of the first matching candidate or {@code -1} if none match.
+     * @throws FlatwormParserException should the evaluation of a non-compiled identity fail.
+     */
+    public int findMatchIndex(String line) throws FlatwormParserException {
+        int best = NO_MATCH;
+
+        if (line != null) {
+            for (FieldRegion region : fieldRegions) {
+                best = Math.min(best, region.find(line));
+            }
+            best = Math.min(best, findLengthMatch(line.length()));
+        }
+
+        for (int index : orderedIndexes) {
+            if (index >= best) {
+                break;
+            }
+            T candidate = candidates.get(index);
+            if (orderedMatcher.matches(candidate, line)) {
+                best = index;
+                break;
+            }
+        }
+
+        return best == NO_MATCH ? -1 : best;
+    }
+
+    /**
+     * Get the candidates in the order in which they were compiled.
+     *
+     * @return an unmodifiable view of the candidates.
+     */
+    public List<T> getCandidates() {
+        return candidates;
+    }
+
+    private int findLengthMatch(int lineLength) {
+        int bucket = Arrays.binarySearch(lengthBucketStarts, lineLength);
+        if (bucket < 0) {
+            // The insertion point is the first boundary greater than the length - we want the bucket before it.
+            bucket = -bucket - 2;
+        }
+        return bucket >= 0 ? lengthBucketMatches[bucket] : NO_MATCH;
+    }
+
+    private static boolean isCompilableFieldIdentity(Identity identity) {
+        boolean compilable = false;
+        if (identity != null && identity.getClass() == FieldIdentityImpl.class) {
+            FieldIdentityImpl fieldIdentity = FieldIdentityImpl.class.cast(identity);
+            compilable = fieldIdentity.getStartPosition() != null && fieldIdentity.getStartPosition() >= 0
+                    && fieldIdentity.getFieldLength() != null && fieldIdentity.getFieldLength() >= 0
+                    && fieldIdentity.getMatchingStrings() != null;
+        }
+        return compilable;
+    }
+
+    private static boolean isCompilableLengthIdentity(Identity identity) {
+        boolean compilable = false;
+        if (identity != null && identity.getClass() == LengthIdentityImpl.class) {
+            LengthIdentityImpl lengthIdentity = LengthIdentityImpl.class.cast(identity);
+            compilable = lengthIdentity.getMinLength() != null && lengthIdentity.getMaxLength() != null;
+        }
+        return compilable;
+    }
+
+    /**
+     * Used to evaluate the candidates whose identities cannot be compiled.
+     *
+     * @param <T> The candidate type.
+     */
+    @FunctionalInterface
+    public interface IdentityMatcher<T> {
+        boolean matches(T candidate, String line) throws FlatwormParserException;
+    }
+
+    /**
+     * Hash lookup for all matching strings that compare the same number of characters at the same position.
+     */
+    private static final class FieldRegion {
+        private final int startPosition;
+        private final int keyLength;
+        private final int minLineLength;
+        private final boolean ignoreCase;
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        FieldRegion(FieldRegionKey regionKey) {
+            this.startPosition = regionKey.startPosition;
+            this.keyLength = regionKey.keyLength;
+            this.minLineLength = regionKey.startPosition + regionKey.fieldLength;
+            this.ignoreCase = regionKey.ignoreCase;
+        }
+
+        int find(String line) {
+            int index = NO_MATCH;
+            if (line.length() >= minLineLength) {
+                Integer match = indexes.get(toKey(line, startPosition));
+                if (match != null) {
+                    index = match;
+                }
+            }
+            return index;
+        }
+
+        String toKey(String value, int offset) {
+            String key;
+            if (ignoreCase) {
+                // Mirrors the case-insensitive comparison performed by String.regionMatches.
+                char[] chars = new char[keyLength];
+                for (int i = 0; i < keyLength; i++) {
+                    chars[i] = Character.toLowerCase(Character.toUpperCase(value.charAt(offset + i)));
+                }
+                key = new String(chars);
+            } else {
+                key = value.substring(offset, offset + keyLength);
+            }
+            return key;
+        }
+    }
+
+    private static final class FieldRegionKey {
+        private final int startPosition;
+        private final int keyLength;
+        private final int fieldLength;
+        private final boolean ignoreCase;
+
+        FieldRegionKey(int startPosition, int keyLength, int fieldLength, boolean ignoreCase) {
+            this.startPosition = startPosition;
+            this.keyLength = keyLength;
+            this.fieldLength = fieldLength;
+            this.ignoreCase = ignoreCase;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FieldRegionKey that = (FieldRegionKey) o;
+            return startPosition == that.startPosition
+                    && keyLength == that.keyLength
+                    && fieldLength == that.fieldLength
+                    && ignoreCase == that.ignoreCase;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(startPosition, keyLength, fieldLength, ignoreCase);
+        }
+    }
+}
@@ -20,15 +20,18 @@ import com.google.common.base.Strings;
 
 import com.blackbear.flatworm.BeanMappingStrategy;
 import com.blackbear.flatworm.CardinalityMode;
+import com.blackbear.flatworm.CharSlice;
+import com.blackbear.flatworm.DelimitedTokenizer;
+import com.blackbear.flatworm.MethodHandleMappingStrategy;
 import com.blackbear.flatworm.ParseUtils;
-import com.blackbear.flatworm.PropertyUtilsMappingStrategy;
-import com.blackbear.flatworm.Util;
 import com.blackbear.flatworm.converters.ConversionHelper;
+import com.blackbear.flatworm.converters.FieldConversion;
 import com.blackbear.flatworm.errors.FlatwormParserException;
+import com.blackbear.flatworm.hooks.AfterLineHook;
+import com.blackbear.flatworm.hooks.BeforeLineHook;
 
 import org.apache.commons.lang.StringUtils;
 
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -42,13 +45,12 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class LineBO extends AbstractLineElementCollection {
-    private ConversionHelper conversionHelper;
-    private Map<String, Object> beans;
-    private BeanMappingStrategy mappingStrategy = new PropertyUtilsMappingStrategy();
+    // The configuration is shared across threads, so each thread gets its own tokenizer for delimited lines.
+    private static final ThreadLocal<DelimitedTokenizer> TOKENIZERS = ThreadLocal.withInitial(DelimitedTokenizer::new);
 
-    // properties used for processing delimited input
-    private List<LineToken> lineTokens;
-    private int currentField = 0;
+    @Getter
+    @Setter
+    private BeanMappingStrategy mappingStrategy = new MethodHandleMappingStrategy();
 
     @Getter
     @Setter
@@ -81,6 +83,14 @@ public class LineBO extends AbstractLineElementCollection {
     @Setter
     private ScriptletBO afterScriptlet;
 
+    @Getter
+    @Setter
+    private BeforeLineHook beforeLineHook;
+
+    @Getter
+    @Setter
+    private AfterLineHook afterLineHook;
+
     @Getter
     @Setter
     private Boolean recordStartLine;
@@ -129,9 +139,43 @@ public class LineBO extends AbstractLineElementCollection {
      */
     public void parseInput(String inputLine, Map<String, Object> beans, ConversionHelper conversionHelper, Identity identity)
             throws FlatwormParserException {
-        this.conversionHelper = conversionHelper;
-        this.beans = beans;
+        parseInput(inputLine, beans, conversionHelper, identity, true);
+    }
 
+    /**
+     * @param inputLine          A single line from file to be parsed into its corresponding bean
+     * @param beans              A HashMap containing a collection of beans which will be populated with parsed data
+     * @param conversionHelper   A ConversionHelper which aids in the conversion of data types and string formatting
+     * @param identity           The {@link Identity} instance used to determine that this {@link LineBO} instance should parse this line.
+     * @param enforceLineLengths Whether or not a line that is too short for the configured fields is an error.
+     * @throws FlatwormParserException should any issues occur while parsing the data.
+     */
+    public void parseInput(String inputLine, Map<String, Object> beans, ConversionHelper conversionHelper, Identity identity,
+                           boolean enforceLineLengths) throws FlatwormParserException {
+        parseInput(inputLine, beans, conversionHelper, identity, enforceLineLengths, null);
+    }
+
+    /**
+     * @param inputLine          A single line from file to be parsed into its corresponding bean
+     * @param beans              A HashMap containing a collection of beans which will be populated with parsed data
+     * @param conversionHelper   A ConversionHelper which aids in the conversion of data types and string formatting
+     * @param identity           The {@link Identity} instance used to determine that this {@link LineBO} instance should parse this line.
+     * @param enforceLineLengths Whether or not a line that is too short for the configured fields is an error.
+     * @param beanPool           The {@link BeanPool} to take the beans of repeated segments from - {@code null} to create new beans.
+     * @throws FlatwormParserException should any issues occur while parsing the data.
+     */
+    public void parseInput(String inputLine, Map<String, Object> beans, ConversionHelper conversionHelper, Identity identity,
+                           boolean enforceLineLengths, BeanPool beanPool) throws FlatwormParserException {
+        // All state is kept on the stack (rather than on this instance) so that the configuration can be shared across threads.
+        LineParseState state = new LineParseState(beans, conversionHelper, enforceLineLengths, beanPool);
+
+        try {
+            if (beforeLineHook != null) {
+                beforeLineHook.beforeLine(this, inputLine, beans, conversionHelper);
+            }
+        } catch (RuntimeException e) {
+            throw new FlatwormParserException(e.getMessage(), e);
+        }
         if (beforeScriptlet != null) {
             beforeScriptlet.invokeFunction(this, inputLine, beans, conversionHelper);
         }
@@ -140,15 +184,22 @@ public class LineBO extends AbstractLineElementCollection {
         if (isDelimited()) {
             // Don't parse empty lines
             if (!Strings.isNullOrEmpty(inputLine)) {
-                parseInputDelimited(inputLine, identity);
+                parseInputDelimited(state, inputLine, identity);
             }
         } else {
             // This is to help keep the configuration shorter in terms of what fields are required.
             int charPos = getStartingPosition(elements, identity);
 
-            parseInput(inputLine, elements, charPos);
+            parseInput(state, inputLine, elements, charPos);
         }
 
+        try {
+            if (afterLineHook != null) {
+                afterLineHook.afterLine(this, inputLine, beans, conversionHelper);
+            }
+        } catch (RuntimeException e) {
+            throw new FlatwormParserException(e.getMessage(), e);
+        }
         if (afterScriptlet != null) {
             afterScriptlet.invokeFunction(this, inputLine, beans, conversionHelper);
         }
@@ -182,17 +233,15 @@ public class LineBO extends AbstractLineElementCollection {
     /**
      * Parse out the content of the line based upon the configured {@link RecordElementBO} and {@link SegmentElementBO} instances.
      *
+     * @param state        The state of the line being parsed.
      * @param inputLine    The line of data to parse.
      * @param lineElements The {@link LineElement} instances that drive how the line of data will be parsed.
      * @param charPos      The character position of the line to begin at.
      * @return The last character position of the line that was processed.
      * @throws FlatwormParserException should the parsing fail for any reason.
      */
-    private int parseInput(String inputLine, List<LineElement> lineElements, int charPos)
+    private int parseInput(LineParseState state, String inputLine, List<LineElement> lineElements, int charPos)
             throws FlatwormParserException {
-        
-        boolean enforceLineLengths = getParentRecordDefinition().getParentRecord().isEnforceLineLengths();
-        
         for (LineElement lineElement : lineElements) {
             if (lineElement instanceof RecordElementBO) {
                 RecordElementBO recordElement = (RecordElementBO) lineElement;
@@ -209,7 +258,7 @@ public class LineBO extends AbstractLineElementCollection {
                     charPos = end;
                 }
                 if (end > inputLine.length()) {
-                    if (enforceLineLengths) {
+                    if (state.enforceLineLengths) {
                         throw new FlatwormParserException("Looking for field " + recordElement.getCardinality().getBeanRef()
                                 + "." + recordElement.getCardinality().getPropertyName()
                                 + " at pos " + start + ", end " + end + ", input length = " + inputLine.length());
@@ -218,15 +267,16 @@ public class LineBO extends AbstractLineElementCollection {
                     }
                 }
                 if (recordElement.getCardinality().getBeanRef() != null) {
-                    String fieldChars = inputLine.substring(start, end);
+                    // A window onto the line rather than a copy - a String is only created if the converter needs one.
+                    CharSequence fieldChars = state.field.set(inputLine, start, end);
 
                     // JBL - to keep from dup. code, moved this to a private method
-                    mapField(fieldChars, recordElement);
+                    mapField(state, fieldChars, recordElement);
                 }
             } else if (lineElement instanceof SegmentElementBO) {
                 SegmentElementBO segmentElement = (SegmentElementBO) lineElement;
-                charPos = parseInput(inputLine, segmentElement.getLineElements(), charPos);
-                captureSegmentBean(segmentElement);
+                charPos = parseInput(state, inputLine, segmentElement.getLineElements(), charPos);
+                captureSegmentBean(state, segmentElement);
             }
         }
         return charPos;
@@ -235,46 +285,58 @@ public class LineBO extends AbstractLineElementCollection {
     /**
      * Convert string field from file into appropriate converterName and set bean's value<br>
      *
-     * @param fieldChars    the raw string data read from the field
+     * @param state         the state of the line being parsed
+     * @param fieldChars    the raw data read from the field
      * @param recordElement the RecordElementBO, which contains detailed information about the field
      * @throws FlatwormParserException should any issues occur while parsing the data.
      */
-    private void mapField(String fieldChars, RecordElementBO recordElement) throws FlatwormParserException {
+    private void mapField(LineParseState state, CharSequence fieldChars, RecordElementBO recordElement) throws FlatwormParserException {
         CardinalityBO cardinality = recordElement.getCardinality();
         String beanRef = cardinality.getBeanRef();
         String property = cardinality.getPropertyName();
-        Object bean = beans.get(beanRef);
+        Object bean = state.getBean(recordElement.beanSlot, beanRef);
+        ConversionHelper conversionHelper = state.conversionHelper;
 
         if (recordElement.isTrimValue()) {
-            fieldChars = fieldChars.trim();
+            fieldChars = fieldChars instanceof CharSlice ? CharSlice.class.cast(fieldChars).trim() : fieldChars.toString().trim();
         }
 
-        Object value;
-        if (!StringUtils.isBlank(recordElement.getConverterName())) {
-            // Using the configuration based approach.
-            value = conversionHelper.convert(recordElement.getConverterName(), fieldChars, recordElement.getConversionOptions(),
-                    beanRef);
+        FieldConversion conversion = recordElement.getFieldConversion();
+        if (conversion != null && conversion.canAssign(bean) && mappingStrategy.getClass() == MethodHandleMappingStrategy.class) {
+            // Primitive properties are converted and set without boxing the value.
+            conversion.assign(bean, fieldChars);
         } else {
-            // Use the reflection approach.
-            value = conversionHelper.convert(bean, beanRef, property, fieldChars, recordElement.getConversionOptions());
-        }
+            Object value;
+            if (conversion != null) {
+                // Compiled when the configuration was loaded.
+                value = conversion.convert(fieldChars);
+            } else if (!StringUtils.isBlank(recordElement.getConverterName())) {
+                // Using the configuration based approach.
+                value = conversionHelper.convert(recordElement.getConverterName(), fieldChars, recordElement.getConversionOptions(),
+                        beanRef + "." + property);
+            } else {
+                // Use the reflection approach.
+                value = conversionHelper.convert(bean, beanRef, property, fieldChars, recordElement.getConversionOptions());
+            }
 
-        mappingStrategy.mapBean(bean, beanRef, property, value, recordElement.getConversionOptions());
+            mappingStrategy.mapBean(bean, beanRef, property, value, recordElement.getConversionOptions());
+        }
     }
 
     /**
      * For non-delimited lines that are under a {@link SegmentElementBO} instance, capture them into the parent bean.
      *
+     * @param state          The state of the line being parsed.
      * @param segmentElement The {@link SegmentElementBO} instance being processed.
      * @throws FlatwormParserException should invoking the necessary reflection methods fail for any reason.
      */
-    private void captureSegmentBean(SegmentElementBO segmentElement) throws FlatwormParserException {
+    private void captureSegmentBean(LineParseState state, SegmentElementBO segmentElement) throws FlatwormParserException {
         String beanRef = segmentElement.getCardinality().getBeanRef();
         String parentBeanRef = segmentElement.getCardinality().getParentBeanRef();
         String property = segmentElement.getCardinality().getPropertyName();
 
-        Object parent = beans.get(parentBeanRef);
-        Object toAdd = beans.get(beanRef);
+        Object parent = state.getBean(segmentElement.parentBeanSlot, parentBeanRef);
+        Object toAdd = state.getBean(segmentElement.beanSlot, beanRef);
 
         if (segmentElement.getCardinality().getCardinalityMode() == CardinalityMode.SINGLE) {
             ParseUtils.setProperty(parent, property, toAdd);
@@ -286,11 +348,12 @@ public class LineBO extends AbstractLineElementCollection {
     /**
      * Convert string field from file into appropriate converterName and set bean's value. This is used for delimited files only<br>
      *
+     * @param state     the state of the line being parsed
      * @param inputLine the line of data read from the data file
      * @param identity  The {@link Identity} instance used to determine that this {@link LineBO} instance should parse this line.
      * @throws FlatwormParserException should any issues occur while parsing the data.
      */
-    private void parseInputDelimited(String inputLine, Identity identity) throws FlatwormParserException {
+    private void parseInputDelimited(LineParseState state, String inputLine, Identity identity) throws FlatwormParserException {
 
         char split = delimiter.charAt(0);
         if (delimiter.length() == 2 && delimiter.charAt(0) == '\\') {
@@ -315,76 +378,82 @@ public class LineBO extends AbstractLineElementCollection {
                     break;
             }
         }
-        lineTokens = Util.split(inputLine, split, quoteChar);
-        cleanupLineTokens(identity);
-        currentField = 0;
-        doParseDelimitedInput(elements);
+        state.tokenizer = TOKENIZERS.get();
+        state.tokenizer.tokenize(inputLine, split, quoteChar);
+        skipIdentityTokens(state.tokenizer, identity);
+        state.currentField = 0;
+        doParseDelimitedInput(state, elements);
     }
 
     /**
-     * Remove any record-level, {@link LineTokenIdentity} instance tokens from the list of line tokens so that they don't affect the
-     * processing of the data elements. Additional, for any place where there are segment-records, the {@link LineToken} instances need to
-     * have the positional information updated to reflect that they are virtually at the head of the segment-record even though they aren't
-     * at the head of the line.
+     * Skip any record-level, {@link LineTokenIdentity} instance tokens so that they don't affect the processing of the data elements. The
+     * tokens are masked out of the {@link DelimitedTokenizer} rather than removed so the remaining tokens aren't shifted.
      *
-     * @param identity The {@link Identity} instance used to determine that this {@link LineBO} instance should parse this line.
+     * @param tokenizer The {@link DelimitedTokenizer} holding the tokens parsed from the line.
+     * @param identity  The {@link Identity} instance used to determine that this {@link LineBO} instance should parse this line.
      */
-    private void cleanupLineTokens(Identity identity) {
-        Iterator<LineToken> lineTokenIterator = lineTokens.iterator();
+    private void skipIdentityTokens(DelimitedTokenizer tokenizer, Identity identity) {
         if (identity instanceof LineTokenIdentity) {
-            LineTokenIdentity lineTokenIdentity = LineTokenIdentity.class.cast(identity);
-            while (lineTokenIterator.hasNext()) {
-                if (lineTokenIdentity.matchesIdentity(lineTokenIterator.next())) {
-                    lineTokenIterator.remove();
-                }
-            }
+            tokenizer.skipMatching(LineTokenIdentity.class.cast(identity));
         }
     }
 
     /**
      * Walk the configured {@link LineElement}s and parse out the data based upon the configuration.
      *
+     * @param state    the state of the line being parsed.
      * @param elements the configured {@link LineElement} instances that control how data will be parsed.
      * @throws FlatwormParserException should the data not match the configuration.
      */
-    private void doParseDelimitedInput(List<LineElement> elements) throws FlatwormParserException {
+    private void doParseDelimitedInput(LineParseState state, List<LineElement> elements) throws FlatwormParserException {
+        int missingFields = 0;
         for (LineElement lineElement : elements) {
             if (lineElement instanceof RecordElementBO) {
-                try {
+                // Fields beyond the end of the data are left unset - they're counted rather than reported one by one.
+                if (state.currentField < state.tokenizer.getTokenCount()) {
                     RecordElementBO recordElement = RecordElementBO.class.cast(lineElement);
-                    parseDelimitedRecordElement(recordElement, lineTokens.get(currentField).getToken());
-                    ++currentField;
-                } catch (ArrayIndexOutOfBoundsException ex) {
-                    log.warn("Ran out of data on field " + (currentField + 1));
+                    parseDelimitedRecordElement(state, recordElement, state.currentField);
+                    ++state.currentField;
+                } else {
+                    missingFields++;
                 }
             } else if (lineElement instanceof SegmentElementBO) {
-                parseDelimitedSegmentElement(SegmentElementBO.class.cast(lineElement));
+                parseDelimitedSegmentElement(state, SegmentElementBO.class.cast(lineElement));
             }
         }
+        if (missingFields > 0 && log.isDebugEnabled()) {
+            log.debug("Ran out of data after field {} - {} field(s) were not set.", state.currentField, missingFields);
+        }
     }
 
     /**
      * Map a read token of data into the correct object based upon the configuration of the {@link RecordElementBO} instance.
      *
+     * @param state         The state of the line being parsed.
      * @param recordElement The {@link RecordElementBO} instance that contains the configuration information driving how the data will be
      *                      added to the correct bean.
-     * @param fieldStr      The token of data read.
+     * @param tokenIndex    The index of the token of data read.
      * @throws FlatwormParserException should the data not match the configuration.
      */
-    private void parseDelimitedRecordElement(RecordElementBO recordElement, String fieldStr) throws FlatwormParserException {
+    private void parseDelimitedRecordElement(LineParseState state, RecordElementBO recordElement, int tokenIndex)
+            throws FlatwormParserException {
+        // Resolved even when the field is ignored so that running out of data is detected the same way.
+        CharSlice fieldChars = state.tokenizer.getToken(tokenIndex, state.field);
         if (!recordElement.getIgnoreField()) {
             // JBL - to keep from dup. code, moved this to a private method
-            mapField(fieldStr, recordElement);
+            mapField(state, fieldChars, recordElement);
         }
     }
 
     /**
      * Parse the data from the line for the given {@link SegmentElementBO} instance.
      *
+     * @param state   The state of the line being parsed.
      * @param segment The {@link SegmentElementBO} instance containing the configuration on how the data is to be parsed.
      * @throws FlatwormParserException should the data not match the configuration.
      */
-    private void parseDelimitedSegmentElement(SegmentElementBO segment) throws FlatwormParserException {
+    private void parseDelimitedSegmentElement(LineParseState state, SegmentElementBO segment) throws FlatwormParserException {
+        DelimitedTokenizer tokenizer = state.tokenizer;
         int minCount = segment.getCardinality().getMinCount();
         int maxCount = segment.getCardinality().getMaxCount();
         if (maxCount <= 0) {
@@ -395,23 +464,31 @@ public class LineBO extends AbstractLineElementCollection {
         }
 
         String beanRef = segment.getCardinality().getBeanRef();
-        if (currentField < lineTokens.size() && !segment.matchesIdentity(lineTokens.get(currentField)) && minCount > 0) {
+        if (state.currentField < tokenizer.getTokenCount() && !segment.matchesIdentity(tokenizer.getLineToken(state.currentField))
+                && minCount > 0) {
             log.error("Segment " + segment.getCardinality().getPropertyName() + " with minimum required count of "
                     + minCount + " missing.");
         }
         int cardinality = 0;
         try {
-            while (currentField < lineTokens.size() && segment.matchesIdentity(lineTokens.get(currentField))) {
-                currentField++; // Advanced past the identifier token.
+            while (state.currentField < tokenizer.getTokenCount()
+                    && segment.matchesIdentity(tokenizer.getLineToken(state.currentField))) {
+                state.currentField++; // Advanced past the identifier token.
                 if (beanRef != null) {
                     ++cardinality;
                     String parentRef = segment.getCardinality().getParentBeanRef();
                     if (parentRef != null) {
-                        Object instance = ParseUtils.newBeanInstance(beans.get(beanRef));
-                        beans.put(beanRef, instance);
-                        ParseUtils.addObjectToProperty(beans.get(parentRef), instance, segment.getCardinality());
+                        BeanSlot beanSlot = segment.beanSlot;
+                        BeanBO bean = beanSlot != null ? beanSlot.bean
+                                : parentRecordDefinition != null ? parentRecordDefinition.getBeanMap().get(beanRef) : null;
+                        Object instance = state.beanPool != null && bean != null
+                                ? state.beanPool.acquire(bean)
+                                : ParseUtils.newBeanInstance(state.getBean(beanSlot, beanRef));
+                        state.setBean(beanSlot, beanRef, instance);
+                        Object parent = state.getBean(segment.parentBeanSlot, parentRef);
+                        ParseUtils.addObjectToProperty(parent, instance, segment.getCardinality());
                     }
-                    doParseDelimitedInput(segment.getLineElements());
+                    doParseDelimitedInput(state, segment.getLineElements());
                 }
             }
         } finally {
@@ -446,4 +523,58 @@ public class LineBO extends AbstractLineElementCollection {
                 ", cardinality='" + cardinality + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+
+    /**
+     * The state captured while parsing a single line of data.
+     */
+    private static final class LineParseState {
+        private final Map<String, Object> beans;
+
+        // The beans by slot when they were created by a RecordBO - null for any other map.
+        private final RecordBeanMap slottedBeans;
+        private final ConversionHelper conversionHelper;
+        private final boolean enforceLineLengths;
+        private final BeanPool beanPool;
+
+        // Reused for each field of the line.
+        private final CharSlice field = new CharSlice();
+
+        // properties used for processing delimited input
+        private DelimitedTokenizer tokenizer;
+        private int currentField;
+
+        LineParseState(Map<String, Object> beans, ConversionHelper conversionHelper, boolean enforceLineLengths, BeanPool beanPool) {
+            this.beans = beans;
+            this.slottedBeans = beans instanceof RecordBeanMap ? RecordBeanMap.class.cast(beans) : null;
+            this.conversionHelper = conversionHelper;
+            this.enforceLineLengths = enforceLineLengths;
+            this.beanPool = beanPool;
+        }
+
+        /**
+         * Get a bean by its slot - should the beans not be held in slots or the slot not be resolved then by name.
+         *
+         * @param slot    The {@link BeanSlot} of the bean - may be {@code null}.
+         * @param beanRef The name of the bean.
+         * @return the bean or {@code null} should it not exist.
+         */
+        Object getBean(BeanSlot slot, String beanRef) {
+            return slottedBeans != null && slot != null ? slottedBeans.getBean(slot) : beans.get(beanRef);
+        }
+
+        /**
+         * Set a bean by its slot - should the beans not be held in slots or the slot not be resolved then by name.
+         *
+         * @param slot    The {@link BeanSlot} of the bean - may be {@code null}.
+         * @param beanRef The name of the bean.
+         * @param bean    The bean instance.
+         */
+        void setBean(BeanSlot slot, String beanRef, Object bean) {
+            if (slottedBeans != null && slot != null) {
+                slottedBeans.setBean(slot, bean);
+            } else {
+                beans.put(beanRef, bean);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config;
+
+import com.blackbear.flatworm.FileFormat;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+
+import java.util.List;
+
+/**
+ * The compiled form of a {@link RecordDefinitionBO}'s lines with identities. The line that parses a given line of data is found through an
+ * {@link IdentityClassifier} rather than by evaluating each line's {@link Identity} in turn, and what happens after a record-end line -
+ * whether the next line of data continues the record - is decided from flags captured when the dispatcher was compiled.
+ *
+ * @author Alan Henson
+ */
+public class LineDispatcher {
+
+    private final RecordBO record;
+    private final IdentityClassifier<LineBO> classifier;
+    private final boolean[] recordStartLines;
+    private final boolean[] recordEndLines;
+    private final boolean hasSequentialLines;
+
+    /**
+     * Compile the lines with identities of the given {@link RecordDefinitionBO}.
+     *
+     * @param definition The {@link RecordDefinitionBO} to compile.
+     */
+    LineDispatcher(RecordDefinitionBO definition) {
+        this.record = definition.getParentRecord();
+        this.hasSequentialLines = !definition.getLines().isEmpty();
+        this.classifier = new IdentityClassifier<>(definition.getLinesWithIdentities(), LineBO::getLineIdentity,
+                (line, dataLine) -> line.getLineIdentity().matchesIdentity(line, getFileFormat(), dataLine));
+
+        List<LineBO> lines = classifier.getCandidates();
+        recordStartLines = new boolean[lines.size()];
+        recordEndLines = new boolean[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            recordStartLines[i] = Boolean.TRUE.equals(lines.get(i).getRecordStartLine());
+            recordEndLines[i] = Boolean.TRUE.equals(lines.get(i).getRecordEndLine());
+        }
+    }
+
+    /**
+     * Find the line that should parse the given line of data.
+     *
+     * @param dataLine The line of data.
+     * @return the index of the matching line (see {@link #getLine(int)}) or {@code -1} if no line with an identity matches.
+     * @throws FlatwormParserException should the evaluation of a script or custom identity fail.
+     */
+    public int findLine(String dataLine) throws FlatwormParserException {
+        return classifier.findMatchIndex(dataLine);
+    }
+
+    /**
+     * Get the line found by {@link #findLine(String)}.
+     *
+     * @param index The index of the line.
+     * @return the {@link LineBO}.
+     */
+    public LineBO getLine(int index) {
+        return classifier.getCandidates().get(index);
+    }
+
+    /**
+     * Determine whether the line at the given index closes the record.
+     *
+     * @param index The index of the line.
+     * @return {@code true} if the line is configured as the record's end line.
+     */
+    public boolean isRecordEndLine(int index) {
+        return recordEndLines[index];
+    }
+
+    /**
+     * Determine whether the line of data read after a record-end line continues the record. If the record has sequential lines, they start
+     * each occurrence of the record, so the line continues it if it's identified as the same record. Otherwise the line must match one of
+     * the lines that is configured as a record-start line.
+     *
+     * @param dataLine The line of data read after the record-end line.
+     * @return {@code true} if parsing of the record should continue with the line.
+     * @throws FlatwormParserException should the evaluation of a script or custom identity fail.
+     */
+    public boolean continuesAfterEnd(String dataLine) throws FlatwormParserException {
+        boolean continues;
+        if (hasSequentialLines) {
+            continues = getFileFormat().findMatchingRecord(dataLine) == record;
+        } else {
+            int index = findLine(dataLine);
+            continues = index >= 0 && recordStartLines[index];
+        }
+        return continues;
+    }
+
+    private FileFormat getFileFormat() {
+        return record != null ? record.getParentFileFormat() : null;
+    }
+}
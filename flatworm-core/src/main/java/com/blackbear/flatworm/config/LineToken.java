@@ -33,8 +33,7 @@ public class LineToken {
     @Getter
     private int fullTokenLength;
 
-    @Getter
-    private String token;
+    private CharSequence token;
 
     /**
      * Create using the token that is the value to track as well as the current column position, which will be used with {@code
@@ -49,4 +48,31 @@ public class LineToken {
         this.fullTokenLength = fullTokenLength;
         this.columnPosition = currentColumnPosition - fullTokenLength;
     }
+
+    /**
+     * Create an empty {@code LineToken} that will be populated through {@link #set(CharSequence, int, int)} - this allows a single
+     * instance to be reused for each token of a line.
+     */
+    public LineToken() {
+        this("", 0, 0);
+    }
+
+    /**
+     * Repopulate this {@code LineToken}.
+     *
+     * @param token           The token to capture - a {@link String} is only created from it if {@link #getToken()} is called.
+     * @param fullTokenLength The actual length of the token when considering the quote characters that might have been present.
+     * @param columnPosition  The column position where the token was found in the line.
+     * @return this {@code LineToken}.
+     */
+    public LineToken set(CharSequence token, int fullTokenLength, int columnPosition) {
+        this.token = token;
+        this.fullTokenLength = fullTokenLength;
+        this.columnPosition = columnPosition;
+        return this;
+    }
+
+    public String getToken() {
+        return token.toString();
+    }
 }
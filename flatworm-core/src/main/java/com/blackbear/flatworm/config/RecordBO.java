@@ -17,20 +17,16 @@
 package com.blackbear.flatworm.config;
 
 import com.blackbear.flatworm.FileFormat;
-import com.blackbear.flatworm.ParseUtils;
+import com.blackbear.flatworm.ParseContext;
 import com.blackbear.flatworm.converters.ConversionHelper;
+import com.blackbear.flatworm.errors.FieldParseException;
 import com.blackbear.flatworm.errors.FlatwormParserException;
-import com.blackbear.flatworm.errors.UncheckedFlatwormParserException;
-
-import org.apache.commons.lang.StringUtils;
+import com.blackbear.flatworm.hooks.AfterRecordHook;
+import com.blackbear.flatworm.hooks.BeforeRecordHook;
 
 import java.io.BufferedReader;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.Set;
 
 import lombok.Data;
 import lombok.Getter;
@@ -73,7 +69,6 @@ public class RecordBO {
     private Identity recordIdentity;
 
     @Getter
-    @Setter
     private RecordDefinitionBO recordDefinition;
 
     @Getter
@@ -90,20 +85,32 @@ public class RecordBO {
 
     @Getter
     @Setter
-    private FileFormat parentFileFormat;
+    private BeforeRecordHook beforeRecordHook;
 
     @Getter
-    private boolean parsedLastReadLine;
+    @Setter
+    private AfterRecordHook afterRecordHook;
 
     @Getter
-    private String lastReadLine;
+    @Setter
+    private FileFormat parentFileFormat;
 
+    /**
+     * The position of this record within its {@link FileFormat} (assigned by {@link FileFormat#addRecord(RecordBO)}), used to look up
+     * per-record state in arrays rather than by name.
+     */
     @Getter
     @Setter
-    private boolean enforceLineLengths;
-    
+    private int index = -1;
+
     public RecordBO() {
-        enforceLineLengths = true;
+    }
+
+    public void setRecordDefinition(RecordDefinitionBO recordDefinition) {
+        this.recordDefinition = recordDefinition;
+        if (recordDefinition != null) {
+            recordDefinition.setParentRecord(this);
+        }
     }
 
     /**
@@ -125,63 +132,70 @@ public class RecordBO {
     /**
      * Parse the record into the bean(s).
      *
-     * @param firstLine        first line to be considered.
-     * @param in               used to retrieve additional lines of input for parsing multi-line records.
-     * @param conversionHelper used to help convert datatypes and format strings.
-     * @return collection of beans populated with file data.
+     * @param firstLine    first line to be considered.
+     * @param in           used to retrieve additional lines of input for parsing multi-line records.
+     * @param parseContext the {@link ParseContext} of the stream being parsed - the line last read (and whether or not it was consumed by
+     *                     this record) is captured on it.
+     * @return collection of beans populated with file data - a {@link RecordBeanMap}.
      * @throws FlatwormParserException should an error occur while parsing the data.
      */
     public Map<String, Object> parseRecord(String firstLine, BufferedReader in,
-                                           ConversionHelper conversionHelper) throws FlatwormParserException {
-        Map<String, Object> beans = new HashMap<>();
+                                           ParseContext parseContext) throws FlatwormParserException {
+        BeanPlan beanPlan = recordDefinition.getBeanPlan();
+        RecordBeanMap beans = beanPlan.newBeanMap();
+        BeanPool beanPool = parseContext.getBeanPool();
+        if (beanPool != null) {
+            beanPool.nextRecord();
+        }
+        BeanPlan.RecordBeans recordBeans = beanPlan.newRecordBeans(beans, beanPool);
+        ConversionHelper conversionHelper = parseContext.getConversionHelper();
+        boolean enforceLineLengths = parseContext.isEnforceLineLengths();
+        List<LineBO> lines = recordDefinition.getLines();
+        List<LineBO> linesWithIdentities = recordDefinition.getLinesWithIdentities();
+        String lastReadLine = firstLine;
+
+        // The first line is consumed by the sequential lines - if there aren't any, it has to be matched to an identity line.
+        boolean parsedLastReadLine = !lines.isEmpty();
         try {
-            List<LineBO> lines = recordDefinition.getLines();
-            List<LineBO> linesWithIdentities = recordDefinition.getLinesWithIdentities();
-            lastReadLine = firstLine;
 
             // Process all of the sequential lines first - for a record there will always be at least one sequential line..
-            loadBeanInstances(lines, beans);
+            recordBeans.ready(beanPlan.getSequentialPlan());
             for (int i = 0; i < lines.size(); i++) {
                 LineBO line = lines.get(i);
                 
-                line.parseInput(lastReadLine, beans, conversionHelper, recordIdentity);
-                addBeanToBean(line, beans);
+                line.parseInput(lastReadLine, beans, conversionHelper, recordIdentity, enforceLineLengths, beanPool);
+                recordBeans.attach(beanPlan.getLinePlan(line));
 
                 parsedLastReadLine = true;
                 if (i + 1 < lines.size()) {
-                    lastReadLine = in.readLine();
+                    lastReadLine = parseContext.readRecordLine(in);
                 }
             }
 
             if (!linesWithIdentities.isEmpty()) {
+                LineDispatcher lineDispatcher = recordDefinition.getLineDispatcher();
                 boolean continueParsing = true;
                 do {
-                    lastReadLine = parsedLastReadLine ? in.readLine() : lastReadLine;
+                    lastReadLine = parsedLastReadLine ? parseContext.readRecordLine(in) : lastReadLine;
                     if (lastReadLine != null) {
-                        LineBO line = findMatchingIdentityLine(lastReadLine);
-                        if (line != null) {
-                            loadBeanInstances(line, beans);
-                            line.parseInput(lastReadLine, beans, conversionHelper, line.getLineIdentity());
-                            addBeanToBean(line, beans);
+                        int lineIndex = lineDispatcher.findLine(lastReadLine);
+                        if (lineIndex >= 0) {
+                            LineBO line = lineDispatcher.getLine(lineIndex);
+                            BeanPlan.LinePlan linePlan = beanPlan.getLinePlan(line);
+                            recordBeans.ready(linePlan);
+                            line.parseInput(lastReadLine, beans, conversionHelper, line.getLineIdentity(), enforceLineLengths, beanPool);
+                            recordBeans.attach(linePlan);
                             parsedLastReadLine = true;
 
                             //  If this was the closing record, then we need to make sure the next line is a starting record.
-                            if (line.getRecordEndLine()) {
+                            if (lineDispatcher.isRecordEndLine(lineIndex)) {
                                 // See if the next line is the start line for a record.
-                                lastReadLine = in.readLine();
+                                lastReadLine = parseContext.readRecordLine(in);
                                 if (lastReadLine != null) {
                                     parsedLastReadLine = false;
 
                                     // See if the next line is the beginning of a new record - if not, kick out.
-                                    // If we have non-identity lines, then they constitute the start of a new record.
-                                    // Otherwise, we need to look to see if a matching identity line is labeled as the start record.
-                                    if(!lines.isEmpty()) {
-                                        continueParsing = getParentFileFormat().findMatchingRecord(lastReadLine) == this;
-                                    }
-                                    else {
-                                        line = findMatchingIdentityLine(lastReadLine);
-                                        continueParsing = line != null && line.getRecordStartLine();
-                                    }
+                                    continueParsing = lineDispatcher.continuesAfterEnd(lastReadLine);
                                 }
                                 else {
                                     continueParsing = false;
@@ -210,159 +224,18 @@ public class RecordBO {
                 while (continueParsing);
             }
 
+        } catch (FieldParseException e) {
+            // Already describes the failure and is stackless - wrapping it would only capture a stack trace.
+            throw e;
         } catch (Exception e) {
             throw new FlatwormParserException(e.getMessage(), e);
+        } finally {
+            parseContext.setLastReadLine(lastReadLine);
+            parseContext.setParsedLastReadLine(parsedLastReadLine);
         }
         return beans;
     }
 
-    /**
-     * See if there is a LineBO instance within this record group that can parse the given line of data.
-     * @param lineToEvaluate The line of data to be parsed.
-     * @return A {@link LineBO} instance if one was found within this {@link RecordBO} instance that can parse it and {@code null} if not.
-     */
-    private LineBO findMatchingIdentityLine(String lineToEvaluate) {
-        LineBO matchingLineResult = null;
-        Optional<LineBO> matchingLine = recordDefinition.getLinesWithIdentities()
-                .stream()
-                .filter(line -> {
-                    try {
-                        return line.getLineIdentity().matchesIdentity(line, parentFileFormat, lineToEvaluate);
-                    } catch (FlatwormParserException e) {
-                        throw new UncheckedFlatwormParserException("Failed to run matchesIdentity on line: " + lineToEvaluate, e);
-                    }
-                })
-                .findFirst();
-        if(matchingLine.isPresent()) {
-            matchingLineResult = matchingLine.get(); 
-        }
-        return matchingLineResult;
-    }
-    
-    /**
-     * If the {@link LineBO} configuration results in the need to add a built out bean to another bean, do it here.
-     *
-     * @param line  The {@link LineBO} instance whose configuration information will be inspected to see if we need to add a bean to a
-     *              bean.
-     * @param beans The {@link Map} of loaded beans thus far.
-     * @throws FlatwormParserException should invoking the reflective properties fail for any reason.
-     */
-    private void addBeanToBean(LineBO line, Map<String, Object> beans) throws FlatwormParserException {
-        // See if this is a Field-defined line - meaning we need to update a bean.
-        if (line.isPropertyLine()) {
-            Object parentBean = beans.get(line.getCardinality().getParentBeanRef());
-            Object toAdd = beans.get(line.getCardinality().getBeanRef());
-
-            ParseUtils.addObjectToProperty(parentBean, toAdd, line.getCardinality());
-        }
-    }
-
-    /**
-     * For the given {@link List} of {@code lines}, determine which, if any, bean instances need to be created to capture parsed data.
-     * @param lines the {@link List} of lines to examine to determine which, if any, beans need to be loaded.
-     * @param beans the {@link Map} that will be responsible for holding the newly created bean instances.
-     * @throws FlatwormParserException should creating the bean instances fail for any reason.
-     */
-    private void loadBeanInstances(List<LineBO> lines, Map<String, Object> beans) throws FlatwormParserException {
-        Set<String> refreshed = new HashSet<>();
-        for(LineBO line : lines) {
-            loadBeanInstances(line, beans, refreshed);
-        }
-    }
-    
-    /**
-     * For the given {@link LineBO}, determine which, if any, bean instances need to be created to capture parsed data.
-     * @param line the {@link LineBO} instance to examine to determine which, if any, beans need to be loaded.
-     * @param beans the {@link Map} that will be responsible for holding the newly created bean instances.
-     * @throws FlatwormParserException should creating the bean instances fail for any reason.
-     */
-    private void loadBeanInstances(LineBO line, Map<String, Object> beans) throws FlatwormParserException {
-        Set<String> refreshed = new HashSet<>();
-        loadBeanInstances(line, beans, refreshed);
-    }
-    
-    /**
-     * Refresh the beans in the given {@link Map} to ready them for new lines of data.
-     *
-     * @param line  The {@link LineBO} instance that was found to match a line of data - this is the parent of all potential child lines to
-     *              follow and so all child beans should be readied.
-     * @param beans The {@link Map} of {@link BeanBO} instances that will be updated with fresh beans based upon what could be read.
-     * @throws FlatwormParserException should creating the beans fail for any reason.
-     */
-    private void loadBeanInstances(LineBO line, Map<String, Object> beans, Set<String> refreshed) throws FlatwormParserException {
-        if (line.getCardinality() != null) {
-            if(!StringUtils.isBlank(line.getCardinality().getParentBeanRef())) {
-                if(!beans.containsKey(line.getCardinality().getParentBeanRef())) {
-                    addNewBeanInstance(line.getCardinality().getParentBeanRef(), beans, refreshed);
-                }
-            }
-            
-            if (!StringUtils.isBlank(line.getCardinality().getBeanRef())) {
-                addNewBeanInstance(line.getCardinality().getBeanRef(), beans, refreshed);
-
-                // Got through all lines and check for hierarchy.
-                for (LineBO otherLine : getRecordDefinition().getLinesWithIdentities()) {
-                    if (otherLine.getCardinality() != null
-                            && line.getCardinality().getBeanRef().equals(otherLine.getCardinality().getParentBeanRef())) {
-                        loadBeanInstances(otherLine, beans);
-                    }
-                }
-            }
-        }
-
-        // Refresh all line elements.
-        loadBeanInstances(line.getLineElements(), beans, refreshed);
-    }
-
-    /**
-     * Refresh all beans referenced in the {@code lineElements} if they haven't been refreshed already.
-     *
-     * @param lineElements The {@code List} of {@link LineElement} instances whose discovered bean configurations will be refreshed.
-     * @param beans        The {@link Map} of beans to add a new instance to if a new instance hasn't already been created.
-     * @param refreshed    The {@link Set} of beans that have been created thus far on this refresh pass - this is to avoid creating new
-     *                     beans when you don't have to.
-     * @throws FlatwormParserException Should instantiating the bean fail for any reason.
-     */
-    private void loadBeanInstances(List<LineElement> lineElements, Map<String, Object> beans, Set<String> refreshed)
-            throws FlatwormParserException {
-        for (LineElement lineElement : lineElements) {
-            if (lineElement instanceof RecordElementBO) {
-                RecordElementBO record = RecordElementBO.class.cast(lineElement);
-                if (record.getCardinality() != null
-                        && !StringUtils.isBlank(record.getCardinality().getBeanRef())
-                        && !refreshed.contains(record.getCardinality().getBeanRef())) {
-                    addNewBeanInstance(record.getCardinality().getBeanRef(), beans, refreshed);
-                }
-            } else if (lineElement instanceof SegmentElementBO) {
-                SegmentElementBO segmentElement = SegmentElementBO.class.cast(lineElement);
-                loadBeanInstances(segmentElement.getLineElements(), beans, refreshed);
-            }
-        }
-    }
-
-    /**
-     * Add a new instance of the specified bean ({@code beanRef}) to the {@link Map} of {@code beans} if a new instance hasn't already been
-     * created in this refresh pass.
-     *
-     * @param beanRef   The bean's reference identifier.
-     * @param beans     The {@link Map} of beans to add a new instance to if a new instance hasn't already been created.
-     * @param refreshed The {@link Set} of beans that have been created thus far on this refresh pass - this is to avoid creating new beans
-     *                  when you don't have to.
-     * @throws FlatwormParserException Should instantiating the bean fail for any reason.
-     */
-    private void addNewBeanInstance(String beanRef, Map<String, Object> beans, Set<String> refreshed) throws FlatwormParserException {
-        BeanBO beanDefinition = recordDefinition.getBeanMap().get(beanRef);
-        if (beanDefinition != null) {
-            try {
-                beans.put(beanRef, beanDefinition.getBeanObjectClass().newInstance());
-                refreshed.add(beanRef);
-            } catch (Exception e) {
-                throw new FlatwormParserException(String.format("Failed to instantiate new bean %s. Err: %s",
-                        beanDefinition.getBeanObjectClass().getName(), e.getMessage()), e);
-            }
-        }
-    }
-
     @Override
     public String toString() {
         return "RecordBO{" +
@@ -0,0 +1,255 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The beans created by parsing a record, by name. The instances are held in the slots assigned by the record's {@link BeanPlan} - parsing
+ * reads and writes them by index, with this map being a view over the slots for the hooks, scriptlets and callbacks that look the beans up
+ * by name. Only entries whose names aren't beans of the record are held in a {@link HashMap}, created on the first such entry.
+ *
+ * @author Alan Henson
+ */
+public final class RecordBeanMap extends AbstractMap<String, Object> {
+
+    private final BeanPlan plan;
+    final Object[] instances;
+    private Map<String, Object> others;
+    private Set<Entry<String, Object>> entrySet;
+
+    RecordBeanMap(BeanPlan plan, int slotCount) {
+        this.plan = plan;
+        this.instances = new Object[slotCount];
+    }
+
+    /**
+     * Get the bean instance created for the given slot.
+     *
+     * @param slot The {@link BeanSlot} of the bean.
+     * @return the bean or {@code null} should it not have been created. Should the slot have been resolved against an earlier compilation
+     * of the record's configuration then the bean is looked up by name.
+     */
+    public Object getBean(BeanSlot slot) {
+        return slot.plan == plan ? instances[slot.index] : get(slot.getBeanName());
+    }
+
+    /**
+     * Set the bean instance for the given slot.
+     *
+     * @param slot The {@link BeanSlot} of the bean.
+     * @param bean The bean instance.
+     */
+    void setBean(BeanSlot slot, Object bean) {
+        if (slot.plan == plan) {
+            instances[slot.index] = bean;
+        } else {
+            put(slot.getBeanName(), bean);
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            return instances[slot];
+        }
+        return others != null ? others.get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            return instances[slot] != null;
+        }
+        return others != null && others.containsKey(key);
+    }
+
+    /**
+     * Add or replace a bean - setting a bean of the record to {@code null} removes it.
+     */
+    @Override
+    public Object put(String key, Object value) {
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            Object previous = instances[slot];
+            instances[slot] = value;
+            return previous;
+        }
+        if (others == null) {
+            others = new HashMap<>();
+        }
+        return others.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            Object previous = instances[slot];
+            instances[slot] = null;
+            return previous;
+        }
+        return others != null ? others.remove(key) : null;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = null;
+        }
+        others = null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private int slotOf(Object key) {
+        return key instanceof String ? plan.slotOf(String.class.cast(key)) : -1;
+    }
+
+    /**
+     * The beans that have been created, in slot order, followed by the other entries.
+     */
+    private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+
+        @Override
+        public int size() {
+            int size = others != null ? others.size() : 0;
+            for (Object instance : instances) {
+                if (instance != null) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new Iterator<Entry<String, Object>>() {
+                private int nextSlot = advance(0);
+                private int lastSlot = -1;
+                private Iterator<Entry<String, Object>> otherEntries;
+
+                @Override
+                public boolean hasNext() {
+                    return nextSlot < instances.length || otherEntries().hasNext();
+                }
+
+                @Override
+                public Entry<String, Object> next() {
+                    if (nextSlot < instances.length) {
+                        lastSlot = nextSlot;
+                        nextSlot = advance(nextSlot + 1);
+                        return new SlotEntry(lastSlot);
+                    }
+                    lastSlot = -1;
+                    if (!otherEntries().hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return otherEntries.next();
+                }
+
+                @Override
+                public void remove() {
+                    if (lastSlot >= 0) {
+                        instances[lastSlot] = null;
+                        lastSlot = -1;
+                    } else if (otherEntries != null) {
+                        otherEntries.remove();
+                    } else {
+                        throw new IllegalStateException();
+                    }
+                }
+
+                private int advance(int slot) {
+                    while (slot < instances.length && instances[slot] == null) {
+                        slot++;
+                    }
+                    return slot;
+                }
+
+                private Iterator<Entry<String, Object>> otherEntries() {
+                    if (otherEntries == null) {
+                        Map<String, Object> entries = others != null ? others : new HashMap<>();
+                        otherEntries = entries.entrySet().iterator();
+                    }
+                    return otherEntries;
+                }
+            };
+        }
+    }
+
+    /**
+     * An entry backed by a slot.
+     */
+    private final class SlotEntry implements Entry<String, Object> {
+        private final int slot;
+
+        private SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public String getKey() {
+            return plan.getBeanName(slot);
+        }
+
+        @Override
+        public Object getValue() {
+            return instances[slot];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object previous = instances[slot];
+            instances[slot] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> other = (Entry<?, ?>) o;
+            return getKey().equals(other.getKey()) && (getValue() == null ? other.getValue() == null : getValue().equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ (getValue() == null ? 0 : getValue().hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -33,19 +33,19 @@ import lombok.Setter;
  * BeanBO class used to store the values from the RecordBO-Definition XML tag
  */
 public class RecordDefinitionBO {
-    @Setter
     private Map<String, BeanBO> beans;
 
     @Getter
-    @Setter
     private List<LineBO> lines;
 
     @Getter
-    @Setter
     private List<LineBO> linesWithIdentities;
 
+    // Compiled on first use as the configuration readers finish the lines after adding them.
+    private volatile BeanPlan beanPlan;
+    private volatile LineDispatcher lineDispatcher;
+
     @Getter
-    @Setter
     private RecordBO parentRecord;
 
     public RecordDefinitionBO() {
@@ -59,9 +59,31 @@ public class RecordDefinitionBO {
         this.parentRecord = parentRecord;
     }
 
+    public void setParentRecord(RecordBO parentRecord) {
+        this.parentRecord = parentRecord;
+        lineDispatcher = null;
+    }
+
+    public void setBeans(Map<String, BeanBO> beans) {
+        this.beans = beans;
+        beanPlan = null;
+    }
+
+    public void setLines(List<LineBO> lines) {
+        this.lines = lines;
+        beanPlan = null;
+    }
+
+    public void setLinesWithIdentities(List<LineBO> linesWithIdentities) {
+        this.linesWithIdentities = linesWithIdentities;
+        beanPlan = null;
+        lineDispatcher = null;
+    }
+
     public void addBean(BeanBO bean) {
         bean.setParentRecordDefinition(this);
         this.beans.put(bean.getBeanName(), bean);
+        beanPlan = null;
     }
 
     public Collection<BeanBO> getBeans() {
@@ -81,6 +103,8 @@ public class RecordDefinitionBO {
             }
             
             lines.add(line);
+            beanPlan = null;
+            lineDispatcher = null;
         } else {
             addLineWithIdentity(line);
         }
@@ -90,11 +114,65 @@ public class RecordDefinitionBO {
         if (line.getLineIdentity() != null) {
             line.setParentRecordDefinition(this);
             linesWithIdentities.add(line);
+            beanPlan = null;
+            lineDispatcher = null;
         } else {
             addLine(line);
         }
     }
 
+    /**
+     * Get the slot of the given bean so that it can be taken from a parsed record's {@link RecordBeanMap} by index. Should the beans or
+     * lines change afterwards then records parsed against the new configuration fall back to looking the bean up by name.
+     *
+     * @param beanName The name of the bean.
+     * @return the {@link BeanSlot} or {@code null} should no bean of that name be defined.
+     */
+    public BeanSlot getBeanSlot(String beanName) {
+        return getBeanPlan().getSlot(beanName);
+    }
+
+    /**
+     * Get the compiled {@link BeanPlan} for this record definition, compiling it if the beans or lines have changed since it was last
+     * compiled.
+     *
+     * @return the {@link BeanPlan}.
+     */
+    BeanPlan getBeanPlan() {
+        BeanPlan plan = beanPlan;
+        if (plan == null) {
+            plan = new BeanPlan(this);
+            beanPlan = plan;
+        }
+        return plan;
+    }
+
+    /**
+     * Get the compiled {@link LineDispatcher} for the lines with identities, compiling it if the lines have changed since it was last
+     * compiled. Should the identities of the lines be modified after the first record has been parsed then {@link
+     * #compileLineDispatcher()} must be called.
+     *
+     * @return the {@link LineDispatcher}.
+     */
+    public LineDispatcher getLineDispatcher() {
+        LineDispatcher dispatcher = lineDispatcher;
+        if (dispatcher == null) {
+            dispatcher = compileLineDispatcher();
+        }
+        return dispatcher;
+    }
+
+    /**
+     * (Re)compile the {@link LineDispatcher} used to match lines of data to the lines with identities.
+     *
+     * @return the newly compiled {@link LineDispatcher}.
+     */
+    public LineDispatcher compileLineDispatcher() {
+        LineDispatcher dispatcher = new LineDispatcher(this);
+        lineDispatcher = dispatcher;
+        return dispatcher;
+    }
+
     /**
      * Determine if one of the {@code LineBO} instances within this {@link RecordDefinitionBO} matches the given line.
      *
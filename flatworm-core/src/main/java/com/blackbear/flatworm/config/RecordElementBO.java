@@ -16,6 +16,8 @@
 
 package com.blackbear.flatworm.config;
 
+import com.blackbear.flatworm.converters.FieldConversion;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -68,6 +70,14 @@ public class RecordElementBO implements LineElement {
     @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
     private Map<String, ConversionOptionBO> conversionOptions;
 
+    // Compiled from the converter and conversion options by FileFormat.compile() - null if they couldn't be compiled.
+    @Getter
+    @Setter
+    private FieldConversion fieldConversion;
+
+    // The slot of the bean the field is mapped to, resolved when the BeanPlan of the record definition is compiled.
+    BeanSlot beanSlot;
+
     public RecordElementBO() {
         conversionOptions = new HashMap<>();
         ignoreField = false;
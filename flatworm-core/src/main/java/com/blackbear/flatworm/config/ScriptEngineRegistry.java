@@ -0,0 +1,213 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config;
+
+import com.blackbear.flatworm.errors.FlatwormConfigurationException;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+/**
+ * Registry of the script engines used by {@link ScriptletBO} (and by extension {@link
+ * com.blackbear.flatworm.config.impl.ScriptIdentityImpl}). Script engines aren't guaranteed to be thread-safe, so rather than giving every
+ * scriptlet its own engine, each thread is given a single engine per engine name. Every {@link SharedScript} is evaluated into its own
+ * {@link Bindings} on each thread that invokes it, so scripts which declare the same function name don't collide and global variables
+ * declared by one scriptlet are never seen by another - even when the script content is identical.
+ *
+ * What is shared: the engine itself (and so anything a script stores in the engine's {@link ScriptContext#GLOBAL_SCOPE} bindings) is
+ * shared by all scriptlets that run on the same thread. A scriptlet's own global state is held per thread, so a script that keeps state
+ * between invocations will see separate state on each thread that invokes it.
+ *
+ * The registry only holds one engine per engine name per thread - the bindings belong to the {@link SharedScript} and are released along
+ * with it. Each thread's engine caches the {@link CompiledScript} for the most recently used {@value #COMPILED_SCRIPT_CACHE_SIZE}
+ * distinct scripts, so scriptlets with the same script content only pay for compiling it once per thread.
+ *
+ * @author Alan Henson
+ */
+public final class ScriptEngineRegistry {
+
+    private static final ScriptEngineManager ENGINE_MANAGER = new ScriptEngineManager();
+
+    private static final ConcurrentMap<String, ScriptEngineFactory> FACTORIES = new ConcurrentHashMap<>();
+
+    /**
+     * The number of distinct scripts whose {@link CompiledScript} is cached by each thread's engine.
+     */
+    public static final int COMPILED_SCRIPT_CACHE_SIZE = 256;
+
+    private static final ThreadLocal<Map<String, EngineState>> ENGINES = ThreadLocal.withInitial(HashMap::new);
+
+    private ScriptEngineRegistry() {
+    }
+
+    /**
+     * Determine if a script engine is registered under the given name.
+     *
+     * @param scriptEngineName The name of the script engine.
+     * @return {@code true} if the script engine could be found and {@code false} if not.
+     */
+    public static boolean isEngineAvailable(String scriptEngineName) {
+        return findFactory(scriptEngineName) != null;
+    }
+
+    /**
+     * Create a new {@link SharedScript} for the given engine and script content, evaluating the script on the calling thread so that any
+     * errors surface when the configuration is loaded rather than when the first line is parsed.
+     *
+     * @param scriptEngineName The name of the script engine.
+     * @param script           The script content.
+     * @return a new {@link SharedScript} instance - its global state isn't shared with any other instance.
+     * @throws FlatwormConfigurationException should the script engine not be found or should the script fail to evaluate.
+     */
+    public static SharedScript newScript(String scriptEngineName, String script) throws FlatwormConfigurationException {
+        if (!isEngineAvailable(scriptEngineName)) {
+            throw new FlatwormConfigurationException(String.format("The %s ScriptEngine could not be found by the given name.",
+                    scriptEngineName));
+        }
+
+        SharedScript sharedScript = new SharedScript(scriptEngineName, script);
+        try {
+            sharedScript.getBindings(getEngineState(scriptEngineName));
+        } catch (ScriptException e) {
+            throw new FlatwormConfigurationException(String.format("The script provided failed to evaluate: %s%n%s",
+                    e.getMessage(), script), e);
+        }
+        return sharedScript;
+    }
+
+    private static ScriptEngineFactory findFactory(String scriptEngineName) {
+        ScriptEngineFactory factory = FACTORIES.get(scriptEngineName);
+        if (factory == null && scriptEngineName != null) {
+            ScriptEngine engine = ENGINE_MANAGER.getEngineByName(scriptEngineName);
+            if (engine != null) {
+                factory = engine.getFactory();
+                FACTORIES.putIfAbsent(scriptEngineName, factory);
+            }
+        }
+        return factory;
+    }
+
+    /**
+     * Get the number of distinct scripts the calling thread's engine has compiled and cached.
+     *
+     * @param scriptEngineName The name of the script engine.
+     * @return the number of cached {@link CompiledScript}s.
+     */
+    static int getCompiledScriptCount(String scriptEngineName) {
+        return getEngineState(scriptEngineName).compiledScripts.size();
+    }
+
+    private static EngineState getEngineState(String scriptEngineName) {
+        return ENGINES.get().computeIfAbsent(scriptEngineName, name -> new EngineState(findFactory(name).getScriptEngine()));
+    }
+
+    /**
+     * A script that has been evaluated through the {@link ScriptEngineRegistry}. Invocations are safe from any thread as each thread
+     * evaluates the script within its own engine and into bindings owned by this instance.
+     */
+    public static final class SharedScript {
+        private final String scriptEngineName;
+        private final String script;
+        private final ThreadLocal<Bindings> bindings = new ThreadLocal<>();
+
+        private SharedScript(String scriptEngineName, String script) {
+            this.scriptEngineName = scriptEngineName;
+            this.script = script;
+        }
+
+        /**
+         * Invoke the given function, as declared by the script, with the given parameters using the calling thread's engine.
+         *
+         * @param functionName The name of the function to invoke.
+         * @param parameters   The parameters to send to the function.
+         * @return the value returned from the function.
+         * @throws FlatwormParserException should the invocation fail for any reason.
+         */
+        public Object invokeFunction(String functionName, Object... parameters) throws FlatwormParserException {
+            Object result;
+            try {
+                EngineState state = getEngineState(scriptEngineName);
+                ScriptEngine engine = state.engine;
+                // Invocable always resolves functions against the engine's default context, so point it at the script's bindings first.
+                engine.setBindings(getBindings(state), ScriptContext.ENGINE_SCOPE);
+                result = ((Invocable) engine).invokeFunction(functionName, parameters);
+            } catch (Exception e) {
+                throw new FlatwormParserException(e.getMessage(), e);
+            }
+            return result;
+        }
+
+        private Bindings getBindings(EngineState state) throws ScriptException {
+            Bindings threadBindings = bindings.get();
+            if (threadBindings == null) {
+                threadBindings = state.engine.createBindings();
+                state.eval(script, threadBindings);
+                bindings.set(threadBindings);
+            }
+            return threadBindings;
+        }
+    }
+
+    /**
+     * The engine owned by a single thread along with the scripts it has compiled.
+     */
+    private static final class EngineState {
+        private final ScriptEngine engine;
+        private final Map<String, CompiledScript> compiledScripts = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+            private static final long serialVersionUID = 5128409870436615834L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                return size() > COMPILED_SCRIPT_CACHE_SIZE;
+            }
+        };
+
+        EngineState(ScriptEngine engine) {
+            this.engine = engine;
+        }
+
+        /**
+         * Evaluate the script into the given bindings, compiling it only if this engine hasn't already compiled the same script content.
+         */
+        void eval(String script, Bindings bindings) throws ScriptException {
+            if (engine instanceof Compilable) {
+                CompiledScript compiledScript = compiledScripts.get(script);
+                if (compiledScript == null) {
+                    compiledScript = ((Compilable) engine).compile(script);
+                    compiledScripts.put(script, compiledScript);
+                }
+                compiledScript.eval(bindings);
+            } else {
+                engine.eval(script, bindings);
+            }
+        }
+    }
+}
@@ -28,11 +28,6 @@ import org.apache.commons.lang.StringUtils;
 import java.io.IOException;
 import java.net.URL;
 
-import javax.script.Invocable;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
-
 import lombok.Getter;
 
 /**
@@ -55,12 +50,10 @@ public class ScriptletBO {
     @Getter
     private String scriptFile;
 
-    private ScriptEngine scriptEngine;
-
     @Getter
     private String functionName;
 
-    private Invocable scriptInvocable;
+    private ScriptEngineRegistry.SharedScript sharedScript;
 
     /**
      * Constructor for ScriptletBO. The default Script Engine is used ({@code ScriptletBO.DEFAULT_SCRIPT_ENGINE}) and the default function
@@ -99,14 +92,9 @@ public class ScriptletBO {
         this.scriptEngineName = StringUtils.isBlank(scriptEngineName) ? DEFAULT_SCRIPT_ENGINE : scriptEngineName;
         this.functionName = StringUtils.isBlank(functionName) ? ScriptIdentityImpl.DEFAULT_SCRIPT_IDENTITY_FUNCTION_NAME : functionName;
 
-        ScriptEngineManager engineManager = new ScriptEngineManager();
-        scriptEngine = engineManager.getEngineByName(this.scriptEngineName);
-
-        if (scriptEngine == null) {
+        if (!ScriptEngineRegistry.isEngineAvailable(this.scriptEngineName)) {
             throw new FlatwormConfigurationException(String.format("The %s ScriptEngine could not be found by the given name.",
                     this.scriptEngineName));
-        } else {
-            scriptInvocable = (Invocable) scriptEngine;
         }
     }
 
@@ -120,12 +108,7 @@ public class ScriptletBO {
      */
     public void setScript(String script) throws FlatwormConfigurationException {
         this.script = script;
-        try {
-            scriptEngine.eval(script);
-        } catch (ScriptException e) {
-            throw new FlatwormConfigurationException(String.format("The script provided failed to evaluate: %s%n%s",
-                    e.getMessage(), script), e);
-        }
+        sharedScript = ScriptEngineRegistry.newScript(scriptEngineName, script);
     }
 
     /**
@@ -147,34 +130,18 @@ public class ScriptletBO {
     }
 
     /**
-     * Invoke the configured function and return the results.
-     * @return the value returned from the invocation of the function if execution was successful.
-     * @throws FlatwormParserException should invoking the script fail for any reason.
-     */
-    public Object invokeFunction() throws FlatwormParserException {
-        Object result;
-        try {
-            result = scriptInvocable.invokeFunction(functionName);
-        } catch (Exception e) {
-            throw new FlatwormParserException(e.getMessage(), e);
-        }
-        return result;
-    }
-
-    /**
-     * Invoke the configured function with the specified parameters and return the results.
+     * Invoke the configured function and return the results. Invocations may be made concurrently - each thread runs the function within
+     * its own script engine (see {@link ScriptEngineRegistry}), so any global state the script keeps is held per thread.
+     *
      * @param parameters The parameters to send to the script.
      * @return the value returned from the invocation of the function if execution was successful.
      * @throws FlatwormParserException should invoking the script fail for any reason.
      */
     public Object invokeFunction(Object... parameters) throws FlatwormParserException {
-        Object result;
-        try {
-            result = scriptInvocable.invokeFunction(functionName, parameters);
-        } catch (Exception e) {
-            throw new FlatwormParserException(e.getMessage(), e);
+        if (sharedScript == null) {
+            throw new FlatwormParserException(String.format("No script has been configured for the %s function.", functionName));
         }
-        return result;
+        return sharedScript.invokeFunction(functionName, parameters);
     }
 
     @Override
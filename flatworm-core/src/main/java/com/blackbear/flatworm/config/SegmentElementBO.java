@@ -18,11 +18,14 @@ package com.blackbear.flatworm.config;
 
 import com.blackbear.flatworm.config.impl.FieldIdentityImpl;
 
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 
 @Data
-@EqualsAndHashCode(callSuper = false)
+@EqualsAndHashCode(callSuper = false, exclude = {"beanSlot", "parentBeanSlot"})
 public class SegmentElementBO extends AbstractLineElementCollection implements LineElement {
     private FieldIdentityImpl fieldIdentity;
 
@@ -32,6 +35,15 @@ public class SegmentElementBO extends AbstractLineElementCollection implements L
 
     private LineBO parentLine;
 
+    // The slots of the segment's bean and its parent, resolved when the BeanPlan of the record definition is compiled.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    BeanSlot beanSlot;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    BeanSlot parentBeanSlot;
+
     public boolean matchesIdentity(LineToken lineToken) {
         boolean matchesId = false;
         if(fieldIdentity != null) {
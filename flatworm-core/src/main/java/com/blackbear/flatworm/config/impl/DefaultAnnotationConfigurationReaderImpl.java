@@ -31,6 +31,7 @@ import com.blackbear.flatworm.annotations.Line;
 import com.blackbear.flatworm.annotations.Record;
 import com.blackbear.flatworm.annotations.RecordElement;
 import com.blackbear.flatworm.annotations.RecordLink;
+import com.blackbear.flatworm.annotations.RegexIdentity;
 import com.blackbear.flatworm.annotations.Scriptlet;
 import com.blackbear.flatworm.annotations.SegmentElement;
 import com.blackbear.flatworm.config.AnnotationConfigurationReader;
@@ -48,6 +49,12 @@ import com.blackbear.flatworm.config.RecordElementBO;
 import com.blackbear.flatworm.config.ScriptletBO;
 import com.blackbear.flatworm.config.SegmentElementBO;
 import com.blackbear.flatworm.errors.FlatwormConfigurationException;
+import com.blackbear.flatworm.hooks.AfterLineHook;
+import com.blackbear.flatworm.hooks.AfterRecordHook;
+import com.blackbear.flatworm.hooks.BeforeLineHook;
+import com.blackbear.flatworm.hooks.BeforeRecordHook;
+import com.blackbear.flatworm.hooks.Hooks;
+import com.blackbear.flatworm.hooks.LineIdentityPredicate;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -131,6 +138,10 @@ public class DefaultAnnotationConfigurationReaderImpl implements AnnotationConfi
             ConfigurationValidator.validateFileFormat(fileFormat);
         }
 
+        if (performCleanup) {
+            fileFormat.compile();
+        }
+
         return fileFormat;
     }
 
@@ -303,14 +314,18 @@ public class DefaultAnnotationConfigurationReaderImpl implements AnnotationConfi
             
             // Load the before and after scriptlets.
             // -- Before
-            if (annotatedRecord.beforeReadRecordScript().enabled()) {
+            if (annotatedRecord.beforeReadRecordScript().enabled() && isJavaHook(annotatedRecord.beforeReadRecordScript())) {
+                record.setBeforeRecordHook(loadHook(annotatedRecord.beforeReadRecordScript(), BeforeRecordHook.class));
+            } else if (annotatedRecord.beforeReadRecordScript().enabled()) {
                 record.setBeforeScriptlet(loadScriptlet(annotatedRecord.beforeReadRecordScript()));
             } else {
                 record.setBeforeScriptlet(null);
             }
 
             // -- After
-            if (annotatedRecord.afterReadRecordScript().enabled()) {
+            if (annotatedRecord.afterReadRecordScript().enabled() && isJavaHook(annotatedRecord.afterReadRecordScript())) {
+                record.setAfterRecordHook(loadHook(annotatedRecord.afterReadRecordScript(), AfterRecordHook.class));
+            } else if (annotatedRecord.afterReadRecordScript().enabled()) {
                 record.setAfterScriptlet(loadScriptlet(annotatedRecord.afterReadRecordScript()));
             } else {
                 record.setAfterScriptlet(null);
@@ -395,14 +410,18 @@ public class DefaultAnnotationConfigurationReaderImpl implements AnnotationConfi
         
         // Scriptlets.
         // -- Before
-        if (annotatedLine.beforeParseLine().enabled()) {
+        if (annotatedLine.beforeParseLine().enabled() && isJavaHook(annotatedLine.beforeParseLine())) {
+            line.setBeforeLineHook(loadHook(annotatedLine.beforeParseLine(), BeforeLineHook.class));
+        } else if (annotatedLine.beforeParseLine().enabled()) {
             line.setBeforeScriptlet(loadScriptlet(annotatedLine.beforeParseLine()));
         } else {
             line.setBeforeScriptlet(null);
         }
 
         // -- After
-        if (annotatedLine.afterParseLine().enabled()) {
+        if (annotatedLine.afterParseLine().enabled() && isJavaHook(annotatedLine.afterParseLine())) {
+            line.setAfterLineHook(loadHook(annotatedLine.afterParseLine(), AfterLineHook.class));
+        } else if (annotatedLine.afterParseLine().enabled()) {
             line.setAfterScriptlet(loadScriptlet(annotatedLine.afterParseLine()));
         } else {
             line.setAfterScriptlet(null);
@@ -442,6 +461,10 @@ public class DefaultAnnotationConfigurationReaderImpl implements AnnotationConfi
             identity = loadLengthIdentity(annotatedIdentity.lengthIdentity());
         } else if (annotatedIdentity.fieldIdentity().enabled()) {
             identity = loadFieldIdentity(annotatedIdentity.fieldIdentity());
+        } else if (annotatedIdentity.regexIdentity().enabled()) {
+            identity = loadRegexIdentity(annotatedIdentity.regexIdentity());
+        } else if (annotatedIdentity.scriptIdentity().enabled() && isJavaHook(annotatedIdentity.scriptIdentity())) {
+            identity = new PredicateIdentityImpl(loadHook(annotatedIdentity.scriptIdentity(), LineIdentityPredicate.class));
         } else if (annotatedIdentity.scriptIdentity().enabled()) {
             identity = loadScriptIdentity(annotatedIdentity.scriptIdentity());
         }
@@ -489,6 +512,22 @@ public class DefaultAnnotationConfigurationReaderImpl implements AnnotationConfi
         return fieldIdentity;
     }
 
+    /**
+     * Load the {@link RegexIdentity} annotation configuration into a {@link RegexIdentityImpl} instance and return it.
+     *
+     * @param annotatedIdentity The {@link RegexIdentity} annotation instance.
+     * @return the {@link RegexIdentityImpl} instance constructed.
+     */
+    public RegexIdentityImpl loadRegexIdentity(RegexIdentity annotatedIdentity) {
+        RegexIdentityImpl regexIdentity = new RegexIdentityImpl(annotatedIdentity.pattern());
+        regexIdentity.setStartPosition(annotatedIdentity.startPosition());
+        if (annotatedIdentity.fieldLength() != -1) {
+            regexIdentity.setFieldLength(annotatedIdentity.fieldLength());
+        }
+        regexIdentity.setIgnoreCase(annotatedIdentity.ignoreCase());
+        return regexIdentity;
+    }
+
     /**
      * Load the {@link Scriptlet} annotation configuration into a {@link ScriptIdentityImpl} instance and return it.
      *
@@ -501,6 +540,29 @@ public class DefaultAnnotationConfigurationReaderImpl implements AnnotationConfi
         return new ScriptIdentityImpl(scriptlet);
     }
 
+    /**
+     * Determine if the {@link Scriptlet} annotation references a Java hook class rather than a script.
+     *
+     * @param annotatedScriptlet The {@link Scriptlet} annotation instance.
+     * @return {@code true} if the {@code javaClass} has been specified and {@code false} if not.
+     */
+    public boolean isJavaHook(Scriptlet annotatedScriptlet) {
+        return annotatedScriptlet.javaClass() != void.class;
+    }
+
+    /**
+     * Instantiate the Java hook class referenced by the {@link Scriptlet} annotation.
+     *
+     * @param annotatedScriptlet The {@link Scriptlet} annotation instance.
+     * @param hookType           The hook interface the class must implement.
+     * @param <T>                The hook type.
+     * @return the hook instance.
+     * @throws FlatwormConfigurationException should the class not implement {@code hookType} or fail to be instantiated.
+     */
+    public <T> T loadHook(Scriptlet annotatedScriptlet, Class<T> hookType) throws FlatwormConfigurationException {
+        return Hooks.newInstance(annotatedScriptlet.javaClass(), hookType);
+    }
+
     /**
      * Load the {@link Scriptlet} annotation configuration into a {@link ScriptletBO} instance and return it.
      *
@@ -36,6 +36,12 @@ import com.blackbear.flatworm.config.ScriptletBO;
 import com.blackbear.flatworm.config.SegmentElementBO;
 import com.blackbear.flatworm.errors.FlatwormConfigurationException;
 import com.blackbear.flatworm.errors.FlatwormParserException;
+import com.blackbear.flatworm.hooks.AfterLineHook;
+import com.blackbear.flatworm.hooks.AfterRecordHook;
+import com.blackbear.flatworm.hooks.BeforeLineHook;
+import com.blackbear.flatworm.hooks.BeforeRecordHook;
+import com.blackbear.flatworm.hooks.Hooks;
+import com.blackbear.flatworm.hooks.LineIdentityPredicate;
 
 import org.apache.commons.lang.StringUtils;
 import org.w3c.dom.CharacterData;
@@ -137,6 +143,9 @@ public class DefaultConfigurationReaderImpl implements ConfigurationReader {
                     throw new FlatwormParserException("You cannot have default Records (those lacking identifier configuration) and " +
                             "the ignore-unmapped-records flag set to true - you must have one or the other.");
                 }
+
+                // Compile the record matching and bean access up front so that it isn't done while parsing the first line of data.
+                fileFormat.compile();
             }
         } catch (Exception e) {
             throw new FlatwormConfigurationException(e.getMessage(), e);
@@ -408,10 +417,15 @@ public class DefaultConfigurationReaderImpl implements ConfigurationReader {
             Node lengthChild = getChildElementNodeName(identChild, "length-ident");
             Node fieldChild = getChildElementNodeName(identChild, "field-ident");
             Node scriptChild = getChildElementNodeName(identChild, "script-ident");
+            Node regexChild = getChildElementNodeName(identChild, "regex-ident");
             if (lengthChild != null) {
                 record.setRecordIdentity(readLengthIdentity(lengthChild));
             } else if (fieldChild != null) {
                 record.setRecordIdentity(readFieldIdentity(fieldChild));
+            } else if (regexChild != null) {
+                record.setRecordIdentity(readRegexIdentity(regexChild));
+            } else if (scriptChild != null && hasAttributeValueNamed(scriptChild, "class")) {
+                record.setRecordIdentity(readPredicateIdentity(scriptChild));
             } else if (scriptChild != null) {
                 record.setRecordIdentity(readScriptIdentity(scriptChild));
             }
@@ -420,6 +434,8 @@ public class DefaultConfigurationReaderImpl implements ConfigurationReader {
         // Before/After Scriptlets.
         record.setBeforeScriptlet(readScriptlet(node, "before-scriptlet"));
         record.setAfterScriptlet(readScriptlet(node, "after-scriptlet"));
+        record.setBeforeRecordHook(readHook(node, "before-scriptlet", BeforeRecordHook.class));
+        record.setAfterRecordHook(readHook(node, "after-scriptlet", AfterRecordHook.class));
         
         // Record Definition
         Node recordChild = getChildElementNodeName(node, "record-definition");
@@ -464,6 +480,32 @@ public class DefaultConfigurationReaderImpl implements ConfigurationReader {
         return fieldIdentity;
     }
 
+    /**
+     * Read the {@code regex-ident} information from the given {@code node} - the pattern is taken from the {@code match-pattern} child
+     * element (either as text or CDATA).
+     *
+     * @param node The node containing the data.
+     * @return a built {@link RegexIdentityImpl} instance.
+     */
+    protected RegexIdentityImpl readRegexIdentity(Node node) {
+        RegexIdentityImpl regexIdentity = new RegexIdentityImpl();
+        regexIdentity.setIgnoreCase(Util.tryParseBoolean(getAttributeValueNamed(node, "ignore-case"), false));
+        if (hasAttributeValueNamed(node, "field-start")) {
+            regexIdentity.setStartPosition(Util.tryParseInt(getAttributeValueNamed(node, "field-start")));
+        }
+        regexIdentity.setFieldLength(Util.tryParseInt(getAttributeValueNamed(node, "field-length")));
+
+        Node patternNode = getChildElementNodeName(node, "match-pattern");
+        if (patternNode != null) {
+            String pattern = getChildTextNodeValue(patternNode);
+            if (StringUtils.isBlank(pattern)) {
+                pattern = getChildCDataNodeValue(patternNode);
+            }
+            regexIdentity.setPattern(pattern);
+        }
+        return regexIdentity;
+    }
+
     /**
      * Read the {@code script-identity} tag values from the given node and populate the {@link RecordBO} instance with the values.
      *
@@ -480,9 +522,22 @@ public class DefaultConfigurationReaderImpl implements ConfigurationReader {
         return scriptIdentity;
     }
 
+    /**
+     * Read the {@code class} attribute of a {@code script-ident} tag that references a Java {@link LineIdentityPredicate} rather than a
+     * script.
+     *
+     * @param node The node containing the data.
+     * @return a built {@link PredicateIdentityImpl} instance.
+     * @throws FlatwormConfigurationException should the class not be found or not implement {@link LineIdentityPredicate}.
+     */
+    protected PredicateIdentityImpl readPredicateIdentity(Node node) throws FlatwormConfigurationException {
+        return new PredicateIdentityImpl(Hooks.newInstance(getAttributeValueNamed(node, "class"), LineIdentityPredicate.class));
+    }
+
     /**
      * Read the {@link ScriptletBO} data values from the given child node (identified by the {@code elementName} parameter), 
-     * and return it a constructed instance.
+     * and return it a constructed instance. Child nodes that reference a Java hook (via the {@code class} attribute) are skipped - see
+     * {@link #readHook(Node, String, Class)}.
      *
      * @param node The parent node containing the child node {@link ScriptletBO} data.
      * @param elementName The name of the child element within the {@code node} that has the scriptlet data.             
@@ -492,11 +547,31 @@ public class DefaultConfigurationReaderImpl implements ConfigurationReader {
     protected ScriptletBO readScriptlet(Node node, String elementName) throws FlatwormConfigurationException {
         ScriptletBO scriptlet = null;
         Node scriptletNode = getChildElementNodeName(node, elementName);
-        if(scriptletNode != null) {
+        if(scriptletNode != null && !hasAttributeValueNamed(scriptletNode, "class")) {
             scriptlet = readScriptlet(scriptletNode);
         }
         return scriptlet;
     }
+
+    /**
+     * Read the Java hook referenced by the {@code class} attribute of the given child node (identified by the {@code elementName}
+     * parameter) - the hook is instantiated once here and called directly during parsing.
+     *
+     * @param node        The parent node containing the child node.
+     * @param elementName The name of the child element within the {@code node} that may reference the hook.
+     * @param hookType    The hook interface the class must implement.
+     * @param <T>         The hook type.
+     * @return the hook instance or {@code null} if the child node doesn't exist or doesn't specify a {@code class} attribute.
+     * @throws FlatwormConfigurationException should the class not be found, not implement {@code hookType} or fail to be instantiated.
+     */
+    protected <T> T readHook(Node node, String elementName, Class<T> hookType) throws FlatwormConfigurationException {
+        T hook = null;
+        Node hookNode = getChildElementNodeName(node, elementName);
+        if (hookNode != null && hasAttributeValueNamed(hookNode, "class")) {
+            hook = Hooks.newInstance(getAttributeValueNamed(hookNode, "class"), hookType);
+        }
+        return hook;
+    }
     
     /**
      * Read the {@link ScriptletBO} data values from the given node and return it a constructed instance.
@@ -590,6 +665,8 @@ public class DefaultConfigurationReaderImpl implements ConfigurationReader {
         // Before/After Scriptlets.
         line.setBeforeScriptlet(readScriptlet(node, "before-scriptlet"));
         line.setAfterScriptlet(readScriptlet(node, "after-scriptlet"));
+        line.setBeforeLineHook(readHook(node, "before-scriptlet", BeforeLineHook.class));
+        line.setAfterLineHook(readHook(node, "after-scriptlet", AfterLineHook.class));
         
         // Note the child nodes will be a collection of record-elements and segment-elements.
         List<Object> childNodes = getChildNodes(node);
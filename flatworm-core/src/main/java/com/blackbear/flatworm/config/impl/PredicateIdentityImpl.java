@@ -0,0 +1,75 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config.impl;
+
+import com.google.common.base.Preconditions;
+
+import com.blackbear.flatworm.FileFormat;
+import com.blackbear.flatworm.config.LineBO;
+import com.blackbear.flatworm.config.RecordBO;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+import com.blackbear.flatworm.hooks.LineIdentityPredicate;
+
+import lombok.Getter;
+
+/**
+ * {@link com.blackbear.flatworm.config.Identity} backed by a Java {@link LineIdentityPredicate} - a faster alternative to {@link
+ * ScriptIdentityImpl} as the predicate is called directly rather than through a script engine. As with script identities, any failure of
+ * the predicate is reported as a {@link FlatwormParserException}.
+ *
+ * @author Alan Henson
+ */
+public class PredicateIdentityImpl extends AbstractIdentity {
+
+    @Getter
+    private final LineIdentityPredicate predicate;
+
+    /**
+     * Constructor for {@code PredicateIdentityImpl}.
+     *
+     * @param predicate The {@link LineIdentityPredicate} to evaluate.
+     */
+    public PredicateIdentityImpl(LineIdentityPredicate predicate) {
+        Preconditions.checkNotNull(predicate, "The predicate must be specified.");
+        this.predicate = predicate;
+    }
+
+    @Override
+    public boolean matchesIdentity(RecordBO record, FileFormat fileFormat, String line) throws FlatwormParserException {
+        try {
+            return predicate.matches(fileFormat, line);
+        } catch (RuntimeException e) {
+            throw new FlatwormParserException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean matchesIdentity(LineBO line, FileFormat fileFormat, String dataLine) throws FlatwormParserException {
+        try {
+            return predicate.matches(fileFormat, line, dataLine);
+        } catch (RuntimeException e) {
+            throw new FlatwormParserException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PredicateIdentityImpl{" +
+                "predicate=" + predicate.getClass().getName() +
+                '}';
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config.impl;
+
+import com.blackbear.flatworm.FileFormat;
+import com.blackbear.flatworm.config.LineBO;
+import com.blackbear.flatworm.config.RecordBO;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lombok.Getter;
+
+/**
+ * Manages regular expression identity instances (regex-ident) found in the flatworm configuration. The pattern is compiled once and is
+ * evaluated with {@link Matcher#find()} against the region of the line that starts at {@code startPosition} and spans {@code fieldLength}
+ * characters (or runs to the end of the line should no {@code fieldLength} be given) - the region's bounds are anchoring so {@code ^} and
+ * {@code $} match its start and end. Where the pattern begins with {@code ^} followed by literal characters, that prefix is compared
+ * against the line before the regex engine is run so that most non-matching lines are rejected cheaply. Each thread reuses its own {@link
+ * Matcher} so matching doesn't allocate.
+ *
+ * @author Alan Henson
+ */
+public class RegexIdentityImpl extends AbstractIdentity {
+
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    @Getter
+    private String pattern;
+
+    @Getter
+    private Integer startPosition;
+
+    @Getter
+    private Integer fieldLength;
+
+    @Getter
+    private boolean ignoreCase;
+
+    private volatile CompiledPattern compiledPattern;
+
+    private final ThreadLocal<Matcher> matchers = new ThreadLocal<>();
+
+    public RegexIdentityImpl() {
+        startPosition = 0;
+    }
+
+    public RegexIdentityImpl(String pattern) {
+        this();
+        setPattern(pattern);
+    }
+
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+        compiledPattern = null;
+    }
+
+    public void setStartPosition(Integer startPosition) {
+        this.startPosition = startPosition;
+    }
+
+    public void setFieldLength(Integer fieldLength) {
+        this.fieldLength = fieldLength;
+    }
+
+    public void setIgnoreCase(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        compiledPattern = null;
+    }
+
+    /**
+     * Get the literal characters the pattern requires at the start of the region - used to reject lines before the regex engine is run.
+     *
+     * @return the literal prefix, which will be empty if the pattern isn't anchored or doesn't start with literal characters.
+     */
+    public String getLiteralPrefix() {
+        return getCompiledPattern().literalPrefix;
+    }
+
+    /**
+     * Determine if the given {@link RecordBO} instance should be used to parse the line.
+     *
+     * @param record     The {@link RecordBO} instance.
+     * @param fileFormat The {@link FileFormat} instance representing the configuration that is driving the parsing and the last line that
+     *                   was read.
+     * @param line       The line of data to be evaluated.
+     * @return {@code true} if the pattern is found within the configured region of the {@code line} and {@code false} if not.
+     * @throws FlatwormParserException should the pattern be invalid.
+     */
+    @Override
+    public boolean matchesIdentity(RecordBO record, FileFormat fileFormat, String line) throws FlatwormParserException {
+        return doesMatchIdentity(line);
+    }
+
+    /**
+     * Determine if the given LineBO should be used to parse the line.
+     *
+     * @param line       The {@link LineBO} instance that is a candidate for performing the parsing.
+     * @param fileFormat The {@link FileFormat} instance representing the configuration that is driving the parsing and the last line that
+     *                   was read.
+     * @param dataLine   The line of data to be evaluated.
+     * @return {@code true} if the pattern is found within the configured region of the {@code dataLine} and {@code false} if not.
+     * @throws FlatwormParserException should the pattern be invalid.
+     */
+    @Override
+    public boolean matchesIdentity(LineBO line, FileFormat fileFormat, String dataLine) throws FlatwormParserException {
+        return doesMatchIdentity(dataLine);
+    }
+
+    private boolean doesMatchIdentity(String dataLine) throws FlatwormParserException {
+        boolean matches = false;
+        int start = startPosition != null ? startPosition : 0;
+        if (dataLine != null && dataLine.length() >= start) {
+            int end = fieldLength != null && fieldLength >= 0 ? Math.min(dataLine.length(), start + fieldLength) : dataLine.length();
+
+            CompiledPattern compiled;
+            try {
+                compiled = getCompiledPattern();
+            } catch (RuntimeException e) {
+                throw new FlatwormParserException(String.format("The regex-ident pattern %s is invalid: %s", pattern, e.getMessage()), e);
+            }
+
+            String prefix = compiled.literalPrefix;
+            if (prefix.isEmpty()
+                    || (end - start >= prefix.length() && dataLine.regionMatches(ignoreCase, start, prefix, 0, prefix.length()))) {
+                Matcher matcher = matchers.get();
+                if (matcher == null || matcher.pattern() != compiled.pattern) {
+                    matcher = compiled.pattern.matcher("");
+                    matchers.set(matcher);
+                }
+                matcher.reset(dataLine).region(start, end);
+                matches = matcher.find();
+            }
+        }
+        return matches;
+    }
+
+    private CompiledPattern getCompiledPattern() {
+        CompiledPattern compiled = compiledPattern;
+        if (compiled == null) {
+            compiled = new CompiledPattern(Pattern.compile(pattern, ignoreCase ? Pattern.CASE_INSENSITIVE : 0), findLiteralPrefix(pattern));
+            compiledPattern = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * Find the literal characters that must appear at the start of the region for the pattern to match. Only patterns anchored with a
+     * leading {@code ^} and without a top-level alternation have a literal prefix - anything else (or a literal character that is followed
+     * by a quantifier) ends the prefix.
+     *
+     * @param pattern The regular expression.
+     * @return the literal prefix, which may be empty.
+     */
+    static String findLiteralPrefix(String pattern) {
+        String prefix = "";
+        if (pattern != null && pattern.startsWith("^") && !hasTopLevelAlternation(pattern)) {
+            int end = 1;
+            while (end < pattern.length() && REGEX_METACHARACTERS.indexOf(pattern.charAt(end)) < 0) {
+                end++;
+            }
+            // A quantifier applies to the last literal character so it can't be part of the prefix.
+            if (end < pattern.length() && "?*{".indexOf(pattern.charAt(end)) >= 0 && end > 1) {
+                end--;
+            }
+            prefix = pattern.substring(1, end);
+        }
+        return prefix;
+    }
+
+    private static boolean hasTopLevelAlternation(String pattern) {
+        boolean alternation = false;
+        int depth = 0;
+        boolean inCharacterClass = false;
+        for (int i = 0; i < pattern.length() && !alternation; i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inCharacterClass) {
+                inCharacterClass = c != ']';
+            } else if (c == '[') {
+                inCharacterClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                alternation = true;
+            }
+        }
+        return alternation;
+    }
+
+    @Override
+    public String toString() {
+        return "RegexIdentityImpl{" +
+                "pattern='" + pattern + '\'' +
+                ", startPosition=" + startPosition +
+                ", fieldLength=" + fieldLength +
+                ", ignoreCase=" + ignoreCase +
+                '}';
+    }
+
+    private static final class CompiledPattern {
+        private final Pattern pattern;
+        private final String literalPrefix;
+
+        CompiledPattern(Pattern pattern, String literalPrefix) {
+            this.pattern = pattern;
+            this.literalPrefix = literalPrefix;
+        }
+    }
+}
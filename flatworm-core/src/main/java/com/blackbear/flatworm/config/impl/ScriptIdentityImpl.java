@@ -26,7 +26,8 @@ import com.blackbear.flatworm.errors.FlatwormParserException;
 import lombok.Getter;
 
 /**
- * Manages script identity instances (script-ident) found in the flatworm configuration. This class is not thread safe.
+ * Manages script identity instances (script-ident) found in the flatworm configuration. Scripts are evaluated through the
+ * {@link com.blackbear.flatworm.config.ScriptEngineRegistry} so identities may be matched concurrently.
  *
  * @author Alan Henson
  */
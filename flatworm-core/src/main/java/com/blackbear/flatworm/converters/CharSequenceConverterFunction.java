@@ -0,0 +1,46 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.converters;
+
+import com.blackbear.flatworm.config.ConversionOptionBO;
+
+import java.util.Map;
+
+/**
+ * A {@link ToTypeConverterFunction} that converts the field directly from the {@link CharSequence} it was read into (a {@link
+ * com.blackbear.flatworm.CharSlice} of the line while parsing) rather than requiring that a {@link String} be created for it first.
+ *
+ * @author Alan Henson
+ */
+@FunctionalInterface
+public interface CharSequenceConverterFunction extends ToTypeConverterFunction {
+
+    /**
+     * Convert the given {@code value} into another format. The {@code value} is only valid for the duration of the call - use {@code
+     * toString()} should it need to be retained.
+     * @param value The {@code value} to convert.
+     * @param options Any {@link ConversionOptionBO}s that were configured to go along with the converter.
+     * @return The {@code value} value converted.
+     * @throws Exception should anything unexpected occur.
+     */
+    Object convert(CharSequence value, Map<String, ConversionOptionBO> options) throws Exception;
+
+    @Override
+    default Object convert(String value, Map<String, ConversionOptionBO> options) throws Exception {
+        return convert((CharSequence) value, options);
+    }
+}
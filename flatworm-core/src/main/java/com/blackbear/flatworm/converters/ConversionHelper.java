@@ -16,19 +16,28 @@
 
 package com.blackbear.flatworm.converters;
 
+import com.blackbear.flatworm.CharSlice;
+import com.blackbear.flatworm.PropertyAccessor;
 import com.blackbear.flatworm.Util;
 import com.blackbear.flatworm.config.ConversionOptionBO;
 import com.blackbear.flatworm.config.ConverterBO;
+import com.blackbear.flatworm.errors.FieldParseException;
 import com.blackbear.flatworm.errors.FlatwormParserException;
 
 import org.apache.commons.beanutils.PropertyUtils;
 
-import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -47,9 +56,11 @@ public class ConversionHelper {
 
     public ConversionHelper() {
         converters = new HashMap<>();
-        converterMethodCache = new HashMap<>();
-        converterToStringMethodCache = new HashMap<>();
-        converterObjectCache = new HashMap<>();
+
+        // The caches are populated lazily while parsing, which may happen on several threads when a FileFormat is shared.
+        converterMethodCache = new ConcurrentHashMap<>();
+        converterToStringMethodCache = new ConcurrentHashMap<>();
+        converterObjectCache = new ConcurrentHashMap<>();
     }
 
     /**
@@ -64,6 +75,22 @@ public class ConversionHelper {
      */
     public Object convert(String converterName, String fieldChars, Map<String, ConversionOptionBO> options, String beanRef)
             throws FlatwormParserException {
+        return convert(converterName, (CharSequence) fieldChars, options, beanRef);
+    }
+
+    /**
+     * Attempt to convert the given {@code fieldChars} to an instance of a {@link Object}. Should the converter method accept a {@link
+     * CharSequence} then the {@code fieldChars} are passed as is, otherwise they are turned into a {@link String} first.
+     *
+     * @param converterName The name of the converter from the xml configuration file.
+     * @param fieldChars    The value of the field as read from the input file.
+     * @param options       Map of ConversionOptions (if any) for this field.
+     * @param beanRef       "class.property", used for more descriptive exception messages, should something go wrong.
+     * @return The {@link Object} constructed from the {@code fieldChars} value.
+     * @throws FlatwormParserException should parsing the value to a {@link Object} fail for any reason.
+     */
+    public Object convert(String converterName, CharSequence fieldChars, Map<String, ConversionOptionBO> options, String beanRef)
+            throws FlatwormParserException {
 
         Object value;
 
@@ -71,18 +98,44 @@ public class ConversionHelper {
             Object object = getConverterObject(converterName);
             Method method = getConverterMethod(converterName);
 
-            fieldChars = transformString(fieldChars, options, 0);
+            fieldChars = transform(fieldChars, options);
 
-            Object[] args = {fieldChars, options};
+            Object[] args = {method.getParameterTypes()[0] == CharSequence.class ? fieldChars : fieldChars.toString(), options};
             value = method.invoke(object, args);
         } catch (Exception e) {
-            log.error("While running convert method for " + beanRef, e);
-            throw new FlatwormParserException("Converting field " + beanRef + " with value '"
-                    + fieldChars + "'");
+            throw FieldParseException.forField(e, beanRef, fieldChars);
         }
         return value;
     }
 
+    /**
+     * Compile the conversion of a field that uses a configured converter, resolving the converter and pre-parsing the {@code options} so
+     * that none of that work needs to be repeated for each value that is converted.
+     *
+     * @param converterName The name of the converter from the xml configuration file.
+     * @param options       Map of ConversionOptions (if any) for this field.
+     * @param beanRef       "class.property", used for more descriptive exception messages, should something go wrong.
+     * @return the {@link FieldConversion} or {@code null} if the converter or the options couldn't be resolved - {@link #convert(String,
+     * CharSequence, Map, String)} should then be used so that the problem is reported when the field is parsed.
+     */
+    public FieldConversion compile(String converterName, Map<String, ConversionOptionBO> options, String beanRef) {
+        FieldConversion conversion = null;
+        try {
+            Method method = getConverterMethod(converterName);
+            Object object = Modifier.isStatic(method.getModifiers()) ? null : getConverterObject(converterName);
+            conversion = FieldConversion.compile(bindConverterFunction(object, method), options, beanRef);
+            if (conversion != null && object instanceof CoreConverters && method.getDeclaringClass() == CoreConverters.class) {
+                Object primitiveFunction = getPrimitiveFunction(CoreConverters.class.cast(object), method.getName());
+                if (primitiveFunction != null) {
+                    conversion = conversion.withPrimitiveFunction(primitiveFunction);
+                }
+            }
+        } catch (Throwable e) {
+            log.debug("Unable to compile the conversion of {} - the converter will be invoked reflectively.", beanRef, e);
+        }
+        return conversion;
+    }
+
     /**
      * Use an alternate method that attempts to use reflection to figure out which conversion routine to use.
      *
@@ -96,13 +149,32 @@ public class ConversionHelper {
      */
     public Object convert(Object bean, String beanName, String propertyName, String fieldChars, Map<String, ConversionOptionBO> options)
             throws FlatwormParserException {
+        return convert(bean, beanName, propertyName, (CharSequence) fieldChars, options);
+    }
+
+    /**
+     * Use an alternate method that attempts to use reflection to figure out which conversion routine to use. The {@code fieldChars} are
+     * only turned into a {@link String} if the converter requires it.
+     *
+     * @param bean         The {@link Object} that contains the property.
+     * @param beanName     The name of the bean as configured.
+     * @param propertyName The name of the property that is to be set.
+     * @param fieldChars   The value.
+     * @param options      The {@link ConversionOptionBO}s.
+     * @return The {@link Object} constructed from the {@code fieldChars} value.
+     * @throws FlatwormParserException should parsing the value to a {@link Object} fail for any reason.
+     */
+    public Object convert(Object bean, String beanName, String propertyName, CharSequence fieldChars,
+                          Map<String, ConversionOptionBO> options) throws FlatwormParserException {
         Object value;
         try {
-            PropertyDescriptor propDescriptor = PropertyUtils.getPropertyDescriptor(bean, propertyName);
-            value = ConverterFunctionCache.convertFromString(propDescriptor.getPropertyType(), fieldChars, options);
+            PropertyAccessor accessor = PropertyAccessor.forProperty(bean.getClass(), propertyName);
+            Class<?> propertyType = accessor != null
+                    ? accessor.getPropertyType()
+                    : PropertyUtils.getPropertyDescriptor(bean, propertyName).getPropertyType();
+            value = ConverterFunctionCache.convertFromCharSequence(propertyType, fieldChars, options);
         } catch (Exception e) {
-            throw new FlatwormParserException(String.format("Failed to convert and set value '%s' on bean %s [%s] for property %s.",
-                    fieldChars, beanName, bean.getClass().getName(), propertyName), e);
+            throw FieldParseException.forField(e, beanName + "." + propertyName, fieldChars);
         }
         return value;
     }
@@ -182,6 +254,39 @@ public class ConversionHelper {
         return fieldChars;
     }
 
+    /**
+     * Apply the conversion options to a field value that is being read. When the value is a {@link CharSlice} and the only option that
+     * changes the value is {@code justify}, the padding is removed by narrowing the slice - otherwise this is the same as {@link
+     * #transformString(String, Map, int)}.
+     *
+     * @param fieldChars The value to be transformed.
+     * @param options    Collection of ConversionOptionBO objects.
+     * @return The transformed value.
+     */
+    public CharSequence transform(CharSequence fieldChars, Map<String, ConversionOptionBO> options) {
+        if (options.isEmpty()) {
+            return fieldChars;
+        }
+
+        CharSequence result;
+        if (fieldChars instanceof CharSlice && !options.containsKey("strip-chars") && !options.containsKey("substring")
+                && !options.containsKey("default-value")) {
+            CharSlice slice = CharSlice.class.cast(fieldChars);
+            ConversionOptionBO justify = options.get("justify");
+            if (justify != null) {
+                String value = justify.getValue() == null ? "both" : justify.getValue();
+                String padCharacters = Util.getValue(options, "pad-character");
+                boolean both = value.equalsIgnoreCase("both");
+                slice.strip(padCharacters == null ? " " : padCharacters, both || value.equalsIgnoreCase("left"),
+                        both || value.equalsIgnoreCase("right"));
+            }
+            result = slice;
+        } else {
+            result = transformString(fieldChars.toString(), options, 0);
+        }
+        return result;
+    }
+
     /**
      * Facilitates the storage of multiple converters used by the {@code convert} method during processing.
      *
@@ -221,8 +326,13 @@ public class ConversionHelper {
                 return converterMethodCache.get(c);
             Method meth;
             Class<?> cl = Class.forName(c.getConverterClass());
-            Class args[] = {String.class, Map.class};
-            meth = cl.getMethod(c.getMethod(), args);
+            try {
+                // Prefer converters that can work directly from the field's characters.
+                meth = cl.getMethod(c.getMethod(), CharSequence.class, Map.class);
+            } catch (NoSuchMethodException e) {
+                Class args[] = {String.class, Map.class};
+                meth = cl.getMethod(c.getMethod(), args);
+            }
             converterMethodCache.put(c, meth);
             return meth;
         } catch (NoSuchMethodException e) {
@@ -234,6 +344,93 @@ public class ConversionHelper {
         }
     }
 
+    /**
+     * Get the unboxed equivalent of one of the numeric {@link CoreConverters}.
+     *
+     * @param coreConverters The {@link CoreConverters} instance.
+     * @param methodName     The name of the converter method.
+     * @return the {@link IntConverterFunction}, {@link LongConverterFunction} or {@link DoubleConverterFunction} or {@code null} if the
+     * converter has no unboxed equivalent.
+     */
+    private static Object getPrimitiveFunction(CoreConverters coreConverters, String methodName) {
+        Object primitiveFunction = null;
+        switch (methodName) {
+            case "convertInteger":
+                primitiveFunction = (IntConverterFunction) coreConverters::parseInteger;
+                break;
+            case "convertLong":
+                primitiveFunction = (LongConverterFunction) coreConverters::parseLong;
+                break;
+            case "convertDouble":
+                primitiveFunction = (DoubleConverterFunction) coreConverters::parseDouble;
+                break;
+            default:
+                break;
+        }
+        return primitiveFunction;
+    }
+
+    /**
+     * Bind the converter method to a {@link ToTypeConverterFunction} (or a {@link CharSequenceConverterFunction} should the method accept a
+     * {@link CharSequence}). The function is generated through {@link LambdaMetafactory} when the converter is public and visible to
+     * Flatworm's class loader, otherwise a {@link MethodHandle} is used.
+     *
+     * @param object The converter instance or {@code null} if the method is static.
+     * @param method The converter method, which accepts a {@link String} or {@link CharSequence} and a {@link Map} of options.
+     * @return the bound function.
+     * @throws Throwable should the method not be bindable.
+     */
+    private static ToTypeConverterFunction bindConverterFunction(Object object, Method method) throws Throwable {
+        boolean charSequence = method.getParameterTypes()[0] == CharSequence.class;
+        Class<?> functionType = charSequence ? CharSequenceConverterFunction.class : ToTypeConverterFunction.class;
+        MethodType functionMethodType = MethodType.methodType(Object.class, method.getParameterTypes()[0], Map.class);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        if (canGenerate(method)) {
+            MethodHandle handle = lookup.unreflect(method);
+            MethodType factoryType = object == null
+                    ? MethodType.methodType(functionType)
+                    : MethodType.methodType(functionType, method.getDeclaringClass());
+            CallSite site = LambdaMetafactory.metafactory(lookup, "convert", factoryType, functionMethodType, handle, functionMethodType);
+            return (ToTypeConverterFunction) (object == null ? site.getTarget().invoke() : site.getTarget().invoke(object));
+        }
+
+        method.setAccessible(true);
+        MethodHandle handle = lookup.unreflect(method);
+        MethodHandle bound = (object == null ? handle : handle.bindTo(object)).asType(functionMethodType);
+        if (charSequence) {
+            return (CharSequenceConverterFunction) (value, options) -> invokeConverter(bound, value, options);
+        }
+        return (value, options) -> invokeConverter(bound, value, options);
+    }
+
+    private static Object invokeConverter(MethodHandle handle, CharSequence value, Map<String, ConversionOptionBO> options)
+            throws Exception {
+        try {
+            return handle.invoke(value, options);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The generated class is defined alongside this class, so it must be able to see and access the converter class and method.
+     */
+    private static boolean canGenerate(Method method) {
+        Class<?> converterClass = method.getDeclaringClass();
+        boolean accessible = Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(converterClass.getModifiers());
+        if (accessible) {
+            try {
+                accessible = Class.forName(converterClass.getName(), false, ConversionHelper.class.getClassLoader()) == converterClass;
+            } catch (ClassNotFoundException e) {
+                accessible = false;
+            }
+        }
+        return accessible;
+    }
+
     /**
      * Get the method that is reponsible for transorming an {@link Object} to a {@link String}.
      *
@@ -20,11 +20,12 @@ import com.blackbear.flatworm.config.ConversionOptionBO;
 import com.blackbear.flatworm.config.RecordBO;
 
 import java.math.BigDecimal;
-import java.util.Collection;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 
 /**
  * Goes above and beyond the {@link ConversionHelper} by providing a singleton like experience where multiple converter methods can be
@@ -36,8 +37,8 @@ import java.util.Optional;
  */
 public class ConverterFunctionCache {
 
-    private static Map<String, ToTypeConverterFunction> toTypeConverterFunctionCache = new HashMap<>();
-    private static Map<String, FromTypeConverterFunction> fromTypeConverterFunctionCache = new HashMap<>();
+    private static final ConverterRegistry<ToTypeConverterFunction> toTypeConverterFunctionCache = new ConverterRegistry<>();
+    private static final ConverterRegistry<FromTypeConverterFunction> fromTypeConverterFunctionCache = new ConverterRegistry<>();
 
     private static CoreConverters coreConverters = new CoreConverters();
 
@@ -46,12 +47,19 @@ public class ConverterFunctionCache {
 
     static {
         registerToTypeConverterFunction(String.class, coreConverters::convertChar);
-        registerToTypeConverterFunction(Double.class, coreConverters::convertDouble);
-        registerToTypeConverterFunction(BigDecimal.class, coreConverters::convertBigDecimal);
+        registerToTypeConverterFunction(Double.class, (CharSequenceConverterFunction) coreConverters::convertDouble);
+        registerToTypeConverterFunction(double.class, (CharSequenceConverterFunction) coreConverters::convertDouble);
+        registerToTypeConverterFunction(BigDecimal.class, (CharSequenceConverterFunction) coreConverters::convertBigDecimal);
         registerToTypeConverterFunction(Float.class, coreConverters::convertFloat);
-        registerToTypeConverterFunction(Long.class, coreConverters::convertLong);
-        registerToTypeConverterFunction(Integer.class, coreConverters::convertInteger);
+        registerToTypeConverterFunction(Long.class, (CharSequenceConverterFunction) coreConverters::convertLong);
+        registerToTypeConverterFunction(long.class, (CharSequenceConverterFunction) coreConverters::convertLong);
+        registerToTypeConverterFunction(Integer.class, (CharSequenceConverterFunction) coreConverters::convertInteger);
+        registerToTypeConverterFunction(int.class, (CharSequenceConverterFunction) coreConverters::convertInteger);
         registerToTypeConverterFunction(Date.class, coreConverters::convertDate);
+        registerToTypeConverterFunction(LocalDate.class, (CharSequenceConverterFunction) coreConverters::convertLocalDate);
+        registerToTypeConverterFunction(LocalDateTime.class, (CharSequenceConverterFunction) coreConverters::convertLocalDateTime);
+        registerToTypeConverterFunction(LocalTime.class, (CharSequenceConverterFunction) coreConverters::convertLocalTime);
+        registerToTypeConverterFunction(Instant.class, (CharSequenceConverterFunction) coreConverters::convertInstant);
 
         registerFromTypeConverterFunction(String.class, coreConverters::convertChar);
         registerFromTypeConverterFunction(Double.class, coreConverters::convertDouble);
@@ -60,6 +68,10 @@ public class ConverterFunctionCache {
         registerFromTypeConverterFunction(Long.class, coreConverters::convertLong);
         registerFromTypeConverterFunction(Integer.class, coreConverters::convertInteger);
         registerFromTypeConverterFunction(Date.class, coreConverters::convertDate);
+        registerFromTypeConverterFunction(LocalDate.class, coreConverters::convertLocalDate);
+        registerFromTypeConverterFunction(LocalDateTime.class, coreConverters::convertLocalDateTime);
+        registerFromTypeConverterFunction(LocalTime.class, coreConverters::convertLocalTime);
+        registerFromTypeConverterFunction(Instant.class, coreConverters::convertInstant);
     }
 
     /**
@@ -79,6 +91,27 @@ public class ConverterFunctionCache {
         return result;
     }
 
+    /**
+     * Attempt to perform a conversion from a {@link CharSequence} to a designated {@link Object} instance. The {@code value} is only turned
+     * into a {@link String} if the converter found isn't a {@link CharSequenceConverterFunction}.
+     * @param clazz The class of the {@link Object} instance that the value is ultimately to be converted to.
+     * @param value The value that is to be converted.
+     * @param options Any options that are to be handed to the converter.
+     * @return The {@link Object} instance created from the {@code value} if the conversion was successful and {@code null} if not.
+     * @throws Exception Should the conversion process have unexpected issues.
+     */
+    public static Object convertFromCharSequence(Class<?> clazz, CharSequence value, Map<String, ConversionOptionBO> options)
+            throws Exception {
+        Object result = null;
+        ToTypeConverterFunction function = findToTypeConverter(clazz);
+        if (function instanceof CharSequenceConverterFunction) {
+            result = CharSequenceConverterFunction.class.cast(function).convert(value, options);
+        } else if (function != null) {
+            result = function.convert(value.toString(), options);
+        }
+        return result;
+    }
+
     /**
      * Attempt to perform a conversion from a {@link Object} instance to a {@link String}.
      * @param value The value that is to be converted to a {@link String} - it's class will drive the lookup.
@@ -102,7 +135,7 @@ public class ConverterFunctionCache {
      * @param function The {@link ToTypeConverterFunction} function to register.
      */
     public static void registerToTypeConverterFunction(Class<?> clazz, ToTypeConverterFunction function) {
-        toTypeConverterFunctionCache.put(clazz.getName(), function);
+        toTypeConverterFunctionCache.register(clazz, function);
     }
 
     /**
@@ -111,7 +144,7 @@ public class ConverterFunctionCache {
      * @return the {@link ToTypeConverterFunction} instance removed from cache if found and {@code null} if not.
      */
     public static ToTypeConverterFunction removeToTypeConverterFunction(Class<?> clazz) {
-        return toTypeConverterFunctionCache.remove(clazz.getName());
+        return toTypeConverterFunctionCache.remove(clazz);
     }
 
     /**
@@ -121,7 +154,7 @@ public class ConverterFunctionCache {
      * @param function The {@link FromTypeConverterFunction} function to register.
      */
     public static void registerFromTypeConverterFunction(Class<?> clazz, FromTypeConverterFunction function) {
-        fromTypeConverterFunctionCache.put(clazz.getName(), function);
+        fromTypeConverterFunctionCache.register(clazz, function);
     }
 
     /**
@@ -130,86 +163,34 @@ public class ConverterFunctionCache {
      * @return the {@link FromTypeConverterFunction} instance removed from cache if found and {@code null} if not.
      */
     public static FromTypeConverterFunction removeFromTypeConverterFunction(Class<?> clazz) {
-        return fromTypeConverterFunctionCache.remove(clazz.getName());
+        return fromTypeConverterFunctionCache.remove(clazz);
     }
 
     /**
      * Attempt to find a converter from a {@link String} to a {@link Object} instance based
-     * upon the {@code clazz} converterName. This will look for an exact match by class name and it will
-     * then look for anything that {@code clazz} inherits from to see if that converter would work.
+     * upon the {@code clazz} converterName. This will look for an exact match and it will
+     * then look for the nearest superclass and then interface of {@code clazz} to see if that converter would work.
      * The best way to avoid having the wrong converter chosen is to have specific converters
-     * for subtypes when the converter for the parent converterName won't work.
+     * for subtypes when the converter for the parent converterName won't work. The result (including
+     * the absence of a converter) is cached per class until a converter is registered or removed.
      * @param clazz The {@link Class} to find the converter for.
      * @return The {@link ToTypeConverterFunction} function if found by the {@code clazz} or {@code null}.
      */
     public static ToTypeConverterFunction findToTypeConverter(Class<?> clazz) {
-        ToTypeConverterFunction result = null;
-
-        Optional<String> match = findKey(clazz, toTypeConverterFunctionCache.keySet());
-        if (match.isPresent()) {
-            result = toTypeConverterFunctionCache.get(match.get());
-        }
-
-        return result;
+        return toTypeConverterFunctionCache.find(clazz);
     }
 
     /**
      * Attempt to find a converter from an instance of an {@link Object} to a {@link String} based
-     * upon the {@code clazz} converterName. This will look for an exact match by class name and it will
-     * then look for anything that {@code clazz} inherits from to see if that converter would work.
+     * upon the {@code clazz} converterName. This will look for an exact match and it will
+     * then look for the nearest superclass and then interface of {@code clazz} to see if that converter would work.
      * The best way to avoid having the wrong converter chosen is to have specific converters
-     * for subtypes when the converter for the parent converterName won't work.
+     * for subtypes when the converter for the parent converterName won't work. The result (including
+     * the absence of a converter) is cached per class until a converter is registered or removed.
      * @param clazz The {@link Class} to find the converter for.
      * @return The {@link FromTypeConverterFunction} function if found by the {@code clazz} or {@code null}.
      */
     public static FromTypeConverterFunction findFromTypeConverter(Class<?> clazz) {
-        FromTypeConverterFunction result = null;
-
-        Optional<String> match = findKey(clazz, fromTypeConverterFunctionCache.keySet());
-        if (match.isPresent()) {
-            result = fromTypeConverterFunctionCache.get(match.get());
-        }
-        return result;
-    }
-
-    /**
-     * See if the given clazz name is in the given {@code keys} collection by direct match and then
-     * by seeing if it represents a subclass of a class that is in the keys collection.
-     * @param clazz The Class to search by.
-     * @param keys The collection of class names that are keys.
-     * @return an {@link Optional} instance that contains the result of the search.
-     */
-    private static Optional<String> findKey(Class<?> clazz, Collection<String> keys) {
-        Optional<String> match = keys
-                .stream()
-                .filter(entry -> entry.equals(clazz.getName()))
-                .findFirst();
-
-        // Try a heavier approach.
-        if (!match.isPresent()) {
-            match = keys.stream()
-                    .map(ConverterFunctionCache::loadClass)
-                    .filter(entry -> entry != null && entry.isAssignableFrom(clazz))
-                    .map(Class::getName)
-                    .findFirst();
-        }
-        return match;
-    }
-
-    /**
-     * Attempt to load a class into memory by name and fail silently if unable to do so.
-     * @param name The name of the class to attempt to load.
-     * @return The loaded class or {@code null} if the class could not be found or failed to load.
-     */
-    private static Class<?> loadClass(String name) {
-        Class<?> clazz = null;
-        try {
-            clazz = Class.forName(name);
-        } catch (Exception e) {
-            // Eating this as it technically shouldn't happen since we used the Class
-            // to create the key (generated hot-swapping might create a weird condition so
-            // eating to be safe).
-        }
-        return clazz;
+        return fromTypeConverterFunctionCache.find(clazz);
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.converters;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-safe registry of converter functions keyed by the {@link Class} they support, used by the {@link ConverterFunctionCache}.
+ * Registrations are held in an immutable snapshot that is replaced whenever a function is registered or removed. The function found for
+ * each class - including the absence of one - is memoized in a {@link ClassValue} alongside the snapshot it was resolved against, so a
+ * lookup costs a {@link ClassValue} read and a reference comparison until the registrations change, at which point it is resolved again.
+ *
+ * @param <F> The type of converter function.
+ * @author Alan Henson
+ */
+final class ConverterRegistry<F> {
+
+    private volatile Map<Class<?>, F> functions = Collections.emptyMap();
+
+    private final ClassValue<AtomicReference<Resolution<F>>> resolutions = new ClassValue<AtomicReference<Resolution<F>>>() {
+        @Override
+        protected AtomicReference<Resolution<F>> computeValue(Class<?> type) {
+            return new AtomicReference<>();
+        }
+    };
+
+    /**
+     * Register a function, replacing any function that was previously registered for the same class.
+     *
+     * @param clazz    The class.
+     * @param function The function.
+     */
+    synchronized void register(Class<?> clazz, F function) {
+        Map<Class<?>, F> updated = new HashMap<>(functions);
+        updated.put(clazz, function);
+        functions = Collections.unmodifiableMap(updated);
+    }
+
+    /**
+     * Remove the function registered for the given class.
+     *
+     * @param clazz The class.
+     * @return the function that was removed or {@code null} if none was registered.
+     */
+    synchronized F remove(Class<?> clazz) {
+        F removed = null;
+        if (functions.containsKey(clazz)) {
+            Map<Class<?>, F> updated = new HashMap<>(functions);
+            removed = updated.remove(clazz);
+            functions = Collections.unmodifiableMap(updated);
+        }
+        return removed;
+    }
+
+    /**
+     * Find the function for the given class - see {@link #resolve(Class, Map)} for the order in which candidates are considered.
+     *
+     * @param clazz The class.
+     * @return the function or {@code null} if no function supports the class.
+     */
+    F find(Class<?> clazz) {
+        Map<Class<?>, F> snapshot = functions;
+        AtomicReference<Resolution<F>> reference = resolutions.get(clazz);
+        Resolution<F> resolution = reference.get();
+        if (resolution == null || resolution.functions != snapshot) {
+            resolution = new Resolution<>(snapshot, resolve(clazz, snapshot));
+            reference.set(resolution);
+        }
+        return resolution.function;
+    }
+
+    /**
+     * An exact match wins, followed by the nearest superclass and then the interfaces (breadth first, starting with those of {@code clazz}
+     * itself). Interfaces and arrays are also matched by a function registered for {@link Object}.
+     */
+    private static <F> F resolve(Class<?> clazz, Map<Class<?>, F> functions) {
+        if (functions.isEmpty()) {
+            return null;
+        }
+
+        for (Class<?> type = clazz; type != null; type = type.getSuperclass()) {
+            F function = functions.get(type);
+            if (function != null) {
+                return function;
+            }
+        }
+
+        Deque<Class<?>> interfaces = new ArrayDeque<>();
+        Set<Class<?>> visited = new HashSet<>();
+        for (Class<?> type = clazz; type != null; type = type.getSuperclass()) {
+            Collections.addAll(interfaces, type.getInterfaces());
+        }
+        while (!interfaces.isEmpty()) {
+            Class<?> type = interfaces.poll();
+            if (visited.add(type)) {
+                F function = functions.get(type);
+                if (function != null) {
+                    return function;
+                }
+                Collections.addAll(interfaces, type.getInterfaces());
+            }
+        }
+
+        return clazz.isPrimitive() ? null : functions.get(Object.class);
+    }
+
+    private static final class Resolution<F> {
+        private final Map<Class<?>, F> functions;
+        private final F function;
+
+        Resolution(Map<Class<?>, F> functions, F function) {
+            this.functions = functions;
+            this.function = function;
+        }
+    }
+}
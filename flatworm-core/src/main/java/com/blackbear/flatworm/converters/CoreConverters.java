@@ -18,16 +18,25 @@ package com.blackbear.flatworm.converters;
 
 import com.blackbear.flatworm.Util;
 import com.blackbear.flatworm.config.ConversionOptionBO;
+import com.blackbear.flatworm.errors.FieldParseException;
 import com.blackbear.flatworm.errors.FlatwormParserException;
 
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
-import java.text.ParseException;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQuery;
 import java.util.Date;
 import java.util.Map;
 
-import lombok.extern.slf4j.Slf4j;
 
 /**
  * {@code CoreConverters} contains methods to convert the most commonly encountered text types to native Java types. It can be used as the
@@ -46,7 +55,6 @@ import lombok.extern.slf4j.Slf4j;
  * @author James M. Turner
  * @version $Id: CoreConverters.java,v 1.8 2009/12/07 00:50:53 dderry Exp $
  */
-@Slf4j
 public class CoreConverters {
 
     /**
@@ -62,6 +70,18 @@ public class CoreConverters {
         return str;
     }
 
+    /**
+     * Conversion function for {@code String} that works directly from the characters of the field - this is the only point at which a
+     * {@link String} is created for the field.
+     *
+     * @param value   The source characters
+     * @param options The conversion-option values for the field
+     * @return The characters as a string
+     */
+    public String convertChar(CharSequence value, Map<String, ConversionOptionBO> options) {
+        return value.toString();
+    }
+
     /**
      * Object to String conversion function.
      *
@@ -85,20 +105,22 @@ public class CoreConverters {
      */
     public Date convertDate(String str, Map<String, ConversionOptionBO> options)
             throws FlatwormParserException {
-        try {
-            String format = Util.getValue(options, "format");
+        String format = Util.getValue(options, "format");
 
-            SimpleDateFormat sdf;
-            if (str.length() == 0)
-                return null;
-            if (format == null)
-                format = "yyyy-MM-dd";
-            sdf = new SimpleDateFormat(format);
-            return sdf.parse(str);
-        } catch (ParseException ex) {
-            log.error("Failed to parse date", ex);
-            throw new FlatwormParserException(str);
+        SimpleDateFormat sdf;
+        if (str.length() == 0)
+            return null;
+        if (format == null)
+            format = "yyyy-MM-dd";
+        sdf = FormatterCache.getSimpleDateFormat(format);
+
+        // Parsing from a position reports a bad value through the position rather than by creating a ParseException.
+        ParsePosition position = new ParsePosition(0);
+        Date date = sdf.parse(str, position);
+        if (position.getIndex() == 0) {
+            throw new FieldParseException("Failed to parse date", str);
         }
+        return date;
     }
 
     /**
@@ -115,7 +137,7 @@ public class CoreConverters {
             return null;
         if (format == null)
             format = "yyyy-MM-dd";
-        SimpleDateFormat sdf = new SimpleDateFormat(format);
+        SimpleDateFormat sdf = FormatterCache.getSimpleDateFormat(format);
         return sdf.format(date);
     }
 
@@ -135,6 +157,34 @@ public class CoreConverters {
      *                                 integer value.
      */
     public Double convertDouble(String str, Map<String, ConversionOptionBO> options) throws FlatwormParserException {
+        return convertDouble((CharSequence) str, options);
+    }
+
+    /**
+     * Conversion function for {@code Double} that works directly from the characters of the field - see {@link #convertDouble(String,
+     * Map)} for the options supported.
+     *
+     * @param value   The source characters
+     * @param options The conversion-option values for the field
+     * @return The converted double value
+     * @throws FlatwormParserException If the source number fails to parse as a double or the decimal places option fails to parse as an
+     *                                 integer value.
+     */
+    public Double convertDouble(CharSequence value, Map<String, ConversionOptionBO> options) throws FlatwormParserException {
+        return parseDouble(value, options);
+    }
+
+    /**
+     * Conversion function for {@code double} properties - see {@link #convertDouble(String, Map)} for the options supported. Plain decimal
+     * values are parsed without creating a {@link String}.
+     *
+     * @param value   The source characters
+     * @param options The conversion-option values for the field
+     * @return The converted double value
+     * @throws FlatwormParserException If the source number fails to parse as a double or the decimal places option fails to parse as an
+     *                                 integer value.
+     */
+    public double parseDouble(CharSequence value, Map<String, ConversionOptionBO> options) throws FlatwormParserException {
         try {
             int decimalPlaces = 0;
             ConversionOptionBO conv = options.get("decimal-places");
@@ -148,17 +198,21 @@ public class CoreConverters {
             if (decimalPlacesOption != null)
                 decimalPlaces = Integer.parseInt(decimalPlacesOption);
 
-            if (str.length() == 0)
+            if (value.length() == 0)
                 return 0.0D;
 
-            if (decimalImplied)
-                return Double.parseDouble(str) / Math.pow(10D, decimalPlaces);
-            else
-                return Double.valueOf(str);
-
+            double result = NumericParser.parseDouble(value, decimalImplied ? decimalPlaces : 0);
+            if (Double.isNaN(result)) {
+                // Not a plain decimal (or too precise to compute exactly) - leave it to the JDK.
+                if (!NumericParser.isFloatingPointLiteral(value)) {
+                    throw new FieldParseException("Failed to parse double value", value.toString());
+                }
+                String str = value.toString();
+                result = decimalImplied ? Double.parseDouble(str) / Math.pow(10D, decimalPlaces) : Double.parseDouble(str);
+            }
+            return result;
         } catch (NumberFormatException ex) {
-            log.error("Failed to parse double value", ex);
-            throw new FlatwormParserException(str);
+            throw new FieldParseException("Failed to parse double value", null, value.toString(), ex);
         }
     }
 
@@ -192,15 +246,9 @@ public class CoreConverters {
         if (decimalPlacesOption != null)
             decimalPlaces = Integer.parseInt(decimalPlacesOption);
 
-        DecimalFormat format = new DecimalFormat();
-        format.setDecimalSeparatorAlwaysShown(!decimalImplied);
-        format.setGroupingUsed(false);
+        DecimalFormat format = FormatterCache.getDecimalFormat(decimalPlaces, decimalImplied);
         if (decimalImplied) {
-            format.setMaximumFractionDigits(0);
             d = d * Math.pow(10D, decimalPlaces);
-        } else {
-            format.setMinimumFractionDigits(decimalPlaces);
-            format.setMaximumFractionDigits(decimalPlaces);
         }
         return format.format(d);
     }
@@ -237,14 +285,16 @@ public class CoreConverters {
             if (str.length() == 0)
                 return 0.0F;
 
+            if (!NumericParser.isFloatingPointLiteral(str))
+                throw new FieldParseException("Failed to parse float value", str);
+
             if (decimalImplied)
                 return Float.parseFloat(str) / (float) Math.pow(10F, decimalPlaces);
             else
                 return Float.parseFloat(str);
 
         } catch (NumberFormatException ex) {
-            log.error("Failed to parse float value", ex);
-            throw new FlatwormParserException(str);
+            throw new FieldParseException("Failed to parse float value", null, str, ex);
         }
     }
 
@@ -278,15 +328,9 @@ public class CoreConverters {
         if (decimalPlacesOption != null)
             decimalPlaces = Integer.parseInt(decimalPlacesOption);
 
-        DecimalFormat format = new DecimalFormat();
-        format.setDecimalSeparatorAlwaysShown(!decimalImplied);
-        format.setGroupingUsed(false);
+        DecimalFormat format = FormatterCache.getDecimalFormat(decimalPlaces, decimalImplied);
         if (decimalImplied) {
-            format.setMaximumFractionDigits(0);
             f = f * (float) Math.pow(10D, decimalPlaces);
-        } else {
-            format.setMinimumFractionDigits(decimalPlaces);
-            format.setMaximumFractionDigits(decimalPlaces);
         }
         return format.format(f);
     }
@@ -301,15 +345,35 @@ public class CoreConverters {
      */
     public Integer convertInteger(String str, Map<String, ConversionOptionBO> options)
             throws FlatwormParserException {
+        return convertInteger((CharSequence) str, options);
+    }
+
+    /**
+     * Conversion function for {@code Integer} that works directly from the characters of the field.
+     *
+     * @param value   The source characters
+     * @param options The conversion-option values for the field
+     * @return The converted integer value
+     * @throws FlatwormParserException If the source number fails to parse as an integer value.
+     */
+    public Integer convertInteger(CharSequence value, Map<String, ConversionOptionBO> options) throws FlatwormParserException {
+        return parseInteger(value, options);
+    }
+
+    /**
+     * Conversion function for {@code int} properties, which parses the characters of the field without creating a {@link String}. Leading
+     * and trailing spaces are ignored.
+     *
+     * @param value   The source characters
+     * @param options The conversion-option values for the field
+     * @return The converted integer value
+     * @throws FlatwormParserException If the source number fails to parse as an integer value.
+     */
+    public int parseInteger(CharSequence value, Map<String, ConversionOptionBO> options) throws FlatwormParserException {
         try {
-            if (str.length() == 0) {
-                return 0;
-            } else {
-                return Integer.valueOf(str);
-            }
+            return value.length() == 0 ? 0 : NumericParser.parseInt(value);
         } catch (NumberFormatException ex) {
-            log.error("Failed to parse Integer", ex);
-            throw new FlatwormParserException(str);
+            throw new FieldParseException("Failed to parse Integer", null, value.toString(), ex);
         }
     }
 
@@ -338,15 +402,35 @@ public class CoreConverters {
      */
     public Long convertLong(String str, Map<String, ConversionOptionBO> options)
             throws FlatwormParserException {
+        return convertLong((CharSequence) str, options);
+    }
+
+    /**
+     * Conversion function for {@code Long} that works directly from the characters of the field.
+     *
+     * @param value   The source characters
+     * @param options The conversion-option values for the field
+     * @return The converted long value
+     * @throws FlatwormParserException If the source number fails to parse as an long value.
+     */
+    public Long convertLong(CharSequence value, Map<String, ConversionOptionBO> options) throws FlatwormParserException {
+        return parseLong(value, options);
+    }
+
+    /**
+     * Conversion function for {@code long} properties, which parses the characters of the field without creating a {@link String}. Leading
+     * and trailing spaces are ignored.
+     *
+     * @param value   The source characters
+     * @param options The conversion-option values for the field
+     * @return The converted long value
+     * @throws FlatwormParserException If the source number fails to parse as an long value.
+     */
+    public long parseLong(CharSequence value, Map<String, ConversionOptionBO> options) throws FlatwormParserException {
         try {
-            if (str.length() == 0) {
-                return 0L;
-            } else {
-                return Long.valueOf(str);
-            }
+            return value.length() == 0 ? 0L : NumericParser.parseLong(value);
         } catch (NumberFormatException ex) {
-            log.error("Failed to parse Long", ex);
-            throw new FlatwormParserException(str);
+            throw new FieldParseException("Failed to parse Long", null, value.toString(), ex);
         }
     }
 
@@ -382,24 +466,51 @@ public class CoreConverters {
      */
     public BigDecimal convertBigDecimal(String str, Map<String, ConversionOptionBO> options)
             throws FlatwormParserException {
+        return convertBigDecimal((CharSequence) str, options);
+    }
+
+    /**
+     * Conversion function for {@code BigDecimal} that works directly from the characters of the field - see {@link
+     * #convertBigDecimal(String, Map)} for the options supported. Values are converted exactly, with the implied decimal places becoming
+     * part of the scale of the result - plain decimal values (of up to 18 significant digits) without creating a {@link String}.
+     *
+     * @param value   The source characters.
+     * @param options The conversion-option values for the field.
+     * @return The converted big decimal value.
+     * @throws FlatwormParserException If the source number fails to parse as a big decimal or the decimal places option fails to parse as
+     *                                 an integer value.
+     */
+    public BigDecimal convertBigDecimal(CharSequence value, Map<String, ConversionOptionBO> options) throws FlatwormParserException {
         try {
             int decimalPlaces = 0;
-            String decimalPlacesOption = (String) Util.getValue(options, "decimal-places");
+            String decimalPlacesOption = Util.getValue(options, "decimal-places");
             boolean decimalImplied = "true".equals(Util.getValue(options, "decimal-implied"));
 
             if (decimalPlacesOption != null)
                 decimalPlaces = Integer.parseInt(decimalPlacesOption);
 
-            if (str.length() == 0)
-                return new BigDecimal(0.0D);
-
-            if (decimalImplied)
-                return new BigDecimal(Double.parseDouble(str) / Math.pow(10D, decimalPlaces));
-            else
-                return new BigDecimal(Double.parseDouble(str));
+            if (value.length() == 0)
+                return BigDecimal.ZERO;
+
+            BigDecimal result = NumericParser.parseBigDecimal(value, decimalImplied ? decimalPlaces : 0);
+            if (result == null) {
+                // Too many digits or not a plain decimal - leave it to the JDK, which gives the same value and scale as the fast path.
+                String str = value.toString().trim();
+                if (!str.isEmpty() && "dDfF".indexOf(str.charAt(str.length() - 1)) >= 0) {
+                    // Java's floating-point suffixes were accepted when this went through Double.parseDouble.
+                    str = str.substring(0, str.length() - 1);
+                }
+                if (!NumericParser.isBigDecimalLiteral(str)) {
+                    throw new FieldParseException("Failed to convert BigDecimal", value.toString());
+                }
+                result = new BigDecimal(str);
+                if (decimalImplied) {
+                    result = result.movePointLeft(decimalPlaces);
+                }
+            }
+            return result;
         } catch (NumberFormatException ex) {
-            log.error("Failed to convert BigDecimal", ex);
-            throw new FlatwormParserException(str);
+            throw new FieldParseException("Failed to convert BigDecimal", null, value.toString(), ex);
         }
     }
 
@@ -428,11 +539,156 @@ public class CoreConverters {
         if (decimalPlacesOption != null)
             decimalPlaces = Integer.parseInt(decimalPlacesOption);
 
-        DecimalFormat format = new DecimalFormat();
-        format.setDecimalSeparatorAlwaysShown(!decimalImplied);
-        format.setMinimumFractionDigits(decimalPlaces);
-        format.setMaximumFractionDigits(decimalPlaces);
-
+        DecimalFormat format = FormatterCache.getBigDecimalFormat(decimalPlaces, decimalImplied);
         return format.format(bd.doubleValue());
     }
+
+    /**
+     * Conversion function for {@link LocalDate}. In addition to the standard conversion options, local dates also support the following:
+     * <dl> <dt>{@code format}</dt> <dd>A format string in {@link DateTimeFormatter} syntax that defines the format to expect, default is
+     * {@link DateTimeFormatter#ISO_LOCAL_DATE} (i.e. yyyy-MM-dd).</dd> </dl>
+     *
+     * @param value   The source characters.
+     * @param options The conversion-option values for the field.
+     * @return The converted date or {@code null} if the field is empty.
+     * @throws FlatwormParserException if the date fails to parse correctly.
+     */
+    public LocalDate convertLocalDate(CharSequence value, Map<String, ConversionOptionBO> options) throws FlatwormParserException {
+        LocalDate date = null;
+        String format = Util.getValue(options, "format");
+        try {
+            // The common fixed-width formats are parsed directly - ISO dates are resolved strictly, patterns are resolved smartly.
+            if (format == null) {
+                date = NumericParser.parseDate(value, '-', true);
+            } else if (format.equals("yyyyMMdd")) {
+                date = NumericParser.parseDate(value, (char) 0, false);
+            } else if (format.equals("yyyy-MM-dd")) {
+                date = NumericParser.parseDate(value, '-', false);
+            }
+        } catch (DateTimeException ex) {
+            throw new FieldParseException("Failed to parse date/time value", null, value.toString(), ex);
+        }
+        return date != null ? date : parseTemporal(value, options, DateTimeFormatter.ISO_LOCAL_DATE, LocalDate::from);
+    }
+
+    /**
+     * {@link LocalDate} to String conversion function.
+     *
+     * @param obj     source object of type {@link LocalDate}.
+     * @param options The conversion-option values for the field.
+     * @return the string result.
+     */
+    public String convertLocalDate(Object obj, Map<String, ConversionOptionBO> options) {
+        return formatTemporal((TemporalAccessor) obj, options, DateTimeFormatter.ISO_LOCAL_DATE);
+    }
+
+    /**
+     * Conversion function for {@link LocalDateTime}. In addition to the standard conversion options, local date-times also support the
+     * following: <dl> <dt>{@code format}</dt> <dd>A format string in {@link DateTimeFormatter} syntax that defines the format to expect,
+     * default is {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME}.</dd> </dl>
+     *
+     * @param value   The source characters.
+     * @param options The conversion-option values for the field.
+     * @return The converted date-time or {@code null} if the field is empty.
+     * @throws FlatwormParserException if the date-time fails to parse correctly.
+     */
+    public LocalDateTime convertLocalDateTime(CharSequence value, Map<String, ConversionOptionBO> options) throws FlatwormParserException {
+        return parseTemporal(value, options, DateTimeFormatter.ISO_LOCAL_DATE_TIME, LocalDateTime::from);
+    }
+
+    /**
+     * {@link LocalDateTime} to String conversion function.
+     *
+     * @param obj     source object of type {@link LocalDateTime}.
+     * @param options The conversion-option values for the field.
+     * @return the string result.
+     */
+    public String convertLocalDateTime(Object obj, Map<String, ConversionOptionBO> options) {
+        return formatTemporal((TemporalAccessor) obj, options, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    /**
+     * Conversion function for {@link LocalTime}. In addition to the standard conversion options, local times also support the following:
+     * <dl> <dt>{@code format}</dt> <dd>A format string in {@link DateTimeFormatter} syntax that defines the format to expect, default is
+     * {@link DateTimeFormatter#ISO_LOCAL_TIME}.</dd> </dl>
+     *
+     * @param value   The source characters.
+     * @param options The conversion-option values for the field.
+     * @return The converted time or {@code null} if the field is empty.
+     * @throws FlatwormParserException if the time fails to parse correctly.
+     */
+    public LocalTime convertLocalTime(CharSequence value, Map<String, ConversionOptionBO> options) throws FlatwormParserException {
+        return parseTemporal(value, options, DateTimeFormatter.ISO_LOCAL_TIME, LocalTime::from);
+    }
+
+    /**
+     * {@link LocalTime} to String conversion function.
+     *
+     * @param obj     source object of type {@link LocalTime}.
+     * @param options The conversion-option values for the field.
+     * @return the string result.
+     */
+    public String convertLocalTime(Object obj, Map<String, ConversionOptionBO> options) {
+        return formatTemporal((TemporalAccessor) obj, options, DateTimeFormatter.ISO_LOCAL_TIME);
+    }
+
+    /**
+     * Conversion function for {@link Instant}. In addition to the standard conversion options, instants also support the following: <dl>
+     * <dt>{@code format}</dt> <dd>A format string in {@link DateTimeFormatter} syntax that defines the format to expect, default is {@link
+     * DateTimeFormatter#ISO_INSTANT}. Values are taken to be in UTC unless the format includes an offset or zone.</dd> </dl>
+     *
+     * @param value   The source characters.
+     * @param options The conversion-option values for the field.
+     * @return The converted instant or {@code null} if the field is empty.
+     * @throws FlatwormParserException if the instant fails to parse correctly.
+     */
+    public Instant convertInstant(CharSequence value, Map<String, ConversionOptionBO> options) throws FlatwormParserException {
+        return parseTemporal(value, options, DateTimeFormatter.ISO_INSTANT, Instant::from);
+    }
+
+    /**
+     * {@link Instant} to String conversion function - see {@link #convertInstant(CharSequence, Map)} for the options supported.
+     *
+     * @param obj     source object of type {@link Instant}.
+     * @param options The conversion-option values for the field.
+     * @return the string result.
+     */
+    public String convertInstant(Object obj, Map<String, ConversionOptionBO> options) {
+        return formatTemporal((TemporalAccessor) obj, options, DateTimeFormatter.ISO_INSTANT);
+    }
+
+    private static <T> T parseTemporal(CharSequence value, Map<String, ConversionOptionBO> options, DateTimeFormatter defaultFormatter,
+                                       TemporalQuery<T> query) throws FlatwormParserException {
+        if (value.length() == 0) {
+            return null;
+        }
+
+        // The java.text.Format view reports a bad value through the position rather than by creating a DateTimeParseException.
+        String text = value.toString();
+        ParsePosition position = new ParsePosition(0);
+        Object result = getDateTimeFormatter(options, defaultFormatter).toFormat(query).parseObject(text, position);
+        if (result == null || position.getIndex() != text.length()) {
+            throw new FieldParseException("Failed to parse date/time value", text);
+        }
+        @SuppressWarnings("unchecked")
+        T temporal = (T) result;
+        return temporal;
+    }
+
+    private static String formatTemporal(TemporalAccessor temporal, Map<String, ConversionOptionBO> options,
+                                         DateTimeFormatter defaultFormatter) {
+        return temporal == null ? null : getDateTimeFormatter(options, defaultFormatter).format(temporal);
+    }
+
+    private static DateTimeFormatter getDateTimeFormatter(Map<String, ConversionOptionBO> options, DateTimeFormatter defaultFormatter) {
+        String format = Util.getValue(options, "format");
+        DateTimeFormatter formatter = defaultFormatter;
+        if (format != null) {
+            // Instants can only be formatted - and parsed from patterns without an offset - when a zone is available.
+            formatter = defaultFormatter == DateTimeFormatter.ISO_INSTANT
+                    ? FormatterCache.getDateTimeFormatter(format, ZoneOffset.UTC)
+                    : FormatterCache.getDateTimeFormatter(format);
+        }
+        return formatter;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,322 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.converters;
+
+import com.blackbear.flatworm.CharSlice;
+import com.blackbear.flatworm.PropertyAccessor;
+import com.blackbear.flatworm.Util;
+import com.blackbear.flatworm.config.ConversionOptionBO;
+import com.blackbear.flatworm.errors.FieldParseException;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The conversion of a single configured field, compiled once when the configuration is loaded (see {@link
+ * ConversionHelper#compile(String, Map, String)}). The converter is bound to a {@link ToTypeConverterFunction} and the {@code justify},
+ * {@code strip-chars}, {@code substring} and {@code default-value} options are pre-parsed into an ordered array of transforms - converting
+ * a field is then a handful of virtual calls rather than the map lookups, option scanning and reflective invocation performed by {@link
+ * ConversionHelper#convert(String, CharSequence, Map, String)}. The result is the same.
+ *
+ * Instances hold no per-parse state and can be shared across threads.
+ *
+ * @author Alan Henson
+ */
+@Slf4j
+public final class FieldConversion {
+
+    private static final FieldTransform[] NO_TRANSFORMS = new FieldTransform[0];
+
+    private final ToTypeConverterFunction function;
+    private final CharSequenceConverterFunction charSequenceFunction;
+    private final FieldTransform[] transforms;
+
+    @Getter
+    private final Map<String, ConversionOptionBO> options;
+
+    @Getter
+    private final String beanRef;
+
+    // An IntConverterFunction, LongConverterFunction or DoubleConverterFunction equivalent to the function, if there is one.
+    private final Object primitiveFunction;
+
+    // Set once bound to a property of the same primitive type as the primitiveFunction.
+    private final Class<?> beanClass;
+    private final PrimitiveAssignment assignment;
+
+    private FieldConversion(ToTypeConverterFunction function, FieldTransform[] transforms, Map<String, ConversionOptionBO> options,
+                            String beanRef, Object primitiveFunction, Class<?> beanClass, PrimitiveAssignment assignment) {
+        this.function = function;
+        this.charSequenceFunction = function instanceof CharSequenceConverterFunction ? (CharSequenceConverterFunction) function : null;
+        this.transforms = transforms;
+        this.options = options;
+        this.beanRef = beanRef;
+        this.primitiveFunction = primitiveFunction;
+        this.beanClass = beanClass;
+        this.assignment = assignment;
+    }
+
+    /**
+     * Compile the conversion options for the given converter function.
+     *
+     * @param function The converter function - if it's a {@link CharSequenceConverterFunction} then fields are passed to it as is,
+     *                 otherwise they are turned into a {@link String} first.
+     * @param options  The conversion options, which are applied in iteration order just as they would be by {@link
+     *                 ConversionHelper#transformString(String, Map, int)}.
+     * @param beanRef  "class.property", used for more descriptive exception messages, should something go wrong.
+     * @return the {@code FieldConversion} or {@code null} if one of the options couldn't be pre-parsed - the options will then need to be
+     * applied through {@link ConversionHelper} so that the failure is reported while parsing, as it always has been.
+     */
+    static FieldConversion compile(ToTypeConverterFunction function, Map<String, ConversionOptionBO> options, String beanRef) {
+        List<FieldTransform> transforms = new ArrayList<>();
+        for (ConversionOptionBO option : options.values()) {
+            FieldTransform transform = null;
+            try {
+                switch (option.getName()) {
+                    case "justify":
+                        transform = justify(option.getValue(), Util.getValue(options, "pad-character"));
+                        break;
+                    case "strip-chars":
+                        transform = stripChars(option.getValue());
+                        break;
+                    case "substring":
+                        transform = substring(option.getValue());
+                        break;
+                    case "default-value":
+                        transform = defaultValue(option.getValue());
+                        break;
+                    default:
+                        // Other options are only of interest to the converter itself.
+                        continue;
+                }
+            } catch (RuntimeException e) {
+                log.debug("Conversion option {} of {} could not be compiled.", option, beanRef, e);
+            }
+
+            if (transform == null) {
+                return null;
+            }
+            transforms.add(transform);
+        }
+        return new FieldConversion(function, transforms.isEmpty() ? NO_TRANSFORMS : transforms.toArray(NO_TRANSFORMS), options, beanRef,
+                null, null, null);
+    }
+
+    /**
+     * Provide an {@link IntConverterFunction}, {@link LongConverterFunction} or {@link DoubleConverterFunction} that produces the same
+     * values as the converter function, but without boxing them.
+     *
+     * @param primitiveFunction The primitive function.
+     * @return a copy of this {@code FieldConversion} that has the {@code primitiveFunction}.
+     */
+    FieldConversion withPrimitiveFunction(Object primitiveFunction) {
+        return new FieldConversion(function, transforms, options, beanRef, primitiveFunction, null, null);
+    }
+
+    /**
+     * Bind the conversion to the bean property it populates. Should the converter have a primitive equivalent that matches the type of
+     * the property then values can be converted and assigned without being boxed - see {@link #assign(Object, CharSequence)}.
+     *
+     * @param accessor The {@link PropertyAccessor} of the property.
+     * @return a bound copy of this {@code FieldConversion} or this instance if the values can't be assigned directly.
+     */
+    public FieldConversion bindProperty(PropertyAccessor accessor) {
+        PrimitiveAssignment bound = null;
+        if (accessor != null && accessor.isWritable()) {
+            Class<?> type = accessor.getPropertyType();
+            if (type == int.class && primitiveFunction instanceof IntConverterFunction) {
+                IntConverterFunction intFunction = (IntConverterFunction) primitiveFunction;
+                bound = (bean, fieldChars) -> accessor.setInt(bean, intFunction.convert(fieldChars, options));
+            } else if (type == long.class && primitiveFunction instanceof LongConverterFunction) {
+                LongConverterFunction longFunction = (LongConverterFunction) primitiveFunction;
+                bound = (bean, fieldChars) -> accessor.setLong(bean, longFunction.convert(fieldChars, options));
+            } else if (type == double.class && primitiveFunction instanceof DoubleConverterFunction) {
+                DoubleConverterFunction doubleFunction = (DoubleConverterFunction) primitiveFunction;
+                bound = (bean, fieldChars) -> accessor.setDouble(bean, doubleFunction.convert(fieldChars, options));
+            }
+        }
+        return bound == null ? this : new FieldConversion(function, transforms, options, beanRef, primitiveFunction,
+                accessor.getBeanClass(), bound);
+    }
+
+    /**
+     * Determine whether or not the field can be converted and assigned to the given bean through {@link #assign(Object, CharSequence)}.
+     *
+     * @param bean The bean.
+     * @return {@code true} if the conversion is bound to a primitive property of the bean's class.
+     */
+    public boolean canAssign(Object bean) {
+        return assignment != null && bean.getClass() == beanClass;
+    }
+
+    /**
+     * Apply the conversion options to the field, convert it and assign it to the bound property of the bean without boxing the value.
+     *
+     * @param bean       The bean to update - {@link #canAssign(Object)} must be {@code true} for it.
+     * @param fieldChars The value of the field as read from the input file.
+     * @throws FlatwormParserException should parsing or assigning the value fail for any reason.
+     */
+    public void assign(Object bean, CharSequence fieldChars) throws FlatwormParserException {
+        try {
+            for (FieldTransform transform : transforms) {
+                fieldChars = transform.apply(fieldChars);
+            }
+            assignment.assign(bean, fieldChars);
+        } catch (Exception e) {
+            throw FieldParseException.forField(e, beanRef, fieldChars);
+        }
+    }
+
+    /**
+     * Apply the conversion options to the field and convert it.
+     *
+     * @param fieldChars The value of the field as read from the input file. Should it be a {@link CharSlice} then its bounds may be
+     *                   narrowed by the {@code justify} option.
+     * @return The {@link Object} constructed from the {@code fieldChars} value.
+     * @throws FlatwormParserException should parsing the value to a {@link Object} fail for any reason.
+     */
+    public Object convert(CharSequence fieldChars) throws FlatwormParserException {
+        Object value;
+        try {
+            for (FieldTransform transform : transforms) {
+                fieldChars = transform.apply(fieldChars);
+            }
+            value = charSequenceFunction != null
+                    ? charSequenceFunction.convert(fieldChars, options)
+                    : function.convert(fieldChars.toString(), options);
+        } catch (Exception e) {
+            throw FieldParseException.forField(e, beanRef, fieldChars);
+        }
+        return value;
+    }
+
+    private static FieldTransform justify(String value, String padCharacters) {
+        String justify = value == null ? "both" : value;
+        boolean both = justify.equalsIgnoreCase("both");
+        boolean fromEnd = both || justify.equalsIgnoreCase("left");
+        boolean fromStart = both || justify.equalsIgnoreCase("right");
+        String padChars = padCharacters == null ? " " : padCharacters;
+
+        return fieldChars -> {
+            if (fieldChars instanceof CharSlice) {
+                return CharSlice.class.cast(fieldChars).strip(padChars, fromEnd, fromStart);
+            }
+            int start = 0;
+            int end = fieldChars.length();
+            if (fromEnd) {
+                while (end > start && padChars.indexOf(fieldChars.charAt(end - 1)) != -1) {
+                    end--;
+                }
+            }
+            if (fromStart) {
+                while (start < end && padChars.indexOf(fieldChars.charAt(start)) != -1) {
+                    start++;
+                }
+            }
+            return start == 0 && end == fieldChars.length() ? fieldChars : fieldChars.subSequence(start, end);
+        };
+    }
+
+    private static FieldTransform stripChars(String value) {
+        // Mirrors the patterns used by Util.strip - only ASCII digits and letters are ever retained.
+        boolean keepDigits;
+        boolean keepLetters;
+        if (value.equalsIgnoreCase("non-numeric")) {
+            keepDigits = true;
+            keepLetters = false;
+        } else if (value.equalsIgnoreCase("non-alpha")) {
+            keepDigits = false;
+            keepLetters = true;
+        } else if (value.equalsIgnoreCase("non-alphanumeric")) {
+            keepDigits = true;
+            keepLetters = true;
+        } else {
+            return fieldChars -> fieldChars;
+        }
+
+        boolean[] keep = new boolean[128];
+        for (char c = 0; c < keep.length; c++) {
+            keep[c] = (keepDigits && c >= '0' && c <= '9') || (keepLetters && ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')));
+        }
+
+        return fieldChars -> {
+            int length = fieldChars.length();
+            int i = 0;
+            while (i < length && isKept(keep, fieldChars.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                return fieldChars;
+            }
+            StringBuilder builder = new StringBuilder(length);
+            builder.append(fieldChars, 0, i);
+            for (; i < length; i++) {
+                char c = fieldChars.charAt(i);
+                if (isKept(keep, c)) {
+                    builder.append(c);
+                }
+            }
+            return builder.toString();
+        };
+    }
+
+    private static boolean isKept(boolean[] keep, char c) {
+        return c < keep.length && keep[c];
+    }
+
+    private static FieldTransform substring(String value) {
+        String[] args = value.split(",");
+        int begin = Integer.parseInt(args[0]);
+        int end = Integer.parseInt(args[1]);
+        return fieldChars -> fieldChars.subSequence(begin, end);
+    }
+
+    private static FieldTransform defaultValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        return fieldChars -> {
+            for (int i = 0; i < fieldChars.length(); i++) {
+                if (!Character.isWhitespace(fieldChars.charAt(i))) {
+                    return fieldChars;
+                }
+            }
+            return value;
+        };
+    }
+
+    /**
+     * Converts a field and assigns it to a primitive property.
+     */
+    @FunctionalInterface
+    private interface PrimitiveAssignment {
+        void assign(Object bean, CharSequence fieldChars) throws Exception;
+    }
+
+    /**
+     * A single pre-parsed conversion option.
+     */
+    @FunctionalInterface
+    private interface FieldTransform {
+        CharSequence apply(CharSequence fieldChars);
+    }
+}
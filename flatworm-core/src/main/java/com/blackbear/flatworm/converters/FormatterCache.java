@@ -0,0 +1,146 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.converters;
+
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the formatters used by the {@link CoreConverters} so that they aren't created for every field that is converted. {@link
+ * DateTimeFormatter}s are immutable and are shared across threads, whereas {@link SimpleDateFormat} and {@link DecimalFormat} are not
+ * threadsafe and are therefore cached per thread.
+ *
+ * Cached formatters must not be reconfigured by their callers.
+ *
+ * @author Alan Henson
+ */
+public final class FormatterCache {
+
+    // Formats with more decimal places than this are created on demand rather than cached.
+    private static final int MAX_CACHED_DECIMAL_PLACES = 15;
+
+    private static final ConcurrentMap<String, DateTimeFormatter> DATE_TIME_FORMATTERS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<ZoneId, ConcurrentMap<String, DateTimeFormatter>> ZONED_DATE_TIME_FORMATTERS =
+            new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Map<String, SimpleDateFormat>> SIMPLE_DATE_FORMATS = ThreadLocal.withInitial(HashMap::new);
+
+    private static final ThreadLocal<DecimalFormat[]> DECIMAL_FORMATS =
+            ThreadLocal.withInitial(() -> new DecimalFormat[(MAX_CACHED_DECIMAL_PLACES + 1) * 4]);
+
+    private FormatterCache() {
+    }
+
+    /**
+     * Get the {@link DateTimeFormatter} for the given pattern.
+     *
+     * @param pattern The pattern in {@link DateTimeFormatter} syntax.
+     * @return the shared {@link DateTimeFormatter}.
+     * @throws IllegalArgumentException should the pattern be invalid.
+     */
+    public static DateTimeFormatter getDateTimeFormatter(String pattern) {
+        return DATE_TIME_FORMATTERS.computeIfAbsent(pattern, DateTimeFormatter::ofPattern);
+    }
+
+    /**
+     * Get the {@link DateTimeFormatter} for the given pattern with the given override zone.
+     *
+     * @param pattern The pattern in {@link DateTimeFormatter} syntax.
+     * @param zone    The override zone - see {@link DateTimeFormatter#withZone(ZoneId)}.
+     * @return the shared {@link DateTimeFormatter}.
+     * @throws IllegalArgumentException should the pattern be invalid.
+     */
+    public static DateTimeFormatter getDateTimeFormatter(String pattern, ZoneId zone) {
+        return ZONED_DATE_TIME_FORMATTERS.computeIfAbsent(zone, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(pattern, key -> getDateTimeFormatter(key).withZone(zone));
+    }
+
+    /**
+     * Get the calling thread's {@link SimpleDateFormat} for the given pattern.
+     *
+     * @param pattern The pattern in {@link SimpleDateFormat} syntax.
+     * @return the {@link SimpleDateFormat}, which must only be used by the calling thread.
+     * @throws IllegalArgumentException should the pattern be invalid.
+     */
+    public static SimpleDateFormat getSimpleDateFormat(String pattern) {
+        return SIMPLE_DATE_FORMATS.get().computeIfAbsent(pattern, SimpleDateFormat::new);
+    }
+
+    /**
+     * Get the calling thread's {@link DecimalFormat} used to write floating point values - grouping is disabled and when the decimal is
+     * implied no fraction digits are written, otherwise exactly {@code decimalPlaces} are.
+     *
+     * @param decimalPlaces  The number of digits to the right of the decimal point.
+     * @param decimalImplied Whether or not the decimal point is positionally implied rather than explicitly included.
+     * @return the {@link DecimalFormat}, which must only be used by the calling thread.
+     */
+    public static DecimalFormat getDecimalFormat(int decimalPlaces, boolean decimalImplied) {
+        return getDecimalFormat(decimalPlaces, decimalImplied, false);
+    }
+
+    /**
+     * Get the calling thread's {@link DecimalFormat} used to write {@link java.math.BigDecimal} values - exactly {@code decimalPlaces}
+     * fraction digits are written and grouping is left at the locale's default.
+     *
+     * @param decimalPlaces  The number of digits to the right of the decimal point.
+     * @param decimalImplied Whether or not the decimal point is positionally implied rather than explicitly included.
+     * @return the {@link DecimalFormat}, which must only be used by the calling thread.
+     */
+    public static DecimalFormat getBigDecimalFormat(int decimalPlaces, boolean decimalImplied) {
+        return getDecimalFormat(decimalPlaces, decimalImplied, true);
+    }
+
+    private static DecimalFormat getDecimalFormat(int decimalPlaces, boolean decimalImplied, boolean bigDecimal) {
+        if (decimalPlaces < 0 || decimalPlaces > MAX_CACHED_DECIMAL_PLACES) {
+            return createDecimalFormat(decimalPlaces, decimalImplied, bigDecimal);
+        }
+
+        DecimalFormat[] formats = DECIMAL_FORMATS.get();
+        int index = decimalPlaces * 4 + (decimalImplied ? 2 : 0) + (bigDecimal ? 1 : 0);
+        DecimalFormat format = formats[index];
+        if (format == null) {
+            format = createDecimalFormat(decimalPlaces, decimalImplied, bigDecimal);
+            formats[index] = format;
+        }
+        return format;
+    }
+
+    private static DecimalFormat createDecimalFormat(int decimalPlaces, boolean decimalImplied, boolean bigDecimal) {
+        DecimalFormat format = new DecimalFormat();
+        format.setDecimalSeparatorAlwaysShown(!decimalImplied);
+        if (bigDecimal) {
+            format.setMinimumFractionDigits(decimalPlaces);
+            format.setMaximumFractionDigits(decimalPlaces);
+        } else {
+            format.setGroupingUsed(false);
+            if (decimalImplied) {
+                format.setMaximumFractionDigits(0);
+            } else {
+                format.setMinimumFractionDigits(decimalPlaces);
+                format.setMaximumFractionDigits(decimalPlaces);
+            }
+        }
+        return format;
+    }
+}
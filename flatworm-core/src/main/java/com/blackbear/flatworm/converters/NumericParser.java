@@ -0,0 +1,405 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.converters;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.chrono.IsoChronology;
+
+/**
+ * Hand-rolled parsers that work directly on the characters of a field (typically a {@link com.blackbear.flatworm.CharSlice} of the line)
+ * without creating a {@link String} or boxing the result. Leading and trailing spaces are treated as padding and ignored and the value may
+ * be preceded by a {@code +} or {@code -} sign.
+ *
+ * The decimal parsers only handle plain values (digits with an optional decimal point) - {@code null} or {@link Double#NaN} is returned
+ * for anything else (exponents, type suffixes, etc.) so that the caller can fall back to the JDK's parsers. The {@code is...Literal}
+ * methods let the caller reject a bad value before falling back, rather than having the JDK create an exception (with its stack trace) for
+ * every bad value.
+ *
+ * @author Alan Henson
+ */
+public final class NumericParser {
+
+    // Powers of ten that are exactly representable as a double.
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Every integer up to this is exactly representable as a double.
+    private static final long MAX_EXACT_DOUBLE_INTEGER = 1L << 53;
+
+    // The number of significant digits that are guaranteed to fit in a long.
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private NumericParser() {
+    }
+
+    /**
+     * Parse an {@code int} value.
+     *
+     * @param value The characters to parse.
+     * @return the value.
+     * @throws NumberFormatException should the value not be a valid {@code int}.
+     */
+    public static int parseInt(CharSequence value) {
+        long result = parseLong(value);
+        if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) {
+            throw numberFormatException(value);
+        }
+        return (int) result;
+    }
+
+    /**
+     * Parse a {@code long} value.
+     *
+     * @param value The characters to parse.
+     * @return the value.
+     * @throws NumberFormatException should the value not be a valid {@code long}.
+     */
+    public static long parseLong(CharSequence value) {
+        int end = trimEnd(value);
+        int index = trimStart(value, end);
+        boolean negative = index < end && value.charAt(index) == '-';
+        if (index < end && (negative || value.charAt(index) == '+')) {
+            index++;
+        }
+        if (index == end) {
+            throw numberFormatException(value);
+        }
+
+        // Accumulate negatively so that Long.MIN_VALUE can be represented.
+        long result = 0;
+        for (; index < end; index++) {
+            int digit = value.charAt(index) - '0';
+            if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+                throw numberFormatException(value);
+            }
+            result = result * 10 - digit;
+        }
+
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                throw numberFormatException(value);
+            }
+            result = -result;
+        }
+        return result;
+    }
+
+    /**
+     * Parse a plain decimal value exactly - i.e. {@code 123.45} becomes a {@link BigDecimal} with an unscaled value of {@code 12345} and a
+     * scale of {@code 2}.
+     *
+     * @param value        The characters to parse.
+     * @param impliedScale The number of implied decimal places - i.e. with an implied scale of {@code 2}, {@code 12345} is {@code 123.45}.
+     * @return the value or {@code null} if it isn't a plain decimal of at most 18 significant digits.
+     */
+    public static BigDecimal parseBigDecimal(CharSequence value, int impliedScale) {
+        int end = trimEnd(value);
+        int start = trimStart(value, end);
+        boolean negative = start < end && value.charAt(start) == '-';
+        if (start < end && (negative || value.charAt(start) == '+')) {
+            start++;
+        }
+
+        BigDecimal result = null;
+        int fractionDigits = countFractionDigits(value, start, end);
+        if (fractionDigits >= 0) {
+            long unscaled = accumulateDigits(value, start, end);
+            result = BigDecimal.valueOf(negative ? -unscaled : unscaled, fractionDigits + impliedScale);
+        }
+        return result;
+    }
+
+    /**
+     * Parse a plain decimal value to the nearest {@code double}. Values of up to 15 significant digits are computed as an exact integer
+     * divided by an exact power of ten, which is correctly rounded.
+     *
+     * @param value        The characters to parse.
+     * @param impliedScale The number of implied decimal places - i.e. with an implied scale of {@code 2}, {@code 12345} is {@code 123.45}.
+     * @return the value or {@link Double#NaN} if it can't be computed exactly (it isn't a plain decimal, has too many digits or too large a
+     * scale).
+     */
+    public static double parseDouble(CharSequence value, int impliedScale) {
+        int end = trimEnd(value);
+        int start = trimStart(value, end);
+        boolean negative = start < end && value.charAt(start) == '-';
+        if (start < end && (negative || value.charAt(start) == '+')) {
+            start++;
+        }
+
+        double result = Double.NaN;
+        int fractionDigits = countFractionDigits(value, start, end);
+        if (fractionDigits >= 0) {
+            long unscaled = accumulateDigits(value, start, end);
+            int scale = fractionDigits + impliedScale;
+            if (unscaled < MAX_EXACT_DOUBLE_INTEGER && scale >= 0 && scale < DOUBLE_POWERS_OF_TEN.length) {
+                result = unscaled / DOUBLE_POWERS_OF_TEN[scale];
+                if (negative) {
+                    result = -result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determine if the value would be accepted by {@link Double#parseDouble(String)} and {@link Float#parseFloat(String)} - i.e. a decimal
+     * with an optional exponent and type suffix, {@code NaN} or {@code Infinity}. Hexadecimal values are assumed to be valid and left to
+     * the JDK.
+     *
+     * @param value The characters to check.
+     * @return {@code true} if the value can be parsed and {@code false} if not.
+     */
+    public static boolean isFloatingPointLiteral(CharSequence value) {
+        int end = trimWhitespaceEnd(value);
+        int start = skipSign(value, trimWhitespaceStart(value, end), end);
+
+        boolean valid;
+        if (regionEquals(value, start, end, "NaN") || regionEquals(value, start, end, "Infinity")) {
+            valid = true;
+        } else if (end - start > 1 && value.charAt(start) == '0' && (value.charAt(start + 1) == 'x' || value.charAt(start + 1) == 'X')) {
+            valid = true;
+        } else {
+            if (end > start && "dDfF".indexOf(value.charAt(end - 1)) >= 0) {
+                end--;
+            }
+            valid = isDecimal(value, start, end);
+        }
+        return valid;
+    }
+
+    /**
+     * Determine if the value would be accepted by {@link BigDecimal#BigDecimal(String)} once leading and trailing whitespace is removed -
+     * i.e. a decimal with an optional exponent.
+     *
+     * @param value The characters to check.
+     * @return {@code true} if the value can be parsed and {@code false} if not.
+     */
+    public static boolean isBigDecimalLiteral(CharSequence value) {
+        int end = trimWhitespaceEnd(value);
+        return isDecimal(value, skipSign(value, trimWhitespaceStart(value, end), end), end);
+    }
+
+    /**
+     * Parse a date made up of a four digit year, a two digit month and a two digit day, optionally separated by a single character (i.e.
+     * {@code yyyyMMdd} or {@code yyyy-MM-dd}).
+     *
+     * @param value     The characters to parse.
+     * @param separator The separator or {@code 0} if there isn't one.
+     * @param strict    If {@code true} then days beyond the end of the month are rejected, otherwise they resolve to the last day of the
+     *                  month (matching {@link java.time.format.ResolverStyle#STRICT} and {@link java.time.format.ResolverStyle#SMART}
+     *                  respectively).
+     * @return the date or {@code null} if the value doesn't have the expected shape.
+     * @throws DateTimeException should the month or day be out of range - the exception has no stack trace.
+     */
+    public static LocalDate parseDate(CharSequence value, char separator, boolean strict) {
+        int offset = separator == 0 ? 0 : 1;
+        if (value.length() != 8 + offset * 2
+                || (separator != 0 && (value.charAt(4) != separator || value.charAt(7) != separator))) {
+            return null;
+        }
+
+        int year = parseDigits(value, 0, 4);
+        int month = parseDigits(value, 4 + offset, 6 + offset);
+        int day = parseDigits(value, 6 + offset * 2, 8 + offset * 2);
+        // Patterns use the year-of-era, which has no year zero, so leave that to the formatter.
+        if (year < 0 || month < 0 || day < 0 || (!strict && year == 0)) {
+            return null;
+        }
+
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            throw new StacklessDateTimeException("Invalid date: " + value);
+        }
+        int monthLength = Month.of(month).length(IsoChronology.INSTANCE.isLeapYear(year));
+        if (day > monthLength) {
+            if (strict) {
+                throw new StacklessDateTimeException("Invalid date: " + value);
+            }
+            day = monthLength;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Validate that the region holds digits with an optional decimal point and at most 18 significant digits.
+     *
+     * @return the number of digits after the decimal point or {@code -1} if the region isn't valid.
+     */
+    private static int countFractionDigits(CharSequence value, int start, int end) {
+        int digits = 0;
+        int significantDigits = 0;
+        int fractionDigits = -1;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (significantDigits > 0 || c != '0') {
+                    significantDigits++;
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return -1;
+            }
+        }
+        return digits == 0 || significantDigits > MAX_LONG_DIGITS ? -1 : Math.max(fractionDigits, 0);
+    }
+
+    private static long accumulateDigits(CharSequence value, int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c != '.') {
+                result = result * 10 + (c - '0');
+            }
+        }
+        return result;
+    }
+
+    private static int parseDigits(CharSequence value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    /**
+     * Validate that the region holds digits with an optional decimal point (at least one digit) and an optional exponent.
+     */
+    private static boolean isDecimal(CharSequence value, int start, int end) {
+        int i = start;
+        int digits = 0;
+        while (i < end && isDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < end && value.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits > 0 && i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i = skipSign(value, i + 1, end);
+            int exponentDigits = 0;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+                exponentDigits++;
+            }
+            digits = exponentDigits > 0 ? digits : 0;
+        }
+        return digits > 0 && i == end;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int skipSign(CharSequence value, int start, int end) {
+        return start < end && (value.charAt(start) == '-' || value.charAt(start) == '+') ? start + 1 : start;
+    }
+
+    private static boolean regionEquals(CharSequence value, int start, int end, String expected) {
+        boolean equal = end - start == expected.length();
+        for (int i = 0; equal && i < expected.length(); i++) {
+            equal = value.charAt(start + i) == expected.charAt(i);
+        }
+        return equal;
+    }
+
+    // Whitespace as removed by String.trim() - which is what the JDK's parsers ignore.
+    private static int trimWhitespaceEnd(CharSequence value) {
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static int trimWhitespaceStart(CharSequence value, int end) {
+        int start = 0;
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(CharSequence value) {
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static int trimStart(CharSequence value, int end) {
+        int start = 0;
+        while (start < end && value.charAt(start) == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static NumberFormatException numberFormatException(CharSequence value) {
+        return new StacklessNumberFormatException("For input string: \"" + value + "\"");
+    }
+
+    /**
+     * Invalid values are reported (with their location) by the {@link com.blackbear.flatworm.errors.FieldParseException} that wraps this
+     * exception, so there's no need to pay for a stack trace on every bad value.
+     */
+    private static final class StacklessNumberFormatException extends NumberFormatException {
+        private static final long serialVersionUID = 1L;
+
+        StacklessNumberFormatException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * See {@link StacklessNumberFormatException}.
+     */
+    private static final class StacklessDateTimeException extends DateTimeException {
+        private static final long serialVersionUID = 1L;
+
+        StacklessDateTimeException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.errors;
+
+import lombok.Getter;
+
+/**
+ * Thrown to abort a parse once the number of errors reported to a {@link ParseErrorChannel} exceeds its error budget.
+ *
+ * @author Alan Henson
+ */
+public class ErrorBudgetExceededException extends UncheckedFlatwormParserException {
+
+    private static final long serialVersionUID = 3346212417712845318L;
+
+    @Getter
+    private final long errorCount;
+
+    public ErrorBudgetExceededException(String message, long errorCount, Exception lastError) {
+        super(message, lastError);
+        this.errorCount = errorCount;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.errors;
+
+import java.lang.reflect.InvocationTargetException;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Structured, stackless error raised when a single field fails to parse or convert. Dirty input can produce these in great numbers, so no
+ * stack trace is captured - instead the exception carries where the failure occurred: the record name, the line number, the field (its
+ * bean reference) and the raw value that was rejected. The converter that rejects the value typically only knows the raw value, with the
+ * field, record and line number being filled in as the exception propagates out of the parse.
+ *
+ * @author Alan Henson
+ */
+public class FieldParseException extends FlatwormParserException {
+
+    private static final long serialVersionUID = -2954174937016475128L;
+
+    @Getter
+    @Setter
+    private String recordName;
+
+    @Getter
+    @Setter
+    private int lineNumber;
+
+    @Getter
+    @Setter
+    private String field;
+
+    @Getter
+    private final String rawValue;
+
+    public FieldParseException(String message, String rawValue) {
+        super(message);
+        this.rawValue = rawValue;
+    }
+
+    public FieldParseException(String message, String field, String rawValue, Exception cause) {
+        super(message, cause);
+        this.field = field;
+        this.rawValue = rawValue;
+    }
+
+    /**
+     * Describe the failure to convert a field.
+     *
+     * @param failure    The failure - {@link InvocationTargetException}s are unwrapped.
+     * @param field      The bean reference of the field being converted.
+     * @param fieldChars The raw value of the field.
+     * @return the {@link FieldParseException} describing the failure.
+     */
+    public static FieldParseException forField(Exception failure, String field, CharSequence fieldChars) {
+        Throwable cause = failure instanceof InvocationTargetException ? failure.getCause() : failure;
+        String rawValue = String.valueOf(fieldChars);
+        return new FieldParseException("Converting field " + field + " with value '" + rawValue + "'", field, rawValue,
+                cause instanceof Exception ? Exception.class.cast(cause) : failure);
+    }
+
+    /**
+     * No stack trace is captured - the location of the error is described by the record name, line number and field instead.
+     *
+     * @return this instance.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    /**
+     * Describe where the error occurred, omitting any details that weren't known.
+     *
+     * @return the description.
+     */
+    public String getLocation() {
+        StringBuilder location = new StringBuilder();
+        if (recordName != null) {
+            location.append("record ").append(recordName).append(", ");
+        }
+        if (lineNumber > 0) {
+            location.append("line ").append(lineNumber).append(", ");
+        }
+        if (field != null) {
+            location.append("field ").append(field).append(", ");
+        }
+        location.append("value '").append(rawValue).append('\'');
+        return location.toString();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.errors;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects the errors raised while parsing so that dirty input doesn't cost a logged stack trace per bad field. Errors are counted per
+ * field ({@link FieldParseException}s) or per exception type (all other errors), only a sample of them is logged - the first {@code
+ * logFirst} for each field, then every {@code logEvery}-th, never more than {@code maxLogsPerSecond} overall and never with a stack trace -
+ * and once more errors than the {@code errorBudget} have been reported the parse is aborted. This class is thread-safe.
+ *
+ * @author Alan Henson
+ */
+@Slf4j
+public class ParseErrorChannel {
+
+    /**
+     * Error budget that allows any number of errors.
+     */
+    public static final long UNLIMITED = -1;
+
+    public static final int DEFAULT_LOG_FIRST = 10;
+    public static final int DEFAULT_LOG_EVERY = 1000;
+    public static final int DEFAULT_MAX_LOGS_PER_SECOND = 20;
+
+    @Getter
+    private final long errorBudget;
+
+    @Getter
+    private final int logFirst;
+
+    @Getter
+    private final int logEvery;
+
+    @Getter
+    private final int maxLogsPerSecond;
+
+    private final ConcurrentMap<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    // Rate limiting - the second in which the current window started and the number of errors logged within it.
+    private long logWindow;
+    private int logsInWindow;
+
+    /**
+     * Create a {@code ParseErrorChannel} with an {@link #UNLIMITED} error budget and the default logging limits.
+     */
+    public ParseErrorChannel() {
+        this(UNLIMITED);
+    }
+
+    /**
+     * Create a {@code ParseErrorChannel} with the default logging limits.
+     *
+     * @param errorBudget The number of errors that may be reported before the parse is aborted - {@link #UNLIMITED} for no limit.
+     */
+    public ParseErrorChannel(long errorBudget) {
+        this(errorBudget, DEFAULT_LOG_FIRST, DEFAULT_LOG_EVERY, DEFAULT_MAX_LOGS_PER_SECOND);
+    }
+
+    /**
+     * Create a {@code ParseErrorChannel}.
+     *
+     * @param errorBudget      The number of errors that may be reported before the parse is aborted - {@link #UNLIMITED} for no limit.
+     * @param logFirst         The number of errors logged for each field (or exception type) before sampling starts.
+     * @param logEvery         Once sampling starts, only every {@code logEvery}-th error of a field is logged.
+     * @param maxLogsPerSecond The most errors logged in any one second - {@code 0} to disable logging.
+     */
+    public ParseErrorChannel(long errorBudget, int logFirst, int logEvery, int maxLogsPerSecond) {
+        Preconditions.checkArgument(errorBudget >= UNLIMITED, "The errorBudget must be UNLIMITED or not negative.");
+        Preconditions.checkArgument(logFirst >= 0, "The logFirst value must not be negative.");
+        Preconditions.checkArgument(logEvery > 0, "The logEvery value must be greater than zero.");
+        Preconditions.checkArgument(maxLogsPerSecond >= 0, "The maxLogsPerSecond value must not be negative.");
+        this.errorBudget = errorBudget;
+        this.logFirst = logFirst;
+        this.logEvery = logEvery;
+        this.maxLogsPerSecond = maxLogsPerSecond;
+    }
+
+    /**
+     * Report an error - it is counted, possibly logged and checked against the error budget.
+     *
+     * @param error     The error.
+     * @param inputLine The line of data being parsed when the error occurred (if known).
+     * @return {@code true} if the error budget has now been exceeded and {@code false} if not.
+     */
+    public boolean report(Exception error, String inputLine) {
+        String key = getKey(error);
+        LongAdder counter = errorCounts.computeIfAbsent(key, k -> new LongAdder());
+        counter.increment();
+        long total = errorCount.incrementAndGet();
+
+        long count = counter.sum();
+        if ((count <= logFirst || (count - logFirst) % logEvery == 0) && acquireLogPermit()) {
+            long suppressed = suppressedCount.getAndSet(0);
+            log.warn("Parse error #{} ({} for {}{}): {}{}", total, count, key,
+                    suppressed > 0 ? ", " + suppressed + " not logged since the last" : "",
+                    error.getMessage(), describeLocation(error, inputLine));
+        } else {
+            suppressedCount.incrementAndGet();
+        }
+        return isBudgetExceeded();
+    }
+
+    /**
+     * Determine if more errors than the error budget allows have been reported.
+     *
+     * @return {@code true} if the error budget has been exceeded and {@code false} if not.
+     */
+    public boolean isBudgetExceeded() {
+        return errorBudget != UNLIMITED && errorCount.get() > errorBudget;
+    }
+
+    /**
+     * Get the total number of errors reported.
+     *
+     * @return the number of errors.
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * Get the number of errors reported for each field - errors that don't relate to a field are counted by their exception type.
+     *
+     * @return a snapshot of the counts, sorted by key.
+     */
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        errorCounts.forEach((key, counter) -> counts.put(key, counter.sum()));
+        return counts;
+    }
+
+    /**
+     * Clear all counts so that the channel can be used for another parse.
+     */
+    public void reset() {
+        errorCounts.clear();
+        errorCount.set(0);
+        suppressedCount.set(0);
+    }
+
+    private static String describeLocation(Exception error, String inputLine) {
+        String location = "";
+        if (error instanceof FieldParseException) {
+            location = " [" + FieldParseException.class.cast(error).getLocation() + "]";
+        } else if (inputLine != null) {
+            location = " [line = " + inputLine + "]";
+        }
+        return location;
+    }
+
+    private static String getKey(Exception error) {
+        String key;
+        if (error instanceof FieldParseException && FieldParseException.class.cast(error).getField() != null) {
+            key = FieldParseException.class.cast(error).getField();
+        } else {
+            key = error.getClass().getSimpleName();
+        }
+        return key;
+    }
+
+    private synchronized boolean acquireLogPermit() {
+        long window = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        if (window != logWindow) {
+            logWindow = window;
+            logsInWindow = 0;
+        }
+        boolean permitted = logsInWindow < maxLogsPerSecond;
+        if (permitted) {
+            logsInWindow++;
+        }
+        return permitted;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package com.blackbear.flatworm.errors;
+
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dead-letter sink for records that fail to parse. Each {@link RejectedRecord} is written to a side file as a header line - carrying the
+ * line number, byte offset, line count, record name and reason - followed by the raw lines of the record:
+ * <pre>
+ * #REJECT line=2 offset=18 lines=1 record=4:book reason=Converting field book.price with value 'bad!!!'
+ * B000000002bad!!!
+ * </pre>
+ * The record name is prefixed with its length so that it may contain spaces, the reason runs to the end of the header line.
+ *
+ * The byte offset is only known when the input is read as bytes - by {@link com.blackbear.flatworm.FileParser#readParallel}, by {@link
+ * com.blackbear.flatworm.FileParser#stream()} over a data file or data content, or by {@link com.blackbear.flatworm.FileParser#read()}
+ * with {@link com.blackbear.flatworm.DataInputMode#MEMORY_MAPPED}. In {@link com.blackbear.flatworm.DataInputMode#STREAM} mode the
+ * input is read as characters, whose encoded length isn't tracked, so {@code offset=-1} is written and records are located by their line
+ * number instead.
+ * Records are handed to a background thread through a bounded queue and written through a buffer, so a feed full of bad records doesn't
+ * hold up the parse on I/O - the parse only waits should the queue fill up. The file can be read back via {@link #readRejectedRecords} and
+ * the lines of each record replayed through the same {@link com.blackbear.flatworm.FileFormat} (e.g. via {@link
+ * com.blackbear.flatworm.ParseContext#nextRecord(List)}).
+ *
+ * {@link #close()} must be called once parsing has finished - it waits for the queued records to be written.
+ *
+ * @author Alan Henson
+ */
+@Slf4j
+public class QuarantineWriter implements Closeable {
+
+    /**
+     * The default number of rejected records that can be queued before {@link #write(RejectedRecord)} waits for the background thread.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    static final String HEADER_PREFIX = "#REJECT ";
+
+    // Queued by close() to tell the background thread to finish.
+    private static final RejectedRecord END = new RejectedRecord(null, 0, -1, Collections.emptyList(), (String) null);
+
+    private final Writer out;
+    private final BlockingQueue<RejectedRecord> queue;
+    private final Thread writerThread;
+    private final AtomicLong writtenCount = new AtomicLong();
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    /**
+     * Create a {@code QuarantineWriter} that writes to the given file - any existing content is replaced.
+     *
+     * @param path    The quarantine file.
+     * @param charset The encoding of the quarantine file - typically the same as that of the input.
+     * @throws IOException should the file fail to open.
+     */
+    public QuarantineWriter(Path path, Charset charset) throws IOException {
+        this(Files.newBufferedWriter(path, charset), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a {@code QuarantineWriter}.
+     *
+     * @param out      Where the rejected records are written - it is closed when this writer is closed.
+     * @param capacity The number of rejected records that can be queued before {@link #write(RejectedRecord)} waits.
+     */
+    public QuarantineWriter(Writer out, int capacity) {
+        Preconditions.checkNotNull(out, "The Writer must be provided.");
+        Preconditions.checkArgument(capacity > 0, "The capacity must be greater than zero.");
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writerThread = new Thread(this::drain, "flatworm-quarantine-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queue a rejected record to be written.
+     *
+     * @param rejectedRecord The {@link RejectedRecord}.
+     */
+    public void write(RejectedRecord rejectedRecord) {
+        Preconditions.checkNotNull(rejectedRecord, "The RejectedRecord must be provided.");
+        Preconditions.checkState(!closed, "The QuarantineWriter has been closed.");
+        enqueue(rejectedRecord);
+    }
+
+    /**
+     * Get the number of rejected records written so far.
+     *
+     * @return the number of records.
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * Wait for all queued records to be written and close the underlying {@link Writer}.
+     *
+     * @throws IOException should writing any of the records have failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            enqueue(END);
+            boolean interrupted = false;
+            while (writerThread.isAlive()) {
+                try {
+                    writerThread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            out.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Read the rejected records back from a quarantine file.
+     *
+     * @param in The content of the quarantine file.
+     * @return the {@link RejectedRecord}s in the order they were written.
+     * @throws IOException should the content fail to be read or not be in the format written by a {@code QuarantineWriter}.
+     */
+    public static List<RejectedRecord> readRejectedRecords(BufferedReader in) throws IOException {
+        List<RejectedRecord> rejectedRecords = new ArrayList<>();
+        String header;
+        while ((header = in.readLine()) != null) {
+            String[] fields = header.startsWith(HEADER_PREFIX) ? header.substring(HEADER_PREFIX.length()).split(" ", 4) : new String[0];
+            if (fields.length < 4) {
+                throw new IOException("Malformed quarantine file - expected a header line but found: " + header);
+            }
+
+            int lineCount = Integer.parseInt(getValue(fields[2], "lines"));
+            List<String> lines = new ArrayList<>(lineCount);
+            for (int i = 0; i < lineCount; i++) {
+                String line = in.readLine();
+                if (line == null) {
+                    throw new IOException(String.format("Malformed quarantine file - expected %d lines after: %s", lineCount, header));
+                }
+                lines.add(line);
+            }
+
+            // record=<length>:<name> reason=<reason>
+            String remainder = getValue(fields[3], "record");
+            int separator = remainder.indexOf(':');
+            int nameLength = separator > 0 ? Integer.parseInt(remainder.substring(0, separator)) : -1;
+            int nameEnd = separator + 1 + nameLength;
+            if (nameLength < 0 || nameEnd > remainder.length() || !remainder.startsWith(" ", nameEnd)) {
+                throw new IOException("Malformed quarantine file - expected record=<length>:<name> but found: " + header);
+            }
+            String recordName = remainder.substring(separator + 1, nameEnd);
+            rejectedRecords.add(new RejectedRecord(recordName.isEmpty() ? null : recordName, Long.parseLong(getValue(fields[0], "line")),
+                    Long.parseLong(getValue(fields[1], "offset")), lines, getValue(remainder.substring(nameEnd + 1), "reason")));
+        }
+        return rejectedRecords;
+    }
+
+    private static String getValue(String field, String key) throws IOException {
+        if (!field.startsWith(key + "=")) {
+            throw new IOException(String.format("Malformed quarantine file - expected %s= but found: %s", key, field));
+        }
+        return field.substring(key.length() + 1);
+    }
+
+    private void enqueue(RejectedRecord rejectedRecord) {
+        boolean interrupted = false;
+        boolean queued = false;
+        while (!queued) {
+            try {
+                queue.put(rejectedRecord);
+                queued = true;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run on the background thread - writes whatever has been queued and flushes once the queue has been emptied.
+     */
+    private void drain() {
+        List<RejectedRecord> batch = new ArrayList<>();
+        boolean finished = false;
+        while (!finished) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                // Only close() ends the thread so that no queued record is lost.
+                continue;
+            }
+            queue.drainTo(batch);
+
+            for (RejectedRecord rejectedRecord : batch) {
+                if (rejectedRecord == END) {
+                    finished = true;
+                } else if (failure == null) {
+                    writeRecord(rejectedRecord);
+                }
+            }
+            batch.clear();
+
+            if (failure == null) {
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+    }
+
+    private void writeRecord(RejectedRecord rejectedRecord) {
+        try {
+            String reason = rejectedRecord.getReason() != null ? rejectedRecord.getReason().replaceAll("[\r\n]+", " ") : "";
+            String recordName = rejectedRecord.getRecordName() != null ? rejectedRecord.getRecordName().replaceAll("[\r\n]+", " ") : "";
+            out.write(String.format("%sline=%d offset=%d lines=%d record=%d:%s reason=%s%n", HEADER_PREFIX, rejectedRecord.getLineNumber(),
+                    rejectedRecord.getByteOffset(), rejectedRecord.getLines().size(), recordName.length(), recordName, reason));
+            for (String line : rejectedRecord.getLines()) {
+                out.write(line);
+                out.write(System.lineSeparator());
+            }
+            writtenCount.incrementAndGet();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        // Rejected records are discarded from here on so that the parse isn't blocked on a full queue - close() reports the failure.
+        log.error("Failed to write to the quarantine file - no further rejected records will be written.", e);
+        failure = e;
+    }
+}
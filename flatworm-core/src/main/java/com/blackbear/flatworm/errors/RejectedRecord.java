@@ -0,0 +1,85 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package com.blackbear.flatworm.errors;
+
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * A record that failed to parse - its raw lines along with where it was found and why it was rejected. Instances are written to a {@link
+ * QuarantineWriter} and can be read back from the quarantine file (see {@link QuarantineWriter#readRejectedRecords}) so that the lines can
+ * be replayed through the same {@link com.blackbear.flatworm.FileFormat} once the cause has been addressed.
+ *
+ * @author Alan Henson
+ */
+@Getter
+public class RejectedRecord {
+
+    /**
+     * The name of the record the lines were identified as - {@code null} if they didn't match a record.
+     */
+    private final String recordName;
+
+    /**
+     * The line number (starting at 1) of the first line of the record - {@code -1} should it not be known.
+     */
+    private final long lineNumber;
+
+    /**
+     * The byte offset of the first line of the record within the input - {@code -1} if the input was read as a character stream (see {@link
+     * QuarantineWriter}).
+     */
+    private final long byteOffset;
+
+    private final List<String> lines;
+
+    /**
+     * The reason the record was rejected - i.e. the message of the error.
+     */
+    private final String reason;
+
+    /**
+     * The error that caused the record to be rejected - {@code null} when read back from a quarantine file.
+     */
+    private final Exception error;
+
+    public RejectedRecord(String recordName, long lineNumber, long byteOffset, List<String> lines, Exception error) {
+        this(recordName, lineNumber, byteOffset, lines, describe(error), error);
+    }
+
+    public RejectedRecord(String recordName, long lineNumber, long byteOffset, List<String> lines, String reason) {
+        this(recordName, lineNumber, byteOffset, lines, reason, null);
+    }
+
+    private RejectedRecord(String recordName, long lineNumber, long byteOffset, List<String> lines, String reason, Exception error) {
+        this.recordName = recordName;
+        this.lineNumber = lineNumber;
+        this.byteOffset = byteOffset;
+        this.lines = Collections.unmodifiableList(lines);
+        this.reason = reason;
+        this.error = error;
+    }
+
+    private static String describe(Exception error) {
+        String reason = null;
+        if (error != null) {
+            reason = error.getMessage() != null ? error.getMessage() : error.getClass().getName();
+        }
+        return reason;
+    }
+}
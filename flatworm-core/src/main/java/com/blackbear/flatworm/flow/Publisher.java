@@ -0,0 +1,36 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.flow;
+
+/**
+ * A provider of a potentially unbounded number of items, published according to the demand received from its {@link Subscriber}s. This
+ * mirrors {@code java.util.concurrent.Flow.Publisher} (Java 9+) and {@code org.reactivestreams.Publisher} method for method, so adapting
+ * to either is a matter of delegation, while still being usable on Java 8.
+ *
+ * @param <T> The type of item published.
+ * @author Alan Henson
+ */
+@FunctionalInterface
+public interface Publisher<T> {
+
+    /**
+     * Request that the given {@link Subscriber} be sent items - {@link Subscriber#onSubscribe(Subscription)} is always called first.
+     *
+     * @param subscriber The {@link Subscriber} to send items to.
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+}
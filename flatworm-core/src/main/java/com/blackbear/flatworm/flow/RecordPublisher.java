@@ -0,0 +1,219 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.flow;
+
+import com.google.common.base.Preconditions;
+
+import com.blackbear.flatworm.FileParser;
+import com.blackbear.flatworm.MatchedRecord;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link Publisher} of the records parsed by a {@link FileParser}. Records are only read as they are requested plus, at most, a read-ahead
+ * of {@code readAhead} records that are parsed while waiting for more demand - a subscriber that requests slowly therefore throttles the
+ * reading of the input rather than records piling up in memory. Reading and delivery happen on the given {@link Executor}, one task at a
+ * time, so no thread is ever blocked waiting for demand.
+ *
+ * As the input can only be read once, only a single {@link Subscriber} is supported - any others receive {@link
+ * Subscriber#onError(Throwable)}. Errors parsing individual records are passed to the {@link FileParser}'s {@link
+ * com.blackbear.flatworm.callbacks.ExceptionCallback}s, just as they are by {@link FileParser#read()}, and don't end the subscription. The
+ * {@link FileParser} must be opened before subscribing and closed by the caller once the subscription has ended.
+ *
+ * @author Alan Henson
+ */
+@Slf4j
+public class RecordPublisher implements Publisher<MatchedRecord> {
+
+    /**
+     * The default number of records that are read ahead of demand.
+     */
+    public static final int DEFAULT_READ_AHEAD = 256;
+
+    private final FileParser fileParser;
+    private final Executor executor;
+    private final int readAhead;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Create a {@code RecordPublisher}.
+     *
+     * @param fileParser The {@link FileParser} to read the records from - it must have been opened.
+     * @param executor   The {@link Executor} on which the records are read and delivered.
+     * @param readAhead  The maximum number of records to read ahead of demand - {@code 0} to only read records once requested.
+     */
+    public RecordPublisher(FileParser fileParser, Executor executor, int readAhead) {
+        Preconditions.checkArgument(readAhead >= 0, "The readAhead must not be negative.");
+        this.fileParser = fileParser;
+        this.executor = executor;
+        this.readAhead = readAhead;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super MatchedRecord> subscriber) {
+        Preconditions.checkNotNull(subscriber, "The subscriber must not be null.");
+        if (subscribed.compareAndSet(false, true)) {
+            RecordSubscription subscription = new RecordSubscription(subscriber);
+            subscriber.onSubscribe(subscription);
+        } else {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("A RecordPublisher only supports a single subscriber."));
+        }
+    }
+
+    /**
+     * Delivers the records to a single {@link Subscriber}. All reading and signalling is done by {@link #run()}, which the work-in-progress
+     * counter ensures is only ever executing once at a time - the read-ahead buffer therefore needs no further synchronization.
+     */
+    private final class RecordSubscription implements Subscription, Runnable {
+        private final Subscriber<? super MatchedRecord> subscriber;
+        private final ArrayDeque<MatchedRecord> buffer = new ArrayDeque<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger workInProgress = new AtomicInteger();
+
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private Iterator<MatchedRecord> records;
+        private boolean exhausted;
+        private boolean terminated;
+
+        RecordSubscription(Subscriber<? super MatchedRecord> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The number of records requested must be greater than zero: " + n);
+            } else {
+                requested.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (workInProgress.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    cancelled = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = workInProgress.get();
+            do {
+                try {
+                    drain();
+                } catch (Throwable t) {
+                    terminate(t);
+                }
+                missed = workInProgress.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (records == null && !terminated && !cancelled) {
+                records = fileParser.iterator();
+            }
+
+            if (invalidRequest != null) {
+                terminate(invalidRequest);
+            }
+
+            long emitted = 0;
+            long demand = requested.get();
+            while (!terminated && !cancelled && emitted < demand && !(exhausted && buffer.isEmpty())) {
+                MatchedRecord record = buffer.isEmpty() ? readNext() : buffer.poll();
+                if (record != null) {
+                    subscriber.onNext(record);
+                    emitted++;
+                }
+                if (emitted == demand) {
+                    // Pick up any demand that arrived while delivering.
+                    demand = requested.addAndGet(-emitted);
+                    emitted = 0;
+                }
+            }
+            if (emitted > 0) {
+                requested.addAndGet(-emitted);
+            }
+
+            // Read ahead while waiting for more demand.
+            while (!terminated && !cancelled && !exhausted && buffer.size() < readAhead) {
+                MatchedRecord record = readNext();
+                if (record != null) {
+                    buffer.add(record);
+                }
+            }
+
+            if (!terminated && !cancelled && exhausted && buffer.isEmpty()) {
+                terminated = true;
+                subscriber.onComplete();
+            }
+            if (cancelled) {
+                buffer.clear();
+            }
+        }
+
+        private MatchedRecord readNext() {
+            MatchedRecord record = null;
+            if (records.hasNext()) {
+                record = records.next();
+            } else {
+                exhausted = true;
+            }
+            return record;
+        }
+
+        private void terminate(Throwable t) {
+            if (!terminated && !cancelled) {
+                terminated = true;
+                buffer.clear();
+                try {
+                    subscriber.onError(t);
+                } catch (RuntimeException e) {
+                    log.error("Subscriber " + subscriber.getClass().getName() + " failed handling an error.", e);
+                }
+            }
+        }
+    }
+}
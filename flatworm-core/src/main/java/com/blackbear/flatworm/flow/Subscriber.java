@@ -0,0 +1,54 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.flow;
+
+/**
+ * A receiver of items from a {@link Publisher}. Mirrors {@code java.util.concurrent.Flow.Subscriber} and
+ * {@code org.reactivestreams.Subscriber}. The methods are never called concurrently for a given {@link Subscription}.
+ *
+ * @param <T> The type of item received.
+ * @author Alan Henson
+ */
+public interface Subscriber<T> {
+
+    /**
+     * Called before any other method with the {@link Subscription} through which items are requested. No items are sent until they are
+     * requested through {@link Subscription#request(long)}.
+     *
+     * @param subscription The {@link Subscription}.
+     */
+    void onSubscribe(Subscription subscription);
+
+    /**
+     * Receive the next item - this is only ever called for items that have been requested.
+     *
+     * @param item The item.
+     */
+    void onNext(T item);
+
+    /**
+     * Called, at most once, when the {@link Publisher} fails - no other methods are called afterwards.
+     *
+     * @param throwable The cause of the failure.
+     */
+    void onError(Throwable throwable);
+
+    /**
+     * Called, at most once, when there are no more items - no other methods are called afterwards.
+     */
+    void onComplete();
+}
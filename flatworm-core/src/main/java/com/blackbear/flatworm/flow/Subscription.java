@@ -0,0 +1,39 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.flow;
+
+/**
+ * The link between a {@link Publisher} and a {@link Subscriber}, through which the {@link Subscriber} signals demand. Mirrors
+ * {@code java.util.concurrent.Flow.Subscription} and {@code org.reactivestreams.Subscription}.
+ *
+ * @author Alan Henson
+ */
+public interface Subscription {
+
+    /**
+     * Add to the number of items the {@link Subscriber} is prepared to receive.
+     *
+     * @param n The number of additional items - must be greater than zero, otherwise {@link Subscriber#onError(Throwable)} is called
+     *          with an {@link IllegalArgumentException}. The outstanding demand is capped at {@link Long#MAX_VALUE}.
+     */
+    void request(long n);
+
+    /**
+     * Stop sending items. Items already in flight may still be delivered.
+     */
+    void cancel();
+}
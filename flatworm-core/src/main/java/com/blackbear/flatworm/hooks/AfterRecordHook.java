@@ -0,0 +1,38 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.hooks;
+
+import com.blackbear.flatworm.FileFormat;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+
+/**
+ * Java counterpart to a record's {@code after-scriptlet} - invoked once a record has been parsed. Implementations are instantiated once,
+ * when the configuration is loaded, and must be thread-safe should the file be parsed in parallel.
+ *
+ * @author Alan Henson
+ */
+@FunctionalInterface
+public interface AfterRecordHook {
+
+    /**
+     * Called after the record has been parsed.
+     *
+     * @param fileFormat The {@link FileFormat} instance driving the parsing.
+     * @throws FlatwormParserException should the hook fail.
+     */
+    void afterRecord(FileFormat fileFormat) throws FlatwormParserException;
+}
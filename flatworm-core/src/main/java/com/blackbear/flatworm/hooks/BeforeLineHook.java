@@ -0,0 +1,46 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.hooks;
+
+import com.blackbear.flatworm.config.LineBO;
+import com.blackbear.flatworm.converters.ConversionHelper;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+
+import java.util.Map;
+
+/**
+ * Java counterpart to a line's {@code before-scriptlet} - invoked before a line of data is parsed into the beans.
+ * Implementations are instantiated once, when the configuration is loaded, and must be thread-safe should the file be parsed in
+ * parallel.
+ *
+ * @author Alan Henson
+ */
+@FunctionalInterface
+public interface BeforeLineHook {
+
+    /**
+     * Called before the line is parsed.
+     *
+     * @param line             The {@link LineBO} instance parsing the line.
+     * @param inputLine        The line of data.
+     * @param beans            The beans of the record being parsed, keyed by bean name.
+     * @param conversionHelper The {@link ConversionHelper} used to convert the line's values.
+     * @throws FlatwormParserException should the hook fail - this aborts the parsing of the record.
+     */
+    void beforeLine(LineBO line, String inputLine, Map<String, Object> beans, ConversionHelper conversionHelper)
+            throws FlatwormParserException;
+}
@@ -0,0 +1,81 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.hooks;
+
+import com.blackbear.flatworm.errors.FlatwormConfigurationException;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Helper for instantiating the Java hooks ({@link LineIdentityPredicate}, {@link BeforeRecordHook}, {@link AfterRecordHook}, {@link
+ * BeforeLineHook} and {@link AfterLineHook}) referenced by the configuration.
+ *
+ * @author Alan Henson
+ */
+public final class Hooks {
+
+    private Hooks() {
+    }
+
+    /**
+     * Load the class by name and create an instance of it using its no-arg constructor.
+     *
+     * @param className The fully qualified name of the hook class.
+     * @param hookType  The hook interface that the class must implement.
+     * @param <T>       The hook type.
+     * @return the hook instance.
+     * @throws FlatwormConfigurationException should the class not be found, not implement {@code hookType} or fail to be instantiated.
+     */
+    public static <T> T newInstance(String className, Class<T> hookType) throws FlatwormConfigurationException {
+        Class<?> hookClass;
+        try {
+            hookClass = Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            String message = String.format("Failed to load the %s class %s.", hookType.getSimpleName(), className);
+            throw new FlatwormConfigurationException(message, e);
+        }
+        return newInstance(hookClass, hookType);
+    }
+
+    /**
+     * Create an instance of the given class using its no-arg constructor.
+     *
+     * @param hookClass The hook class.
+     * @param hookType  The hook interface that the class must implement.
+     * @param <T>       The hook type.
+     * @return the hook instance.
+     * @throws FlatwormConfigurationException should the class not implement {@code hookType} or fail to be instantiated.
+     */
+    public static <T> T newInstance(Class<?> hookClass, Class<T> hookType) throws FlatwormConfigurationException {
+        if (!hookType.isAssignableFrom(hookClass)) {
+            throw new FlatwormConfigurationException(String.format("The class %s must implement %s.", hookClass.getName(),
+                    hookType.getName()));
+        }
+        T hook;
+        try {
+            hook = hookType.cast(hookClass.getDeclaredConstructor().newInstance());
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw new FlatwormConfigurationException(String.format("The constructor of %s failed: %s", hookClass.getName(),
+                    cause.getMessage()), cause instanceof Exception ? (Exception) cause : e);
+        } catch (ReflectiveOperationException e) {
+            throw new FlatwormConfigurationException(String.format("Failed to create an instance of %s - a public no-arg constructor is "
+                    + "required.", hookClass.getName()), e);
+        }
+        return hook;
+    }
+}
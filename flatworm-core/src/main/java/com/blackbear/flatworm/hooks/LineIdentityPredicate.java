@@ -0,0 +1,57 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.hooks;
+
+import com.blackbear.flatworm.FileFormat;
+import com.blackbear.flatworm.config.LineBO;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+
+/**
+ * Java counterpart to the {@code script-ident} configuration - determines whether or not a line of data belongs to a given record or
+ * line. Implementations are instantiated once, when the configuration is loaded, and are called directly (no script engine is involved).
+ * Implementations must be thread-safe should the file be parsed in parallel.
+ *
+ * @author Alan Henson
+ */
+@FunctionalInterface
+public interface LineIdentityPredicate {
+
+    /**
+     * Determine if the line of data should be parsed by the record that owns this predicate - the equivalent of a script identity's
+     * {@code matchesLine(fileFormat, line)} function.
+     *
+     * @param fileFormat The {@link FileFormat} instance driving the parsing.
+     * @param line       The line of data to be evaluated.
+     * @return {@code true} if the line matches and {@code false} if not.
+     * @throws FlatwormParserException should the evaluation fail.
+     */
+    boolean matches(FileFormat fileFormat, String line) throws FlatwormParserException;
+
+    /**
+     * Determine if the line of data should be parsed by the given {@link LineBO} instance - the equivalent of a script identity's {@code
+     * matchesLine(fileFormat, line, dataLine)} function. By default this delegates to {@link #matches(FileFormat, String)}.
+     *
+     * @param fileFormat The {@link FileFormat} instance driving the parsing.
+     * @param line       The {@link LineBO} instance whose identity is being tested.
+     * @param dataLine   The line of data to be evaluated.
+     * @return {@code true} if the line matches and {@code false} if not.
+     * @throws FlatwormParserException should the evaluation fail.
+     */
+    default boolean matches(FileFormat fileFormat, LineBO line, String dataLine) throws FlatwormParserException {
+        return matches(fileFormat, dataLine);
+    }
+}
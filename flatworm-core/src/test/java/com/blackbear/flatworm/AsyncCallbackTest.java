@@ -0,0 +1,191 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.errors.ErrorBudgetExceededException;
+import com.blackbear.flatworm.errors.ParseErrorChannel;
+import com.blackbear.flatworm.test.domain.Book;
+import com.blackbear.flatworm.test.domain.Videotape;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verify the ordering, in-flight bound and error handling of asynchronous callback dispatch.
+ *
+ * @author Alan Henson
+ */
+public class AsyncCallbackTest {
+
+    private String data;
+    private List<String> expected;
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        expected = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            if (i % 3 == 0) {
+                builder.append(String.format("V%09d%n", i));
+                builder.append(String.format("%-30s%n", "TITLE " + i));
+                expected.add("video:" + i);
+            } else {
+                builder.append(String.format("B%09d%n", i));
+                expected.add("book:" + i);
+            }
+        }
+        data = builder.toString();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void globalOrderTest() throws Exception {
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        FileParser parser = newParser(results, null);
+        parser.enableAsyncCallbacks(executor, CallbackOrdering.GLOBAL, 16);
+        read(parser);
+        assertEquals(expected, results);
+    }
+
+    @Test
+    public void perRecordNameOrderTest() throws Exception {
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        FileParser parser = newParser(results, null);
+        parser.enableAsyncCallbacks(executor, CallbackOrdering.PER_RECORD_NAME, 16);
+        read(parser);
+
+        assertEquals(filter(expected, "video"), filter(results, "video"));
+        assertEquals(filter(expected, "book"), filter(results, "book"));
+    }
+
+    @Test
+    public void unorderedBoundTest() throws Exception {
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        FileParser parser = newParser(results, () -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+        });
+        parser.enableAsyncCallbacks(executor, CallbackOrdering.UNORDERED, 2);
+        read(parser);
+
+        // read() only returns once everything dispatched has been processed.
+        assertEquals(expected.size(), results.size());
+        assertTrue("At most two records may be in flight, found " + maxActive.get(), maxActive.get() <= 2);
+
+        List<String> sortedExpected = new ArrayList<>(expected);
+        Collections.sort(sortedExpected);
+        Collections.sort(results);
+        assertEquals(sortedExpected, results);
+    }
+
+    @Test
+    public void exceptionTest() throws Exception {
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, data);
+        parser.registerRecordCallback("book", record -> {
+            throw new IllegalStateException("boom");
+        });
+        parser.registerExceptionCallback((ex, message, inputLine) -> errors.add(message));
+        parser.enableAsyncCallbacks(CallbackOrdering.UNORDERED, 8);
+        read(parser);
+        parser.disableAsyncCallbacks();
+
+        assertEquals(200, errors.size());
+        assertTrue(errors.get(0), errors.get(0).endsWith("boom"));
+    }
+
+    @Test(timeout = 10000)
+    public void errorBudgetTest() throws Exception {
+        AtomicInteger errors = new AtomicInteger();
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, data);
+        parser.setErrorChannel(new ParseErrorChannel(5));
+        parser.registerRecordCallback("book", record -> {
+            throw new IllegalStateException("boom");
+        });
+        parser.registerExceptionCallback((ex, message, inputLine) -> errors.incrementAndGet());
+        parser.enableAsyncCallbacks(executor, CallbackOrdering.GLOBAL, 16);
+        try {
+            read(parser);
+            fail("The parse should have been aborted once the error budget was exceeded.");
+        } catch (ErrorBudgetExceededException e) {
+            assertTrue(e.getErrorCount() > 5);
+        }
+        parser.disableAsyncCallbacks();
+        assertTrue(errors.get() > 5);
+    }
+
+    private FileParser newParser(List<String> results, Runnable work) {
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, data);
+        parser.registerRecordCallback("video", record -> {
+            if (work != null) {
+                work.run();
+            }
+            results.add("video:" + Integer.parseInt(((Videotape) record.getBean("video")).getSku()));
+        });
+        parser.registerRecordCallback("book", record -> {
+            if (work != null) {
+                work.run();
+            }
+            results.add("book:" + Integer.parseInt(((Book) record.getBean("book")).getSku()));
+        });
+        return parser;
+    }
+
+    private static void read(FileParser parser) throws Exception {
+        try {
+            parser.open();
+            parser.read();
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static List<String> filter(List<String> values, String prefix) {
+        List<String> filtered = new ArrayList<>();
+        for (String value : values) {
+            if (value.startsWith(prefix)) {
+                filtered.add(value);
+            }
+        }
+        return filtered;
+    }
+}
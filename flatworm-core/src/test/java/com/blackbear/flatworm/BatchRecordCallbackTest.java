@@ -0,0 +1,149 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.callbacks.BatchRecordCallback;
+import com.blackbear.flatworm.test.domain.Book;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verify that {@link BatchRecordCallback}s receive every record, in batches flushed on size, time and at the end of the input.
+ *
+ * @author Alan Henson
+ */
+public class BatchRecordCallbackTest {
+
+    private String data;
+    private List<Integer> expectedBooks;
+
+    @Before
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        expectedBooks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 3 == 0) {
+                builder.append(String.format("V%09d%n", i));
+                builder.append(String.format("%-30s%n", "TITLE " + i));
+            } else {
+                builder.append(String.format("B%09d%n", i));
+                expectedBooks.add(i);
+            }
+        }
+        data = builder.toString();
+    }
+
+    @Test
+    public void sizeAndEndOfInputTest() throws Exception {
+        List<List<MatchedRecord>> batches = new ArrayList<>();
+        List<Integer> singles = new ArrayList<>();
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, data);
+        parser.registerBatchRecordCallback("book", batches::add, 100);
+        parser.registerRecordCallback("book", record -> singles.add(sku(record)));
+        read(parser);
+
+        // 666 books - six full batches and what remains at the end of the input.
+        assertEquals(7, batches.size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(100, batches.get(i).size());
+        }
+        assertEquals(66, batches.get(6).size());
+        assertEquals(expectedBooks, skus(batches));
+        assertEquals(expectedBooks, singles);
+    }
+
+    @Test
+    public void timeLimitTest() throws Exception {
+        // Only books, so the deadline has to be checked as books are added rather than as other records are dispatched.
+        StringBuilder builder = new StringBuilder();
+        List<Integer> books = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            builder.append(String.format("B%09d%n", i));
+            books.add(i);
+        }
+        List<List<MatchedRecord>> batches = new ArrayList<>();
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, builder.toString());
+        parser.registerBatchRecordCallback("book", batches::add, 10000, 1, TimeUnit.NANOSECONDS);
+        read(parser);
+
+        // The oldest record of each batch expires before the next record is dispatched.
+        assertTrue("Expected the batches to be flushed on time, not size.", batches.size() > 1);
+        assertEquals(books, skus(batches));
+    }
+
+    @Test
+    public void errorPerBatchTest() throws Exception {
+        List<String> errors = new ArrayList<>();
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, data);
+        parser.registerExceptionCallback((ex, message, inputLine) -> errors.add(message));
+        parser.registerBatchRecordCallback("book", records -> {
+            throw new IllegalStateException("Sink unavailable");
+        }, 300);
+        read(parser);
+
+        assertEquals(3, errors.size());
+        assertTrue(errors.get(0), errors.get(0).contains("with 300 records: Sink unavailable"));
+        assertTrue(errors.get(2), errors.get(2).contains("with 66 records"));
+    }
+
+    @Test
+    public void parallelTest() throws Exception {
+        List<List<MatchedRecord>> batches = new ArrayList<>();
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, data);
+        BatchRecordCallback callback = batches::add;
+        parser.registerBatchRecordCallback("book", callback, 50);
+        try {
+            parser.open();
+            parser.readParallel(new ForkJoinPool(4), 97, ParallelDeliveryMode.UNORDERED);
+        } finally {
+            parser.close();
+        }
+
+        List<Integer> skus = skus(batches);
+        skus.sort(Integer::compare);
+        assertEquals(expectedBooks, skus);
+        assertTrue(parser.removeBatchRecordCallback("book", callback));
+    }
+
+    private static void read(FileParser parser) throws Exception {
+        try {
+            parser.open();
+            parser.read();
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static List<Integer> skus(List<List<MatchedRecord>> batches) {
+        List<Integer> skus = new ArrayList<>();
+        batches.forEach(batch -> batch.forEach(record -> skus.add(sku(record))));
+        return skus;
+    }
+
+    private static int sku(MatchedRecord record) {
+        return Integer.parseInt(((Book) record.getBean("book")).getSku());
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.annotations.Line;
+import com.blackbear.flatworm.annotations.Record;
+import com.blackbear.flatworm.annotations.RecordElement;
+import com.blackbear.flatworm.config.impl.DefaultAnnotationConfigurationReaderImpl;
+import com.blackbear.flatworm.test.domain.segment.Account;
+import com.blackbear.flatworm.test.domain.segment.ClassPeriod;
+import com.blackbear.flatworm.test.domain.segment.Student;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import lombok.Data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verify that recycling the beans between records produces the same content as creating new beans for each record.
+ *
+ * @author Alan Henson
+ */
+public class BeanReuseTest {
+
+    private static final String CONFIG = "<file-format>"
+            + "<converter name=\"char\" class=\"com.blackbear.flatworm.converters.CoreConverters\" method=\"convertChar\" "
+            + "return-type=\"java.lang.String\"/>"
+            + "<converter name=\"int\" class=\"com.blackbear.flatworm.converters.CoreConverters\" method=\"convertInteger\" "
+            + "return-type=\"java.lang.Integer\"/>"
+            + "<record name=\"class\">"
+            + "<record-ident><field-ident field-start=\"0\" field-length=\"2\"><match-string>CL</match-string></field-ident></record-ident>"
+            + "<record-definition>"
+            + "<bean name=\"class\" class=\"com.blackbear.flatworm.test.domain.segment.ClassPeriod\"/>"
+            + "<bean name=\"student\" class=\"com.blackbear.flatworm.test.domain.segment.Student\"/>"
+            + "<line delimit=\"|\">"
+            + "<record-element beanref=\"class.subject\" converter-name=\"char\"/>"
+            + "<record-element beanref=\"class.period\" converter-name=\"int\"/>"
+            + "<segment-element property-name=\"students\" beanref=\"student\" parent-beanref=\"class\" minCount=\"0\" maxCount=\"30\">"
+            + "<field-ident field-start=\"0\" field-length=\"1\"><match-string>S</match-string></field-ident>"
+            + "<record-element beanref=\"student.firstName\" converter-name=\"char\"/>"
+            + "<record-element beanref=\"student.lastName\" converter-name=\"char\"/>"
+            + "<record-element beanref=\"student.grade\" converter-name=\"int\"/>"
+            + "</segment-element>"
+            + "<record-element beanref=\"class.room\" converter-name=\"char\"/>"
+            + "</line></record-definition></record></file-format>";
+
+    private static final String DATA = String.format(
+            "CL|English|2|S|Bill|Smith|78|S|Peter|Jackson|91|S|Mary|Hardmann|87|S|Susan|Benet|88|109%n"
+                    + "CL|Arithmetic|2|S|Harry|Mirtle|93|S|Helen|Peters|87|S|Johnny|Jones|76|214%n"
+                    + "CL|Science|4|S|Peter|Jackson|86|S|Susan|Benet|85|S|Kelley|Laver|87|S|Bobbie|Jones|73|S|Pauline|Sturgis|84|112%n");
+
+    @Test
+    public void recycledSegmentBeansTest() throws Exception {
+        List<String> fresh = readClasses(false, Collections.newSetFromMap(new IdentityHashMap<>()));
+        Set<Object> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<String> reused = readClasses(true, instances);
+
+        assertEquals(fresh, reused);
+        assertEquals(3, reused.size());
+
+        // One class bean and as many student beans as the largest class has students.
+        assertEquals(6, instances.size());
+    }
+
+    @Test
+    public void addMethodBeansNotRecycledTest() throws Exception {
+        Set<Object> accounts = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<MatchedRecord> records = new ArrayList<>();
+        FileParser parser = new FileParser(resource("segment-example.xml"), resource("segment_input.txt"));
+        parser.setReuseBeans(true);
+        parser.registerRecordCallback("account", record -> {
+            records.add(record);
+            accounts.add(record.getBean("account"));
+        });
+        read(parser);
+
+        // The segments are added through add-methods, so the accounts can't be reset.
+        assertTrue(records.size() > 1);
+        assertEquals(records.size(), accounts.size());
+        assertTrue(accounts.stream().allMatch(account -> account instanceof Account));
+    }
+
+    @Test
+    public void notRecycledWithBatchCallbacksTest() throws Exception {
+        Set<Object> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        FileParser parser = new FileParser(CONFIG, DATA);
+        parser.setReuseBeans(true);
+        parser.registerBatchRecordCallback("class", records -> records.forEach(record -> instances.add(record.getBean("class"))), 10);
+        read(parser);
+        assertEquals(3, instances.size());
+    }
+
+    @Test
+    public void resettableBeanTest() throws Exception {
+        DefaultAnnotationConfigurationReaderImpl configLoader = new DefaultAnnotationConfigurationReaderImpl();
+        configLoader.setPerformValidation(false);
+        FileParser parser = new FileParser(configLoader.loadConfiguration(CountingBean.class), String.format("a,b%nc,d%ne,f%n"));
+        parser.setReuseBeans(true);
+
+        List<String> results = new ArrayList<>();
+        Set<Object> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        parser.registerHandler(CountingBean.class, bean -> {
+            instances.add(bean);
+            results.add(bean.getFirst() + bean.getSecond() + bean.getResets());
+        });
+        read(parser);
+
+        assertEquals(1, instances.size());
+        assertEquals(Arrays.asList("ab0", "cd1", "ef2"), results);
+    }
+
+    private List<String> readClasses(boolean reuseBeans, Set<Object> instances) throws Exception {
+        List<String> results = new ArrayList<>();
+        FileParser parser = new FileParser(CONFIG, DATA);
+        parser.setReuseBeans(reuseBeans);
+        parser.registerHandler("class", ClassPeriod.class, period -> {
+            instances.add(period);
+            StringBuilder builder = new StringBuilder(period.getSubject()).append(':').append(period.getPeriod()).append(':')
+                    .append(period.getRoom());
+            for (Student student : period.getStudents()) {
+                instances.add(student);
+                builder.append(':').append(student.getFirstName()).append(' ').append(student.getLastName()).append('=')
+                        .append(student.getGrade());
+            }
+            results.add(builder.toString());
+        });
+        read(parser);
+        return results;
+    }
+
+    private void read(FileParser parser) throws Exception {
+        List<Exception> errors = new ArrayList<>();
+        parser.registerExceptionCallback((ex, message, inputLine) -> errors.add(ex));
+        try {
+            parser.open();
+            parser.read();
+        } finally {
+            parser.close();
+        }
+        assertTrue("Unexpected errors: " + errors, errors.isEmpty());
+    }
+
+    private File resource(String name) throws Exception {
+        return new File(getClass().getClassLoader().getResource(name).toURI());
+    }
+
+    @Data
+    @Record(name = "counting", lines = @Line(delimiter = ","))
+    public static class CountingBean implements Resettable {
+        @RecordElement(order = 1)
+        private String first;
+
+        @RecordElement(order = 2)
+        private String second;
+
+        private int resets;
+
+        @Override
+        public void reset() {
+            first = null;
+            second = null;
+            resets++;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Verify that the {@link ByteRangeLineReader} can be read by character as well as by line.
+ *
+ * @author Alan Henson
+ */
+public class ByteRangeLineReaderTest {
+
+    private static final String DATA = "ab\r\ncd\ref\n\ngh";
+
+    @Test
+    public void readCharsTest() throws Exception {
+        BufferedReader reader = newReader();
+        StringBuilder content = new StringBuilder();
+        int c;
+        while ((c = reader.read()) >= 0) {
+            content.append((char) c);
+        }
+        assertEquals(DATA, content.toString());
+        assertFalse(reader.ready());
+    }
+
+    @Test
+    public void readArrayTest() throws Exception {
+        BufferedReader reader = newReader();
+        StringBuilder content = new StringBuilder();
+        char[] chars = new char[5];
+        int count;
+        while ((count = reader.read(chars, 1, 4)) >= 0) {
+            content.append(chars, 1, count);
+        }
+        assertEquals(DATA, content.toString());
+        assertEquals(0, newReader().read(chars, 0, 0));
+    }
+
+    @Test
+    public void mixedReadTest() throws Exception {
+        ByteRangeLineReader reader = newReader();
+        assertEquals('a', reader.read());
+        assertEquals("b", reader.readLine());
+        assertEquals(0, reader.getLastLineStart());
+        assertEquals("cd", reader.readLine());
+        assertEquals(4, reader.getLastLineStart());
+
+        assertEquals(2, reader.skip(2));
+        assertEquals('\n', reader.read());
+        assertEquals("", reader.readLine());
+        assertEquals('g', reader.read());
+        assertEquals('h', reader.read());
+        assertNull(reader.readLine());
+        assertEquals(-1, reader.read());
+    }
+
+    @Test(expected = IOException.class)
+    public void markTest() throws Exception {
+        ByteRangeLineReader reader = newReader();
+        assertFalse(reader.markSupported());
+        reader.mark(1);
+    }
+
+    private static ByteRangeLineReader newReader() {
+        // A small buffer so that lines and terminators span buffers.
+        return new ByteRangeLineReader(ByteSource.of(DATA.getBytes(StandardCharsets.UTF_8)), 0, StandardCharsets.UTF_8, 3);
+    }
+}
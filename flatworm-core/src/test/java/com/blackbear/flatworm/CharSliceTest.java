@@ -0,0 +1,84 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.config.ConversionOptionBO;
+import com.blackbear.flatworm.converters.CharSequenceConverterFunction;
+import com.blackbear.flatworm.converters.ConversionHelper;
+import com.blackbear.flatworm.converters.ConverterFunctionCache;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Verify that {@link CharSlice} behaves like the {@link String} operations it replaces.
+ *
+ * @author Alan Henson
+ */
+public class CharSliceTest {
+
+    @Test
+    public void sliceTest() {
+        String line = "AB  foo bar  CD";
+        CharSlice slice = new CharSlice(line, 2, 13);
+        assertEquals(line.substring(2, 13), slice.toString());
+        assertEquals(11, slice.length());
+        assertEquals('f', slice.charAt(2));
+        assertEquals("foo", slice.subSequence(2, 5).toString());
+
+        assertEquals(line.substring(2, 13).trim(), slice.trim().toString());
+        assertSame(slice, slice.set(line, 0, 2));
+        assertEquals("AB", slice.toString());
+        assertEquals("", slice.set(line, 2, 4).trim().toString());
+    }
+
+    @Test
+    public void justifyTest() {
+        ConversionHelper helper = new ConversionHelper();
+        Map<String, ConversionOptionBO> options = new HashMap<>();
+        options.put("pad-character", new ConversionOptionBO("pad-character", "0Oo"));
+
+        for (String justify : new String[]{"both", "left", "right"}) {
+            options.put("justify", new ConversionOptionBO("justify", justify));
+            for (String value : new String[]{"foo", "fooOO00", "oofoo", "oo00OOfooOO00", "000"}) {
+                CharSlice slice = new CharSlice("|" + value + "|", 1, value.length() + 1);
+                assertEquals(Util.justify(value, justify, options, 0), helper.transform(slice, options).toString());
+            }
+        }
+    }
+
+    @Test
+    public void charSequenceConverterTest() throws Exception {
+        CharSlice slice = new CharSlice("x42y", 1, 3);
+        ConverterFunctionCache.registerToTypeConverterFunction(StringBuilder.class,
+                (CharSequenceConverterFunction) (value, options) -> {
+                    assertSame("The slice should be passed through as is.", slice, value);
+                    return new StringBuilder(value);
+                });
+        try {
+            Object result = ConverterFunctionCache.convertFromCharSequence(StringBuilder.class, slice, new HashMap<>());
+            assertEquals("42", result.toString());
+        } finally {
+            ConverterFunctionCache.removeToTypeConverterFunction(StringBuilder.class);
+        }
+    }
+}
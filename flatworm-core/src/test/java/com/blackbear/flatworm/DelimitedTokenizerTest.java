@@ -0,0 +1,167 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.config.LineToken;
+import com.blackbear.flatworm.config.impl.FieldIdentityImpl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verify the {@link DelimitedTokenizer} - including that it agrees with the original split logic for lines without escaped quotes.
+ *
+ * @author Alan Henson
+ */
+public class DelimitedTokenizerTest {
+
+    @Test
+    public void simpleTokensTest() {
+        assertEquals(Arrays.asList("a", "bc", "", "d", ""), tokens("a,bc,,d,", ',', '"'));
+        assertEquals(Arrays.asList(""), tokens("", ',', '"'));
+    }
+
+    @Test
+    public void quotedTokensTest() {
+        assertEquals(Arrays.asList("a,b", "c", ""), tokens("\"a,b\",c,\"\"", ',', '"'));
+        assertEquals(Arrays.asList("say \"hi\"", "x"), tokens("\"say \"\"hi\"\"\",x", ',', '"'));
+        assertEquals(Arrays.asList("\"", "ab"), tokens("\"\"\"\",a\"\"b", ',', '"'));
+        assertEquals(Arrays.asList("xy,zw", "ab", "cd"), tokens("x\"y,z\"w,ab\"\",\"\"cd", ',', '"'));
+    }
+
+    @Test
+    public void positionsTest() {
+        DelimitedTokenizer tokenizer = new DelimitedTokenizer();
+        tokenizer.tokenize("ab|\"c|d\"|e", '|', '"');
+        LineToken lineToken = tokenizer.getLineToken(1);
+        assertEquals("c|d", lineToken.getToken());
+        assertEquals(3, lineToken.getColumnPosition());
+        assertEquals(5, lineToken.getFullTokenLength());
+        assertEquals(9, tokenizer.getLineToken(2).getColumnPosition());
+    }
+
+    @Test
+    public void skipMatchingTest() {
+        FieldIdentityImpl identity = new FieldIdentityImpl(false);
+        identity.setStartPosition(3);
+        identity.setFieldLength(2);
+        identity.addMatchingString("ID");
+
+        DelimitedTokenizer tokenizer = new DelimitedTokenizer(2);
+        tokenizer.tokenize("ID,ID,a,ID,b", ',', '"');
+        assertEquals(4, tokenizer.skipMatching(identity));
+
+        CharSlice slice = new CharSlice();
+        assertEquals("ID", tokenizer.getToken(0, slice).toString());
+        assertEquals("a", tokenizer.getToken(1, slice).toString());
+        assertEquals("ID", tokenizer.getToken(2, slice).toString());
+        assertEquals(6, tokenizer.getLineToken(1).getColumnPosition());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfRangeTest() {
+        DelimitedTokenizer tokenizer = new DelimitedTokenizer();
+        tokenizer.tokenize("a,b", ',', '"');
+        tokenizer.getToken(2, new CharSlice());
+    }
+
+    @Test
+    public void matchesOriginalSplitTest() {
+        Random random = new Random(42);
+        DelimitedTokenizer tokenizer = new DelimitedTokenizer(1);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder line = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                line.append("ab,\"".charAt(random.nextInt(4)));
+            }
+            String value = line.toString();
+
+            // Escaped quotes are the one place where the tokenizer deliberately differs from the original logic.
+            if (!containsEscapedQuote(value)) {
+                List<LineToken> expected = originalSplit(value, ',', '"');
+                int tokenCount = tokenizer.tokenize(value, ',', '"');
+                assertEquals("Token count for " + value, expected.size(), tokenCount);
+                for (int j = 0; j < tokenCount; j++) {
+                    LineToken actual = tokenizer.getLineToken(j);
+                    assertEquals("Token for " + value, expected.get(j).getToken(), actual.getToken());
+                    assertEquals("Position for " + value, expected.get(j).getColumnPosition(), actual.getColumnPosition());
+                    assertEquals("Length for " + value, expected.get(j).getFullTokenLength(), actual.getFullTokenLength());
+                }
+
+                // Other CharSequence implementations are scanned character by character rather than through String.indexOf.
+                assertEquals(tokens(value, ',', '"'), tokens(new StringBuilder(value), ',', '"'));
+            }
+        }
+    }
+
+    private static List<String> tokens(CharSequence line, char delimiter, char quote) {
+        DelimitedTokenizer tokenizer = new DelimitedTokenizer();
+        CharSlice slice = new CharSlice();
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < tokenizer.tokenize(line, delimiter, quote); i++) {
+            tokens.add(tokenizer.getToken(i, slice).toString());
+        }
+        return tokens;
+    }
+
+    private static boolean containsEscapedQuote(String line) {
+        boolean inQuote = false;
+        boolean escaped = false;
+        for (int i = 0; i < line.length() && !escaped; i++) {
+            if (line.charAt(i) == '"') {
+                escaped = inQuote && i + 1 < line.length() && line.charAt(i + 1) == '"';
+                inQuote = !inQuote;
+            }
+        }
+        return escaped;
+    }
+
+    /**
+     * The split logic that {@link DelimitedTokenizer} replaced.
+     */
+    private static List<LineToken> originalSplit(String str, char chrSplit, char chrQuote) {
+        List<LineToken> tokens = new ArrayList<>();
+        StringBuilder str1 = new StringBuilder();
+        boolean inQuote = false;
+
+        int colIdx = 0;
+        int tokenLength = 0;
+        for (; colIdx < str.length(); colIdx++) {
+            if (str.charAt(colIdx) == chrSplit && !inQuote) {
+                tokens.add(new LineToken(str1.toString(), tokenLength, colIdx));
+                str1 = new StringBuilder();
+                tokenLength = 0;
+            } else if (str.charAt(colIdx) == chrQuote) {
+                tokenLength++;
+                inQuote = (!inQuote);
+            } else {
+                tokenLength++;
+                str1.append(str.charAt(colIdx));
+            }
+        }
+
+        tokens.add(new LineToken(str1.toString(), tokenLength, colIdx));
+        return tokens;
+    }
+}
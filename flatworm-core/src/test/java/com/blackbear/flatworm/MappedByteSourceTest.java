@@ -0,0 +1,106 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.test.domain.Book;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verify that data can be read through windows of a memory-mapped file.
+ *
+ * @author Alan Henson
+ */
+public class MappedByteSourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readLinesAcrossWindowsTest() throws Exception {
+        File dataFile = writeFile("first line\r\nsecond\n\nfourth line is longer\rfifth\r\nlast");
+
+        try (MappedByteSource source = new MappedByteSource(FileChannel.open(dataFile.toPath(), StandardOpenOption.READ), 7)) {
+            ByteRangeLineReader reader = new ByteRangeLineReader(source, 0, StandardCharsets.UTF_8);
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            assertEquals(Arrays.asList("first line", "second", "", "fourth line is longer", "fifth", "last"), lines);
+
+            ByteBuffer buffer = ByteBuffer.allocate(10);
+            // Reads stop at the end of the window.
+            assertEquals(2, source.read(buffer, 5));
+            assertEquals(" l", new String(buffer.array(), 0, 2, StandardCharsets.UTF_8));
+            assertEquals(-1, source.read(buffer, source.size()));
+        }
+    }
+
+    @Test
+    public void fileParserTest() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            builder.append(String.format("B%09d%n", i));
+            expected.add(String.format("%09d", i));
+        }
+        File dataFile = writeFile(builder.toString());
+
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, dataFile);
+        parser.setDataInputMode(DataInputMode.MEMORY_MAPPED);
+        parser.setMappedWindowSize(64);
+
+        List<String> skus = new ArrayList<>();
+        List<Exception> errors = new ArrayList<>();
+        parser.registerRecordCallback("book", record -> skus.add(((Book) record.getBean("book")).getSku()));
+        parser.registerExceptionCallback((ex, message, inputLine) -> errors.add(ex));
+        try {
+            parser.open();
+            assertTrue(parser.bufIn instanceof ByteRangeLineReader);
+            parser.read();
+        } finally {
+            parser.close();
+        }
+
+        assertTrue("Unexpected errors: " + errors, errors.isEmpty());
+        assertEquals(expected, skus);
+        assertNull(parser.mappedSource);
+    }
+
+    private File writeFile(String content) throws Exception {
+        File dataFile = folder.newFile();
+        Files.write(dataFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return dataFile;
+    }
+}
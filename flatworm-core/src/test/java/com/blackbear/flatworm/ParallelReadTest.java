@@ -0,0 +1,185 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.config.impl.DefaultConfigurationReaderImpl;
+import com.blackbear.flatworm.test.domain.Book;
+import com.blackbear.flatworm.test.domain.Film;
+import com.blackbear.flatworm.test.domain.Videotape;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verify that reading in parallel produces the same records as reading sequentially.
+ *
+ * @author Alan Henson
+ */
+public class ParallelReadTest {
+
+    static final String CONFIG = "<file-format encoding=\"UTF-8\">"
+            + "<converter name=\"char\" class=\"com.blackbear.flatworm.converters.CoreConverters\" method=\"convertChar\" "
+            + "return-type=\"java.lang.String\"/>"
+            + "<record name=\"video\">"
+            + "<record-ident><field-ident field-start=\"0\" field-length=\"1\"><match-string>V</match-string></field-ident></record-ident>"
+            + "<record-definition>"
+            + "<bean name=\"video\" class=\"com.blackbear.flatworm.test.domain.Videotape\"/>"
+            + "<bean name=\"film\" class=\"com.blackbear.flatworm.test.domain.Film\"/>"
+            + "<line><record-element start=\"1\" end=\"10\" beanref=\"video.sku\" converter-name=\"char\"/></line>"
+            + "<line><record-element start=\"0\" end=\"30\" beanref=\"film.title\" converter-name=\"char\">"
+            + "<conversion-option name=\"justify\" value=\"left\"/></record-element></line>"
+            + "</record-definition></record>"
+            + "<record name=\"book\">"
+            + "<record-ident><field-ident field-start=\"0\" field-length=\"1\"><match-string>B</match-string></field-ident></record-ident>"
+            + "<record-definition>"
+            + "<bean name=\"book\" class=\"com.blackbear.flatworm.test.domain.Book\"/>"
+            + "<line><record-element start=\"1\" end=\"10\" beanref=\"book.sku\" converter-name=\"char\"/></line>"
+            + "</record-definition></record>"
+            + "</file-format>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String data;
+    private List<String> expected;
+
+    @Before
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 3 == 0) {
+                // The second line of the video record looks like a book record.
+                builder.append(String.format("V%09d%n", i));
+                builder.append(String.format("%-30s%n", "B-TITLE " + i));
+                expected.add("video:" + i + ":B-TITLE " + i);
+            } else {
+                builder.append(String.format("B%09d%n", i));
+                expected.add("book:" + i);
+            }
+        }
+        data = builder.toString();
+    }
+
+    @Test
+    public void sequentialBaselineTest() throws Exception {
+        assertEquals(expected, read(new FileParser(CONFIG, data), null));
+    }
+
+    @Test
+    public void orderedContentTest() throws Exception {
+        assertEquals(expected, read(new FileParser(CONFIG, data), ParallelDeliveryMode.ORDERED));
+    }
+
+    @Test
+    public void orderedFileTest() throws Exception {
+        File dataFile = folder.newFile("parallel.txt");
+        Files.write(dataFile.toPath(), data.getBytes(StandardCharsets.UTF_8));
+        assertEquals(expected, read(new FileParser(CONFIG, dataFile), ParallelDeliveryMode.ORDERED));
+    }
+
+    @Test
+    public void unorderedTest() throws Exception {
+        List<String> results = read(new FileParser(CONFIG, data), ParallelDeliveryMode.UNORDERED);
+        List<String> sortedExpected = new ArrayList<>(expected);
+        Collections.sort(sortedExpected);
+        Collections.sort(results);
+        assertEquals(sortedExpected, results);
+    }
+
+    @Test(timeout = 10000)
+    public void sourceFailureTest() throws Exception {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        ByteSource failingSource = new ByteSource() {
+            @Override
+            public int read(ByteBuffer destination, long position) throws IOException {
+                if (position >= 100) {
+                    throw new IOException("Device error");
+                }
+                int count = (int) Math.min(destination.remaining(), 100 - position);
+                destination.put(bytes, (int) position, count);
+                return count;
+            }
+
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+        };
+
+        List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+        FileParser parser = new FileParser(CONFIG, data);
+        parser.registerExceptionCallback((ex, message, inputLine) -> errors.add(ex));
+        parser.open();
+        try {
+            new ParallelFileReader(parser, new DefaultConfigurationReaderImpl().loadConfigurationFile(
+                    new ByteArrayInputStream(CONFIG.getBytes(StandardCharsets.UTF_8))), failingSource, StandardCharsets.UTF_8,
+                    new ForkJoinPool(2), bytes.length, ParallelDeliveryMode.ORDERED).read();
+            fail("The read should have failed.");
+        } catch (IOException e) {
+            assertEquals("Device error", e.getMessage());
+        } finally {
+            parser.close();
+        }
+        assertTrue("A broken source isn't a parse error: " + errors, errors.isEmpty());
+    }
+
+    private List<String> read(FileParser parser, ParallelDeliveryMode deliveryMode) throws Exception {
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+
+        parser.registerRecordCallback("video", record -> {
+            Videotape video = (Videotape) record.getBean("video");
+            Film film = (Film) record.getBean("film");
+            results.add("video:" + Integer.parseInt(video.getSku()) + ":" + film.getTitle());
+        });
+        parser.registerRecordCallback("book", record -> results.add("book:" + Integer.parseInt(((Book) record.getBean("book")).getSku())));
+        parser.registerExceptionCallback((ex, message, inputLine) -> errors.add(ex));
+
+        try {
+            parser.open();
+            if (deliveryMode == null) {
+                parser.read();
+            } else {
+                // Small chunks so that plenty of chunk boundaries land in the middle of records.
+                parser.readParallel(new ForkJoinPool(4), 97, deliveryMode);
+            }
+        } finally {
+            parser.close();
+        }
+
+        assertTrue("Unexpected errors: " + errors, errors.isEmpty());
+        return results;
+    }
+}
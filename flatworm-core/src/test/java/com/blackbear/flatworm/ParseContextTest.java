@@ -0,0 +1,177 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.config.LineBO;
+import com.blackbear.flatworm.config.RecordBO;
+import com.blackbear.flatworm.config.RecordDefinitionBO;
+import com.blackbear.flatworm.config.impl.DefaultConfigurationReaderImpl;
+import com.blackbear.flatworm.config.impl.FieldIdentityImpl;
+import com.blackbear.flatworm.test.domain.Book;
+import com.blackbear.flatworm.test.domain.Film;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verify that a single loaded {@link FileFormat} can be shared across {@link ParseContext} instances and threads.
+ *
+ * @author Alan Henson
+ */
+public class ParseContextTest {
+
+    private FileFormat fileFormat;
+
+    @Before
+    public void setup() throws Exception {
+        fileFormat = new DefaultConfigurationReaderImpl().loadConfigurationFile(
+                new ByteArrayInputStream(ParallelReadTest.CONFIG.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void interleavedContextsTest() throws Exception {
+        String data = String.format("V000000001%n%-30s%nB000000002%nB000000003%n", "FIRST");
+        BufferedReader first = new BufferedReader(new StringReader(data));
+        BufferedReader second = new BufferedReader(new StringReader(data));
+        ParseContext firstContext = fileFormat.newParseContext();
+        ParseContext secondContext = fileFormat.newParseContext();
+
+        assertEquals("video", firstContext.nextRecord(first).getRecordName());
+        assertEquals("FIRST", ((Film) firstContext.getLastRecordRead().getBean("film")).getTitle());
+        assertEquals("video", secondContext.nextRecord(second).getRecordName());
+        assertEquals("000000002", ((Book) firstContext.nextRecord(first).getBean("book")).getSku());
+        // Only the first line of each record is counted.
+        assertEquals(2, firstContext.getLineNumber());
+        assertEquals(1, secondContext.getLineNumber());
+
+        assertEquals("000000002", ((Book) secondContext.nextRecord(second).getBean("book")).getSku());
+        assertEquals("000000003", ((Book) secondContext.nextRecord(second).getBean("book")).getSku());
+        assertEquals(3, secondContext.getLineNumber());
+        assertEquals(2, firstContext.getLineNumber());
+
+        // The FileFormat itself only reports the state of a ParseContext while that context is parsing.
+        assertEquals(0, fileFormat.getLineNumber());
+    }
+
+    @Test
+    public void sharedFileFormatTest() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            builder.append(String.format("B%09d%n", i));
+            expected.add(String.format("%09d", i));
+        }
+        String data = builder.toString();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(read(new FileParser(fileFormat, data))));
+            }
+            for (Future<List<String>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void failingLineNotReparsedTest() throws Exception {
+        // A record that only has lines with identities, where parsing the line always fails.
+        FileFormat failingFormat = new FileFormat();
+        RecordBO record = new RecordBO();
+        record.setName("a");
+        record.setRecordIdentity(fieldIdentity("A"));
+        RecordDefinitionBO definition = new RecordDefinitionBO();
+        LineBO line = new LineBO();
+        line.setLineIdentity(fieldIdentity("A"));
+        line.setBeforeLineHook((lineBO, inputLine, beans, conversionHelper) -> {
+            throw new IllegalStateException("Always fails");
+        });
+        definition.addLine(line);
+        record.setRecordDefinition(definition);
+        failingFormat.addRecord(record);
+
+        List<String> readErrors = new ArrayList<>();
+        FileParser parser = new FileParser(failingFormat, "A1\nA2\n");
+        parser.registerExceptionCallback((ex, message, inputLine) -> readErrors.add(inputLine));
+        try {
+            parser.open();
+            parser.read();
+        } finally {
+            parser.close();
+        }
+        assertEquals(Arrays.asList("A1", "A2"), readErrors);
+
+        List<String> streamErrors = new ArrayList<>();
+        parser = new FileParser(failingFormat, "A1\nA2\n");
+        parser.registerExceptionCallback((ex, message, inputLine) -> streamErrors.add(inputLine));
+        try {
+            parser.open();
+            ParseContext parseContext = failingFormat.newParseContext();
+            BufferedReader in = new BufferedReader(new StringReader("A1\nA2\n"));
+            assertEquals(0, StreamSupport.stream(new ReaderRecordSpliterator(parser, parseContext, in), false).count());
+        } finally {
+            parser.close();
+        }
+        assertEquals(Arrays.asList("A1", "A2"), streamErrors);
+    }
+
+    private static FieldIdentityImpl fieldIdentity(String matchingString) {
+        FieldIdentityImpl identity = new FieldIdentityImpl(false);
+        identity.setStartPosition(0);
+        identity.setFieldLength(matchingString.length());
+        identity.addMatchingString(matchingString);
+        return identity;
+    }
+
+    private static Callable<List<String>> read(FileParser parser) {
+        return () -> {
+            List<String> skus = new ArrayList<>();
+            List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+            parser.registerRecordCallback("book", record -> skus.add(((Book) record.getBean("book")).getSku()));
+            parser.registerExceptionCallback((ex, message, inputLine) -> errors.add(ex));
+            try {
+                parser.open();
+                parser.read();
+            } finally {
+                parser.close();
+            }
+            assertTrue("Unexpected errors: " + errors, errors.isEmpty());
+            return skus;
+        };
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.config.ConversionOptionBO;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verify that {@link PropertyAccessor} and the {@link MethodHandleMappingStrategy} behave as {@code PropertyUtils} does.
+ *
+ * @author Alan Henson
+ */
+public class PropertyAccessorTest {
+
+    @Test
+    public void publicBeanTest() {
+        PublicBean bean = new PublicBean();
+
+        PropertyAccessor name = PropertyAccessor.forProperty(PublicBean.class, "name");
+        assertSame("Accessors should be resolved once.", name, PropertyAccessor.forProperty(PublicBean.class, "name"));
+        assertEquals(String.class, name.getPropertyType());
+        name.set(bean, "test");
+        assertEquals("test", name.get(bean));
+
+        PropertyAccessor count = PropertyAccessor.forProperty(PublicBean.class, "count");
+        assertEquals(int.class, count.getPropertyType());
+        count.set(bean, 42);
+        assertEquals(42, count.get(bean));
+
+        PropertyAccessor readOnly = PropertyAccessor.forProperty(PublicBean.class, "readOnly");
+        assertTrue(readOnly.isReadable());
+        assertFalse(readOnly.isWritable());
+    }
+
+    @Test
+    public void privateBeanTest() {
+        PrivateBean bean = new PrivateBean();
+        PropertyAccessor value = PropertyAccessor.forProperty(PrivateBean.class, "value");
+        value.set(bean, 1.5D);
+        assertEquals(1.5D, bean.getValue(), 0D);
+
+        // Fields without setters are set directly.
+        PropertyAccessor field = PropertyAccessor.forProperty(PrivateBean.class, "field");
+        field.set(bean, "direct");
+        assertEquals("direct", bean.field);
+        assertEquals("direct", field.get(bean));
+    }
+
+    @Test
+    public void primitiveSetterTest() {
+        PublicBean publicBean = new PublicBean();
+        PropertyAccessor count = PropertyAccessor.forProperty(PublicBean.class, "count");
+        count.setInt(publicBean, 7);
+        assertEquals(7, publicBean.getCount());
+
+        PrivateBean privateBean = new PrivateBean();
+        PropertyAccessor value = PropertyAccessor.forProperty(PrivateBean.class, "value");
+        value.setDouble(privateBean, 2.5D);
+        assertEquals(2.5D, privateBean.getValue(), 0D);
+
+        try {
+            count.setLong(publicBean, 7L);
+            fail("An int property should not accept a long.");
+        } catch (UnsupportedOperationException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void unresolvableTest() {
+        assertNull(PropertyAccessor.forProperty(PublicBean.class, "missing"));
+        assertNull(PropertyAccessor.forProperty(PublicBean.class, "name.length"));
+        assertNull(PropertyAccessor.forProperty(PublicBean.class, "names[0]"));
+    }
+
+    @Test
+    public void mappingStrategyTest() throws Exception {
+        PublicBean bean = new PublicBean();
+        MethodHandleMappingStrategy strategy = new MethodHandleMappingStrategy();
+        strategy.mapBean(bean, "bean", "name", "first", Collections.emptyMap());
+        assertEquals("first", bean.getName());
+
+        Map<String, ConversionOptionBO> options = new HashMap<>();
+        options.put("append", new ConversionOptionBO("append", "true"));
+        strategy.mapBean(bean, "bean", "name", "second", options);
+        assertEquals("firstsecond", bean.getName());
+    }
+
+    public static class PublicBean {
+        private String name;
+        private int count;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public String getReadOnly() {
+            return "readOnly";
+        }
+    }
+
+    private static class PrivateBean {
+        private double value;
+        private String field;
+
+        public double getValue() {
+            return value;
+        }
+
+        public void setValue(double value) {
+            this.value = value;
+        }
+    }
+}
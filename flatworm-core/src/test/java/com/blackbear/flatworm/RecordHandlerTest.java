@@ -0,0 +1,224 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.annotations.Line;
+import com.blackbear.flatworm.annotations.Record;
+import com.blackbear.flatworm.annotations.RecordElement;
+import com.blackbear.flatworm.config.impl.DefaultAnnotationConfigurationReaderImpl;
+import com.blackbear.flatworm.errors.FlatwormConfigurationException;
+import com.blackbear.flatworm.test.domain.Book;
+import com.blackbear.flatworm.test.domain.Film;
+import com.blackbear.flatworm.test.domain.Videotape;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import lombok.Data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verify that typed handlers are handed the beans of the records they are registered for.
+ *
+ * @author Alan Henson
+ */
+public class RecordHandlerTest {
+
+    private static final String DATA = String.format("B%09d%nV%09d%n%-30s%nB%09d%n", 1, 2, "FROZEN", 3);
+
+    // A record with two beans of the same class.
+    private static final String PAIR_CONFIG = "<file-format encoding=\"UTF-8\">"
+            + "<converter name=\"char\" class=\"com.blackbear.flatworm.converters.CoreConverters\" method=\"convertChar\" "
+            + "return-type=\"java.lang.String\"/>"
+            + "<record name=\"pair\">"
+            + "<record-ident><field-ident field-start=\"0\" field-length=\"1\"><match-string>P</match-string></field-ident></record-ident>"
+            + "<record-definition>"
+            + "<bean name=\"first\" class=\"com.blackbear.flatworm.test.domain.Book\"/>"
+            + "<bean name=\"second\" class=\"com.blackbear.flatworm.test.domain.Book\"/>"
+            + "<line>"
+            + "<record-element start=\"1\" end=\"5\" beanref=\"first.sku\" converter-name=\"char\"/>"
+            + "<record-element start=\"5\" end=\"9\" beanref=\"second.sku\" converter-name=\"char\"/>"
+            + "</line>"
+            + "</record-definition></record>"
+            + "</file-format>";
+
+    @Test
+    public void typedHandlerTest() throws Exception {
+        List<String> results = new ArrayList<>();
+        List<Exception> errors = new ArrayList<>();
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, DATA);
+        parser.registerHandler("book", Book.class, book -> results.add("book:" + Integer.parseInt(book.getSku())));
+        parser.registerHandler("video", Videotape.class, video -> results.add("video:" + Integer.parseInt(video.getSku())));
+        parser.registerHandler("video", Film.class, film -> results.add("film:" + film.getTitle()));
+        parser.registerExceptionCallback((ex, message, inputLine) -> errors.add(ex));
+
+        try {
+            parser.open();
+            parser.read();
+        } finally {
+            parser.close();
+        }
+
+        assertTrue("Unexpected errors: " + errors, errors.isEmpty());
+        assertEquals(Arrays.asList("book:1", "video:2", "film:FROZEN", "book:3"), results);
+    }
+
+    @Test
+    public void assignableTypeTest() throws Exception {
+        List<Object> results = new ArrayList<>();
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, DATA);
+        parser.registerHandler("book", Object.class, results::add);
+
+        try {
+            parser.open();
+            parser.read();
+        } finally {
+            parser.close();
+        }
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0) instanceof Book);
+    }
+
+    @Test
+    public void ambiguousTypeTest() throws Exception {
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, DATA);
+        try {
+            parser.open();
+            try {
+                parser.registerHandler("video", Object.class, video -> fail("Handler should not have been registered."));
+                fail("Expected the registration to be rejected - the video record has two beans.");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("more than one"));
+            }
+            parser.read();
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Test
+    public void ambiguousExactTypeTest() throws Exception {
+        FileParser parser = new FileParser(PAIR_CONFIG, String.format("P00010002%n"));
+        try {
+            parser.open();
+            try {
+                parser.registerHandler("pair", Book.class, book -> fail("Handler should not have been registered."));
+                fail("Expected the registration to be rejected - the pair record has two beans of exactly the type.");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("more than one"));
+            }
+            parser.read();
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Test
+    public void parallelHandlerTest() throws Exception {
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        List<String> videos = Collections.synchronizedList(new ArrayList<>());
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, DATA);
+        parser.registerHandler("book", Book.class, book -> results.add("book:" + Integer.parseInt(book.getSku())));
+        parser.registerHandler("video", Film.class, film -> results.add("film:" + film.getTitle()));
+        parser.registerRecordCallback("video", record -> videos.add(((Film) record.getBean("film")).getTitle()));
+
+        try {
+            parser.open();
+            parser.readParallel(new ForkJoinPool(2), 16, ParallelDeliveryMode.ORDERED);
+        } finally {
+            parser.close();
+        }
+
+        assertEquals(Arrays.asList("book:1", "film:FROZEN", "book:3"), results);
+        assertEquals(Collections.singletonList("FROZEN"), videos);
+    }
+
+    @Test
+    public void unknownRecordTest() throws Exception {
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, DATA);
+        parser.registerHandler("missing", Book.class, book -> fail("Handler should not be invoked."));
+        try {
+            parser.open();
+            fail("Expected the handler for an unknown record to be rejected.");
+        } catch (FlatwormConfigurationException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("missing"));
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Test
+    public void removeHandlerTest() throws Exception {
+        List<String> results = new ArrayList<>();
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, DATA);
+        Consumer<Book> handler = book -> results.add(book.getSku());
+        parser.registerHandler("book", Book.class, handler);
+        assertTrue(parser.removeHandler("book", handler));
+
+        try {
+            parser.open();
+            parser.read();
+        } finally {
+            parser.close();
+        }
+
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void annotatedHandlerTest() throws Exception {
+        List<String> results = new ArrayList<>();
+        DefaultAnnotationConfigurationReaderImpl configLoader = new DefaultAnnotationConfigurationReaderImpl();
+        configLoader.setPerformValidation(false);
+        FileParser parser = new FileParser(configLoader.loadConfiguration(TypedBean.class), String.format("one,two%nthree,four%n"));
+        parser.registerHandler(TypedBean.class, bean -> results.add(bean.getFirst() + "-" + bean.getSecond()));
+
+        try {
+            parser.open();
+            parser.read();
+        } finally {
+            parser.close();
+        }
+
+        assertEquals(Arrays.asList("one-two", "three-four"), results);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unannotatedTypeTest() {
+        new FileParser(ParallelReadTest.CONFIG, DATA).registerHandler(Book.class, book -> fail("Handler should not be invoked."));
+    }
+
+    @Data
+    @Record(name = "typed", lines = @Line(delimiter = ","))
+    public static class TypedBean {
+        @RecordElement(order = 1)
+        private String first;
+
+        @RecordElement(order = 2)
+        private String second;
+    }
+}
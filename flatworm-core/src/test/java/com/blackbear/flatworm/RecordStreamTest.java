@@ -0,0 +1,193 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import com.blackbear.flatworm.config.impl.DefaultConfigurationReaderImpl;
+import com.blackbear.flatworm.test.domain.Book;
+import com.blackbear.flatworm.test.domain.Film;
+import com.blackbear.flatworm.test.domain.Videotape;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verify the pull-based {@link FileParser#iterator()}, {@link FileParser#stream()} and {@link FileParser#spliterator()}.
+ *
+ * @author Alan Henson
+ */
+public class RecordStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String data;
+    private List<String> expected;
+
+    @Before
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 3 == 0) {
+                builder.append(String.format("V%09d%n", i));
+                builder.append(String.format("%-30s%n", "B-TITLE " + i));
+                expected.add("video:" + i + ":B-TITLE " + i);
+            } else {
+                builder.append(String.format("B%09d%n", i));
+                expected.add("book:" + i);
+            }
+        }
+        data = builder.toString();
+    }
+
+    @Test
+    public void sequentialStreamTest() throws Exception {
+        try (FileParser parser = open(new FileParser(ParallelReadTest.CONFIG, data))) {
+            assertEquals(expected, parser.stream().map(RecordStreamTest::describe).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void parallelStreamTest() throws Exception {
+        File dataFile = folder.newFile("stream.txt");
+        Files.write(dataFile.toPath(), data.getBytes(StandardCharsets.UTF_8));
+
+        try (FileParser parser = open(new FileParser(ParallelReadTest.CONFIG, dataFile))) {
+            parser.setMinimumSplitSize(256);
+            Spliterator<MatchedRecord> spliterator = parser.spliterator();
+            Spliterator<MatchedRecord> prefix = spliterator.trySplit();
+            assertNotNull("The file should be split on a record boundary.", prefix);
+            assertTrue(prefix.estimateSize() > 0 && spliterator.estimateSize() > 0);
+
+            // The encounter order must be preserved even though the chunks are parsed concurrently.
+            assertEquals(expected, parser.stream().parallel().map(RecordStreamTest::describe).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void shortCircuitTest() throws Exception {
+        try (FileParser parser = open(new FileParser(ParallelReadTest.CONFIG, data))) {
+            assertEquals(expected.subList(0, 10), parser.stream().limit(10).map(RecordStreamTest::describe).collect(Collectors.toList()));
+            assertEquals("book:1", parser.stream().filter(record -> "book".equals(record.getRecordName()))
+                    .map(RecordStreamTest::describe).findFirst().orElse(null));
+        }
+    }
+
+    @Test
+    public void readerIteratorTest() throws Exception {
+        List<Exception> errors = new ArrayList<>();
+        String content = "B000000001\nX-UNKNOWN\nB000000002\n";
+        FileParser parser = new InputStreamFileParser(ParallelReadTest.CONFIG,
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        parser.registerExceptionCallback((ex, message, inputLine) -> errors.add(ex));
+
+        List<String> results = new ArrayList<>();
+        try {
+            parser.open();
+            Iterator<MatchedRecord> iterator = parser.iterator();
+            while (iterator.hasNext()) {
+                results.add(describe(iterator.next()));
+            }
+            assertFalse(iterator.hasNext());
+        } finally {
+            parser.close();
+        }
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getMessage().contains("X-UNKNOWN"));
+        assertEquals(Arrays.asList("book:1", "book:2"), results);
+    }
+
+    @Test(timeout = 10000)
+    public void sourceFailureTest() throws Exception {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        ByteSource failingSource = new ByteSource() {
+            @Override
+            public int read(ByteBuffer destination, long position) throws IOException {
+                if (position >= 100) {
+                    throw new IOException("Device error");
+                }
+                int count = (int) Math.min(destination.remaining(), 100 - position);
+                destination.put(bytes, (int) position, count);
+                return count;
+            }
+
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+        };
+
+        List<Exception> errors = new ArrayList<>();
+        FileParser parser = new FileParser(ParallelReadTest.CONFIG, data);
+        parser.registerExceptionCallback((ex, message, inputLine) -> errors.add(ex));
+        parser.open();
+        try {
+            FileFormat fileFormat = new DefaultConfigurationReaderImpl().loadConfigurationFile(
+                    new ByteArrayInputStream(ParallelReadTest.CONFIG.getBytes(StandardCharsets.UTF_8)));
+            Spliterator<MatchedRecord> spliterator = new ByteRangeRecordSpliterator(parser, fileFormat, failingSource,
+                    StandardCharsets.UTF_8, 0, bytes.length, bytes.length);
+            List<String> results = StreamSupport.stream(spliterator, false).map(RecordStreamTest::describe).collect(Collectors.toList());
+
+            // Nothing read past the failure may be decoded as data.
+            assertEquals(expected.subList(0, results.size()), results);
+        } finally {
+            parser.close();
+        }
+        assertEquals("The failure ends the range rather than being reported per record: " + errors, 1, errors.size());
+        assertTrue(errors.get(0) instanceof IOException);
+        assertEquals("Device error", errors.get(0).getMessage());
+    }
+
+    private static FileParser open(FileParser parser) throws Exception {
+        parser.open();
+        return parser;
+    }
+
+    private static String describe(MatchedRecord record) {
+        String description;
+        if ("video".equals(record.getRecordName())) {
+            Videotape video = (Videotape) record.getBean("video");
+            Film film = (Film) record.getBean("film");
+            description = "video:" + Integer.parseInt(video.getSku()) + ":" + film.getTitle();
+        } else {
+            description = "book:" + Integer.parseInt(((Book) record.getBean("book")).getSku());
+        }
+        return description;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verify that the {@link SwarByteScanner} agrees with a byte-by-byte search.
+ *
+ * @author Alan Henson
+ */
+public class SwarByteScannerTest {
+
+    private final SwarByteScanner scanner = new SwarByteScanner();
+
+    @Test
+    public void simpleTest() {
+        ByteBuffer buffer = ByteBuffer.wrap("abcdefghij\nklmnop\r\n".getBytes());
+        assertEquals(10, scanner.indexOf(buffer, 0, buffer.limit(), (byte) '\n'));
+        assertEquals(17, scanner.indexOfEither(buffer, 11, buffer.limit(), (byte) '\n', (byte) '\r'));
+        assertEquals(-1, scanner.indexOf(buffer, 0, 10, (byte) '\n'));
+        assertEquals(-1, scanner.indexOf(buffer, 5, 5, (byte) 'f'));
+    }
+
+    @Test
+    public void matchesLinearScanTest() {
+        Random random = new Random(42);
+        byte[] alphabet = {'a', ',', '"', '\n', '\r', (byte) 0x80, (byte) 0xFF, 0};
+        for (int i = 0; i < 2000; i++) {
+            byte[] bytes = new byte[random.nextInt(40)];
+            for (int j = 0; j < bytes.length; j++) {
+                // Mostly filler so that the matches land at assorted positions within the words.
+                bytes[j] = random.nextInt(4) == 0 ? alphabet[random.nextInt(alphabet.length)] : (byte) ('A' + random.nextInt(26));
+            }
+            byte first = alphabet[random.nextInt(alphabet.length)];
+            byte second = alphabet[random.nextInt(alphabet.length)];
+            int from = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int to = from + random.nextInt(bytes.length - from + 1);
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes);
+            ByteBuffer littleEndian = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.wrap(bytes), littleEndian, direct}) {
+                assertEquals(linearScan(bytes, from, to, first, first), scanner.indexOf(buffer, from, to, first));
+                assertEquals(linearScan(bytes, from, to, first, second), scanner.indexOfEither(buffer, from, to, first, second));
+            }
+        }
+    }
+
+    private static int linearScan(byte[] bytes, int from, int to, byte first, byte second) {
+        int index = -1;
+        for (int i = from; i < to && index < 0; i++) {
+            if (bytes[i] == first || bytes[i] == second) {
+                index = i;
+            }
+        }
+        return index;
+    }
+}
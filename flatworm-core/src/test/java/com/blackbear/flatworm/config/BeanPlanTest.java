@@ -0,0 +1,193 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config;
+
+import com.blackbear.flatworm.config.impl.LengthIdentityImpl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verify that the compiled {@link BeanPlan} readies the same beans as walking the lines did.
+ *
+ * @author Alan Henson
+ */
+public class BeanPlanTest {
+
+    private RecordDefinitionBO definition;
+    private LineBO childLine;
+
+    @Before
+    public void setup() {
+        definition = new RecordDefinitionBO();
+        definition.addBean(bean("parent"));
+        definition.addBean(bean("child"));
+        definition.addBean(bean("grandchild"));
+
+        LineBO line = new LineBO();
+        line.addLineElement(element("parent"));
+        line.addLineElement(element("parent"));
+        definition.addLine(line);
+
+        childLine = identityLine("child", "parent");
+        definition.addLine(childLine);
+        definition.addLine(identityLine("grandchild", "child"));
+    }
+
+    @Test
+    public void sequentialLinesTest() throws Exception {
+        BeanPlan plan = definition.getBeanPlan();
+        RecordBeanMap beans = plan.newBeanMap();
+        int created = Tracked.lastSerial;
+        plan.newRecordBeans(beans, null).ready(plan.getSequentialPlan());
+
+        // The parent is only created once even though two elements refer to it.
+        assertEquals(1, beans.size());
+        assertEquals(1, Tracked.lastSerial - created);
+    }
+
+    @Test
+    public void childLinesTest() throws Exception {
+        BeanPlan plan = definition.getBeanPlan();
+        RecordBeanMap beans = plan.newBeanMap();
+        BeanPlan.RecordBeans recordBeans = plan.newRecordBeans(beans, null);
+        recordBeans.ready(plan.getSequentialPlan());
+        Object parent = beans.get("parent");
+
+        recordBeans.ready(plan.getLinePlan(childLine));
+        Object child = beans.get("child");
+        Object grandchild = beans.get("grandchild");
+        assertSame("The parent already exists so it is kept.", parent, beans.get("parent"));
+        assertEquals("The beans of the child's own child lines are readied with it.", 3, beans.size());
+
+        recordBeans.ready(plan.getLinePlan(childLine));
+        assertSame(parent, beans.get("parent"));
+        assertNotSame(child, beans.get("child"));
+        assertNotSame(grandchild, beans.get("grandchild"));
+    }
+
+    @Test
+    public void beanSlotTest() throws Exception {
+        BeanSlot slot = definition.getBeanSlot("child");
+        BeanPlan plan = definition.getBeanPlan();
+        RecordBeanMap beans = plan.newBeanMap();
+        plan.newRecordBeans(beans, null).ready(plan.getLinePlan(childLine));
+        assertSame(beans.get("child"), beans.getBean(slot));
+        assertNull(definition.getBeanSlot("missing"));
+
+        // A slot resolved against an earlier plan falls back to the bean's name.
+        definition.addBean(bean("other"));
+        BeanPlan recompiled = definition.getBeanPlan();
+        RecordBeanMap recompiledBeans = recompiled.newBeanMap();
+        recompiled.newRecordBeans(recompiledBeans, null).ready(recompiled.getLinePlan(childLine));
+        assertSame(recompiledBeans.get("child"), recompiledBeans.getBean(slot));
+    }
+
+    @Test
+    public void elementSlotsTest() {
+        BeanPlan plan = definition.getBeanPlan();
+        RecordElementBO element = RecordElementBO.class.cast(childLine.getLineElements().get(0));
+        assertSame(plan, element.beanSlot.plan);
+        assertEquals("child", element.beanSlot.getBeanName());
+    }
+
+    @Test
+    public void beanMapViewTest() throws Exception {
+        BeanPlan plan = definition.getBeanPlan();
+        RecordBeanMap beans = plan.newBeanMap();
+        plan.newRecordBeans(beans, null).ready(plan.getSequentialPlan());
+        Object parent = beans.getBean(definition.getBeanSlot("parent"));
+        assertSame(parent, beans.get("parent"));
+        assertTrue(beans.containsKey("parent"));
+        assertFalse(beans.containsKey("child"));
+
+        // Beans of the record are written to their slots while any other entry is kept by name.
+        Tracked child = new Tracked();
+        assertNull(beans.put("child", child));
+        assertSame(child, beans.getBean(definition.getBeanSlot("child")));
+        beans.put("extra", "value");
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("parent", parent);
+        expected.put("child", child);
+        expected.put("extra", "value");
+        assertEquals(expected, beans);
+        assertEquals(expected, new HashMap<>(beans));
+
+        assertSame(child, beans.remove("child"));
+        assertNull(beans.getBean(definition.getBeanSlot("child")));
+        beans.keySet().remove("parent");
+        assertEquals(Collections.singletonMap("extra", "value"), beans);
+        beans.clear();
+        assertTrue(beans.isEmpty());
+    }
+
+    @Test
+    public void recompiledOnChangeTest() {
+        BeanPlan plan = definition.getBeanPlan();
+        assertSame(plan, definition.getBeanPlan());
+        definition.addBean(bean("other"));
+        assertNotSame(plan, definition.getBeanPlan());
+    }
+
+    private static BeanBO bean(String name) {
+        BeanBO bean = new BeanBO();
+        bean.setBeanName(name);
+        bean.setBeanClass(Tracked.class.getName());
+        bean.setBeanObjectClass(Tracked.class);
+        return bean;
+    }
+
+    private static RecordElementBO element(String beanRef) {
+        CardinalityBO cardinality = new CardinalityBO();
+        cardinality.setBeanRef(beanRef);
+        cardinality.setPropertyName("serial");
+        RecordElementBO element = new RecordElementBO();
+        element.setCardinality(cardinality);
+        return element;
+    }
+
+    private static LineBO identityLine(String beanRef, String parentBeanRef) {
+        CardinalityBO cardinality = new CardinalityBO();
+        cardinality.setBeanRef(beanRef);
+        cardinality.setParentBeanRef(parentBeanRef);
+        LineBO line = new LineBO();
+        line.setLineIdentity(new LengthIdentityImpl());
+        line.setCardinality(cardinality);
+        line.addLineElement(element(beanRef));
+        return line;
+    }
+
+    public static class Tracked {
+        static int lastSerial;
+        private final int serial = ++lastSerial;
+
+        public int getSerial() {
+            return serial;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config;
+
+import com.blackbear.flatworm.FileFormat;
+import com.blackbear.flatworm.config.impl.AbstractIdentity;
+import com.blackbear.flatworm.config.impl.FieldIdentityImpl;
+import com.blackbear.flatworm.config.impl.LengthIdentityImpl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Verify that the compiled {@link IdentityClassifier} agrees with a first-match-wins scan over the records.
+ *
+ * @author Alan Henson
+ */
+public class IdentityClassifierTest {
+
+    private FileFormat fileFormat;
+    private List<String> scriptEvaluations;
+
+    @Before
+    public void setup() {
+        fileFormat = new FileFormat();
+        scriptEvaluations = new ArrayList<>();
+    }
+
+    @Test
+    public void fieldIdentityTest() throws Exception {
+        RecordBO dvd = addRecord("dvd", fieldIdentity(0, 3, false, "DVD"));
+        RecordBO vhs = addRecord("vhs", fieldIdentity(0, 3, true, "vhs", "BET"));
+        RecordBO shortMatch = addRecord("short", fieldIdentity(5, 4, false, "AB"));
+
+        assertSame(dvd, fileFormat.findMatchingRecord("DVDFrozen"));
+        assertSame(vhs, fileFormat.findMatchingRecord("VhSFrozen"));
+        assertSame(vhs, fileFormat.findMatchingRecord("betFrozen"));
+        assertSame(shortMatch, fileFormat.findMatchingRecord("XXXXXABCD"));
+
+        // The full field-length must be present even if the matching string is shorter.
+        assertNull(fileFormat.findMatchingRecord("XXXXXABC"));
+        assertNull(fileFormat.findMatchingRecord("DV"));
+        assertNull(fileFormat.findMatchingRecord("dvdFrozen"));
+    }
+
+    @Test
+    public void firstMatchWinsTest() throws Exception {
+        RecordBO length = addRecord("length", lengthIdentity(5, 10));
+        RecordBO field = addRecord("field", fieldIdentity(0, 2, false, "AB"));
+        RecordBO script = addRecord("script", scriptIdentity("script", "X"));
+        RecordBO defaultRecord = addRecord("default", null);
+
+        assertSame(length, fileFormat.findMatchingRecord("ABCDEF"));
+        assertSame(field, fileFormat.findMatchingRecord("ABCDEFGHIJKL"));
+        assertSame(script, fileFormat.findMatchingRecord("XBCDEFGHIJKL"));
+        assertSame(defaultRecord, fileFormat.findMatchingRecord("ZZ"));
+    }
+
+    @Test
+    public void scriptEvaluationOrderTest() throws Exception {
+        addRecord("scriptOne", scriptIdentity("scriptOne", "1"));
+        RecordBO field = addRecord("field", fieldIdentity(0, 1, false, "A"));
+        addRecord("scriptTwo", scriptIdentity("scriptTwo", "A"));
+
+        assertSame(field, fileFormat.findMatchingRecord("ABC"));
+        assertEquals("Only scripts that precede the match should be evaluated.", Arrays.asList("scriptOne"), scriptEvaluations);
+
+        scriptEvaluations.clear();
+        assertNull(fileFormat.findMatchingRecord("BBC"));
+        assertEquals(Arrays.asList("scriptOne", "scriptTwo"), scriptEvaluations);
+    }
+
+    @Test
+    public void matchesLinearScanTest() throws Exception {
+        Random random = new Random(42);
+        String alphabet = "ABCab";
+        for (int i = 0; i < 40; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    addRecord("length" + i, lengthIdentity(random.nextInt(6), random.nextInt(8)));
+                    break;
+                case 1:
+                    addRecord("script" + i, scriptIdentity("script" + i, randomString(random, alphabet, 1)));
+                    break;
+                default:
+                    addRecord("field" + i, fieldIdentity(random.nextInt(3), 1 + random.nextInt(2), random.nextBoolean(),
+                            randomString(random, alphabet, 1 + random.nextInt(3)),
+                            randomString(random, alphabet, 1 + random.nextInt(3))));
+                    break;
+            }
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            String line = randomString(random, alphabet, random.nextInt(8));
+            assertSame("Mismatch for line " + line, linearScan(line), fileFormat.findMatchingRecord(line));
+        }
+    }
+
+    private RecordBO linearScan(String line) throws Exception {
+        RecordBO result = null;
+        for (RecordBO record : fileFormat.getRecordClassifier().getCandidates()) {
+            if (record.matchesLine(fileFormat, line)) {
+                result = record;
+                break;
+            }
+        }
+        return result;
+    }
+
+    private RecordBO addRecord(String name, Identity identity) {
+        RecordBO record = new RecordBO();
+        record.setName(name);
+        record.setRecordIdentity(identity);
+        fileFormat.addRecord(record);
+        return record;
+    }
+
+    private static FieldIdentityImpl fieldIdentity(int start, int length, boolean ignoreCase, String... matchingStrings) {
+        FieldIdentityImpl identity = new FieldIdentityImpl(ignoreCase);
+        identity.setStartPosition(start);
+        identity.setFieldLength(length);
+        Arrays.stream(matchingStrings).forEach(identity::addMatchingString);
+        return identity;
+    }
+
+    private static LengthIdentityImpl lengthIdentity(int min, int max) {
+        LengthIdentityImpl identity = new LengthIdentityImpl();
+        identity.setMinLength(min);
+        identity.setMaxLength(max);
+        return identity;
+    }
+
+    private Identity scriptIdentity(String name, String prefix) {
+        return new AbstractIdentity() {
+            @Override
+            public boolean matchesIdentity(RecordBO record, FileFormat fileFormat, String line) {
+                scriptEvaluations.add(name);
+                return line.startsWith(prefix);
+            }
+
+            @Override
+            public boolean matchesIdentity(LineBO line, FileFormat fileFormat, String dataLine) {
+                return dataLine.startsWith(prefix);
+            }
+        };
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config;
+
+import com.blackbear.flatworm.FileFormat;
+import com.blackbear.flatworm.config.impl.FieldIdentityImpl;
+import com.blackbear.flatworm.config.impl.LengthIdentityImpl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verify that the compiled {@link LineDispatcher} picks the same line as evaluating each line's identity in turn.
+ *
+ * @author Alan Henson
+ */
+public class LineDispatcherTest {
+
+    private FileFormat fileFormat;
+    private RecordBO record;
+    private RecordDefinitionBO definition;
+
+    @Before
+    public void setup() {
+        fileFormat = new FileFormat();
+        record = new RecordBO();
+        record.setName("record");
+        definition = new RecordDefinitionBO();
+        record.setRecordDefinition(definition);
+        fileFormat.addRecord(record);
+    }
+
+    @Test
+    public void matchesLinearScanTest() throws Exception {
+        Random random = new Random(7);
+        for (int i = 0; i < 30; i++) {
+            if (random.nextInt(3) == 0) {
+                LengthIdentityImpl identity = new LengthIdentityImpl();
+                identity.setMinLength(random.nextInt(5));
+                identity.setMaxLength(random.nextInt(8));
+                addLine(identity, false, false);
+            } else {
+                FieldIdentityImpl identity = new FieldIdentityImpl(random.nextBoolean());
+                identity.setStartPosition(random.nextInt(3));
+                identity.setFieldLength(1 + random.nextInt(2));
+                identity.addMatchingString(randomString(random, 1 + random.nextInt(2)));
+                addLine(identity, false, false);
+            }
+        }
+
+        LineDispatcher dispatcher = definition.getLineDispatcher();
+        for (int i = 0; i < 2000; i++) {
+            String dataLine = randomString(random, random.nextInt(7));
+            LineBO expected = null;
+            for (LineBO line : definition.getLinesWithIdentities()) {
+                if (line.getLineIdentity().matchesIdentity(line, fileFormat, dataLine)) {
+                    expected = line;
+                    break;
+                }
+            }
+            int index = dispatcher.findLine(dataLine);
+            assertSame("Mismatch for line " + dataLine, expected, index >= 0 ? dispatcher.getLine(index) : null);
+        }
+    }
+
+    @Test
+    public void recordTransitionsTest() throws Exception {
+        addLine(fieldIdentity("H"), true, false);
+        addLine(fieldIdentity("D"), false, false);
+        addLine(fieldIdentity("T"), false, true);
+
+        LineDispatcher dispatcher = definition.getLineDispatcher();
+        assertFalse(dispatcher.isRecordEndLine(dispatcher.findLine("D1")));
+        assertTrue(dispatcher.isRecordEndLine(dispatcher.findLine("T1")));
+        assertEquals(-1, dispatcher.findLine("X1"));
+
+        // Without sequential lines, only a record-start line continues the record after its end line.
+        assertTrue(dispatcher.continuesAfterEnd("H2"));
+        assertFalse(dispatcher.continuesAfterEnd("D2"));
+        assertFalse(dispatcher.continuesAfterEnd("X2"));
+    }
+
+    @Test
+    public void recompiledOnChangeTest() throws Exception {
+        addLine(fieldIdentity("A"), false, false);
+        LineDispatcher dispatcher = definition.getLineDispatcher();
+        assertSame(dispatcher, definition.getLineDispatcher());
+
+        addLine(fieldIdentity("B"), false, false);
+        assertEquals(1, definition.getLineDispatcher().findLine("B"));
+    }
+
+    private void addLine(Identity identity, boolean recordStart, boolean recordEnd) {
+        LineBO line = new LineBO();
+        line.setLineIdentity(identity);
+        line.setRecordStartLine(recordStart);
+        line.setRecordEndLine(recordEnd);
+        definition.addLine(line);
+    }
+
+    private static FieldIdentityImpl fieldIdentity(String matchingString) {
+        FieldIdentityImpl identity = new FieldIdentityImpl(false);
+        identity.setStartPosition(0);
+        identity.setFieldLength(matchingString.length());
+        identity.addMatchingString(matchingString);
+        return identity;
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append("ABab".charAt(random.nextInt(4)));
+        }
+        return builder.toString();
+    }
+}
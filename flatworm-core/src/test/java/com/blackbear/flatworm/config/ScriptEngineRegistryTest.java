@@ -0,0 +1,110 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config;
+
+import com.blackbear.flatworm.errors.FlatwormConfigurationException;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Verify that scripts registered with the {@link ScriptEngineRegistry} are isolated from one another and safe to invoke
+ * concurrently.
+ *
+ * @author Alan Henson
+ */
+public class ScriptEngineRegistryTest {
+
+    private static final String ENGINE = ScriptletBO.DEFAULT_SCRIPT_ENGINE;
+
+    @Test
+    public void isolatedStateTest() throws Exception {
+        String script = "var count = 0; function increment() { count++; return count; }";
+        ScriptletBO first = new ScriptletBO(ENGINE, "increment");
+        first.setScript(script);
+        ScriptletBO second = new ScriptletBO(ENGINE, "increment");
+        second.setScript(script);
+
+        assertEquals(1, ((Number) first.invokeFunction()).intValue());
+        assertEquals(2, ((Number) first.invokeFunction()).intValue());
+        assertEquals(1, ((Number) second.invokeFunction()).intValue());
+        assertNotSame(ScriptEngineRegistry.newScript(ENGINE, script), ScriptEngineRegistry.newScript(ENGINE, script));
+    }
+
+    @Test
+    public void compiledOnceTest() throws Exception {
+        String script = "function compiledOnce(value) { return value + 1; }";
+        ScriptEngineRegistry.newScript(ENGINE, script);
+        int compiled = ScriptEngineRegistry.getCompiledScriptCount(ENGINE);
+        ScriptletBO scriptlet = new ScriptletBO(ENGINE, "compiledOnce");
+        scriptlet.setScript(script);
+
+        assertEquals(compiled, ScriptEngineRegistry.getCompiledScriptCount(ENGINE));
+        assertEquals(2, ((Number) scriptlet.invokeFunction(1)).intValue());
+    }
+
+    @Test
+    public void isolatedFunctionsTest() throws Exception {
+        ScriptletBO first = new ScriptletBO(ENGINE, "isolated");
+        first.setScript("function isolated() { return 'first'; }");
+        ScriptletBO second = new ScriptletBO(ENGINE, "isolated");
+        second.setScript("function isolated() { return 'second'; }");
+
+        assertEquals("first", first.invokeFunction());
+        assertEquals("second", second.invokeFunction());
+        assertEquals("first", first.invokeFunction());
+    }
+
+    @Test
+    public void concurrentInvocationTest() throws Exception {
+        ScriptletBO scriptlet = new ScriptletBO(ENGINE, "concat");
+        scriptlet.setScript("function concat(prefix, value) { var result = prefix; "
+                + "for (var i = 0; i < 50; i++) { result = prefix + value; } return result; }");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String value = String.valueOf(i);
+                futures.add(executor.submit(() -> ("T" + value).equals(String.valueOf(scriptlet.invokeFunction("T", value)))));
+            }
+            for (Future<Boolean> future : futures) {
+                assertEquals(Boolean.TRUE, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = FlatwormConfigurationException.class)
+    public void invalidScriptTest() throws Exception {
+        ScriptEngineRegistry.newScript(ENGINE, "function broken( {");
+    }
+
+    @Test(expected = FlatwormConfigurationException.class)
+    public void unknownEngineTest() throws Exception {
+        new ScriptletBO("no-such-engine");
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.config.impl;
+
+import com.blackbear.flatworm.FileParser;
+import com.blackbear.flatworm.config.ConfigurationValidator;
+import com.blackbear.flatworm.test.domain.Book;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the RegexIdentityImpl class's capabilities around region anchoring, literal prefixes and configuration.
+ *
+ * @author Alan Henson
+ */
+public class RegexIdentityTest extends AbstractBaseIdentityTest {
+
+    @Test
+    public void wholeLineTest() throws Exception {
+        RegexIdentityImpl identity = new RegexIdentityImpl("^\\d{8}(HDR|TRL)");
+        assertTrue(identity.matchesIdentity(record, fileFormat, "20160101HDR rest"));
+        assertTrue(identity.matchesIdentity(record, fileFormat, "20160101TRL"));
+        assertFalse(identity.matchesIdentity(record, fileFormat, "2016010HDR"));
+        assertFalse(identity.matchesIdentity(record, fileFormat, "X20160101HDR"));
+        assertFalse(identity.matchesIdentity(record, fileFormat, null));
+    }
+
+    @Test
+    public void regionTest() throws Exception {
+        RegexIdentityImpl identity = new RegexIdentityImpl("^AB\\d+$");
+        identity.setStartPosition(2);
+        identity.setFieldLength(4);
+        assertTrue(identity.matchesIdentity(record, fileFormat, "XXAB12YYY"));
+        assertFalse(identity.matchesIdentity(record, fileFormat, "XXAB1Y"));
+        assertFalse(identity.matchesIdentity(record, fileFormat, "XAB12"));
+        assertFalse(identity.matchesIdentity(record, fileFormat, "X"));
+
+        // Unanchored patterns may be found anywhere within the region.
+        identity.setPattern("B1");
+        assertTrue(identity.matchesIdentity(record, fileFormat, "XXAB12YYY"));
+        assertFalse(identity.matchesIdentity(record, fileFormat, "XXAAAB1"));
+    }
+
+    @Test
+    public void ignoreCaseTest() throws Exception {
+        RegexIdentityImpl identity = new RegexIdentityImpl("^hdr");
+        assertFalse(identity.matchesIdentity(record, fileFormat, "HDR"));
+        identity.setIgnoreCase(true);
+        assertTrue(identity.matchesIdentity(record, fileFormat, "HDR"));
+    }
+
+    @Test
+    public void literalPrefixTest() {
+        assertEquals("HDR", RegexIdentityImpl.findLiteralPrefix("^HDR\\d"));
+        assertEquals("HD", RegexIdentityImpl.findLiteralPrefix("^HDR?\\d"));
+        assertEquals("HDR", RegexIdentityImpl.findLiteralPrefix("^HDR+"));
+        assertEquals("HD", RegexIdentityImpl.findLiteralPrefix("^HDR{2}"));
+        assertEquals("", RegexIdentityImpl.findLiteralPrefix("HDR"));
+        assertEquals("", RegexIdentityImpl.findLiteralPrefix("^HDR|TRL"));
+        assertEquals("X", RegexIdentityImpl.findLiteralPrefix("^X(HDR|TRL)"));
+        assertEquals("", RegexIdentityImpl.findLiteralPrefix("^[|]"));
+    }
+
+    @Test
+    public void validationTest() {
+        List<String> errors = new ArrayList<>();
+        ConfigurationValidator.validateIdentity(new RegexIdentityImpl("[unclosed"), errors);
+        assertEquals(1, errors.size());
+
+        errors.clear();
+        ConfigurationValidator.validateIdentity(new RegexIdentityImpl(), errors);
+        assertEquals(1, errors.size());
+    }
+
+    @Test
+    public void configurationTest() throws Exception {
+        String config = "<file-format encoding=\"UTF-8\">"
+                + "<converter name=\"char\" class=\"com.blackbear.flatworm.converters.CoreConverters\" method=\"convertChar\" "
+                + "return-type=\"java.lang.String\"/>"
+                + "<record name=\"book\">"
+                + "<record-ident><regex-ident field-start=\"1\"><match-pattern><![CDATA[^\\d{3}B$]]></match-pattern></regex-ident>"
+                + "</record-ident>"
+                + "<record-definition>"
+                + "<bean name=\"book\" class=\"com.blackbear.flatworm.test.domain.Book\"/>"
+                + "<line><record-element start=\"1\" end=\"4\" beanref=\"book.sku\" converter-name=\"char\"/></line>"
+                + "</record-definition></record>"
+                + "</file-format>";
+
+        FileParser parser = new FileParser(config, "X123B\nY456B\n");
+        List<String> skus = new ArrayList<>();
+        parser.registerRecordCallback("book",
+                matched -> skus.add(((Book) matched.getBean("book")).getSku()));
+        try {
+            parser.open();
+            parser.read();
+        } finally {
+            parser.close();
+        }
+        assertEquals(Arrays.asList("123", "456"), skus);
+    }
+}
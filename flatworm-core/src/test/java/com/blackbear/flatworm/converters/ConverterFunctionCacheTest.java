@@ -17,20 +17,31 @@
 package com.blackbear.flatworm.converters;
 
 import com.blackbear.flatworm.config.ConversionOptionBO;
+import com.blackbear.flatworm.errors.FlatwormParserException;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.blackbear.flatworm.converters.ConverterFunctionCache.convertFromString;
 import static com.blackbear.flatworm.converters.ConverterFunctionCache.convertToString;
+import static com.blackbear.flatworm.converters.ConverterFunctionCache.findToTypeConverter;
 import static com.blackbear.flatworm.converters.ConverterFunctionCache.registerFromTypeConverterFunction;
 import static com.blackbear.flatworm.converters.ConverterFunctionCache.registerToTypeConverterFunction;
 import static com.blackbear.flatworm.converters.ConverterFunctionCache.removeFromTypeConverterFunction;
@@ -38,6 +49,7 @@ import static com.blackbear.flatworm.converters.ConverterFunctionCache.removeToT
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 /**
@@ -220,6 +232,132 @@ public class ConverterFunctionCacheTest {
         convertToString(new Date(), null);
     }
 
+    @Test
+    public void javaTimeTypes() throws Exception {
+        Map<String, ConversionOptionBO> options = new HashMap<>(1);
+        assertEquals(LocalDate.of(2016, 6, 16), convertFromString(LocalDate.class, "2016-06-16", options));
+        assertEquals(LocalDateTime.of(2016, 6, 16, 13, 45, 30), convertFromString(LocalDateTime.class, "2016-06-16T13:45:30", options));
+        assertEquals(LocalTime.of(13, 45, 30), convertFromString(LocalTime.class, "13:45:30", options));
+        assertEquals(Instant.parse("2016-06-16T13:45:30Z"), convertFromString(Instant.class, "2016-06-16T13:45:30Z", options));
+        assertNull(convertFromString(LocalDate.class, "", options));
+        assertEquals("2016-06-16", convertToString(LocalDate.of(2016, 6, 16), options));
+
+        options.put("format", new ConversionOptionBO("format", "yyyyMMdd"));
+        assertEquals(LocalDate.of(2016, 6, 16), convertFromString(LocalDate.class, "20160616", options));
+        assertEquals("20160616", convertToString(LocalDate.of(2016, 6, 16), options));
+
+        // Patterns without an offset are taken to be in UTC.
+        options.put("format", new ConversionOptionBO("format", "yyyyMMddHHmmss"));
+        assertEquals(Instant.parse("2016-06-16T13:45:30Z"), convertFromString(Instant.class, "20160616134530", options));
+        assertEquals("20160616134530", convertToString(Instant.parse("2016-06-16T13:45:30Z"), options));
+
+        thrown.expect(FlatwormParserException.class);
+        convertFromString(LocalDate.class, "2016-16-06", Collections.emptyMap());
+    }
+
+    @Test
+    public void concurrentDateConversion() throws Exception {
+        Map<String, ConversionOptionBO> options = new HashMap<>(1);
+        options.put("format", new ConversionOptionBO("format", "yyyyMMdd"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                int year = 2000 + i;
+                futures.add(executor.submit(() -> {
+                    Calendar calendar = Calendar.getInstance();
+                    for (int day = 1; day <= 28; day++) {
+                        String value = String.format("%d02%02d", year, day);
+                        Date date = (Date) convertFromString(Date.class, value, options);
+                        calendar.setTime(date);
+                        assertEquals(year, calendar.get(Calendar.YEAR));
+                        assertEquals(day, calendar.get(Calendar.DATE));
+                        assertEquals(value, convertToString(date, options));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void cachedResolutionInvalidation() throws Exception {
+        ToTypeConverterFunction levelOne = (value, options) -> "one";
+        ToTypeConverterFunction levelTwo = (value, options) -> "two";
+
+        // The miss is cached, but must be forgotten once a converter is registered.
+        assertNull(findToTypeConverter(LevelThree.class));
+        registerToTypeConverterFunction(LevelOne.class, levelOne);
+        try {
+            assertSame(levelOne, findToTypeConverter(LevelThree.class));
+
+            // The nearest superclass wins.
+            registerToTypeConverterFunction(LevelTwo.class, levelTwo);
+            assertSame(levelTwo, findToTypeConverter(LevelThree.class));
+            assertSame(levelOne, findToTypeConverter(LevelOne.class));
+
+            removeToTypeConverterFunction(LevelTwo.class);
+            assertSame(levelOne, findToTypeConverter(LevelThree.class));
+        } finally {
+            removeToTypeConverterFunction(LevelOne.class);
+            removeToTypeConverterFunction(LevelTwo.class);
+        }
+        assertNull(findToTypeConverter(LevelThree.class));
+    }
+
+    @Test
+    public void interfaceResolution() throws Exception {
+        ToTypeConverterFunction marker = (value, options) -> "marker";
+        registerToTypeConverterFunction(Marker.class, marker);
+        try {
+            assertSame(marker, findToTypeConverter(LevelThree.class));
+            assertSame(marker, findToTypeConverter(SubMarker.class));
+            assertEquals("marker", convertFromString(LevelThree.class, "value", Collections.emptyMap()));
+        } finally {
+            removeToTypeConverterFunction(Marker.class);
+        }
+        assertNull(findToTypeConverter(SubMarker.class));
+    }
+
+    @Test
+    public void concurrentRegistration() throws Exception {
+        ToTypeConverterFunction levelOne = (value, options) -> "one";
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        registerToTypeConverterFunction(LevelOne.class, levelOne);
+                        assertNotNull(findToTypeConverter(String.class));
+                        findToTypeConverter(LevelTwo.class);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertSame(levelOne, findToTypeConverter(LevelTwo.class));
+        } finally {
+            executor.shutdown();
+            removeToTypeConverterFunction(LevelOne.class);
+        }
+        assertNull(findToTypeConverter(LevelTwo.class));
+    }
+
+    public interface Marker {
+
+    }
+
+    public interface SubMarker extends Marker {
+
+    }
+
     public static class LevelOne {
 
     }
@@ -227,4 +365,8 @@ public class ConverterFunctionCacheTest {
     public static class LevelTwo extends LevelOne {
 
     }
+
+    public static class LevelThree extends LevelTwo implements SubMarker {
+
+    }
 }
@@ -0,0 +1,220 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.converters;
+
+import com.blackbear.flatworm.CharSlice;
+import com.blackbear.flatworm.PropertyAccessor;
+import com.blackbear.flatworm.config.ConversionOptionBO;
+import com.blackbear.flatworm.config.ConverterBO;
+import com.blackbear.flatworm.errors.FlatwormParserException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verify that a compiled {@link FieldConversion} produces the same values as {@link ConversionHelper#convert(String, CharSequence, Map,
+ * String)}.
+ *
+ * @author Alan Henson
+ */
+public class FieldConversionTest {
+
+    private static final List<String> VALUES = Arrays.asList("", "   ", "  abc  ", "00123x", "--12-34--", "a1b2c3 d4", "xxABCxx",
+            "é1é", "0123456789");
+
+    private ConversionHelper conversionHelper;
+
+    @Before
+    public void setup() {
+        conversionHelper = new ConversionHelper();
+        conversionHelper.addConverter(new ConverterBO(CoreConverters.class.getName(), "char", String.class.getName(), "convertChar"));
+        conversionHelper.addConverter(new ConverterBO(CoreConverters.class.getName(), "int", Integer.class.getName(), "convertInteger"));
+        conversionHelper.addConverter(new ConverterBO(StaticConverter.class.getName(), "static", String.class.getName(), "reverse"));
+    }
+
+    @Test
+    public void matchesConversionHelperTest() {
+        List<Map<String, ConversionOptionBO>> optionSets = Arrays.asList(
+                options(),
+                options("justify", "left"),
+                options("justify", "right", "pad-character", "-"),
+                options("justify", null),
+                options("strip-chars", "non-numeric"),
+                options("strip-chars", "non-alpha", "justify", "both"),
+                options("strip-chars", "non-alphanumeric"),
+                options("strip-chars", "unknown"),
+                options("justify", "both", "pad-character", "x", "default-value", "none"),
+                options("default-value", "blank"),
+                options("substring", "0,2", "justify", "left"));
+
+        for (Map<String, ConversionOptionBO> options : optionSets) {
+            FieldConversion conversion = conversionHelper.compile("char", options, "bean.property");
+            assertNotNull("Not compiled: " + options, conversion);
+            for (String value : VALUES) {
+                String description = options + " '" + value + "'";
+                Object expected = outcome(() -> conversionHelper.convert("char", slice(value), options, "bean.property"));
+                assertEquals(description, expected, outcome(() -> conversion.convert(slice(value))));
+                assertEquals(description, expected, outcome(() -> conversion.convert(value)));
+            }
+        }
+    }
+
+    @Test
+    public void converterTypesTest() throws Exception {
+        assertEquals(42, conversionHelper.compile("int", options("justify", "right", "pad-character", "0"), "bean.property")
+                .convert(new CharSlice("x00042", 1, 6)));
+        assertEquals("cba", conversionHelper.compile("static", options(), "bean.property").convert("abc"));
+    }
+
+    @Test
+    public void conversionFailureTest() throws Exception {
+        FieldConversion conversion = conversionHelper.compile("int", options(), "bean.property");
+        try {
+            conversion.convert("abc");
+            fail("The value should not have been converted.");
+        } catch (FlatwormParserException e) {
+            assertEquals("Converting field bean.property with value 'abc'", e.getMessage());
+        }
+    }
+
+    @Test
+    public void primitiveAssignmentTest() throws Exception {
+        conversionHelper.addConverter(new ConverterBO(CoreConverters.class.getName(), "long", Long.class.getName(), "convertLong"));
+        conversionHelper.addConverter(new ConverterBO(CoreConverters.class.getName(), "double", Double.class.getName(), "convertDouble"));
+        Map<String, ConversionOptionBO> implied = options("decimal-implied", "true", "decimal-places", "2");
+
+        FieldConversion count = bind("int", options("justify", "right", "pad-character", "0"), "count");
+        FieldConversion total = bind("long", options(), "total");
+        FieldConversion amount = bind("double", implied, "amount");
+
+        PrimitiveBean bean = new PrimitiveBean();
+        assertTrue(count.canAssign(bean));
+        count.assign(bean, slice("00042"));
+        total.assign(bean, slice("-9000000000"));
+        amount.assign(bean, slice("0012345"));
+        assertEquals(42, bean.getCount());
+        assertEquals(-9000000000L, bean.getTotal());
+        assertEquals(123.45D, bean.getAmount(), 0.0D);
+
+        try {
+            count.assign(bean, "4x2");
+            fail("The value should not have been assigned.");
+        } catch (FlatwormParserException e) {
+            assertEquals("Converting field bean.count with value '4x2'", e.getMessage());
+        }
+
+        // The property isn't primitive so the value has to be boxed and set through the mapping strategy.
+        assertFalse(bind("int", options(), "boxed").canAssign(bean));
+        assertFalse(bind("char", options(), "count").canAssign(bean));
+    }
+
+    private FieldConversion bind(String converterName, Map<String, ConversionOptionBO> options, String property) {
+        return conversionHelper.compile(converterName, options, "bean." + property)
+                .bindProperty(PropertyAccessor.forProperty(PrimitiveBean.class, property));
+    }
+
+    @Test
+    public void notCompiledTest() {
+        assertNull("Unknown converter", conversionHelper.compile("missing", options(), "bean.property"));
+        assertNull("Malformed substring", conversionHelper.compile("char", options("substring", "one,two"), "bean.property"));
+        assertNull("Missing strip-chars value", conversionHelper.compile("char", options("strip-chars", null), "bean.property"));
+    }
+
+    private static CharSlice slice(String value) {
+        return new CharSlice("[" + value + "]", 1, value.length() + 1);
+    }
+
+    /**
+     * Either the converted value or the message of the exception raised while converting it.
+     */
+    private static Object outcome(Conversion conversion) {
+        try {
+            return conversion.convert();
+        } catch (FlatwormParserException e) {
+            return "Failed: " + e.getMessage();
+        }
+    }
+
+    private interface Conversion {
+        Object convert() throws FlatwormParserException;
+    }
+
+    private static Map<String, ConversionOptionBO> options(String... namesAndValues) {
+        Map<String, ConversionOptionBO> options = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            options.put(namesAndValues[i], new ConversionOptionBO(namesAndValues[i], namesAndValues[i + 1]));
+        }
+        return options;
+    }
+
+    public static class PrimitiveBean {
+        private int count;
+        private long total;
+        private double amount;
+        private Integer boxed;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public void setTotal(long total) {
+            this.total = total;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        public void setAmount(double amount) {
+            this.amount = amount;
+        }
+
+        public Integer getBoxed() {
+            return boxed;
+        }
+
+        public void setBoxed(Integer boxed) {
+            this.boxed = boxed;
+        }
+    }
+
+    public static class StaticConverter {
+        public static String reverse(String value, Map<String, ConversionOptionBO> options) {
+            return new StringBuilder(value).reverse().toString();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.converters;
+
+import com.blackbear.flatworm.CharSlice;
+import com.blackbear.flatworm.config.ConversionOptionBO;
+import com.blackbear.flatworm.errors.FieldParseException;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verify that the {@link NumericParser} agrees with the JDK's parsers.
+ *
+ * @author Alan Henson
+ */
+public class NumericParserTest {
+
+    @Test
+    public void longTest() {
+        for (String value : Arrays.asList("0", "7", "-7", "+7", "000123", "9223372036854775807", "-9223372036854775808")) {
+            assertEquals(value, Long.parseLong(value), NumericParser.parseLong(value));
+        }
+        assertEquals(123L, NumericParser.parseLong(new CharSlice("x  123 x", 1, 7)));
+
+        for (String value : Arrays.asList("", " ", "-", "+", "1-", "1 2", "12a", "9223372036854775808", "-9223372036854775809")) {
+            try {
+                NumericParser.parseLong(value);
+                fail("Should not have parsed '" + value + "'");
+            } catch (NumberFormatException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void intTest() {
+        assertEquals(Integer.MAX_VALUE, NumericParser.parseInt("2147483647"));
+        assertEquals(Integer.MIN_VALUE, NumericParser.parseInt("-2147483648"));
+        try {
+            NumericParser.parseInt("2147483648");
+            fail("Should not have parsed a value larger than an int");
+        } catch (NumberFormatException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void bigDecimalTest() {
+        assertEquals(new BigDecimal("123.45"), NumericParser.parseBigDecimal("123.45", 0));
+        assertEquals(new BigDecimal("123.45"), NumericParser.parseBigDecimal(" 0012345", 2));
+        assertEquals(new BigDecimal("-1.2345"), NumericParser.parseBigDecimal("-123.45", 2));
+        assertEquals(new BigDecimal("0.00"), NumericParser.parseBigDecimal("0", 2));
+        assertEquals(new BigDecimal("999999999999999999"), NumericParser.parseBigDecimal("999999999999999999", 0));
+        assertNull(NumericParser.parseBigDecimal("9999999999999999999", 0));
+        assertNull(NumericParser.parseBigDecimal("1e5", 0));
+        assertNull(NumericParser.parseBigDecimal("1.2.3", 0));
+        assertNull(NumericParser.parseBigDecimal(".", 0));
+    }
+
+    @Test
+    public void doubleTest() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            long unscaled = random.nextLong() % 1000000000000000L;
+            int scale = random.nextInt(8);
+            String value = BigDecimal.valueOf(unscaled, scale).toPlainString();
+            assertEquals(value, Double.parseDouble(value), NumericParser.parseDouble(value, 0), 0.0D);
+        }
+        assertEquals(1234.5D, NumericParser.parseDouble("123450", 2), 0.0D);
+        assertEquals(Double.doubleToLongBits(-0.0D), Double.doubleToLongBits(NumericParser.parseDouble("-0", 0)));
+        assertTrue(Double.isNaN(NumericParser.parseDouble("123.45D", 0)));
+        assertTrue(Double.isNaN(NumericParser.parseDouble("12345678901234567", 0)));
+    }
+
+    @Test
+    public void dateTest() {
+        assertEquals(LocalDate.of(2016, 6, 16), NumericParser.parseDate("20160616", (char) 0, false));
+        assertEquals(LocalDate.of(2016, 6, 16), NumericParser.parseDate("2016-06-16", '-', true));
+        assertEquals(LocalDate.of(2016, 2, 29), NumericParser.parseDate("20160231", (char) 0, false));
+        assertNull(NumericParser.parseDate("2016-06-16", (char) 0, false));
+        assertNull(NumericParser.parseDate("2016061", (char) 0, false));
+        assertNull(NumericParser.parseDate("2016O616", (char) 0, false));
+        try {
+            NumericParser.parseDate("2016-02-31", '-', true);
+            fail("Strict parsing should reject the 31st of February");
+        } catch (DateTimeException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void literalTest() {
+        for (String value : Arrays.asList("1", " -1.5 ", "+.5", "5.", "1e5", "1.5E-3", "2.5d", "7F", "NaN", "-Infinity", "0x1p3")) {
+            Double.parseDouble(value);
+            assertTrue(value, NumericParser.isFloatingPointLiteral(value));
+        }
+        for (String value : Arrays.asList("", " ", ".", "-", "e5", "1e", "1e+", "1.2.3", "12a", "1 2", "nan", "Infinity1", "--1")) {
+            assertFalse(value, NumericParser.isFloatingPointLiteral(value));
+        }
+
+        for (String value : Arrays.asList("1", " -1.5 ", "+.5", "5.", "1e5", "1.5E-3", "12345678901234567890.5")) {
+            new BigDecimal(value.trim());
+            assertTrue(value, NumericParser.isBigDecimalLiteral(value));
+        }
+        for (String value : Arrays.asList("", ".", "1e", "NaN", "Infinity", "0x10", "1.2.3", "12a")) {
+            assertFalse(value, NumericParser.isBigDecimalLiteral(value));
+        }
+    }
+
+    @Test
+    public void badValuesTest() {
+        CoreConverters converters = new CoreConverters();
+        Map<String, ConversionOptionBO> options = new HashMap<>();
+        List<Callable<Object>> conversions = Arrays.asList(
+                () -> converters.convertDouble("12x.5", options),
+                () -> converters.convertFloat("12x.5", options),
+                () -> converters.convertBigDecimal("1234567890123456789012x", options),
+                () -> converters.convertDate("2016/06/16", options),
+                () -> converters.convertLocalDate("16 June", options),
+                () -> converters.convertLocalDate("2016-02-31", options));
+        for (Callable<Object> conversion : conversions) {
+            try {
+                conversion.call();
+                fail("The bad value should have been rejected.");
+            } catch (Exception e) {
+                assertTrue(e instanceof FieldParseException);
+                // Neither the error nor its cause (if any) should have a stack trace.
+                assertEquals(0, e.getStackTrace().length);
+                assertTrue(e.getCause() == null || e.getCause().getStackTrace().length == 0);
+            }
+        }
+    }
+
+    @Test
+    public void coreConvertersTest() throws Exception {
+        CoreConverters converters = new CoreConverters();
+        Map<String, ConversionOptionBO> options = new HashMap<>();
+        options.put("decimal-implied", new ConversionOptionBO("decimal-implied", "true"));
+        options.put("decimal-places", new ConversionOptionBO("decimal-places", "2"));
+
+        assertEquals(new BigDecimal("1234567890123456.78"), converters.convertBigDecimal("123456789012345678", options));
+        // Longer than 18 digits - the fallback has to be just as exact as the fast path.
+        assertEquals(new BigDecimal("12345678901234567890123.45"), converters.convertBigDecimal(" 1234567890123456789012345", options));
+        assertEquals(new BigDecimal("-0.01"), converters.convertBigDecimal("-1", options));
+        assertEquals(new BigDecimal("123450"), converters.convertBigDecimal("1.2345E7", options));
+        assertEquals(1234.56D, converters.parseDouble("123456", options), 0.0D);
+        assertEquals(42, converters.parseInteger(" 42 ", options));
+
+        // Values that aren't plain decimals are still handled by the JDK.
+        assertEquals(123.45D, converters.convertDouble("123.45D", new HashMap<>()), 0.0D);
+
+        options.clear();
+        options.put("format", new ConversionOptionBO("format", "yyyyMMdd"));
+        assertEquals(LocalDate.of(2016, 2, 29), converters.convertLocalDate("20160231", options));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package com.blackbear.flatworm.errors;
+
+import com.blackbear.flatworm.FileFormat;
+import com.blackbear.flatworm.FileParser;
+import com.blackbear.flatworm.config.impl.DefaultConfigurationReaderImpl;
+import com.blackbear.flatworm.test.domain.Book;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verify that field errors are reported through the {@link ParseErrorChannel} with their location and that the error budget aborts the
+ * parse.
+ *
+ * @author Alan Henson
+ */
+public class ParseErrorChannelTest {
+
+    private static final String CONFIG = "<file-format encoding=\"UTF-8\">"
+            + "<converter name=\"char\" class=\"com.blackbear.flatworm.converters.CoreConverters\" method=\"convertChar\" "
+            + "return-type=\"java.lang.String\"/>"
+            + "<converter name=\"double\" class=\"com.blackbear.flatworm.converters.CoreConverters\" method=\"convertDouble\" "
+            + "return-type=\"java.lang.Double\"/>"
+            + "<record name=\"book\">"
+            + "<record-ident><field-ident field-start=\"0\" field-length=\"1\"><match-string>B</match-string></field-ident></record-ident>"
+            + "<record-definition>"
+            + "<bean name=\"book\" class=\"com.blackbear.flatworm.test.domain.Book\"/>"
+            + "<line>"
+            + "<record-element start=\"1\" end=\"10\" beanref=\"book.sku\" converter-name=\"char\"/>"
+            + "<record-element start=\"10\" end=\"16\" beanref=\"book.price\" converter-name=\"double\"/>"
+            + "</line>"
+            + "</record-definition></record>"
+            + "</file-format>";
+
+    private static final String DATA = "B00000000100012.5\nB000000002bad!!!\nB00000000300001.0\nB000000004oops!!\nB00000000500002.0\n";
+
+    private FileFormat fileFormat;
+
+    @Before
+    public void setup() throws Exception {
+        fileFormat = new DefaultConfigurationReaderImpl().loadConfigurationFile(
+                new ByteArrayInputStream(CONFIG.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void fieldErrorsCountedTest() throws Exception {
+        FileParser parser = new FileParser(fileFormat, DATA);
+        List<String> skus = new ArrayList<>();
+        List<Exception> errors = new ArrayList<>();
+        parser.registerRecordCallback("book", record -> skus.add(((Book) record.getBean("book")).getSku()));
+        parser.registerExceptionCallback((ex, message, inputLine) -> errors.add(ex));
+        try {
+            parser.open();
+            parser.read();
+        } finally {
+            parser.close();
+        }
+
+        // Each good record is delivered exactly once - a failed record must not cause the previous one to be delivered again.
+        assertEquals(Arrays.asList("000000001", "000000003", "000000005"), skus);
+        assertEquals(2, errors.size());
+        assertEquals(2, parser.getErrorChannel().getErrorCount());
+        assertEquals(Long.valueOf(2), parser.getErrorChannel().getErrorCounts().get("book.price"));
+
+        assertTrue(errors.get(0) instanceof FieldParseException);
+        FieldParseException error = FieldParseException.class.cast(errors.get(0));
+        assertEquals("book", error.getRecordName());
+        assertEquals(2, error.getLineNumber());
+        assertEquals("book.price", error.getField());
+        assertEquals("bad!!!", error.getRawValue());
+        assertEquals(0, error.getStackTrace().length);
+    }
+
+    @Test
+    public void errorBudgetTest() throws Exception {
+        FileParser parser = new FileParser(fileFormat, DATA);
+        parser.setErrorChannel(new ParseErrorChannel(1));
+        List<String> skus = new ArrayList<>();
+        parser.registerRecordCallback("book", record -> skus.add(((Book) record.getBean("book")).getSku()));
+        try {
+            parser.open();
+            parser.read();
+            fail("The parse should have been aborted once the error budget was exceeded.");
+        } catch (ErrorBudgetExceededException e) {
+            assertEquals(2, e.getErrorCount());
+            assertTrue(e.getCause() instanceof FieldParseException);
+        } finally {
+            parser.close();
+        }
+        assertEquals(Arrays.asList("000000001", "000000003"), skus);
+    }
+
+    @Test
+    public void channelTest() {
+        ParseErrorChannel channel = new ParseErrorChannel(3, 0, 1, 1);
+        assertFalse(channel.report(new FieldParseException("Bad value", "a.b", "x", null), "x"));
+        assertFalse(channel.report(new FlatwormParserException("Bad line"), "y"));
+        assertFalse(channel.report(new FieldParseException("Bad value", "a.b", "z", null), "z"));
+        assertTrue(channel.report(new FieldParseException("Bad value", "a.c", "z", null), "z"));
+        assertEquals(4, channel.getErrorCount());
+        assertEquals(Long.valueOf(2), channel.getErrorCounts().get("a.b"));
+        assertEquals(Long.valueOf(1), channel.getErrorCounts().get("FlatwormParserException"));
+
+        channel.reset();
+        assertEquals(0, channel.getErrorCount());
+        assertNull(channel.getErrorCounts().get("a.b"));
+    }
+}
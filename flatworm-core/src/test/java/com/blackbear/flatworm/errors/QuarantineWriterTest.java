@@ -0,0 +1,219 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package com.blackbear.flatworm.errors;
+
+import com.blackbear.flatworm.FileFormat;
+import com.blackbear.flatworm.FileParser;
+import com.blackbear.flatworm.MatchedRecord;
+import com.blackbear.flatworm.ParallelDeliveryMode;
+import com.blackbear.flatworm.config.impl.DefaultConfigurationReaderImpl;
+import com.blackbear.flatworm.test.domain.Book;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verify that records which fail to parse are written to the {@link QuarantineWriter} with all of their lines and can be replayed.
+ *
+ * @author Alan Henson
+ */
+public class QuarantineWriterTest {
+
+    private static final String CONFIG = "<file-format encoding=\"UTF-8\">"
+            + "<converter name=\"char\" class=\"com.blackbear.flatworm.converters.CoreConverters\" method=\"convertChar\" "
+            + "return-type=\"java.lang.String\"/>"
+            + "<converter name=\"double\" class=\"com.blackbear.flatworm.converters.CoreConverters\" method=\"convertDouble\" "
+            + "return-type=\"java.lang.Double\"/>"
+            + "<record name=\"book\">"
+            + "<record-ident><field-ident field-start=\"0\" field-length=\"1\"><match-string>B</match-string></field-ident></record-ident>"
+            + "<record-definition>"
+            + "<bean name=\"book\" class=\"com.blackbear.flatworm.test.domain.Book\"/>"
+            + "<line><record-element start=\"1\" end=\"10\" beanref=\"book.sku\" converter-name=\"char\"/></line>"
+            + "<line><record-element start=\"0\" end=\"8\" beanref=\"book.price\" converter-name=\"double\"/></line>"
+            + "</record-definition></record>"
+            + "</file-format>";
+
+    private static final String DATA = "B000000001\n000012.5\nB000000002\nbad!!!!!\nB000000003\n000001.0\n";
+
+    private FileFormat fileFormat;
+
+    @Before
+    public void setup() throws Exception {
+        fileFormat = new DefaultConfigurationReaderImpl().loadConfigurationFile(
+                new ByteArrayInputStream(CONFIG.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void readTest() throws Exception {
+        List<String> skus = new ArrayList<>();
+        RejectedRecord rejectedRecord = quarantine(skus, false);
+
+        assertEquals(Arrays.asList("000000001", "000000003"), skus);
+        assertEquals("book", rejectedRecord.getRecordName());
+        assertEquals(3, rejectedRecord.getLineNumber());
+        assertEquals(-1, rejectedRecord.getByteOffset());
+        assertEquals(Arrays.asList("B000000002", "bad!!!!!"), rejectedRecord.getLines());
+        assertEquals("Converting field book.price with value 'bad!!!!!'", rejectedRecord.getReason());
+    }
+
+    @Test
+    public void readParallelTest() throws Exception {
+        List<String> skus = new ArrayList<>();
+        RejectedRecord rejectedRecord = quarantine(skus, true);
+
+        assertEquals(Arrays.asList("000000001", "000000003"), skus);
+        assertEquals(3, rejectedRecord.getLineNumber());
+        assertEquals("B000000001\n000012.5\n".length(), rejectedRecord.getByteOffset());
+        assertEquals(Arrays.asList("B000000002", "bad!!!!!"), rejectedRecord.getLines());
+    }
+
+    @Test
+    public void multiChunkParallelTest() throws Exception {
+        assertLineNumbers(false);
+    }
+
+    @Test
+    public void multiChunkStreamTest() throws Exception {
+        assertLineNumbers(true);
+    }
+
+    @Test
+    public void replayTest() throws Exception {
+        RejectedRecord rejectedRecord = quarantine(new ArrayList<>(), false);
+
+        List<String> lines = new ArrayList<>(rejectedRecord.getLines());
+        lines.set(1, "000003.5");
+        MatchedRecord record = fileFormat.newParseContext().nextRecord(lines);
+        Book book = (Book) record.getBean("book");
+        assertEquals("000000002", book.getSku());
+        assertEquals(3.5, book.getPrice(), 0.0001);
+    }
+
+    @Test
+    public void recordNameWithSpacesTest() throws Exception {
+        StringWriter quarantine = new StringWriter();
+        try (QuarantineWriter quarantineWriter = new QuarantineWriter(quarantine, 4)) {
+            quarantineWriter.write(new RejectedRecord("used book", 7, 42, Arrays.asList("U1", "U2"), "reason=with spaces"));
+        }
+
+        List<RejectedRecord> rejectedRecords = QuarantineWriter.readRejectedRecords(new BufferedReader(new StringReader(
+                quarantine.toString())));
+        assertEquals(1, rejectedRecords.size());
+        RejectedRecord rejectedRecord = rejectedRecords.get(0);
+        assertEquals("used book", rejectedRecord.getRecordName());
+        assertEquals(7, rejectedRecord.getLineNumber());
+        assertEquals(42, rejectedRecord.getByteOffset());
+        assertEquals(Arrays.asList("U1", "U2"), rejectedRecord.getLines());
+        assertEquals("reason=with spaces", rejectedRecord.getReason());
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedFileTest() throws Exception {
+        QuarantineWriter.readRejectedRecords(new BufferedReader(new StringReader("B000000002\n")));
+    }
+
+    /**
+     * Parse many small chunks (or stream ranges) and verify that the rejected records and field errors carry their line number and byte
+     * offset within the whole input rather than within their chunk.
+     */
+    private void assertLineNumbers(boolean stream) throws Exception {
+        StringBuilder data = new StringBuilder();
+        List<Long> expectedLines = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            data.append(String.format("B%09d\n", i));
+            if (i % 7 == 3) {
+                data.append("bad!!!!!\n");
+                expectedLines.add(2L * i + 1);
+            } else {
+                data.append("000012.5\n");
+            }
+        }
+
+        StringWriter quarantine = new StringWriter();
+        QuarantineWriter quarantineWriter = new QuarantineWriter(quarantine, 4);
+        List<Long> errorLines = Collections.synchronizedList(new ArrayList<>());
+        FileParser parser = new FileParser(fileFormat, data.toString());
+        parser.setQuarantineWriter(quarantineWriter);
+        parser.registerExceptionCallback((ex, message, inputLine) -> errorLines.add((long) ((FieldParseException) ex).getLineNumber()));
+        try {
+            parser.open();
+            if (stream) {
+                parser.setMinimumSplitSize(32);
+                assertEquals(40 - expectedLines.size(), parser.stream().parallel().count());
+            } else {
+                parser.readParallel(new ForkJoinPool(4), 64, ParallelDeliveryMode.ORDERED);
+            }
+        } finally {
+            parser.close();
+            quarantineWriter.close();
+        }
+
+        List<Long> lines = new ArrayList<>();
+        for (RejectedRecord rejectedRecord : QuarantineWriter.readRejectedRecords(new BufferedReader(new StringReader(
+                quarantine.toString())))) {
+            lines.add(rejectedRecord.getLineNumber());
+            assertEquals("Each record is 20 bytes.", (rejectedRecord.getLineNumber() - 1) / 2 * 20, rejectedRecord.getByteOffset());
+        }
+        Collections.sort(lines);
+        Collections.sort(errorLines);
+        assertEquals(expectedLines, lines);
+        assertEquals(expectedLines, errorLines);
+    }
+
+    /**
+     * Parse the {@code DATA} with a {@link QuarantineWriter}, read the quarantine file back and return the only rejected record.
+     */
+    private RejectedRecord quarantine(List<String> skus, boolean parallel) throws Exception {
+        StringWriter quarantine = new StringWriter();
+        QuarantineWriter quarantineWriter = new QuarantineWriter(quarantine, 4);
+        FileParser parser = new FileParser(fileFormat, DATA);
+        parser.setQuarantineWriter(quarantineWriter);
+        parser.registerRecordCallback("book", record -> skus.add(((Book) record.getBean("book")).getSku()));
+        try {
+            parser.open();
+            if (parallel) {
+                parser.readParallel(ParallelDeliveryMode.ORDERED);
+            } else {
+                parser.read();
+            }
+        } finally {
+            parser.close();
+            quarantineWriter.close();
+        }
+
+        assertEquals(1, quarantineWriter.getWrittenCount());
+        assertTrue(quarantine.toString().startsWith(QuarantineWriter.HEADER_PREFIX + "line=3 "));
+        List<RejectedRecord> rejectedRecords = QuarantineWriter.readRejectedRecords(new BufferedReader(new StringReader(
+                quarantine.toString())));
+        assertEquals(1, rejectedRecords.size());
+        return rejectedRecords.get(0);
+    }
+}
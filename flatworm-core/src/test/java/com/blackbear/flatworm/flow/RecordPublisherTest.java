@@ -0,0 +1,175 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.flow;
+
+import com.blackbear.flatworm.FileParser;
+import com.blackbear.flatworm.MatchedRecord;
+import com.blackbear.flatworm.test.domain.Book;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verify that the {@link RecordPublisher} honours demand, cancellation and the single subscriber restriction.
+ *
+ * @author Alan Henson
+ */
+public class RecordPublisherTest {
+
+    private static final String CONFIG = "<file-format encoding=\"UTF-8\">"
+            + "<converter name=\"char\" class=\"com.blackbear.flatworm.converters.CoreConverters\" method=\"convertChar\" "
+            + "return-type=\"java.lang.String\"/>"
+            + "<record name=\"book\">"
+            + "<record-ident><field-ident field-start=\"0\" field-length=\"1\"><match-string>B</match-string></field-ident></record-ident>"
+            + "<record-definition>"
+            + "<bean name=\"book\" class=\"com.blackbear.flatworm.test.domain.Book\"/>"
+            + "<line><record-element start=\"1\" end=\"10\" beanref=\"book.sku\" converter-name=\"char\"/></line>"
+            + "</record-definition></record>"
+            + "</file-format>";
+
+    private FileParser parser;
+    private ExecutorService executor;
+
+    @Before
+    public void setup() throws Exception {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            data.append(String.format("B%09d%n", i));
+        }
+        parser = new FileParser(CONFIG, data.toString());
+        parser.open();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        parser.close();
+    }
+
+    @Test
+    public void demandTest() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        parser.publisher(Runnable::run, 3).subscribe(subscriber);
+        assertTrue(subscriber.skus.isEmpty());
+
+        subscriber.subscription.request(5);
+        assertEquals(5, subscriber.skus.size());
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(100, subscriber.skus.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, subscriber.skus.get(i).intValue());
+        }
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void asynchronousTest() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onNext(MatchedRecord item) {
+                super.onNext(item);
+                // Request one at a time, as a slow consumer would.
+                subscription.request(1);
+            }
+        };
+        parser.publisher(executor, 10).subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertEquals(100, subscriber.skus.size());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void cancelTest() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        parser.publisher(Runnable::run, 0).subscribe(subscriber);
+        subscriber.subscription.request(2);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(10);
+
+        assertEquals(2, subscriber.skus.size());
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void invalidRequestTest() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        parser.publisher(Runnable::run, 0).subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void singleSubscriberTest() {
+        RecordPublisher publisher = parser.publisher(Runnable::run, 0);
+        publisher.subscribe(new RecordingSubscriber());
+
+        RecordingSubscriber second = new RecordingSubscriber();
+        publisher.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    private static class RecordingSubscriber implements Subscriber<MatchedRecord> {
+        final List<Integer> skus = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Subscription subscription;
+        boolean completed;
+        Throwable error;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(MatchedRecord item) {
+            skus.add(Integer.parseInt(((Book) item.getBean("book")).getSku()));
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Flatworm - A Java Flat File Importer/Exporter Copyright (C) 2004 James M. Turner.
+ * Extended by James Lawrence 2005
+ * Extended by Josh Brackett in 2011 and 2012
+ * Extended by Alan Henson in 2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.blackbear.flatworm.hooks;
+
+import com.blackbear.flatworm.FileFormat;
+import com.blackbear.flatworm.FileParser;
+import com.blackbear.flatworm.annotations.DataIdentity;
+import com.blackbear.flatworm.annotations.Line;
+import com.blackbear.flatworm.annotations.Record;
+import com.blackbear.flatworm.annotations.Scriptlet;
+import com.blackbear.flatworm.config.LineBO;
+import com.blackbear.flatworm.config.RecordBO;
+import com.blackbear.flatworm.config.impl.DefaultAnnotationConfigurationReaderImpl;
+import com.blackbear.flatworm.config.impl.DefaultConfigurationReaderImpl;
+import com.blackbear.flatworm.config.impl.PredicateIdentityImpl;
+import com.blackbear.flatworm.converters.ConversionHelper;
+import com.blackbear.flatworm.errors.FlatwormConfigurationException;
+import com.blackbear.flatworm.test.domain.Book;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verify that Java hooks referenced from the XML configuration and from the {@link Scriptlet} annotation are called in place of scripts.
+ *
+ * @author Alan Henson
+ */
+public class JavaHookTest {
+
+    private static final String CONFIG = "<file-format encoding=\"UTF-8\">"
+            + "<converter name=\"char\" class=\"com.blackbear.flatworm.converters.CoreConverters\" method=\"convertChar\" "
+            + "return-type=\"java.lang.String\"/>"
+            + "<record name=\"book\">"
+            + "<record-ident><script-ident class=\"" + BookPredicate.class.getName() + "\"/></record-ident>"
+            + "<before-scriptlet class=\"" + CountingRecordHook.class.getName() + "\"/>"
+            + "<after-scriptlet class=\"" + CountingRecordHook.class.getName() + "\"/>"
+            + "<record-definition>"
+            + "<bean name=\"book\" class=\"com.blackbear.flatworm.test.domain.Book\"/>"
+            + "<line>"
+            + "<before-scriptlet class=\"" + CountingLineHook.class.getName() + "\"/>"
+            + "<after-scriptlet class=\"" + CountingLineHook.class.getName() + "\"/>"
+            + "<record-element start=\"1\" end=\"10\" beanref=\"book.sku\" converter-name=\"char\"/>"
+            + "</line>"
+            + "</record-definition></record>"
+            + "</file-format>";
+
+    private static final AtomicInteger BEFORE_RECORD = new AtomicInteger();
+    private static final AtomicInteger AFTER_RECORD = new AtomicInteger();
+    private static final AtomicInteger BEFORE_LINE = new AtomicInteger();
+    private static final AtomicInteger AFTER_LINE = new AtomicInteger();
+
+    @Before
+    public void setup() {
+        BEFORE_RECORD.set(0);
+        AFTER_RECORD.set(0);
+        BEFORE_LINE.set(0);
+        AFTER_LINE.set(0);
+    }
+
+    @Test
+    public void xmlHooksTest() throws Exception {
+        FileFormat fileFormat = new DefaultConfigurationReaderImpl().loadConfigurationFile(
+                new ByteArrayInputStream(CONFIG.getBytes(StandardCharsets.UTF_8)));
+        FileParser parser = new FileParser(fileFormat, "B000000001\nB000000003\n");
+        List<String> skus = new ArrayList<>();
+        parser.registerRecordCallback("book", record -> skus.add(((Book) record.getBean("book")).getSku()));
+        try {
+            parser.open();
+            parser.read();
+        } finally {
+            parser.close();
+        }
+
+        RecordBO record = fileFormat.getRecord("book");
+        assertTrue(record.getRecordIdentity() instanceof PredicateIdentityImpl);
+        assertNull("No scriptlet should be created for a Java hook.", record.getBeforeScriptlet());
+
+        assertFalse(record.getRecordIdentity().matchesIdentity(record, fileFormat, "X000000002"));
+
+        assertEquals(Arrays.asList("000000001", "000000003"), skus);
+        assertEquals(2, BEFORE_RECORD.get());
+        assertEquals(2, AFTER_RECORD.get());
+        assertEquals(2, BEFORE_LINE.get());
+        assertEquals(2, AFTER_LINE.get());
+    }
+
+    @Test
+    public void annotationHooksTest() throws Exception {
+        DefaultAnnotationConfigurationReaderImpl reader = new DefaultAnnotationConfigurationReaderImpl();
+        reader.setPerformValidation(false);
+        RecordBO record = reader.loadRecord(HookedBean.class.getAnnotation(Record.class));
+
+        assertTrue(record.getRecordIdentity() instanceof PredicateIdentityImpl);
+        assertTrue(record.getRecordIdentity().matchesIdentity(record, new FileFormat(), "B1"));
+        assertFalse(record.getRecordIdentity().matchesIdentity(record, new FileFormat(), "X1"));
+        assertNotNull(record.getBeforeRecordHook());
+        assertNull(record.getBeforeScriptlet());
+        assertNull(record.getAfterRecordHook());
+    }
+
+    @Test(expected = FlatwormConfigurationException.class)
+    public void wrongHookTypeTest() throws Exception {
+        Hooks.newInstance(BookPredicate.class, BeforeRecordHook.class);
+    }
+
+    @Test(expected = FlatwormConfigurationException.class)
+    public void missingConstructorTest() throws Exception {
+        Hooks.newInstance(PrefixPredicate.class, LineIdentityPredicate.class);
+    }
+
+    @Test
+    public void failingConstructorTest() {
+        try {
+            Hooks.newInstance(FailingPredicate.class, LineIdentityPredicate.class);
+            fail("The constructor's failure should have been reported.");
+        } catch (FlatwormConfigurationException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("No predicate today"));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    public static class BookPredicate implements LineIdentityPredicate {
+        @Override
+        public boolean matches(FileFormat fileFormat, String line) {
+            return line.startsWith("B");
+        }
+    }
+
+    public static class FailingPredicate implements LineIdentityPredicate {
+        public FailingPredicate() {
+            throw new IllegalStateException("No predicate today");
+        }
+
+        @Override
+        public boolean matches(FileFormat fileFormat, String line) {
+            return false;
+        }
+    }
+
+    public static class PrefixPredicate implements LineIdentityPredicate {
+        private final String prefix;
+
+        public PrefixPredicate(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean matches(FileFormat fileFormat, String line) {
+            return line.startsWith(prefix);
+        }
+    }
+
+    public static class CountingRecordHook implements BeforeRecordHook, AfterRecordHook {
+        @Override
+        public void beforeRecord(FileFormat fileFormat, String line) {
+            BEFORE_RECORD.incrementAndGet();
+        }
+
+        @Override
+        public void afterRecord(FileFormat fileFormat) {
+            AFTER_RECORD.incrementAndGet();
+        }
+    }
+
+    public static class CountingLineHook implements BeforeLineHook, AfterLineHook {
+        @Override
+        public void beforeLine(LineBO line, String inputLine, Map<String, Object> beans, ConversionHelper conversionHelper) {
+            BEFORE_LINE.incrementAndGet();
+        }
+
+        @Override
+        public void afterLine(LineBO line, String inputLine, Map<String, Object> beans, ConversionHelper conversionHelper) {
+            AFTER_LINE.incrementAndGet();
+        }
+    }
+
+    @Record(name = "HookedBean",
+            lines = {@Line},
+            identity = @DataIdentity(scriptIdentity = @Scriptlet(javaClass = BookPredicate.class, enabled = true)),
+            beforeReadRecordScript = @Scriptlet(javaClass = CountingRecordHook.class, enabled = true))
+    public static class HookedBean {
+    }
+}